@@ -0,0 +1,72 @@
+package filters;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DietMatcherBenchmark class measures matching one recipe against all four
+ * diets, both in a single DietMatcher pass and with the per-diet checks of
+ * DietFilter. Each call takes the next recipe of the corpus, so larger corpora
+ * show the effect of ingredient texts that no longer fit in the CPU caches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DietMatcherBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	int corpusSize;
+
+	private List<DietFilter> filters;
+	private DietMatcher matcher;
+	private RecipeCorpus corpus;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		filters = Arrays.asList(new LFVDietFilter(), new LCHFDietFilter(), new LFDietFilter(),
+				new LFVAFDietFilter());
+		matcher = new DietMatcher(filters);
+		corpus = new RecipeCorpus(filters, corpusSize, 42);
+	}
+
+	private int nextRecipe() {
+		int index = next;
+		next = index + 1 == corpus.size() ? 0 : index + 1;
+		return index;
+	}
+
+	@Benchmark
+	public List<DietFilter> matchAllDiets() {
+		int i = nextRecipe();
+		return matcher.match(corpus.getIngredientsText(i), corpus.getTags(i));
+	}
+
+	@Benchmark
+	public void checkEachDiet(Blackhole blackhole) {
+		int i = nextRecipe();
+		String ingredients = corpus.getIngredientsText(i);
+		List<String> tags = corpus.getTags(i);
+		for (DietFilter filter : filters) {
+			blackhole.consume(filter.excludesEliminatedIngredients(ingredients)
+					&& filter.includesAddedIngredients(ingredients) && filter.avoidsRecipeTags(tags));
+		}
+	}
+}
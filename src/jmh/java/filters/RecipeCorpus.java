@@ -0,0 +1,82 @@
+package filters;
+
+import scraper.CategoryMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The RecipeCorpus class generates ingredient lists and tag lists that look
+ * like the ones on the site, for benchmarks. About a third of the ingredients
+ * come from the diets' add and eliminate lists, so every diet both matches and
+ * rejects recipes; the rest are everyday ingredients no diet mentions. The
+ * same seed always yields the same corpus.
+ */
+public class RecipeCorpus {
+	private static final List<String> COMMON_INGREDIENTS = Arrays.asList("salt", "water", "turmeric powder",
+			"chilli powder", "cumin seeds", "mustard seeds", "asafoetida", "curry leaves", "ginger", "garlic",
+			"green chillies", "coriander", "lemon juice", "sugar", "oil", "onions", "tomatoes", "cauliflower",
+			"capsicum", "spinach", "peas", "cabbage", "rice flour", "semolina", "besan", "jaggery");
+	private static final List<String> QUANTITIES = Arrays.asList("1 cup", "1/2 cup", "2 tbsp", "1 tsp",
+			"1/4 tsp", "a pinch of", "3/4 cup", "2 cups", "1 tbsp", "to taste");
+	private static final List<String> PREPARATIONS = Arrays.asList("chopped", "finely chopped", "grated",
+			"boiled and mashed", "soaked", "roasted", "", "", "");
+	private static final List<String> EXTRA_TAGS = Arrays.asList("Quick Recipes", "Kids Tiffin", "Party Food",
+			"Healthy Recipes", "Microwave", "Tawa", "Diabetic", "Iron Rich", "Festive");
+
+	private final List<String> ingredientTexts = new ArrayList<>();
+	private final List<List<String>> tagLists = new ArrayList<>();
+
+	public RecipeCorpus(List<DietFilter> filters, int size, long seed) {
+		List<String> dietIngredients = new ArrayList<>();
+		List<String> avoidedTags = new ArrayList<>();
+		for (DietFilter filter : filters) {
+			dietIngredients.addAll(filter.getAddedIngredients());
+			dietIngredients.addAll(filter.getEliminatedIngredients());
+			avoidedTags.addAll(filter.getRecipesToAvoid());
+		}
+
+		Random random = new Random(seed);
+		for (int i = 0; i < size; i++) {
+			StringBuilder text = new StringBuilder("Ingredients\n");
+			int count = 8 + random.nextInt(13);
+			for (int j = 0; j < count; j++) {
+				List<String> source = random.nextInt(3) == 0 && !dietIngredients.isEmpty() ? dietIngredients
+						: COMMON_INGREDIENTS;
+				text.append(pick(random, QUANTITIES)).append(' ').append(pick(random, PREPARATIONS)).append(' ')
+						.append(pick(random, source)).append('\n');
+			}
+			ingredientTexts.add(text.toString().replace("  ", " "));
+
+			List<String> tags = new ArrayList<>();
+			tags.add(pick(random, CategoryMapper.FOOD_CATEGORIES));
+			tags.add(pick(random, CategoryMapper.CUISINE_CATEGORIES));
+			tags.add(pick(random, CategoryMapper.RECIPE_CATEGORIES));
+			for (int j = random.nextInt(4); j > 0; j--) {
+				tags.add(pick(random, EXTRA_TAGS));
+			}
+			if (random.nextInt(10) == 0 && !avoidedTags.isEmpty()) {
+				tags.add(pick(random, avoidedTags));
+			}
+			tagLists.add(tags);
+		}
+	}
+
+	private static String pick(Random random, List<String> values) {
+		return values.get(random.nextInt(values.size()));
+	}
+
+	public int size() {
+		return ingredientTexts.size();
+	}
+
+	public String getIngredientsText(int index) {
+		return ingredientTexts.get(index);
+	}
+
+	public List<String> getTags(int index) {
+		return tagLists.get(index);
+	}
+}
@@ -0,0 +1,56 @@
+package scraper;
+
+import filters.DietFilter;
+import filters.LCHFDietFilter;
+import filters.LFVDietFilter;
+import filters.RecipeCorpus;
+import model.RecipeCategories;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CategoryMapperBenchmark class measures mapping the tags and breadcrumbs
+ * of one recipe to its food, cuisine and recipe categories.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CategoryMapperBenchmark {
+
+	@Param({ "100", "10000" })
+	int corpusSize;
+
+	private RecipeCorpus corpus;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		List<DietFilter> filters = Arrays.asList(new LFVDietFilter(), new LCHFDietFilter());
+		corpus = new RecipeCorpus(filters, corpusSize, 7);
+		// Builds the shared classifier outside the measurement
+		CategoryMapper.getClassifier();
+	}
+
+	@Benchmark
+	public RecipeCategories mapTagsToCategories() {
+		int index = next;
+		next = index + 1 == corpus.size() ? 0 : index + 1;
+		return CategoryMapper.mapTagsToCategories(corpus.getTags(index));
+	}
+}
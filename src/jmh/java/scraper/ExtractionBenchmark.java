@@ -0,0 +1,77 @@
+package scraper;
+
+import fetchers.JsoupRecipePageParser;
+import fetchers.RecipePageParser;
+import model.Recipe;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ExtractionBenchmark class measures the HTTP backend's share of a recipe
+ * page: parsing the saved HTML in fixtures/recipe.html, reading the two fields
+ * the diet filters need, and extracting the full recipe.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ExtractionBenchmark {
+	private static final String URL = "https://www.tarladalal.com/gobi-matar-sabzi-recipe";
+
+	private String html;
+	private Document document;
+
+	@Setup
+	public void setUp() throws IOException {
+		try (InputStream in = ExtractionBenchmark.class.getResourceAsStream("/fixtures/recipe.html")) {
+			if (in == null) {
+				throw new IOException("fixtures/recipe.html not on the classpath");
+			}
+			html = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		document = Jsoup.parse(html, URL);
+		CategoryMapper.getClassifier();
+	}
+
+	@Benchmark
+	public Document parseHtml() {
+		return Jsoup.parse(html, URL);
+	}
+
+	@Benchmark
+	public void extractFilterFields(Blackhole blackhole) {
+		RecipePageParser page = new JsoupRecipePageParser(document);
+		blackhole.consume(page.getIngredientsText());
+		blackhole.consume(page.getTags());
+	}
+
+	@Benchmark
+	public Recipe extractFullRecipe() {
+		RecipePageParser page = new JsoupRecipePageParser(document);
+		return RecipeExtractor.extract(URL, page, page.getIngredientsText(), page.getTags());
+	}
+
+	@Benchmark
+	public Recipe parseAndExtract() {
+		RecipePageParser page = new JsoupRecipePageParser(Jsoup.parse(html, URL));
+		return RecipeExtractor.extract(URL, page, page.getIngredientsText(), page.getTags());
+	}
+}
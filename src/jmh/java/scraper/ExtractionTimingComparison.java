@@ -0,0 +1,94 @@
+package scraper;
+
+import fetchers.RecipePageParser;
+import fetchers.ScriptedRecipePageParser;
+import fetchers.SeleniumRecipePageParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The ExtractionTimingComparison class measures how long each extraction stage
+ * takes with one findElement call per field and with a single executeScript
+ * call. Every recipe URL given on the command line is loaded once and then
+ * extracted both ways, and the mean time per stage is logged at the end. It is
+ * built with the benchmarks and run from their jar:
+ * java -cp target/benchmarks.jar scraper.ExtractionTimingComparison &lt;recipe-url&gt;...
+ */
+public class ExtractionTimingComparison {
+	private static final Logger logger = LogManager.getLogger(ExtractionTimingComparison.class);
+
+	private final Map<String, long[]> stageTimes = new LinkedHashMap<>();
+
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			logger.error("Usage: ExtractionTimingComparison <recipe-url>...");
+			return;
+		}
+
+		ExtractionTimingComparison comparison = new ExtractionTimingComparison();
+		WebDriver driver = WebDriverSetup.createDriver();
+		try {
+			for (String url : args) {
+				comparison.measure(driver, url);
+			}
+		} finally {
+			driver.quit();
+		}
+		comparison.logSummary();
+	}
+
+	private void measure(WebDriver driver, String url) {
+		long start = System.nanoTime();
+		driver.get(url);
+		new WebDriverWait(driver, Duration.ofSeconds(5)).until(
+				ExpectedConditions.visibilityOfElementLocated(By.xpath("//h4[contains(@class,'rec-heading')]")));
+		start = record("page load", start);
+
+		RecipePageParser elements = new SeleniumRecipePageParser(driver);
+		elements.getIngredientsText();
+		elements.getTags();
+		start = record("elements: filter fields", start);
+		readDetails(elements);
+		start = record("elements: full details", start);
+
+		RecipePageParser scripted = new ScriptedRecipePageParser(driver);
+		start = record("script: all fields", start);
+		readDetails(scripted);
+		record("script: mapping", start);
+	}
+
+	private static void readDetails(RecipePageParser page) {
+		page.getName();
+		page.getBreadcrumbs();
+		page.getPrepTime();
+		page.getCookTime();
+		page.getMethod();
+		page.getDescription();
+		page.getServings();
+		page.getNutrients();
+	}
+
+	private long record(String stage, long start) {
+		long now = System.nanoTime();
+		long[] totals = stageTimes.computeIfAbsent(stage, k -> new long[2]);
+		totals[0] += now - start;
+		totals[1]++;
+		return now;
+	}
+
+	private void logSummary() {
+		for (Map.Entry<String, long[]> stage : stageTimes.entrySet()) {
+			long[] totals = stage.getValue();
+			logger.info(String.format("%-26s mean %8.1f ms over %d pages", stage.getKey(),
+					totals[0] / 1_000_000.0 / totals[1], totals[1]));
+		}
+	}
+}
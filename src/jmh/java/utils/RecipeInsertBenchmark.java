@@ -0,0 +1,148 @@
+package utils;
+
+import filters.DietFilter;
+import model.Recipe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RecipeInsertBenchmark class measures how long it takes to store
+ * batchSize recipes, once with DatabaseHelper.insertRecipe, one auto-committed
+ * statement per recipe, and once through PerDietTableStorage as one JDBC batch
+ * and one commit, the way RecipeBatchWriter does. It needs the local Postgres
+ * database the scraper uses and writes to a table of its own,
+ * benchmark_recipes, which is emptied after every iteration and dropped at the
+ * end.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RecipeInsertBenchmark {
+	private static final String TABLE = "benchmark_recipes";
+
+	@Param({ "1", "50", "500" })
+	int batchSize;
+
+	private DatabaseHelper dbHelper;
+	private Connection connection;
+	private final RecipeStorage storage = new PerDietTableStorage();
+	private List<List<DietFilter>> matchingFilters;
+	private long nextId;
+
+	@Setup
+	public void setUp() throws SQLException {
+		dbHelper = new DatabaseHelper();
+		connection = DatabaseHelper.openConnection();
+		connection.setAutoCommit(false);
+		try (Statement stmt = connection.createStatement()) {
+			stmt.executeUpdate(DatabaseHelper.recipeTableSql(TABLE));
+		}
+		connection.commit();
+		matchingFilters = Collections.nCopies(batchSize,
+				Collections.<DietFilter>singletonList(new BenchmarkDiet()));
+	}
+
+	@TearDown(Level.Iteration)
+	public void emptyTable() throws SQLException {
+		execute("TRUNCATE " + TABLE);
+	}
+
+	@TearDown
+	public void tearDown() throws SQLException {
+		execute("DROP TABLE IF EXISTS " + TABLE);
+		storage.closeStatements();
+		connection.close();
+		dbHelper.close();
+	}
+
+	private void execute(String sql) throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			stmt.executeUpdate(sql);
+		}
+		connection.commit();
+	}
+
+	@Benchmark
+	public int insertOneByOne() throws SQLException {
+		int inserted = 0;
+		for (Recipe recipe : nextRecipes()) {
+			if (dbHelper.insertRecipe(TABLE, recipe)) {
+				inserted++;
+			}
+		}
+		return inserted;
+	}
+
+	@Benchmark
+	public List<List<DietFilter>> batchedWrite() throws SQLException {
+		List<List<DietFilter>> inserted = storage.write(connection, nextRecipes(), matchingFilters);
+		connection.commit();
+		return inserted;
+	}
+
+	private List<Recipe> nextRecipes() {
+		List<Recipe> recipes = new ArrayList<>(batchSize);
+		for (int i = 0; i < batchSize; i++) {
+			long id = nextId++;
+			Recipe recipe = new Recipe();
+			recipe.setName("Benchmark Recipe " + id);
+			recipe.setRecipeCategory("Lunch");
+			recipe.setFoodCategory("Vegetarian");
+			recipe.setCuisineCategory("Punjabi");
+			recipe.setIngredientsText("1 cup chopped cauliflower\n1/2 cup green peas\n2 tbsp oil\nsalt to taste");
+			recipe.setPrepTime("10 mins");
+			recipe.setCookTime("15 mins");
+			recipe.setTags(Arrays.asList("Punjabi Sabzi", "Dry Sabzi", "Low Fat"));
+			recipe.setServings("4 servings");
+			recipe.setDescription("A quick, low fat sabzi of cauliflower and green peas.");
+			recipe.setMethod("Heat the oil, add the vegetables and cook for 10 minutes.");
+			recipe.setNutrients("Energy: 142 cal, Protein: 5.2 g, Fat: 7.6 g");
+			recipe.setUrl("https://www.tarladalal.com/benchmark-recipe-" + id);
+			recipes.add(recipe);
+		}
+		return recipes;
+	}
+
+	/**
+	 * A diet whose table is the benchmark table, so PerDietTableStorage writes
+	 * there instead of into a real diet table.
+	 */
+	private static class BenchmarkDiet extends DietFilter {
+		BenchmarkDiet() {
+			super("src/main/resources/config/lf_config.json");
+		}
+
+		@Override
+		public String getDietName() {
+			return "Benchmark";
+		}
+
+		@Override
+		public String getDietTableName() {
+			return TABLE;
+		}
+	}
+}
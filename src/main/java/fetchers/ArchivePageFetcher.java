@@ -0,0 +1,47 @@
+package fetchers;
+
+import org.jsoup.Jsoup;
+
+/**
+ * The ArchivePageFetcher class serves recipe pages from a PageArchive instead
+ * of the network and parses them like the HTTP backend does. It needs neither
+ * a connection nor a browser, so replaying is bound only by the CPU. Pages
+ * missing from the archive fail with a PageNotArchivedException.
+ */
+public class ArchivePageFetcher implements PageFetcher {
+
+	private final PageArchive archive;
+
+	public ArchivePageFetcher(PageArchive archive) {
+		this.archive = archive;
+	}
+
+	@Override
+	public RecipePageParser fetch(String url) throws Exception {
+		return fetchIfModified(url, null, null).getParser();
+	}
+
+	/**
+	 * Always returns the archived page; the validators are ignored because the
+	 * archive holds one copy per page anyway.
+	 */
+	@Override
+	public FetchedPage fetchIfModified(String url, String etag, String lastModified) throws Exception {
+		PageArchive.Page page = archive.read(url);
+		if (page == null) {
+			throw new PageNotArchivedException(url);
+		}
+		return FetchedPage.of(HttpPageFetcher.parseRecipe(Jsoup.parse(page.getHtml(), url), url), page.getEtag(),
+				page.getLastModified());
+	}
+
+	@Override
+	public RecipeListing fetchListing(String url) {
+		throw new PageNotArchivedException(url);
+	}
+
+	@Override
+	public void close() {
+		// The archive is shared and closed by its owner
+	}
+}
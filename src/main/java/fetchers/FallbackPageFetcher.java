@@ -0,0 +1,87 @@
+package fetchers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.function.Supplier;
+
+/**
+ * The FallbackPageFetcher class tries a fast primary backend first and loads
+ * the page again with a fallback backend if the primary one fails. The fallback
+ * is created only when it is needed for the first time, so a worker that never
+ * falls back never starts a browser. An error that means the host is overloaded
+ * is passed on instead, so the host is not sent a second request while it is
+ * pushing back and its throttle gets to slow down.
+ */
+public class FallbackPageFetcher implements PageFetcher {
+
+	private final PageFetcher primary;
+	private final Supplier<PageFetcher> fallbackFactory;
+	private PageFetcher fallback;
+	private static final Logger logger = LogManager.getLogger(FallbackPageFetcher.class);
+
+	public FallbackPageFetcher(PageFetcher primary, Supplier<PageFetcher> fallbackFactory) {
+		this.primary = primary;
+		this.fallbackFactory = fallbackFactory;
+	}
+
+	@Override
+	public RecipePageParser fetch(String url) throws Exception {
+		try {
+			return primary.fetch(url);
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			if (ThrottledPageFetcher.isOverload(e)) {
+				throw e;
+			}
+			logger.warn("Primary fetch failed, falling back (" + e.getMessage() + "): " + url);
+			return getFallback().fetch(url);
+		}
+	}
+
+	@Override
+	public FetchedPage fetchIfModified(String url, String etag, String lastModified) throws Exception {
+		try {
+			return primary.fetchIfModified(url, etag, lastModified);
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			if (ThrottledPageFetcher.isOverload(e)) {
+				throw e;
+			}
+			logger.warn("Primary fetch failed, falling back (" + e.getMessage() + "): " + url);
+			return getFallback().fetchIfModified(url, etag, lastModified);
+		}
+	}
+
+	@Override
+	public RecipeListing fetchListing(String url) throws Exception {
+		try {
+			return primary.fetchListing(url);
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			if (ThrottledPageFetcher.isOverload(e)) {
+				throw e;
+			}
+			logger.warn("Primary listing fetch failed, falling back (" + e.getMessage() + "): " + url);
+			return getFallback().fetchListing(url);
+		}
+	}
+
+	private PageFetcher getFallback() {
+		if (fallback == null) {
+			fallback = fallbackFactory.get();
+		}
+		return fallback;
+	}
+
+	@Override
+	public void close() {
+		primary.close();
+		if (fallback != null) {
+			fallback.close();
+		}
+	}
+}
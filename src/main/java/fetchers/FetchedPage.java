@@ -0,0 +1,48 @@
+package fetchers;
+
+/**
+ * The FetchedPage class is the result of a conditional page load. Either the
+ * server answered that the page has not changed since the validators sent with
+ * the request, or it holds the parsed page together with the ETag and
+ * Last-Modified values to send on the next visit.
+ */
+public class FetchedPage {
+	private static final FetchedPage NOT_MODIFIED = new FetchedPage(null, null, null);
+
+	private final RecipePageParser parser;
+	private final String etag;
+	private final String lastModified;
+
+	private FetchedPage(RecipePageParser parser, String etag, String lastModified) {
+		this.parser = parser;
+		this.etag = etag;
+		this.lastModified = lastModified;
+	}
+
+	public static FetchedPage of(RecipePageParser parser, String etag, String lastModified) {
+		return new FetchedPage(parser, etag, lastModified);
+	}
+
+	public static FetchedPage notModified() {
+		return NOT_MODIFIED;
+	}
+
+	public boolean isNotModified() {
+		return parser == null;
+	}
+
+	/**
+	 * Returns the parsed page, or null if the page has not changed.
+	 */
+	public RecipePageParser getParser() {
+		return parser;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+
+	public String getLastModified() {
+		return lastModified;
+	}
+}
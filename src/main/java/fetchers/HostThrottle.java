@@ -0,0 +1,139 @@
+package fetchers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HostThrottle class limits the requests sent to one host in two ways. A
+ * token bucket caps the request rate, allowing short bursts. An AIMD limit caps
+ * the number of requests in flight: every healthy, fast response raises it by
+ * about one per round of requests, while a timeout, 429 or 5xx response halves
+ * it and pauses the host for a cool-down period. The crawl thus speeds up as
+ * far as the site allows and backs off quickly once it starts to push back.
+ */
+public class HostThrottle {
+	private static final double LATENCY_SMOOTHING = 0.2;
+
+	private final String host;
+	private final double requestsPerSecond;
+	private final double burst;
+	private final int maxConcurrency;
+	private final long latencyThresholdNanos;
+	private final long cooldownNanos;
+
+	private double tokens;
+	private long lastRefill = System.nanoTime();
+	private double concurrencyLimit;
+	private int inFlight;
+	private double averageLatencyMillis;
+	private long pausedUntil;
+	private long lastDecrease;
+	private long requestCount;
+	private long overloadCount;
+
+	public HostThrottle(String host, double requestsPerSecond, int burst, int initialConcurrency,
+			int maxConcurrency, long latencyThresholdMillis, long cooldownMillis) {
+		this.host = host;
+		this.requestsPerSecond = Math.max(0.01, requestsPerSecond);
+		this.burst = Math.max(1, burst);
+		this.maxConcurrency = Math.max(1, maxConcurrency);
+		this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+		this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+		this.tokens = this.burst;
+		this.concurrencyLimit = Math.min(this.maxConcurrency, Math.max(1, initialConcurrency));
+	}
+
+	/**
+	 * Waits until the host is not paused, a request slot is free and the bucket
+	 * has a token, then takes both. Every call must be followed by release().
+	 */
+	public synchronized void acquire() throws InterruptedException {
+		while (true) {
+			long now = System.nanoTime();
+			refill(now);
+			if (now < pausedUntil) {
+				TimeUnit.NANOSECONDS.timedWait(this, pausedUntil - now);
+			} else if (inFlight >= (int) concurrencyLimit) {
+				wait();
+			} else if (tokens < 1) {
+				TimeUnit.NANOSECONDS.timedWait(this, (long) ((1 - tokens) / requestsPerSecond * 1e9) + 1);
+			} else {
+				tokens -= 1;
+				inFlight++;
+				requestCount++;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Gives the request slot back and adjusts the concurrency limit to how the
+	 * request went.
+	 *
+	 * @param overloaded true if the host timed out or answered 429 or 5xx
+	 */
+	public synchronized void release(long latencyNanos, boolean overloaded) {
+		inFlight--;
+		long now = System.nanoTime();
+		double latencyMillis = latencyNanos / 1e6;
+		averageLatencyMillis = averageLatencyMillis == 0 ? latencyMillis
+				: averageLatencyMillis + LATENCY_SMOOTHING * (latencyMillis - averageLatencyMillis);
+
+		if (overloaded) {
+			overloadCount++;
+			// Requests already in flight report the same overload; back off once per round trip
+			long window = Math.max(TimeUnit.SECONDS.toNanos(1), (long) (averageLatencyMillis * 1e6));
+			if (now - lastDecrease > window) {
+				concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+				pausedUntil = now + cooldownNanos;
+				lastDecrease = now;
+			}
+		} else if (latencyNanos <= latencyThresholdNanos) {
+			concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1 / concurrencyLimit);
+		}
+		notifyAll();
+	}
+
+	private void refill(long now) {
+		tokens = Math.min(burst, tokens + (now - lastRefill) / 1e9 * requestsPerSecond);
+		lastRefill = now;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public synchronized int getConcurrencyLimit() {
+		return (int) concurrencyLimit;
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	public synchronized double getAverageLatencyMillis() {
+		return averageLatencyMillis;
+	}
+
+	public double getRequestsPerSecond() {
+		return requestsPerSecond;
+	}
+
+	public synchronized long getRequestCount() {
+		return requestCount;
+	}
+
+	public synchronized long getOverloadCount() {
+		return overloadCount;
+	}
+
+	public synchronized boolean isPaused() {
+		return System.nanoTime() < pausedUntil;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%s: limit=%d/%d, in flight=%d, %.1f req/s, latency=%.0f ms, requests=%d, "
+				+ "overloads=%d%s", host, (int) concurrencyLimit, maxConcurrency, inFlight, requestsPerSecond,
+				averageLatencyMillis, requestCount, overloadCount, isPaused() ? ", paused" : "");
+	}
+}
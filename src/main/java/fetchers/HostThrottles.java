@@ -0,0 +1,55 @@
+package fetchers;
+
+import metrics.MetricsRegistry;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The HostThrottles class hands out one HostThrottle per host, created on
+ * first use with the same settings, so every fetcher that talks to a host
+ * shares its rate and concurrency limits. Each new throttle publishes its
+ * limit, requests in flight and latency as gauges labelled with the host.
+ */
+public class HostThrottles {
+	private final Map<String, HostThrottle> throttles = new ConcurrentHashMap<>();
+	private final double requestsPerSecond;
+	private final int burst;
+	private final int initialConcurrency;
+	private final int maxConcurrency;
+	private final long latencyThresholdMillis;
+	private final long cooldownMillis;
+
+	public HostThrottles(double requestsPerSecond, int burst, int initialConcurrency, int maxConcurrency,
+			long latencyThresholdMillis, long cooldownMillis) {
+		this.requestsPerSecond = requestsPerSecond;
+		this.burst = burst;
+		this.initialConcurrency = initialConcurrency;
+		this.maxConcurrency = maxConcurrency;
+		this.latencyThresholdMillis = latencyThresholdMillis;
+		this.cooldownMillis = cooldownMillis;
+	}
+
+	public HostThrottle forUrl(String url) {
+		String host = URI.create(url).getHost();
+		return throttles.computeIfAbsent(host == null ? "" : host, this::create);
+	}
+
+	private HostThrottle create(String host) {
+		HostThrottle throttle = new HostThrottle(host, requestsPerSecond, burst, initialConcurrency,
+				maxConcurrency, latencyThresholdMillis, cooldownMillis);
+		MetricsRegistry metrics = MetricsRegistry.get();
+		metrics.gauge("scraper_host_concurrency_limit", throttle::getConcurrencyLimit, "host", host);
+		metrics.gauge("scraper_host_in_flight", throttle::getInFlight, "host", host);
+		metrics.gauge("scraper_host_latency_millis", throttle::getAverageLatencyMillis, "host", host);
+		metrics.gauge("scraper_host_overloads", throttle::getOverloadCount, "host", host);
+		return throttle;
+	}
+
+	public List<HostThrottle> getAll() {
+		return new ArrayList<>(throttles.values());
+	}
+}
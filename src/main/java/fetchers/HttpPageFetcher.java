@@ -0,0 +1,137 @@
+package fetchers;
+
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The HttpPageFetcher class downloads recipe pages with a plain HTTP GET and
+ * parses them as static HTML. The site renders recipes on the server (the
+ * browser backend already runs with JavaScript disabled), so no browser is
+ * needed. One HttpClient can be shared by many fetchers, which keeps thousands
+ * of concurrent requests cheap.
+ */
+public class HttpPageFetcher implements PageFetcher {
+	public static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 "
+			+ "(KHTML, like Gecko) Chrome/136.0.0.0 Safari/537.36";
+
+	private static final LatencyHistogram PAGE_LOAD = MetricsRegistry.get().histogram("scraper_page_load_seconds",
+			"backend", "http");
+
+	private final HttpClient client;
+	private final Duration requestTimeout;
+
+	public HttpPageFetcher(HttpClient client, Duration requestTimeout) {
+		this.client = client;
+		this.requestTimeout = requestTimeout;
+	}
+
+	public static HttpClient createClient(Duration connectTimeout) {
+		return HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).connectTimeout(connectTimeout)
+				.build();
+	}
+
+	@Override
+	public RecipePageParser fetch(String url) throws IOException, InterruptedException {
+		return parseRecipe(get(url), url);
+	}
+
+	/**
+	 * Sends If-None-Match and If-Modified-Since with the given validators, so an
+	 * unchanged page costs a 304 response without a body.
+	 */
+	@Override
+	public FetchedPage fetchIfModified(String url, String etag, String lastModified)
+			throws IOException, InterruptedException {
+		HttpRequest.Builder request = newRequest(url);
+		if (etag != null) {
+			request.header("If-None-Match", etag);
+		}
+		if (lastModified != null) {
+			request.header("If-Modified-Since", lastModified);
+		}
+		HttpResponse<String> response = send(request.build());
+		if (response.statusCode() == 304) {
+			return FetchedPage.notModified();
+		}
+		checkStatus(response, url);
+		return FetchedPage.of(parseRecipe(Jsoup.parse(response.body(), url), url),
+				response.headers().firstValue("ETag").orElse(null),
+				response.headers().firstValue("Last-Modified").orElse(null));
+	}
+
+	static RecipePageParser parseRecipe(Document document, String url) {
+		JsoupRecipePageParser parser = new JsoupRecipePageParser(document);
+		if (!parser.hasRecipeHeading()) {
+			throw new PageStructureException("Recipe heading not found: " + url);
+		}
+		return parser;
+	}
+
+	@Override
+	public RecipeListing fetchListing(String url) throws IOException, InterruptedException {
+		Document document = get(url);
+
+		List<String> recipeUrls = new ArrayList<>();
+		for (Element link : document.select("div[class*=recipe-list] h5 a")) {
+			recipeUrls.add(link.absUrl("href"));
+		}
+
+		// The last page is the pager entry just before "Next"
+		int lastPage = 0;
+		for (Element next : document.select("li.page-item a")) {
+			if (!next.text().trim().equals("Next")) {
+				continue;
+			}
+			Element previous = next.closest("li").previousElementSibling();
+			Element lastLink = previous != null ? previous.selectFirst("a") : null;
+			if (lastLink != null) {
+				lastPage = Integer.parseInt(lastLink.text().trim());
+				break;
+			}
+		}
+		return new RecipeListing(recipeUrls, lastPage);
+	}
+
+	private Document get(String url) throws IOException, InterruptedException {
+		HttpResponse<String> response = send(newRequest(url).build());
+		checkStatus(response, url);
+		return Jsoup.parse(response.body(), url);
+	}
+
+	private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		try {
+			return client.send(request, HttpResponse.BodyHandlers.ofString());
+		} finally {
+			PAGE_LOAD.recordSince(start);
+		}
+	}
+
+	private HttpRequest.Builder newRequest(String url) {
+		return HttpRequest.newBuilder(URI.create(url)).timeout(requestTimeout).header("User-Agent", USER_AGENT)
+				.GET();
+	}
+
+	private static void checkStatus(HttpResponse<String> response, String url) throws IOException {
+		if (response.statusCode() != 200) {
+			throw new HttpStatusException(response.statusCode(), url);
+		}
+	}
+
+	@Override
+	public void close() {
+		// The HttpClient is shared between workers and has nothing to release
+	}
+}
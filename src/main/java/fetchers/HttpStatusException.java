@@ -0,0 +1,23 @@
+package fetchers;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the server answers a page request with a status other than 200
+ * OK. The status code tells a temporary problem (429, 5xx) from a page that is
+ * gone (404, 410).
+ */
+public class HttpStatusException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	private final int statusCode;
+
+	public HttpStatusException(int statusCode, String url) {
+		super("HTTP " + statusCode + " for " + url);
+		this.statusCode = statusCode;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+}
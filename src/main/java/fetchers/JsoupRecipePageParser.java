@@ -0,0 +1,174 @@
+package fetchers;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.Elements;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The JsoupRecipePageParser class reads recipe fields from static HTML. It
+ * mirrors the XPath locators of SeleniumRecipePageParser with equivalent CSS
+ * selectors and renders element text with line breaks between block elements,
+ * the way WebDriver's getText() does, so both backends produce the same values.
+ */
+public class JsoupRecipePageParser implements RecipePageParser {
+
+	private final Document document;
+
+	public JsoupRecipePageParser(Document document) {
+		this.document = document;
+	}
+
+	public Document getDocument() {
+		return document;
+	}
+
+	public boolean hasRecipeHeading() {
+		return document.selectFirst("h4[class*=rec-heading]") != null;
+	}
+
+	@Override
+	public String getName() {
+		return textOf(document.selectFirst("h4[class*=rec-heading] span"));
+	}
+
+	@Override
+	public String getIngredientsText() {
+		return textOf(document.getElementById("ingredients"));
+	}
+
+	@Override
+	public List<String> getTags() {
+		List<String> tags = new ArrayList<>();
+		for (Element el : document.select("ul[class=tags-list] li > a")) {
+			tags.add(textOf(el));
+		}
+		return tags;
+	}
+
+	@Override
+	public List<String> getBreadcrumbs() {
+		List<String> breadcrumbs = new ArrayList<>();
+		Element breadcrumbContainer = document.selectFirst("p:contains(You are here)");
+		if (breadcrumbContainer == null) {
+			return breadcrumbs;
+		}
+
+		for (Element link : breadcrumbContainer.getElementsByTag("a")) {
+			breadcrumbs.add(textOf(link));
+		}
+		for (Element span : breadcrumbContainer.getElementsByTag("span")) {
+			Elements innerLinks = span.getElementsByTag("a");
+			breadcrumbs.add(textOf(innerLinks.isEmpty() ? span : innerLinks.first()));
+		}
+		return breadcrumbs;
+	}
+
+	@Override
+	public String getPrepTime() {
+		return textOf(document.selectFirst("h6:containsOwn(Preparation Time) ~ p > strong"));
+	}
+
+	@Override
+	public String getCookTime() {
+		return textOf(document.selectFirst("h6:containsOwn(Cooking Time) ~ p > strong"));
+	}
+
+	@Override
+	public String getServings() {
+		return textOf(document.selectFirst("h6:containsOwn(Makes) ~ p strong"));
+	}
+
+	@Override
+	public String getMethod() {
+		return textOf(document.getElementById("methods"));
+	}
+
+	@Override
+	public String getDescription() {
+		return textOf(document.selectFirst("div#aboutrecipe p"));
+	}
+
+	@Override
+	public String getNutrients() {
+		StringBuilder nutrientData = new StringBuilder();
+		for (Element row : document.select("table#rcpnutrients tr")) {
+			Elements cols = row.getElementsByTag("td");
+			if (cols.size() == 2) {
+				nutrientData.append(textOf(cols.get(0))).append(": ").append(textOf(cols.get(1))).append(", ");
+			}
+		}
+		if (nutrientData.length() > 0) {
+			nutrientData.setLength(nutrientData.length() - 2); // remove trailing comma
+		}
+		return nutrientData.toString();
+	}
+
+	@Override
+	public String getPageSource() {
+		return document.outerHtml();
+	}
+
+	/**
+	 * Renders the text of an element roughly the way a browser displays it: runs
+	 * of whitespace collapse to one space and block elements start a new line.
+	 */
+	static String textOf(Element element) {
+		if (element == null) {
+			return "";
+		}
+		StringBuilder text = new StringBuilder();
+		NodeTraversor.traverse(new NodeVisitor() {
+			@Override
+			public void head(Node node, int depth) {
+				if (node instanceof TextNode) {
+					appendCollapsed(text, ((TextNode) node).getWholeText());
+				} else if (node instanceof Element) {
+					Element el = (Element) node;
+					if (el.normalName().equals("br") || (el.isBlock() && depth > 0)) {
+						newLine(text);
+					}
+				}
+			}
+
+			@Override
+			public void tail(Node node, int depth) {
+				if (node instanceof Element && ((Element) node).isBlock() && depth > 0) {
+					newLine(text);
+				}
+			}
+		}, element);
+		return text.toString().trim();
+	}
+
+	private static void appendCollapsed(StringBuilder text, String raw) {
+		for (int i = 0; i < raw.length(); i++) {
+			char c = raw.charAt(i);
+			if (Character.isWhitespace(c) || c == '\u00a0') {
+				int last = text.length() - 1;
+				if (last >= 0 && text.charAt(last) != ' ' && text.charAt(last) != '\n') {
+					text.append(' ');
+				}
+			} else {
+				text.append(c);
+			}
+		}
+	}
+
+	private static void newLine(StringBuilder text) {
+		int last = text.length() - 1;
+		if (last >= 0 && text.charAt(last) == ' ') {
+			text.setLength(last);
+			last--;
+		}
+		if (last >= 0 && text.charAt(last) != '\n') {
+			text.append('\n');
+		}
+	}
+}
@@ -0,0 +1,293 @@
+package fetchers;
+
+import metrics.Counter;
+import metrics.MetricsRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The ManagedDriver class owns the browser session of one worker and replaces
+ * it when it wears out or breaks:
+ *
+ * <ul>
+ * <li>after a fixed number of pages, or when the browser's processes use more
+ * memory than allowed, so Chrome's growth over thousands of navigations
+ * stays bounded;</li>
+ * <li>when a quick health check before a page finds the session dead;</li>
+ * <li>when a page takes longer than the hang timeout. A watchdog thread then
+ * kills the browser, which makes the stuck call fail, and the page is tried
+ * once more on a new session, so the URL is not lost.</li>
+ * </ul>
+ *
+ * Every browser gets a profile directory of its own, which is how its
+ * processes are found for measuring memory and for killing. That part only
+ * works where process command lines are readable, as on Linux; elsewhere the
+ * memory limit is skipped and a hung session is only asked to quit.
+ */
+public class ManagedDriver implements AutoCloseable {
+	private static final int MEMORY_CHECK_INTERVAL = 20;
+	private static final Logger logger = LogManager.getLogger(ManagedDriver.class);
+	private static final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "driver-watchdog");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Function<Path, WebDriver> driverFactory;
+	private final int maxPages;
+	private final long maxMemoryBytes;
+	private final long hangTimeoutNanos;
+	private final ScheduledFuture<?> watchdogTask;
+	private volatile WebDriver driver;
+	private volatile Path profileDir;
+	private volatile long pageStartNanos;
+	private volatile String currentUrl;
+	private volatile boolean killed;
+	private int pages;
+
+	/**
+	 * Starts the first browser right away.
+	 *
+	 * @param driverFactory   creates a browser that uses the given profile
+	 *                        directory
+	 * @param maxPages        pages after which the session is replaced, or 0 for
+	 *                        no limit
+	 * @param maxMemoryMb     memory of the browser processes above which the
+	 *                        session is replaced, or 0 for no limit
+	 * @param hangTimeoutSecs time after which a page is considered hung, or 0 to
+	 *                        run without a watchdog
+	 */
+	public ManagedDriver(Function<Path, WebDriver> driverFactory, int maxPages, long maxMemoryMb,
+			long hangTimeoutSecs) {
+		this.driverFactory = driverFactory;
+		this.maxPages = maxPages;
+		this.maxMemoryBytes = maxMemoryMb * 1024 * 1024;
+		this.hangTimeoutNanos = TimeUnit.SECONDS.toNanos(hangTimeoutSecs);
+		start();
+		this.watchdogTask = hangTimeoutSecs > 0
+				? watchdog.scheduleWithFixedDelay(this::checkForHang, 1, 1, TimeUnit.SECONDS)
+				: null;
+	}
+
+	private ManagedDriver(WebDriver driver) {
+		this.driverFactory = null;
+		this.maxPages = 0;
+		this.maxMemoryBytes = 0;
+		this.hangTimeoutNanos = 0;
+		this.watchdogTask = null;
+		this.driver = driver;
+	}
+
+	/**
+	 * Wraps a driver created elsewhere. It is never replaced and has no
+	 * watchdog.
+	 */
+	public static ManagedDriver of(WebDriver driver) {
+		return new ManagedDriver(driver);
+	}
+
+	public WebDriver get() {
+		return driver;
+	}
+
+	/**
+	 * Runs one page load on the session, replacing the session first if it is
+	 * due or unhealthy. If the watchdog kills the session while the page loads,
+	 * the page is loaded again once on a new session.
+	 */
+	public <T> T load(String url, Function<WebDriver, T> pageLoad) {
+		prepare();
+		for (int attempt = 1;; attempt++) {
+			killed = false;
+			currentUrl = url;
+			pageStartNanos = System.nanoTime();
+			try {
+				T result = pageLoad.apply(driver);
+				pages++;
+				return result;
+			} catch (WebDriverException e) {
+				if (!killed || attempt > 1) {
+					throw e;
+				}
+				logger.warn("♻ Loading " + url + " again on a new browser session");
+				replace("hung");
+			} finally {
+				pageStartNanos = 0;
+			}
+		}
+	}
+
+	private void prepare() {
+		if (driverFactory == null) {
+			return;
+		}
+		if (killed) {
+			replace("hung");
+		} else if (maxPages > 0 && pages >= maxPages) {
+			replace("pages");
+		} else if (maxMemoryBytes > 0 && pages > 0 && pages % MEMORY_CHECK_INTERVAL == 0
+				&& browserMemoryBytes() > maxMemoryBytes) {
+			replace("memory");
+		} else if (!isHealthy()) {
+			replace("unhealthy");
+		}
+	}
+
+	private boolean isHealthy() {
+		try {
+			driver.getWindowHandle();
+			return true;
+		} catch (WebDriverException e) {
+			logger.warn("⚠ Browser session failed its health check: " + e.getClass().getSimpleName());
+			return false;
+		}
+	}
+
+	private void replace(String reason) {
+		logger.info("♻ Replacing browser session (" + reason + ") after " + pages + " pages");
+		MetricsRegistry.get().counter("scraper_driver_recycles_total", "reason", reason).increment();
+		stop();
+		start();
+	}
+
+	private void start() {
+		try {
+			profileDir = Files.createTempDirectory("scraper-chrome-");
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to create browser profile directory: " + e.getMessage(), e);
+		}
+		driver = driverFactory.apply(profileDir);
+		pages = 0;
+		killed = false;
+	}
+
+	private void stop() {
+		WebDriver current = driver;
+		try {
+			current.quit();
+		} catch (WebDriverException e) {
+			// Already gone, as after the watchdog killed it
+		}
+		destroyBrowserProcesses();
+		deleteProfile();
+	}
+
+	/**
+	 * Runs on the watchdog thread. Killing the browser processes makes the call
+	 * blocked in the worker fail quickly, where quitting over the WebDriver
+	 * protocol might hang as well.
+	 */
+	private void checkForHang() {
+		long start = pageStartNanos;
+		if (start == 0 || killed || System.nanoTime() - start < hangTimeoutNanos) {
+			return;
+		}
+		killed = true;
+		MetricsRegistry.get().counter("scraper_driver_hangs_total").increment();
+		logger.error("❌ Browser hung for over " + TimeUnit.NANOSECONDS.toSeconds(hangTimeoutNanos) + "s on "
+				+ currentUrl + ", killing the session");
+		int destroyed = destroyBrowserProcesses();
+		if (destroyed == 0) {
+			WebDriver current = driver;
+			Thread quitter = new Thread(() -> {
+				try {
+					current.quit();
+				} catch (WebDriverException e) {
+					// The session is being abandoned anyway
+				}
+			}, "driver-quit");
+			quitter.setDaemon(true);
+			quitter.start();
+		}
+	}
+
+	/**
+	 * Returns the resident memory of the browser and its child processes, or
+	 * -1 if it cannot be measured here.
+	 */
+	public long browserMemoryBytes() {
+		List<ProcessHandle> processes = browserProcesses();
+		if (processes.isEmpty()) {
+			return -1;
+		}
+		long total = 0;
+		for (ProcessHandle process : processes) {
+			total += residentBytes(process.pid());
+		}
+		return total;
+	}
+
+	private static long residentBytes(long pid) {
+		try (Stream<String> lines = Files.lines(Paths.get("/proc", Long.toString(pid), "status"))) {
+			return lines.filter(line -> line.startsWith("VmRSS:")).findFirst()
+					.map(line -> Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024).orElse(0L);
+		} catch (IOException | RuntimeException e) {
+			return 0;
+		}
+	}
+
+	private List<ProcessHandle> browserProcesses() {
+		Path profile = profileDir;
+		if (profile == null) {
+			return new ArrayList<>();
+		}
+		String marker = "--user-data-dir=" + profile;
+		List<ProcessHandle> roots = ProcessHandle.allProcesses()
+				.filter(p -> p.info().arguments().map(args -> Arrays.asList(args).contains(marker)).orElse(false))
+				.collect(Collectors.toList());
+		List<ProcessHandle> all = new ArrayList<>(roots);
+		for (ProcessHandle root : roots) {
+			root.descendants().filter(p -> !all.contains(p)).forEach(all::add);
+		}
+		return all;
+	}
+
+	private int destroyBrowserProcesses() {
+		List<ProcessHandle> processes = browserProcesses();
+		processes.forEach(ProcessHandle::destroyForcibly);
+		return processes.size();
+	}
+
+	private void deleteProfile() {
+		Path profile = profileDir;
+		profileDir = null;
+		if (profile == null) {
+			return;
+		}
+		try (Stream<Path> files = Files.walk(profile)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		} catch (IOException e) {
+			logger.warn("⚠ Failed to delete browser profile " + profile + ": " + e.getMessage());
+		}
+	}
+
+	@Override
+	public void close() {
+		if (watchdogTask != null) {
+			watchdogTask.cancel(false);
+		}
+		if (driverFactory == null) {
+			driver.quit();
+			return;
+		}
+		stop();
+	}
+}
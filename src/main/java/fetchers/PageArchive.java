@@ -0,0 +1,239 @@
+package fetchers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The PageArchive class stores fetched pages in one append-only file, so they
+ * can be extracted again later without a network or a browser. Each record
+ * holds the URL, the fetch time, the ETag and Last-Modified values and the
+ * deflate-compressed HTML:
+ *
+ * <pre>
+ * [int magic][int length][UTF url][long fetchedAt][UTF etag][UTF lastModified][int size][deflated html]
+ * </pre>
+ *
+ * A page fetched again is appended once more and the newer record wins. The
+ * URL index is rebuilt in memory on open by reading only the record headers.
+ * A record cut short by a crash is dropped from the end of the file. Reads use
+ * positional I/O and can run from any number of threads at once.
+ */
+public class PageArchive implements AutoCloseable {
+	private static final int MAGIC = 0x50414745; // "PAGE"
+	private static final int HEADER_BYTES = 8;
+	private static final Logger logger = LogManager.getLogger(PageArchive.class);
+
+	private final Path file;
+	private final FileChannel channel;
+	private final Map<String, Long> index = new ConcurrentHashMap<>();
+	private long end;
+
+	private PageArchive(Path file, FileChannel channel) {
+		this.file = file;
+		this.channel = channel;
+	}
+
+	public static PageArchive open(String file) throws IOException {
+		Path path = Paths.get(file);
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		PageArchive archive = new PageArchive(path, channel);
+		try {
+			archive.loadIndex();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		return archive;
+	}
+
+	private void loadIndex() throws IOException {
+		long size = channel.size();
+		long position = 0;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		while (position + HEADER_BYTES <= size) {
+			header.clear();
+			readFully(header, position);
+			header.flip();
+			int magic = header.getInt();
+			int length = header.getInt();
+			if (magic != MAGIC || length <= 0 || position + HEADER_BYTES + length > size) {
+				break;
+			}
+			// The URL comes first, so only its bytes are needed for the index
+			ByteBuffer urlLength = ByteBuffer.allocate(2);
+			readFully(urlLength, position + HEADER_BYTES);
+			ByteBuffer url = ByteBuffer.allocate(2 + (urlLength.getShort(0) & 0xFFFF));
+			readFully(url, position + HEADER_BYTES);
+			index.put(new DataInputStream(new ByteArrayInputStream(url.array())).readUTF(), position);
+			position += HEADER_BYTES + length;
+		}
+		if (position < size) {
+			logger.warn("⚠ Dropping " + (size - position) + " bytes of an incomplete record at the end of " + file);
+			channel.truncate(position);
+		}
+		end = position;
+		logger.info("📦 Page archive " + file + ": " + index.size() + " pages");
+	}
+
+	/**
+	 * Appends a page. The page is written through to the file system but not
+	 * forced to disk; close() does that.
+	 */
+	public void append(String url, String html, String etag, String lastModified) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(html.length() / 4);
+		try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+			deflater.write(html.getBytes(StandardCharsets.UTF_8));
+		}
+
+		ByteArrayOutputStream record = new ByteArrayOutputStream(compressed.size() + 256);
+		DataOutputStream out = new DataOutputStream(record);
+		out.writeInt(MAGIC);
+		out.writeInt(0); // Length, filled in below
+		out.writeUTF(url);
+		out.writeLong(System.currentTimeMillis());
+		out.writeUTF(etag == null ? "" : etag);
+		out.writeUTF(lastModified == null ? "" : lastModified);
+		out.writeInt(compressed.size());
+		compressed.writeTo(out);
+		out.flush();
+
+		ByteBuffer buffer = ByteBuffer.wrap(record.toByteArray());
+		buffer.putInt(4, buffer.capacity() - HEADER_BYTES);
+		synchronized (this) {
+			long position = end;
+			while (buffer.hasRemaining()) {
+				channel.write(buffer, position + buffer.position());
+			}
+			end = position + buffer.capacity();
+			index.put(url, position);
+		}
+	}
+
+	/**
+	 * Returns the latest archived copy of the page, or null if the URL has not
+	 * been archived.
+	 */
+	public Page read(String url) throws IOException {
+		Long position = index.get(url);
+		if (position == null) {
+			return null;
+		}
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		readFully(header, position);
+		ByteBuffer record = ByteBuffer.allocate(header.getInt(4));
+		readFully(record, position + HEADER_BYTES);
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.array()));
+		String storedUrl = in.readUTF();
+		long fetchedAt = in.readLong();
+		String etag = in.readUTF();
+		String lastModified = in.readUTF();
+		int size = in.readInt();
+		byte[] html;
+		try (InputStream inflater = new InflaterInputStream(
+				new ByteArrayInputStream(record.array(), record.capacity() - size, size))) {
+			html = readAll(inflater);
+		}
+		return new Page(storedUrl, new String(html, StandardCharsets.UTF_8), etag.isEmpty() ? null : etag,
+				lastModified.isEmpty() ? null : lastModified, fetchedAt);
+	}
+
+	public boolean contains(String url) {
+		return index.containsKey(url);
+	}
+
+	public List<String> urls() {
+		return new ArrayList<>(index.keySet());
+	}
+
+	public int size() {
+		return index.size();
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of " + file);
+			}
+		}
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[16384];
+		int read;
+		while ((read = in.read(buffer)) > 0) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			channel.force(false);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * The Page class is one archived copy of a page.
+	 */
+	public static class Page {
+		private final String url;
+		private final String html;
+		private final String etag;
+		private final String lastModified;
+		private final long fetchedAt;
+
+		Page(String url, String html, String etag, String lastModified, long fetchedAt) {
+			this.url = url;
+			this.html = html;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.fetchedAt = fetchedAt;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+
+		public String getHtml() {
+			return html;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+
+		public String getLastModified() {
+			return lastModified;
+		}
+
+		public long getFetchedAt() {
+			return fetchedAt;
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package fetchers;
+
+/**
+ * The PageFetcher interface loads a recipe page and returns a parser for its
+ * fields, or a listing page and returns the recipe links on it. A fetcher is
+ * used by one scraper worker at a time and is closed when the worker stops.
+ */
+public interface PageFetcher extends AutoCloseable {
+
+	/**
+	 * Loads the recipe page at the given URL.
+	 *
+	 * @throws PageStructureException if the page does not look like a recipe
+	 */
+	RecipePageParser fetch(String url) throws Exception;
+
+	/**
+	 * Loads the recipe page unless it has not changed since the server returned
+	 * the given ETag and Last-Modified values (either may be null). Backends that
+	 * cannot send conditional requests always load the page.
+	 */
+	default FetchedPage fetchIfModified(String url, String etag, String lastModified) throws Exception {
+		return FetchedPage.of(fetch(url), null, null);
+	}
+
+	/**
+	 * Loads a recipe listing page and returns the recipe links on it.
+	 */
+	RecipeListing fetchListing(String url) throws Exception;
+
+	@Override
+	void close();
+}
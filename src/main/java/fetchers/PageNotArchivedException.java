@@ -0,0 +1,14 @@
+package fetchers;
+
+/**
+ * The PageNotArchivedException class signals that a page asked for during a
+ * replay is not in the page archive. Replaying it again cannot help, so it is
+ * treated as a permanent failure.
+ */
+public class PageNotArchivedException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public PageNotArchivedException(String url) {
+		super("Page not in archive: " + url);
+	}
+}
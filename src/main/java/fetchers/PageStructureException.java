@@ -0,0 +1,17 @@
+package fetchers;
+
+/**
+ * Thrown when a fetched page is missing an element every recipe page is
+ * expected to have, such as the recipe heading.
+ */
+public class PageStructureException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public PageStructureException(String message) {
+		super(message);
+	}
+
+	public PageStructureException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
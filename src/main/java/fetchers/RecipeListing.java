@@ -0,0 +1,29 @@
+package fetchers;
+
+import java.util.List;
+
+/**
+ * The RecipeListing class holds what a recipe listing page (/recipes/?page=N)
+ * yields: the links to the recipes on the page and, if the pager is present,
+ * the number of the last listing page.
+ */
+public class RecipeListing {
+	private final List<String> recipeUrls;
+	private final int lastPageNumber;
+
+	public RecipeListing(List<String> recipeUrls, int lastPageNumber) {
+		this.recipeUrls = recipeUrls;
+		this.lastPageNumber = lastPageNumber;
+	}
+
+	public List<String> getRecipeUrls() {
+		return recipeUrls;
+	}
+
+	/**
+	 * Returns the number of the last listing page, or 0 if the page has no pager.
+	 */
+	public int getLastPageNumber() {
+		return lastPageNumber;
+	}
+}
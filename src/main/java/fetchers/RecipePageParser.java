@@ -0,0 +1,43 @@
+package fetchers;
+
+import java.util.List;
+
+/**
+ * The RecipePageParser interface gives access to the fields of a single recipe
+ * page once it has been fetched. Implementations may read the fields lazily, so
+ * callers should ask only for what they need (for example ingredients and tags
+ * before the diet filters have been checked). Missing fields are returned as an
+ * empty string or an empty list.
+ */
+public interface RecipePageParser {
+
+	String getName();
+
+	String getIngredientsText();
+
+	List<String> getTags();
+
+	List<String> getBreadcrumbs();
+
+	String getPrepTime();
+
+	String getCookTime();
+
+	String getServings();
+
+	String getMethod();
+
+	String getDescription();
+
+	/**
+	 * Returns the nutrient table flattened as "Name: value, Name: value".
+	 */
+	String getNutrients();
+
+	/**
+	 * Returns the HTML of the page, for archiving. Parsers backed by a browser
+	 * read it from the driver, so it must be asked for before the driver loads
+	 * another page.
+	 */
+	String getPageSource();
+}
@@ -0,0 +1,58 @@
+package fetchers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+
+/**
+ * The RecordingPageFetcher class writes every recipe page another fetcher
+ * loads into a PageArchive, so later runs can replay it. Listing pages are not
+ * recorded; a replay takes its URLs from the archive instead. A page that
+ * cannot be archived is logged and the crawl goes on.
+ */
+public class RecordingPageFetcher implements PageFetcher {
+	private static final Logger logger = LogManager.getLogger(RecordingPageFetcher.class);
+
+	private final PageFetcher delegate;
+	private final PageArchive archive;
+
+	public RecordingPageFetcher(PageFetcher delegate, PageArchive archive) {
+		this.delegate = delegate;
+		this.archive = archive;
+	}
+
+	@Override
+	public RecipePageParser fetch(String url) throws Exception {
+		RecipePageParser parser = delegate.fetch(url);
+		record(url, parser, null, null);
+		return parser;
+	}
+
+	@Override
+	public FetchedPage fetchIfModified(String url, String etag, String lastModified) throws Exception {
+		FetchedPage page = delegate.fetchIfModified(url, etag, lastModified);
+		if (!page.isNotModified()) {
+			record(url, page.getParser(), page.getEtag(), page.getLastModified());
+		}
+		return page;
+	}
+
+	private void record(String url, RecipePageParser parser, String etag, String lastModified) {
+		try {
+			archive.append(url, parser.getPageSource(), etag, lastModified);
+		} catch (IOException e) {
+			logger.warn("⚠ Failed to archive " + url + ": " + e.getMessage());
+		}
+	}
+
+	@Override
+	public RecipeListing fetchListing(String url) throws Exception {
+		return delegate.fetchListing(url);
+	}
+
+	@Override
+	public void close() {
+		delegate.close();
+	}
+}
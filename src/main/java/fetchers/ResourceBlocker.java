@@ -0,0 +1,233 @@
+package fetchers;
+
+import metrics.Counter;
+import metrics.MetricsRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.DevToolsException;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonInput;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ResourceBlocker class keeps a browser from downloading what the scraper
+ * never reads: images, stylesheets, fonts, media, ads, analytics and other
+ * third-party requests. It uses the Chrome DevTools Protocol's
+ * Network.setBlockedURLs, so blocked requests are dropped inside the browser
+ * without a round trip to the driver for each of them.
+ *
+ * <p>
+ * Resource types are turned into URL patterns by file extension, since the
+ * browser can only block by URL. Every page's requests and transferred bytes
+ * are counted from the network events. To know what blocking saves, every
+ * {@code probeInterval}-th page is loaded with nothing blocked and the means of
+ * the two kinds of pages are compared.
+ * </p>
+ *
+ * One instance serves one worker's browser sessions, and {@link #attach} must
+ * be called on every new session.
+ */
+public class ResourceBlocker {
+	private static final Logger logger = LogManager.getLogger(ResourceBlocker.class);
+	private static final Map<String, List<String>> EXTENSIONS = new HashMap<>();
+	private static final Counter BLOCKED = MetricsRegistry.get().counter("scraper_blocked_requests_total");
+	private static final PageTotals BLOCKING = new PageTotals("blocked");
+	private static final PageTotals PROBE = new PageTotals("probe");
+
+	static {
+		EXTENSIONS.put("image", Arrays.asList("png", "jpg", "jpeg", "gif", "webp", "avif", "svg", "ico"));
+		EXTENSIONS.put("stylesheet", Arrays.asList("css"));
+		EXTENSIONS.put("font", Arrays.asList("woff", "woff2", "ttf", "otf", "eot"));
+		EXTENSIONS.put("media", Arrays.asList("mp4", "webm", "mp3", "ogg", "wav", "m3u8"));
+
+		MetricsRegistry.get().gauge("scraper_requests_saved_per_page", ResourceBlocker::requestsSavedPerPage);
+		MetricsRegistry.get().gauge("scraper_bytes_saved_per_page", ResourceBlocker::bytesSavedPerPage);
+	}
+
+	private final List<String> patterns;
+	private final int probeInterval;
+	private final AtomicLong pageRequests = new AtomicLong();
+	private final AtomicLong pageBytes = new AtomicLong();
+	private DevTools devTools;
+	private boolean blocking;
+	private long pages;
+
+	/**
+	 * @param resourceTypes types to block: image, stylesheet, font or media
+	 * @param urlPatterns   further URL patterns to block, with * as wildcard
+	 * @param probeInterval every how many pages to load one without blocking
+	 *                      to measure the savings, or 0 never to
+	 */
+	public ResourceBlocker(List<String> resourceTypes, List<String> urlPatterns, int probeInterval) {
+		Set<String> all = new LinkedHashSet<>();
+		for (String type : resourceTypes) {
+			List<String> extensions = EXTENSIONS.get(type.toLowerCase());
+			if (extensions == null) {
+				logger.warn("⚠ Unknown resource type to block: " + type);
+				continue;
+			}
+			for (String extension : extensions) {
+				all.add("*." + extension);
+				all.add("*." + extension + "?*");
+			}
+		}
+		all.addAll(urlPatterns);
+		this.patterns = Collections.unmodifiableList(new ArrayList<>(all));
+		this.probeInterval = probeInterval;
+	}
+
+	/**
+	 * Turns blocking on for a new browser session and returns the same driver.
+	 * A browser without DevTools support is returned as it is.
+	 */
+	public WebDriver attach(WebDriver driver) {
+		devTools = null;
+		if (!(driver instanceof HasDevTools)) {
+			logger.warn("⚠ " + driver.getClass().getSimpleName() + " has no DevTools, resources are not blocked");
+			return driver;
+		}
+		try {
+			DevTools session = ((HasDevTools) driver).getDevTools();
+			session.createSessionIfThereIsNotOne();
+			session.addListener(new Event<>("Network.loadingFinished", ResourceBlocker::readParams), params -> {
+				pageRequests.incrementAndGet();
+				Object length = params.get("encodedDataLength");
+				if (length instanceof Number) {
+					pageBytes.addAndGet(((Number) length).longValue());
+				}
+			});
+			session.addListener(new Event<>("Network.loadingFailed", ResourceBlocker::readParams), params -> {
+				if (params.get("blockedReason") != null) {
+					BLOCKED.increment();
+				} else {
+					pageRequests.incrementAndGet();
+				}
+			});
+			session.send(new Command<>("Network.enable", Collections.emptyMap()));
+			devTools = session;
+			blocking = false;
+			setBlocking(true);
+		} catch (DevToolsException | IllegalStateException e) {
+			logger.warn("⚠ Could not open a DevTools session, resources are not blocked: " + e.getMessage());
+			devTools = null;
+		}
+		return driver;
+	}
+
+	/**
+	 * Starts counting a new page. Called right before the page is loaded.
+	 */
+	public void startPage() {
+		if (devTools == null) {
+			return;
+		}
+		pages++;
+		setBlocking(probeInterval <= 0 || pages % probeInterval != 0);
+		pageRequests.set(0);
+		pageBytes.set(0);
+	}
+
+	/**
+	 * Adds the requests and bytes of the page just loaded to the totals.
+	 * Requests still running when this is called are credited to the next page.
+	 */
+	public void finishPage() {
+		if (devTools == null) {
+			return;
+		}
+		(blocking ? BLOCKING : PROBE).add(pageRequests.get(), pageBytes.get());
+	}
+
+	private void setBlocking(boolean on) {
+		if (on == blocking) {
+			return;
+		}
+		Map<String, Object> params = new HashMap<>();
+		params.put("urls", on ? patterns : Collections.emptyList());
+		devTools.send(new Command<>("Network.setBlockedURLs", params));
+		blocking = on;
+	}
+
+	private static Map<String, Object> readParams(JsonInput input) {
+		return input.read(Json.MAP_TYPE);
+	}
+
+	/**
+	 * Returns how many fewer requests a blocked page makes than an unblocked
+	 * probe page, or 0 before both kinds of page have been measured.
+	 */
+	public static double requestsSavedPerPage() {
+		return PROBE.isEmpty() || BLOCKING.isEmpty() ? 0 : PROBE.requestsPerPage() - BLOCKING.requestsPerPage();
+	}
+
+	public static double bytesSavedPerPage() {
+		return PROBE.isEmpty() || BLOCKING.isEmpty() ? 0 : PROBE.bytesPerPage() - BLOCKING.bytesPerPage();
+	}
+
+	/**
+	 * Returns a one-line summary of the savings measured so far in this
+	 * process, or null if no page has been loaded with blocking yet.
+	 */
+	public static String summary() {
+		if (BLOCKING.isEmpty()) {
+			return null;
+		}
+		String summary = String.format("%d requests blocked, %.1f requests and %.0f KB per page", BLOCKED.get(),
+				BLOCKING.requestsPerPage(), BLOCKING.bytesPerPage() / 1024);
+		if (!PROBE.isEmpty()) {
+			summary += String.format(", saving %.1f requests and %.0f KB per page (%d unblocked probe pages)",
+					requestsSavedPerPage(), bytesSavedPerPage() / 1024, PROBE.pages.get());
+		}
+		return summary;
+	}
+
+	/**
+	 * Requests and bytes of all pages loaded in one mode.
+	 */
+	private static class PageTotals {
+		private final Counter pages;
+		private final Counter requests;
+		private final Counter bytes;
+
+		PageTotals(String mode) {
+			MetricsRegistry registry = MetricsRegistry.get();
+			pages = registry.counter("scraper_measured_pages_total", "mode", mode);
+			requests = registry.counter("scraper_page_requests_total", "mode", mode);
+			bytes = registry.counter("scraper_page_bytes_total", "mode", mode);
+		}
+
+		void add(long pageRequests, long pageBytes) {
+			pages.increment();
+			requests.add(pageRequests);
+			bytes.add(pageBytes);
+		}
+
+		boolean isEmpty() {
+			return pages.get() == 0;
+		}
+
+		double requestsPerPage() {
+			long count = pages.get();
+			return count == 0 ? 0 : (double) requests.get() / count;
+		}
+
+		double bytesPerPage() {
+			long count = pages.get();
+			return count == 0 ? 0 : (double) bytes.get() / count;
+		}
+	}
+}
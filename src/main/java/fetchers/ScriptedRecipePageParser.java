@@ -0,0 +1,146 @@
+package fetchers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ScriptedRecipePageParser class reads every recipe field from the loaded
+ * page with a single executeScript call. The script evaluates the same XPath
+ * locators as SeleniumRecipePageParser inside the browser and returns one JSON
+ * document, so a recipe costs one WebDriver round-trip instead of one per
+ * element, and a missing element never waits out the implicit wait.
+ */
+public class ScriptedRecipePageParser implements RecipePageParser {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	// Evaluates the locators of SeleniumRecipePageParser, so both read the same elements
+	private static final String EXTRACTION_SCRIPT = "function first(xp) {"
+			+ "  return document.evaluate(xp, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;"
+			+ "}"
+			+ "function textOf(node) { return node ? node.innerText.trim() : ''; }"
+			+ "function text(xp) { return textOf(first(xp)); }"
+			+ "function texts(xp) {"
+			+ "  var result = document.evaluate(xp, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+			+ "  var values = [];"
+			+ "  for (var i = 0; i < result.snapshotLength; i++) { values.push(textOf(result.snapshotItem(i))); }"
+			+ "  return values;"
+			+ "}"
+			+ "var breadcrumbs = [];"
+			+ "var trail = first(\"" + SeleniumRecipePageParser.BREADCRUMBS_XPATH + "\");"
+			+ "if (trail) {"
+			+ "  var links = trail.getElementsByTagName('a');"
+			+ "  for (var i = 0; i < links.length; i++) { breadcrumbs.push(textOf(links[i])); }"
+			+ "  var spans = trail.getElementsByTagName('span');"
+			+ "  for (var i = 0; i < spans.length; i++) {"
+			+ "    var inner = spans[i].getElementsByTagName('a');"
+			+ "    breadcrumbs.push(textOf(inner.length > 0 ? inner[0] : spans[i]));"
+			+ "  }"
+			+ "}"
+			+ "var nutrients = [];"
+			+ "var rows = document.evaluate(\"" + SeleniumRecipePageParser.NUTRIENT_ROWS_XPATH + "\", document, null,"
+			+ "  XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+			+ "for (var i = 0; i < rows.snapshotLength; i++) {"
+			+ "  var cols = rows.snapshotItem(i).getElementsByTagName('td');"
+			+ "  if (cols.length == 2) { nutrients.push(textOf(cols[0]) + ': ' + textOf(cols[1])); }"
+			+ "}"
+			+ "return JSON.stringify({"
+			+ "  name: text(\"" + SeleniumRecipePageParser.NAME_XPATH + "\"),"
+			+ "  ingredients: text(\"" + SeleniumRecipePageParser.INGREDIENTS_XPATH + "\"),"
+			+ "  tags: texts(\"" + SeleniumRecipePageParser.TAGS_XPATH + "\"),"
+			+ "  breadcrumbs: breadcrumbs,"
+			+ "  prepTime: text(\"" + SeleniumRecipePageParser.PREP_TIME_XPATH + "\"),"
+			+ "  cookTime: text(\"" + SeleniumRecipePageParser.COOK_TIME_XPATH + "\"),"
+			+ "  servings: text(\"" + SeleniumRecipePageParser.SERVINGS_XPATH + "\"),"
+			+ "  method: text(\"" + SeleniumRecipePageParser.METHOD_XPATH + "\"),"
+			+ "  description: text(\"" + SeleniumRecipePageParser.DESCRIPTION_XPATH + "\"),"
+			+ "  nutrients: nutrients.join(', ')"
+			+ "});";
+
+	private final WebDriver driver;
+	private final JsonNode fields;
+
+	/**
+	 * Runs the extraction script against the page currently loaded in the driver.
+	 *
+	 * @throws org.openqa.selenium.JavascriptException if the browser refuses to run
+	 *                                                 the script
+	 */
+	public ScriptedRecipePageParser(WebDriver driver) {
+		this.driver = driver;
+		Object json = ((JavascriptExecutor) driver).executeScript(EXTRACTION_SCRIPT);
+		try {
+			this.fields = MAPPER.readTree(String.valueOf(json));
+		} catch (Exception e) {
+			throw new PageStructureException("Unreadable extraction result: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public String getName() {
+		return fields.path("name").asText("");
+	}
+
+	@Override
+	public String getIngredientsText() {
+		return fields.path("ingredients").asText("");
+	}
+
+	@Override
+	public List<String> getTags() {
+		return readList("tags");
+	}
+
+	@Override
+	public List<String> getBreadcrumbs() {
+		return readList("breadcrumbs");
+	}
+
+	@Override
+	public String getPrepTime() {
+		return fields.path("prepTime").asText("");
+	}
+
+	@Override
+	public String getCookTime() {
+		return fields.path("cookTime").asText("");
+	}
+
+	@Override
+	public String getServings() {
+		return fields.path("servings").asText("");
+	}
+
+	@Override
+	public String getMethod() {
+		return fields.path("method").asText("");
+	}
+
+	@Override
+	public String getDescription() {
+		return fields.path("description").asText("");
+	}
+
+	@Override
+	public String getNutrients() {
+		return fields.path("nutrients").asText("");
+	}
+
+	private List<String> readList(String key) {
+		List<String> values = new ArrayList<>();
+		for (JsonNode value : fields.path(key)) {
+			values.add(value.asText());
+		}
+		return values;
+	}
+
+	@Override
+	public String getPageSource() {
+		return driver.getPageSource();
+	}
+}
@@ -0,0 +1,136 @@
+package fetchers;
+
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SeleniumPageFetcher class loads recipe pages in a real browser through
+ * WebDriver. It is the slower but most faithful backend and is used whenever
+ * the plain HTTP backend cannot handle a page. With scripted extraction on, all
+ * fields are read in one executeScript call; if the browser refuses to run the
+ * script, the fetcher switches to one findElement call per field. Every page
+ * load goes through a ManagedDriver, which can replace a worn-out or hung
+ * browser session between and during pages, and an optional ResourceBlocker
+ * that keeps the browser from downloading what is never read.
+ */
+public class SeleniumPageFetcher implements PageFetcher {
+
+	private final ManagedDriver driver;
+	private final ResourceBlocker blocker;
+	private boolean scriptedExtraction;
+	private static final Logger logger = LogManager.getLogger(SeleniumPageFetcher.class);
+	private static final LatencyHistogram PAGE_LOAD = MetricsRegistry.get().histogram("scraper_page_load_seconds",
+			"backend", "selenium");
+	private static final LatencyHistogram PAGE_WAIT = MetricsRegistry.get().histogram("scraper_page_wait_seconds");
+
+	public SeleniumPageFetcher(WebDriver driver) {
+		this(driver, false);
+	}
+
+	public SeleniumPageFetcher(WebDriver driver, boolean scriptedExtraction) {
+		this(ManagedDriver.of(driver), null, scriptedExtraction);
+	}
+
+	/**
+	 * @param blocker the blocker attached to the driver's sessions, or null if
+	 *                nothing is blocked
+	 */
+	public SeleniumPageFetcher(ManagedDriver driver, ResourceBlocker blocker, boolean scriptedExtraction) {
+		this.driver = driver;
+		this.blocker = blocker;
+		this.scriptedExtraction = scriptedExtraction;
+	}
+
+	public WebDriver getDriver() {
+		return driver.get();
+	}
+
+	@Override
+	public RecipePageParser fetch(String url) {
+		return driver.load(url, browser -> {
+			load(browser, url);
+			long waitStart = System.nanoTime();
+			waitForRecipePageToLoad(browser, url);
+			PAGE_WAIT.recordSince(waitStart);
+
+			if (scriptedExtraction) {
+				try {
+					return new ScriptedRecipePageParser(browser);
+				} catch (JavascriptException e) {
+					logger.warn("Scripted extraction unavailable, reading fields one by one: " + e.getMessage());
+					scriptedExtraction = false;
+				}
+			}
+			return new SeleniumRecipePageParser(browser);
+		});
+	}
+
+	@Override
+	public RecipeListing fetchListing(String url) {
+		return driver.load(url, browser -> {
+			load(browser, url);
+
+			List<WebElement> recipeLinks = browser
+					.findElements(By.xpath("//div[contains(@class, 'recipe-list')]//h5//a"));
+			List<String> recipeUrls = new ArrayList<>();
+			for (WebElement el : recipeLinks) {
+				recipeUrls.add(el.getAttribute("href"));
+			}
+
+			int lastPage = 0;
+			List<WebElement> lastPageElements = browser.findElements(
+					By.xpath("//li[@class='page-item']//a[text()='Next']/parent::li/preceding-sibling::li[1]/a"));
+			if (!lastPageElements.isEmpty()) {
+				lastPage = Integer.parseInt(lastPageElements.get(0).getText().trim());
+			}
+			return new RecipeListing(recipeUrls, lastPage);
+		});
+	}
+
+	private void load(WebDriver browser, String url) {
+		if (blocker != null) {
+			blocker.startPage();
+		}
+		long start = System.nanoTime();
+		browser.get(url);
+		PAGE_LOAD.recordSince(start);
+		if (blocker != null) {
+			blocker.finishPage();
+		}
+	}
+
+	/**
+	 * Waits for the nodes extraction starts from. With the eager load strategy
+	 * get returns once the document is parsed, so these may still be missing.
+	 * The page has loaded by then, so if they never show up it is not a recipe
+	 * page, not a slow host.
+	 */
+	private static void waitForRecipePageToLoad(WebDriver browser, String url) {
+		WebDriverWait wait = new WebDriverWait(browser, Duration.ofSeconds(5)); // Reduced wait time
+		try {
+			wait.until(ExpectedConditions.and(
+					ExpectedConditions.visibilityOfElementLocated(By.xpath("//h4[contains(@class,'rec-heading')]")),
+					ExpectedConditions.presenceOfElementLocated(By.id("ingredients"))));
+		} catch (TimeoutException e) {
+			throw new PageStructureException("Recipe heading or ingredients not found: " + url, e);
+		}
+	}
+
+	@Override
+	public void close() {
+		driver.close();
+	}
+}
@@ -0,0 +1,144 @@
+package fetchers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SeleniumRecipePageParser class reads recipe fields from the page that is
+ * currently loaded in a WebDriver. Every getter queries the live DOM, so the
+ * parser is only valid until the driver navigates to another page.
+ */
+public class SeleniumRecipePageParser implements RecipePageParser {
+
+	// Shared with the extraction script of ScriptedRecipePageParser and the parity tests
+	static final String NAME_XPATH = "//h4[contains(@class,'rec-heading')]//span";
+	static final String INGREDIENTS_XPATH = "//*[@id='ingredients']";
+	static final String TAGS_XPATH = "//ul[@class='tags-list']//li/a";
+	static final String BREADCRUMBS_XPATH = "//p[contains(.,'You are here')]";
+	static final String PREP_TIME_XPATH = "//h6[contains(text(),'Preparation Time')]/following-sibling::p/strong";
+	static final String COOK_TIME_XPATH = "//h6[contains(text(),'Cooking Time')]/following-sibling::p/strong";
+	static final String SERVINGS_XPATH = "//h6[contains(text(),'Makes')]/following-sibling::p//strong";
+	static final String METHOD_XPATH = "//div[@id='methods']";
+	static final String DESCRIPTION_XPATH = "(//div[@id='aboutrecipe']//p)[1]";
+	static final String NUTRIENT_ROWS_XPATH = "//table[@id='rcpnutrients']//tr";
+
+	private final WebDriver driver;
+	private static final Logger logger = LogManager.getLogger(SeleniumRecipePageParser.class);
+
+	public SeleniumRecipePageParser(WebDriver driver) {
+		this.driver = driver;
+	}
+
+	@Override
+	public String getName() {
+		return getTextFromElement(By.xpath(NAME_XPATH));
+	}
+
+	@Override
+	public String getIngredientsText() {
+		return getTextFromElement(By.xpath(INGREDIENTS_XPATH));
+	}
+
+	@Override
+	public List<String> getTags() {
+		List<WebElement> tagElements = driver.findElements(By.xpath(TAGS_XPATH));
+		List<String> tags = new ArrayList<>();
+		for (WebElement el : tagElements) {
+			tags.add(el.getText().trim());
+		}
+		return tags;
+	}
+
+	@Override
+	public List<String> getBreadcrumbs() {
+		List<String> breadcrumbs = new ArrayList<>();
+		try {
+			WebElement breadcrumbContainer = driver.findElement(By.xpath(BREADCRUMBS_XPATH));
+			List<WebElement> links = breadcrumbContainer.findElements(By.tagName("a"));
+			for (WebElement link : links) {
+				breadcrumbs.add(link.getText().trim());
+			}
+
+			List<WebElement> spans = breadcrumbContainer.findElements(By.tagName("span"));
+			for (WebElement span : spans) {
+				List<WebElement> innerLinks = span.findElements(By.tagName("a"));
+				if (!innerLinks.isEmpty()) {
+					breadcrumbs.add(innerLinks.get(0).getText().trim());
+				} else {
+					breadcrumbs.add(span.getText().trim());
+				}
+			}
+		} catch (NoSuchElementException e) {
+			// Handle missing breadcrumb trail gracefully
+		}
+
+		return breadcrumbs;
+	}
+
+	@Override
+	public String getPrepTime() {
+		return getTextFromElement(By.xpath(PREP_TIME_XPATH));
+	}
+
+	@Override
+	public String getCookTime() {
+		return getTextFromElement(By.xpath(COOK_TIME_XPATH));
+	}
+
+	@Override
+	public String getServings() {
+		return getTextFromElement(By.xpath(SERVINGS_XPATH));
+	}
+
+	@Override
+	public String getMethod() {
+		return getTextFromElement(By.xpath(METHOD_XPATH));
+	}
+
+	@Override
+	public String getDescription() {
+		return getTextFromElement(By.xpath(DESCRIPTION_XPATH));
+	}
+
+	@Override
+	public String getNutrients() {
+		StringBuilder nutrientData = new StringBuilder();
+		try {
+			List<WebElement> rows = driver.findElements(By.xpath(NUTRIENT_ROWS_XPATH));
+			for (WebElement row : rows) {
+				List<WebElement> cols = row.findElements(By.tagName("td"));
+				if (cols.size() == 2) {
+					nutrientData.append(cols.get(0).getText().trim()).append(": ").append(cols.get(1).getText().trim())
+							.append(", ");
+				}
+			}
+			if (nutrientData.length() > 0) {
+				nutrientData.setLength(nutrientData.length() - 2); // remove trailing comma
+			}
+		} catch (Exception e) {
+			logger.error("Nutrient extraction failed: " + e.getMessage());
+		}
+		return nutrientData.toString();
+	}
+
+	@Override
+	public String getPageSource() {
+		return driver.getPageSource();
+	}
+
+	private String getTextFromElement(By by) {
+		try {
+			WebElement element = driver.findElement(by);
+			return element != null ? element.getText().trim() : "";
+		} catch (NoSuchElementException e) {
+			return "";
+		}
+	}
+}
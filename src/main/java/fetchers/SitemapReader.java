@@ -0,0 +1,156 @@
+package fetchers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The SitemapReader class lists the pages of a site from its sitemaps. It
+ * reads a sitemap index and every sitemap it points to, plain or gzipped, with
+ * a streaming StAX parser, so a sitemap of any size is handled one entry at a
+ * time without building a document in memory. Each page URL matching the given
+ * pattern is passed on with its lastmod date, or null if the sitemap has none.
+ */
+public class SitemapReader {
+	private static final Logger logger = LogManager.getLogger(SitemapReader.class);
+	private static final int MAX_SITEMAPS = 1000;
+
+	private final HttpClient client;
+	private final Duration timeout;
+	private final XMLInputFactory xmlFactory;
+
+	public SitemapReader(HttpClient client, Duration timeout) {
+		this.client = client;
+		this.timeout = timeout;
+		this.xmlFactory = XMLInputFactory.newInstance();
+		// Sitemaps come from the network, so no DTDs or external entities are resolved
+		xmlFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		xmlFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
+	/**
+	 * Reads the sitemap or sitemap index at the given URL and passes every
+	 * matching page URL to the consumer. Returns the number of URLs passed on.
+	 */
+	public int read(String sitemapUrl, Pattern urlPattern, BiConsumer<String, Instant> consumer)
+			throws IOException, InterruptedException {
+		List<String> pending = new ArrayList<>();
+		Set<String> seen = new HashSet<>();
+		pending.add(sitemapUrl);
+		int found = 0;
+		while (!pending.isEmpty()) {
+			String url = pending.remove(pending.size() - 1);
+			if (!seen.add(url) || seen.size() > MAX_SITEMAPS) {
+				continue;
+			}
+			long start = System.nanoTime();
+			int before = found;
+			try (InputStream in = open(url)) {
+				found += parse(in, urlPattern, consumer, pending);
+			} catch (XMLStreamException e) {
+				throw new IOException("Malformed sitemap " + url + ": " + e.getMessage(), e);
+			}
+			logger.info("🗺 Read sitemap " + url + ": " + (found - before) + " recipe URLs in "
+					+ Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+		}
+		return found;
+	}
+
+	private InputStream open(String url) throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(timeout)
+				.header("User-Agent", HttpPageFetcher.USER_AGENT).GET().build();
+		HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+		if (response.statusCode() != 200) {
+			response.body().close();
+			throw new IOException("Sitemap " + url + " returned HTTP " + response.statusCode());
+		}
+		// Gzipped sitemaps are recognized by their magic number, whatever their name
+		BufferedInputStream in = new BufferedInputStream(response.body(), 1 << 16);
+		in.mark(2);
+		int first = in.read();
+		int second = in.read();
+		in.reset();
+		return first == 0x1f && second == 0x8b ? new GZIPInputStream(in, 1 << 16) : in;
+	}
+
+	/**
+	 * Handles both sitemap kinds: the loc of a sitemap entry in an index is
+	 * added to the sitemaps to read, the loc of a url entry is a page.
+	 */
+	private int parse(InputStream in, Pattern urlPattern, BiConsumer<String, Instant> consumer,
+			List<String> sitemaps) throws XMLStreamException {
+		XMLStreamReader xml = xmlFactory.createXMLStreamReader(in);
+		int found = 0;
+		try {
+			String loc = null;
+			String lastmod = null;
+			while (xml.hasNext()) {
+				int event = xml.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = xml.getLocalName();
+					if ("loc".equals(name)) {
+						loc = xml.getElementText().trim();
+					} else if ("lastmod".equals(name)) {
+						lastmod = xml.getElementText().trim();
+					} else if ("url".equals(name) || "sitemap".equals(name)) {
+						loc = null;
+						lastmod = null;
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT && loc != null) {
+					String name = xml.getLocalName();
+					if ("sitemap".equals(name)) {
+						sitemaps.add(loc);
+					} else if ("url".equals(name) && urlPattern.matcher(loc).matches()) {
+						consumer.accept(loc, parseLastmod(lastmod));
+						found++;
+					}
+				}
+			}
+		} finally {
+			xml.close();
+		}
+		return found;
+	}
+
+	/**
+	 * Parses a W3C datetime as used in sitemaps: a date, or a date and time with
+	 * an offset. Returns null if there is none or it cannot be read.
+	 */
+	static Instant parseLastmod(String lastmod) {
+		if (lastmod == null || lastmod.isEmpty()) {
+			return null;
+		}
+		try {
+			if (lastmod.length() == 10) {
+				return LocalDate.parse(lastmod).atStartOfDay(ZoneOffset.UTC).toInstant();
+			}
+			return OffsetDateTime.parse(lastmod).toInstant();
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+}
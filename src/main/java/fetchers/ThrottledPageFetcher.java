@@ -0,0 +1,81 @@
+package fetchers;
+
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+
+/**
+ * The ThrottledPageFetcher class passes every page load of another fetcher
+ * through the HostThrottle of the page's host, and reports back how long the
+ * load took and whether the host showed signs of overload.
+ */
+public class ThrottledPageFetcher implements PageFetcher {
+	private static final LatencyHistogram THROTTLE_WAIT = MetricsRegistry.get()
+			.histogram("scraper_throttle_wait_seconds");
+
+	private final PageFetcher delegate;
+	private final HostThrottles throttles;
+
+	public ThrottledPageFetcher(PageFetcher delegate, HostThrottles throttles) {
+		this.delegate = delegate;
+		this.throttles = throttles;
+	}
+
+	@Override
+	public RecipePageParser fetch(String url) throws Exception {
+		return throttled(url, () -> delegate.fetch(url));
+	}
+
+	@Override
+	public FetchedPage fetchIfModified(String url, String etag, String lastModified) throws Exception {
+		return throttled(url, () -> delegate.fetchIfModified(url, etag, lastModified));
+	}
+
+	@Override
+	public RecipeListing fetchListing(String url) throws Exception {
+		return throttled(url, () -> delegate.fetchListing(url));
+	}
+
+	private <T> T throttled(String url, Load<T> load) throws Exception {
+		HostThrottle throttle = throttles.forUrl(url);
+		long waitStart = System.nanoTime();
+		throttle.acquire();
+		long start = System.nanoTime();
+		THROTTLE_WAIT.record(start - waitStart);
+		boolean overloaded = false;
+		try {
+			return load.run();
+		} catch (Exception e) {
+			overloaded = isOverload(e);
+			throw e;
+		} finally {
+			throttle.release(System.nanoTime() - start, overloaded);
+		}
+	}
+
+	/**
+	 * Timeouts and 429 or 5xx answers mean the host is struggling. A Selenium
+	 * timeout here can only be the page load itself, as SeleniumPageFetcher
+	 * reports a page whose recipe never shows up as a PageStructureException.
+	 * Other errors, such as a page without a recipe, say nothing about its load.
+	 */
+	static boolean isOverload(Exception e) {
+		if (e instanceof HttpStatusException) {
+			int status = ((HttpStatusException) e).getStatusCode();
+			return status == 429 || status >= 500;
+		}
+		return e instanceof HttpTimeoutException || e instanceof SocketTimeoutException
+				|| e instanceof org.openqa.selenium.TimeoutException;
+	}
+
+	@Override
+	public void close() {
+		delegate.close();
+	}
+
+	private interface Load<T> {
+		T run() throws Exception;
+	}
+}
@@ -0,0 +1,182 @@
+package filters;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The AhoCorasickMatcher class compiles a list of patterns into a single
+ * automaton that finds every occurrence of every pattern in one pass over the
+ * text. Matching is case-insensitive. The automaton is built once and is
+ * immutable afterwards, so one instance can be shared by many threads.
+ *
+ * Callers drive the automaton themselves with {@link #step(int, char)} and
+ * {@link #outputs(int)}, which lets them scan without allocating anything.
+ */
+public final class AhoCorasickMatcher {
+	private static final int[] NO_OUTPUTS = new int[0];
+
+	private final int[] patternLengths;
+	private final int[] asciiSymbols = new int[128];
+	private final char[] otherChars;
+	private final int[] otherSymbols;
+	private final int alphabetSize;
+	private final int[] transitions;
+	private final int[][] outputs;
+
+	public AhoCorasickMatcher(List<String> patterns) {
+		patternLengths = new int[patterns.size()];
+
+		// Give every distinct pattern character a compact symbol; 0 means "any other"
+		Map<Character, Integer> symbols = new HashMap<>();
+		for (String pattern : patterns) {
+			for (int i = 0; i < pattern.length(); i++) {
+				char c = Character.toLowerCase(pattern.charAt(i));
+				if (!symbols.containsKey(c)) {
+					symbols.put(c, symbols.size() + 1);
+				}
+			}
+		}
+		alphabetSize = symbols.size() + 1;
+
+		List<Character> nonAscii = new ArrayList<>();
+		for (Map.Entry<Character, Integer> symbol : symbols.entrySet()) {
+			if (symbol.getKey() < 128) {
+				asciiSymbols[symbol.getKey()] = symbol.getValue();
+			} else {
+				nonAscii.add(symbol.getKey());
+			}
+		}
+		nonAscii.sort(null);
+		otherChars = new char[nonAscii.size()];
+		otherSymbols = new int[nonAscii.size()];
+		for (int i = 0; i < otherChars.length; i++) {
+			otherChars[i] = nonAscii.get(i);
+			otherSymbols[i] = symbols.get(otherChars[i]);
+		}
+
+		// Build the trie; -1 marks a missing edge until the failure links fill it in
+		List<int[]> trie = new ArrayList<>();
+		List<List<Integer>> stateOutputs = new ArrayList<>();
+		trie.add(newRow());
+		stateOutputs.add(new ArrayList<>());
+		for (int id = 0; id < patterns.size(); id++) {
+			String pattern = patterns.get(id);
+			patternLengths[id] = pattern.length();
+			if (pattern.isEmpty()) {
+				continue;
+			}
+			int state = 0;
+			for (int i = 0; i < pattern.length(); i++) {
+				int symbol = symbolOf(pattern.charAt(i));
+				if (trie.get(state)[symbol] < 0) {
+					trie.get(state)[symbol] = trie.size();
+					trie.add(newRow());
+					stateOutputs.add(new ArrayList<>());
+				}
+				state = trie.get(state)[symbol];
+			}
+			stateOutputs.get(state).add(id);
+		}
+
+		// Breadth-first pass: compute failure links and turn the trie into a full DFA
+		int stateCount = trie.size();
+		int[] failure = new int[stateCount];
+		transitions = new int[stateCount * alphabetSize];
+		outputs = new int[stateCount][];
+		Deque<Integer> queue = new ArrayDeque<>();
+		for (int symbol = 0; symbol < alphabetSize; symbol++) {
+			int next = trie.get(0)[symbol];
+			if (next < 0) {
+				transitions[symbol] = 0;
+			} else {
+				transitions[symbol] = next;
+				failure[next] = 0;
+				queue.add(next);
+			}
+		}
+		outputs[0] = NO_OUTPUTS;
+		while (!queue.isEmpty()) {
+			int state = queue.poll();
+			List<Integer> own = stateOutputs.get(state);
+			int[] inherited = outputs[failure[state]];
+			int[] merged = new int[own.size() + inherited.length];
+			for (int i = 0; i < own.size(); i++) {
+				merged[i] = own.get(i);
+			}
+			System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+			outputs[state] = merged.length == 0 ? NO_OUTPUTS : merged;
+
+			for (int symbol = 0; symbol < alphabetSize; symbol++) {
+				int next = trie.get(state)[symbol];
+				int fallback = transitions[failure[state] * alphabetSize + symbol];
+				if (next < 0) {
+					transitions[state * alphabetSize + symbol] = fallback;
+				} else {
+					transitions[state * alphabetSize + symbol] = next;
+					failure[next] = fallback;
+					queue.add(next);
+				}
+			}
+		}
+	}
+
+	private int[] newRow() {
+		int[] row = new int[alphabetSize];
+		Arrays.fill(row, -1);
+		return row;
+	}
+
+	private int symbolOf(char c) {
+		char lower = Character.toLowerCase(c);
+		if (lower < 128) {
+			return asciiSymbols[lower];
+		}
+		int index = Arrays.binarySearch(otherChars, lower);
+		return index >= 0 ? otherSymbols[index] : 0;
+	}
+
+	public int patternCount() {
+		return patternLengths.length;
+	}
+
+	public int patternLength(int patternId) {
+		return patternLengths[patternId];
+	}
+
+	/**
+	 * Returns the state to start a scan from.
+	 */
+	public int start() {
+		return 0;
+	}
+
+	/**
+	 * Advances the automaton by one character of the text.
+	 */
+	public int step(int state, char c) {
+		return transitions[state * alphabetSize + symbolOf(c)];
+	}
+
+	/**
+	 * Returns the ids of all patterns that end at the current position. The
+	 * returned array is shared and must not be modified.
+	 */
+	public int[] outputs(int state) {
+		return outputs[state];
+	}
+
+	/**
+	 * Returns true if the match of the given pattern that ends at {@code end}
+	 * (exclusive) is not part of a longer word.
+	 */
+	public boolean isWholeWord(CharSequence text, int patternId, int end) {
+		int begin = end - patternLengths[patternId];
+		return (begin == 0 || !Character.isLetterOrDigit(text.charAt(begin - 1)))
+				&& (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)));
+	}
+}
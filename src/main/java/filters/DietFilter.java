@@ -21,6 +21,8 @@ public abstract class DietFilter {
 	protected List<String> addList;
 	protected List<String> eliminateList;
 	protected List<String> recipesToAvoid;
+	protected boolean matchWholeWords;
+	private DietMatcher matcher;
 
 	public DietFilter(String configFilePath) {
 		loadFromJson(configFilePath);
@@ -34,6 +36,7 @@ public abstract class DietFilter {
 			addList = readList(root, "add");
 			eliminateList = readList(root, "eliminate");
 			recipesToAvoid = readList(root, "recipesToAvoid");
+			matchWholeWords = root.path("matchWholeWords").asBoolean(false);
 
 		} catch (Exception e) {
 			throw new RuntimeException("Failed to load diet config: " + e.getMessage(), e);
@@ -60,20 +63,28 @@ public abstract class DietFilter {
 		return recipesToAvoid;
 	}
 
+	public boolean isMatchWholeWords() {
+		return matchWholeWords;
+	}
+
+	// To check several diets at once, use a DietMatcher built from all of them
 	public boolean includesAddedIngredients(String ingredientsText) {
-		String ingredientsTextLower = ingredientsText.toLowerCase();
-		return addList.stream().anyMatch(ingredient -> ingredientsTextLower.contains(ingredient.toLowerCase()));
+		return (getMatcher().scanIngredients(ingredientsText)[0] & 1L) != 0;
 	}
 
 	public boolean excludesEliminatedIngredients(String ingredientsText) {
-		String ingredientsTextLower = ingredientsText.toLowerCase();
-		return eliminateList.stream()
-				.noneMatch(eliminateIngredient -> ingredientsTextLower.contains(eliminateIngredient.toLowerCase()));
+		return (getMatcher().scanIngredients(ingredientsText)[1] & 1L) == 0;
 	}
 
 	public boolean avoidsRecipeTags(List<String> tags) {
-		List<String> tagsLower = tags.stream().map(String::toLowerCase).collect(Collectors.toList());
-		return recipesToAvoid.stream().noneMatch(avoidTag -> tagsLower.contains(avoidTag.toLowerCase()));
+		return (getMatcher().avoidedTagMask(tags) & 1L) == 0;
+	}
+
+	private synchronized DietMatcher getMatcher() {
+		if (matcher == null) {
+			matcher = new DietMatcher(Collections.singletonList(this));
+		}
+		return matcher;
 	}
 
 	public abstract String getDietName();
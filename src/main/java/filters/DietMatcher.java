@@ -0,0 +1,152 @@
+package filters;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The DietMatcher class evaluates several diet filters at once. The add and
+ * eliminate lists of every filter are compiled into one Aho-Corasick automaton
+ * when the matcher is created, so a single scan of the ingredients text and a
+ * single pass over the tags decide the outcome for every diet. Each diet is one
+ * bit of a long mask, in the order the filters were given.
+ *
+ * A diet whose config sets "matchWholeWords" only counts an ingredient when it
+ * is not part of a longer word (so "oat" does not match "coated"); otherwise
+ * ingredients match anywhere in the text, as before.
+ */
+public class DietMatcher {
+	public static final int MAX_DIETS = Long.SIZE;
+
+	private final List<DietFilter> filters;
+	private final long allDiets;
+	private final AhoCorasickMatcher automaton;
+	private final long[] addAnywhere;
+	private final long[] addWholeWord;
+	private final long[] eliminateAnywhere;
+	private final long[] eliminateWholeWord;
+	private long alwaysAdded;
+	private long alwaysEliminated;
+	private final Map<String, Long> avoidedTags = new HashMap<>();
+
+	public DietMatcher(List<DietFilter> filters) {
+		if (filters.size() > MAX_DIETS) {
+			throw new IllegalArgumentException("At most " + MAX_DIETS + " diets can be matched together");
+		}
+		this.filters = new ArrayList<>(filters);
+		this.allDiets = filters.size() == MAX_DIETS ? -1L : (1L << filters.size()) - 1;
+
+		// The same ingredient may appear in several lists; it becomes one pattern
+		Map<String, Integer> patternIds = new LinkedHashMap<>();
+		for (DietFilter filter : filters) {
+			collectPatterns(filter.getAddedIngredients(), patternIds);
+			collectPatterns(filter.getEliminatedIngredients(), patternIds);
+		}
+		automaton = new AhoCorasickMatcher(new ArrayList<>(patternIds.keySet()));
+		addAnywhere = new long[patternIds.size()];
+		addWholeWord = new long[patternIds.size()];
+		eliminateAnywhere = new long[patternIds.size()];
+		eliminateWholeWord = new long[patternIds.size()];
+
+		for (int diet = 0; diet < filters.size(); diet++) {
+			DietFilter filter = filters.get(diet);
+			long bit = 1L << diet;
+			long[] add = filter.isMatchWholeWords() ? addWholeWord : addAnywhere;
+			long[] eliminate = filter.isMatchWholeWords() ? eliminateWholeWord : eliminateAnywhere;
+			for (String ingredient : filter.getAddedIngredients()) {
+				add[patternIds.get(normalize(ingredient))] |= bit;
+				if (ingredient.isEmpty()) {
+					alwaysAdded |= bit; // an empty entry is contained in every text
+				}
+			}
+			for (String ingredient : filter.getEliminatedIngredients()) {
+				eliminate[patternIds.get(normalize(ingredient))] |= bit;
+				if (ingredient.isEmpty()) {
+					alwaysEliminated |= bit;
+				}
+			}
+			for (String tag : filter.getRecipesToAvoid()) {
+				avoidedTags.merge(normalize(tag), bit, (a, b) -> a | b);
+			}
+		}
+	}
+
+	private static void collectPatterns(List<String> ingredients, Map<String, Integer> patternIds) {
+		for (String ingredient : ingredients) {
+			patternIds.putIfAbsent(normalize(ingredient), patternIds.size());
+		}
+	}
+
+	private static String normalize(String value) {
+		return value.toLowerCase(Locale.ROOT);
+	}
+
+	public List<DietFilter> getFilters() {
+		return filters;
+	}
+
+	/**
+	 * Returns the bit mask of all diets whose criteria the recipe meets.
+	 */
+	public long matchMask(String ingredientsText, List<String> tags) {
+		long[] found = scanIngredients(ingredientsText);
+		return found[0] & ~found[1] & ~avoidedTagMask(tags) & allDiets;
+	}
+
+	/**
+	 * Returns the filters whose criteria the recipe meets, in configured order.
+	 */
+	public List<DietFilter> match(String ingredientsText, List<String> tags) {
+		return filtersOf(matchMask(ingredientsText, tags));
+	}
+
+	public List<DietFilter> filtersOf(long mask) {
+		List<DietFilter> matching = new ArrayList<>(Long.bitCount(mask));
+		for (int diet = 0; diet < filters.size(); diet++) {
+			if ((mask & (1L << diet)) != 0) {
+				matching.add(filters.get(diet));
+			}
+		}
+		return matching;
+	}
+
+	/**
+	 * Scans the ingredients text once and returns two masks: the diets that found
+	 * at least one added ingredient, and the diets that found an eliminated one.
+	 */
+	long[] scanIngredients(String ingredientsText) {
+		long added = alwaysAdded;
+		long eliminated = alwaysEliminated;
+		int state = automaton.start();
+		for (int i = 0; i < ingredientsText.length(); i++) {
+			state = automaton.step(state, ingredientsText.charAt(i));
+			for (int patternId : automaton.outputs(state)) {
+				added |= addAnywhere[patternId];
+				eliminated |= eliminateAnywhere[patternId];
+				if ((addWholeWord[patternId] | eliminateWholeWord[patternId]) != 0
+						&& automaton.isWholeWord(ingredientsText, patternId, i + 1)) {
+					added |= addWholeWord[patternId];
+					eliminated |= eliminateWholeWord[patternId];
+				}
+			}
+		}
+		return new long[] { added, eliminated };
+	}
+
+	/**
+	 * Returns the diets for which at least one of the tags is a recipe to avoid.
+	 */
+	long avoidedTagMask(List<String> tags) {
+		long avoided = 0;
+		for (String tag : tags) {
+			Long mask = avoidedTags.get(normalize(tag));
+			if (mask != null) {
+				avoided |= mask;
+			}
+		}
+		return avoided;
+	}
+}
@@ -0,0 +1,106 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram class counts durations in fixed buckets from one
+ * millisecond to two minutes. Recording a duration is a short scan over the
+ * bucket bounds and one LongAdder increment, cheap enough for every page load
+ * and database batch. Percentiles are estimated as the upper bound of the
+ * bucket they fall in.
+ */
+public class LatencyHistogram {
+	private static final double[] BOUNDS_MILLIS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000,
+			30000, 60000, 120000 };
+	private static final long[] BOUNDS_NANOS = new long[BOUNDS_MILLIS.length];
+
+	static {
+		for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+			BOUNDS_NANOS[i] = (long) (BOUNDS_MILLIS[i] * 1_000_000);
+		}
+	}
+
+	// One more bucket than bounds, for durations above the last bound
+	private final LongAdder[] buckets = new LongAdder[BOUNDS_MILLIS.length + 1];
+	private final LongAdder sumNanos = new LongAdder();
+
+	public LatencyHistogram() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	public void record(long nanos) {
+		int i = 0;
+		while (i < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[i]) {
+			i++;
+		}
+		buckets[i].increment();
+		sumNanos.add(nanos);
+	}
+
+	/**
+	 * Records the time passed since the given System.nanoTime() value.
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	public long getCount() {
+		long count = 0;
+		for (LongAdder bucket : buckets) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	public double getSumSeconds() {
+		return sumNanos.sum() / 1e9;
+	}
+
+	public double getMeanMillis() {
+		long count = getCount();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(sumNanos.sum()) / 1000.0 / count;
+	}
+
+	/**
+	 * Returns the upper bucket bound below which the given fraction of the
+	 * durations fall, or infinity if they fall in the last, open bucket.
+	 */
+	public double getPercentileMillis(double fraction) {
+		long[] counts = getBucketCounts();
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(fraction * total);
+		long seen = 0;
+		for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return BOUNDS_MILLIS[i];
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Returns the count of each bucket, not cumulative, with the open bucket
+	 * last.
+	 */
+	public long[] getBucketCounts() {
+		long[] counts = new long[buckets.length];
+		for (int i = 0; i < buckets.length; i++) {
+			counts[i] = buckets[i].sum();
+		}
+		return counts;
+	}
+
+	public static double[] getBoundsMillis() {
+		return BOUNDS_MILLIS.clone();
+	}
+}
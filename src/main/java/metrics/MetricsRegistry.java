@@ -0,0 +1,241 @@
+package metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * The MetricsRegistry class holds the counters, gauges and latency histograms
+ * of the scraper. Each series is named like a Prometheus metric with optional
+ * label pairs, e.g. histogram("scraper_page_load_seconds", "backend", "http").
+ * Asking for the same series twice returns the same object, so callers look
+ * their series up once and keep them in fields. The registry can be read over
+ * JMX, rendered in the Prometheus text format, or summarized at the end of a
+ * run.
+ */
+public class MetricsRegistry implements MetricsRegistryMXBean {
+	public static final String OBJECT_NAME = "scraper:type=Metrics";
+
+	private static final Logger logger = LogManager.getLogger(MetricsRegistry.class);
+	private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+	private final Map<String, Series<Counter>> counters = new ConcurrentHashMap<>();
+	private final Map<String, Series<DoubleSupplier>> gauges = new ConcurrentHashMap<>();
+	private final Map<String, Series<LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+	private volatile long runStartNanos = System.nanoTime();
+
+	public static MetricsRegistry get() {
+		return INSTANCE;
+	}
+
+	public Counter counter(String name, String... labels) {
+		return counters.computeIfAbsent(seriesId(name, labels),
+				id -> new Series<>(name, labels, new Counter())).metric;
+	}
+
+	public LatencyHistogram histogram(String name, String... labels) {
+		return histograms.computeIfAbsent(seriesId(name, labels),
+				id -> new Series<>(name, labels, new LatencyHistogram())).metric;
+	}
+
+	/**
+	 * Registers a gauge that reads its value when the metrics are collected.
+	 * Registering the same series again replaces the previous gauge.
+	 */
+	public void gauge(String name, DoubleSupplier value, String... labels) {
+		gauges.put(seriesId(name, labels), new Series<>(name, labels, value));
+	}
+
+	/**
+	 * Marks the start of a crawl run; the end-of-run summary reports rates per
+	 * minute since then.
+	 */
+	public void startRun() {
+		runStartNanos = System.nanoTime();
+	}
+
+	/**
+	 * Makes the registry visible over JMX. Registering it twice is harmless.
+	 */
+	public void registerMBean() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+		} catch (InstanceAlreadyExistsException e) {
+			// Registered by an earlier run in the same JVM
+		} catch (JMException e) {
+			logger.warn("⚠ Failed to register metrics MBean: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public Map<String, Long> getCounters() {
+		Map<String, Long> values = new TreeMap<>();
+		counters.forEach((id, series) -> values.put(id, series.metric.get()));
+		return values;
+	}
+
+	@Override
+	public Map<String, Double> getGauges() {
+		Map<String, Double> values = new TreeMap<>();
+		gauges.forEach((id, series) -> values.put(id, series.metric.getAsDouble()));
+		return values;
+	}
+
+	@Override
+	public Map<String, Double> getMeanMillis() {
+		Map<String, Double> values = new TreeMap<>();
+		histograms.forEach((id, series) -> values.put(id, series.metric.getMeanMillis()));
+		return values;
+	}
+
+	@Override
+	public Map<String, Double> getP50Millis() {
+		Map<String, Double> values = new TreeMap<>();
+		histograms.forEach((id, series) -> values.put(id, series.metric.getPercentileMillis(0.5)));
+		return values;
+	}
+
+	@Override
+	public Map<String, Double> getP99Millis() {
+		Map<String, Double> values = new TreeMap<>();
+		histograms.forEach((id, series) -> values.put(id, series.metric.getPercentileMillis(0.99)));
+		return values;
+	}
+
+	/**
+	 * Renders every series in the Prometheus text exposition format. Durations
+	 * are exported in seconds, as Prometheus expects.
+	 */
+	public String toPrometheusText() {
+		StringBuilder out = new StringBuilder();
+		String family = null;
+		for (Series<Counter> series : new TreeMap<>(counters).values()) {
+			family = typeLine(out, family, series.name, "counter");
+			out.append(series.name).append(series.labels()).append(' ').append(series.metric.get()).append('\n');
+		}
+		for (Series<DoubleSupplier> series : new TreeMap<>(gauges).values()) {
+			family = typeLine(out, family, series.name, "gauge");
+			out.append(series.name).append(series.labels()).append(' ')
+					.append(formatDouble(series.metric.getAsDouble())).append('\n');
+		}
+
+		double[] bounds = LatencyHistogram.getBoundsMillis();
+		for (Series<LatencyHistogram> series : new TreeMap<>(histograms).values()) {
+			family = typeLine(out, family, series.name, "histogram");
+			long[] counts = series.metric.getBucketCounts();
+			long cumulative = 0;
+			for (int i = 0; i < counts.length; i++) {
+				cumulative += counts[i];
+				String le = i < bounds.length ? formatDouble(bounds[i] / 1000) : "+Inf";
+				out.append(series.name).append("_bucket").append(series.labels("le", le)).append(' ')
+						.append(cumulative).append('\n');
+			}
+			out.append(series.name).append("_sum").append(series.labels()).append(' ')
+					.append(formatDouble(series.metric.getSumSeconds())).append('\n');
+			out.append(series.name).append("_count").append(series.labels()).append(' ').append(cumulative)
+					.append('\n');
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Returns a readable report of the run so far: every counter with its rate
+	 * per minute, every latency histogram with its mean and percentiles, and
+	 * the current value of every gauge.
+	 */
+	@Override
+	public String getSummary() {
+		double minutes = Math.max(1e-9, (System.nanoTime() - runStartNanos) / 60e9);
+		StringBuilder out = new StringBuilder();
+		out.append(String.format(Locale.ROOT, "📊 Run metrics after %.1f min%n", minutes));
+
+		out.append("Counters:").append(System.lineSeparator());
+		new TreeMap<>(counters).forEach((id, series) -> out.append(String.format(Locale.ROOT,
+				"  %s = %d (%.1f/min)%n", id, series.metric.get(), series.metric.get() / minutes)));
+
+		out.append("Latencies:").append(System.lineSeparator());
+		new TreeMap<>(histograms).forEach((id, series) -> {
+			LatencyHistogram histogram = series.metric;
+			out.append(String.format(Locale.ROOT,
+					"  %s: n=%d, mean=%.0f ms, p50<=%.0f ms, p90<=%.0f ms, p99<=%.0f ms, total=%.0f s%n", id,
+					histogram.getCount(), histogram.getMeanMillis(), histogram.getPercentileMillis(0.5),
+					histogram.getPercentileMillis(0.9), histogram.getPercentileMillis(0.99),
+					histogram.getSumSeconds()));
+		});
+
+		out.append("Gauges:").append(System.lineSeparator());
+		new TreeMap<>(gauges).forEach((id, series) -> out.append(String.format(Locale.ROOT, "  %s = %s%n", id,
+				formatDouble(series.metric.getAsDouble()))));
+		return out.toString();
+	}
+
+	private static String typeLine(StringBuilder out, String previousFamily, String name, String type) {
+		if (!name.equals(previousFamily)) {
+			out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+		}
+		return name;
+	}
+
+	private static String formatDouble(double value) {
+		if (Double.isInfinite(value)) {
+			return value > 0 ? "+Inf" : "-Inf";
+		}
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+		return String.format(Locale.ROOT, "%.6g", value).replaceAll("\\.?0+(e|$)", "$1");
+	}
+
+	private static String seriesId(String name, String[] labels) {
+		return name + renderLabels(labels);
+	}
+
+	private static String renderLabels(String[] labels) {
+		if (labels.length % 2 != 0) {
+			throw new IllegalArgumentException("Labels must be name/value pairs: " + String.join(",", labels));
+		}
+		if (labels.length == 0) {
+			return "";
+		}
+		StringBuilder out = new StringBuilder("{");
+		for (int i = 0; i < labels.length; i += 2) {
+			if (i > 0) {
+				out.append(',');
+			}
+			out.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+		}
+		return out.append('}').toString();
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static class Series<M> {
+		final String name;
+		final String[] labels;
+		final M metric;
+
+		Series(String name, String[] labels, M metric) {
+			this.name = name;
+			this.labels = labels.clone();
+			this.metric = metric;
+		}
+
+		String labels(String... extra) {
+			String[] all = new String[labels.length + extra.length];
+			System.arraycopy(labels, 0, all, 0, labels.length);
+			System.arraycopy(extra, 0, all, labels.length, extra.length);
+			return renderLabels(all);
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * The MetricsRegistryMXBean interface is what JMX clients such as JConsole
+ * see of the metrics registry. Series are keyed by their Prometheus name with
+ * labels.
+ */
+public interface MetricsRegistryMXBean {
+
+	Map<String, Long> getCounters();
+
+	Map<String, Double> getGauges();
+
+	Map<String, Double> getMeanMillis();
+
+	Map<String, Double> getP50Millis();
+
+	Map<String, Double> getP99Millis();
+
+	String getSummary();
+}
@@ -0,0 +1,50 @@
+package metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * The PrometheusEndpoint class serves the metrics registry at
+ * http://localhost:&lt;port&gt;/metrics in the Prometheus text format. It only
+ * listens on the loopback interface and answers from a single daemon thread.
+ */
+public class PrometheusEndpoint implements AutoCloseable {
+	private static final Logger logger = LogManager.getLogger(PrometheusEndpoint.class);
+
+	private final HttpServer server;
+
+	public PrometheusEndpoint(MetricsRegistry registry, int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/metrics", exchange -> respond(exchange, registry.toPrometheusText()));
+		server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "metrics-endpoint");
+			thread.setDaemon(true);
+			return thread;
+		}));
+		server.start();
+		logger.info("📊 Metrics available at http://localhost:" + server.getAddress().getPort() + "/metrics");
+	}
+
+	private static void respond(HttpExchange exchange, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+}
@@ -0,0 +1,123 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The MinHash class computes a MinHash signature of the ingredients and
+ * method of a recipe: the text is cut into overlapping three-word shingles,
+ * and for each of SIZE hash functions the smallest hash of any shingle is
+ * kept. The share of positions where two signatures agree estimates the
+ * Jaccard similarity of the two shingle sets, so recipes that differ in a
+ * few words have nearly equal signatures while unrelated ones do not.
+ */
+public final class MinHash {
+	public static final int SIZE = 128;
+	private static final int SHINGLE_WORDS = 3;
+	private static final long[] SEEDS = new long[SIZE];
+
+	static {
+		for (int i = 0; i < SIZE; i++) {
+			SEEDS[i] = mix((i + 1) * 0x9E3779B97F4A7C15L);
+		}
+	}
+
+	private MinHash() {
+	}
+
+	/**
+	 * Returns the signature of a recipe, or null if it has no ingredients or
+	 * method text to compare.
+	 */
+	public static int[] signature(Recipe recipe) {
+		List<String> words = words(recipe.getIngredientsText());
+		words.addAll(words(recipe.getMethod()));
+		if (words.isEmpty()) {
+			return null;
+		}
+		int[] signature = new int[SIZE];
+		Arrays.fill(signature, Integer.MAX_VALUE);
+		int shingles = Math.max(1, words.size() - SHINGLE_WORDS + 1);
+		for (int start = 0; start < shingles; start++) {
+			long shingle = 0xcbf29ce484222325L;
+			for (int i = start; i < Math.min(start + SHINGLE_WORDS, words.size()); i++) {
+				shingle = fnv(shingle, words.get(i));
+			}
+			for (int h = 0; h < SIZE; h++) {
+				int value = (int) (mix(shingle ^ SEEDS[h]) >>> 33);
+				if (value < signature[h]) {
+					signature[h] = value;
+				}
+			}
+		}
+		return signature;
+	}
+
+	/**
+	 * Returns the estimated Jaccard similarity of two signatures, from 0 to 1.
+	 */
+	public static double similarity(int[] a, int[] b) {
+		int equal = 0;
+		for (int i = 0; i < SIZE; i++) {
+			if (a[i] == b[i]) {
+				equal++;
+			}
+		}
+		return (double) equal / SIZE;
+	}
+
+	public static byte[] toBytes(int[] signature) {
+		ByteBuffer buffer = ByteBuffer.allocate(SIZE * Integer.BYTES);
+		buffer.asIntBuffer().put(signature);
+		return buffer.array();
+	}
+
+	/**
+	 * Reads a signature written by toBytes, or returns null if the bytes are
+	 * missing or of another size.
+	 */
+	public static int[] fromBytes(byte[] bytes) {
+		if (bytes == null || bytes.length != SIZE * Integer.BYTES) {
+			return null;
+		}
+		int[] signature = new int[SIZE];
+		ByteBuffer.wrap(bytes).asIntBuffer().get(signature);
+		return signature;
+	}
+
+	private static List<String> words(String text) {
+		List<String> words = new ArrayList<>();
+		if (text == null) {
+			return words;
+		}
+		for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+			if (!word.isEmpty()) {
+				words.add(word);
+			}
+		}
+		return words;
+	}
+
+	private static long fnv(long hash, String word) {
+		for (int i = 0; i < word.length(); i++) {
+			hash ^= word.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		// A word boundary, so "ab c" and "a bc" differ
+		hash ^= ' ';
+		return hash * 0x100000001b3L;
+	}
+
+	/**
+	 * The SplitMix64 finalizer, which turns the shingle hash into an
+	 * independent value for each seed.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -1,6 +1,7 @@
 package model;
 
 import java.util.List;
+import java.util.Map;
 
 public class Recipe {
 	private String name;
@@ -16,6 +17,12 @@ public class Recipe {
 	private String method;
 	private String nutrients;
 	private String url;
+	// Typed values parsed from the text fields above, see RecipeQuantities
+	private Integer prepMinutes;
+	private Integer cookMinutes;
+	private Integer totalMinutes;
+	private Integer servingCount;
+	private Map<String, Double> nutrientValues;
 
 	// Getters and setters
 	public String getName() {
@@ -121,4 +128,44 @@ public class Recipe {
 	public void setUrl(String url) {
 		this.url = url;
 	}
+
+	public Integer getPrepMinutes() {
+		return prepMinutes;
+	}
+
+	public void setPrepMinutes(Integer prepMinutes) {
+		this.prepMinutes = prepMinutes;
+	}
+
+	public Integer getCookMinutes() {
+		return cookMinutes;
+	}
+
+	public void setCookMinutes(Integer cookMinutes) {
+		this.cookMinutes = cookMinutes;
+	}
+
+	public Integer getTotalMinutes() {
+		return totalMinutes;
+	}
+
+	public void setTotalMinutes(Integer totalMinutes) {
+		this.totalMinutes = totalMinutes;
+	}
+
+	public Integer getServingCount() {
+		return servingCount;
+	}
+
+	public void setServingCount(Integer servingCount) {
+		this.servingCount = servingCount;
+	}
+
+	public Map<String, Double> getNutrientValues() {
+		return nutrientValues;
+	}
+
+	public void setNutrientValues(Map<String, Double> nutrientValues) {
+		this.nutrientValues = nutrientValues;
+	}
 }
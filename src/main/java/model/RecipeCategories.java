@@ -0,0 +1,58 @@
+package model;
+
+import java.util.Objects;
+
+/**
+ * The RecipeCategories class holds the food, cuisine and recipe category
+ * derived from a recipe's tags. Instances are immutable; a category that could
+ * not be determined is an empty string.
+ */
+public final class RecipeCategories {
+	public static final RecipeCategories NONE = new RecipeCategories("", "", "");
+
+	private final String foodCategory;
+	private final String cuisineCategory;
+	private final String recipeCategory;
+
+	public RecipeCategories(String foodCategory, String cuisineCategory, String recipeCategory) {
+		this.foodCategory = foodCategory;
+		this.cuisineCategory = cuisineCategory;
+		this.recipeCategory = recipeCategory;
+	}
+
+	public String getFoodCategory() {
+		return foodCategory;
+	}
+
+	public String getCuisineCategory() {
+		return cuisineCategory;
+	}
+
+	public String getRecipeCategory() {
+		return recipeCategory;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof RecipeCategories)) {
+			return false;
+		}
+		RecipeCategories other = (RecipeCategories) o;
+		return foodCategory.equals(other.foodCategory) && cuisineCategory.equals(other.cuisineCategory)
+				&& recipeCategory.equals(other.recipeCategory);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(foodCategory, cuisineCategory, recipeCategory);
+	}
+
+	@Override
+	public String toString() {
+		return "RecipeCategories[food=" + foodCategory + ", cuisine=" + cuisineCategory + ", recipe="
+				+ recipeCategory + "]";
+	}
+}
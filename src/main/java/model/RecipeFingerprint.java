@@ -0,0 +1,104 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The RecipeFingerprint class holds what a refresh needs to tell whether a
+ * recipe page changed since it was last scraped: the ETag and Last-Modified
+ * values the server sent (either may be null) and a hash of the extracted
+ * recipe content. It also carries the MinHash signature of the recipe and,
+ * if the recipe is a near-duplicate of one scraped before, the URL of the
+ * duplicate cluster it joined. Instances are immutable.
+ */
+public final class RecipeFingerprint {
+	private final String url;
+	private final String etag;
+	private final String lastModified;
+	private final String contentHash;
+	private final int[] minHash;
+	private final String clusterUrl;
+	private final double similarity;
+
+	public RecipeFingerprint(String url, String etag, String lastModified, String contentHash) {
+		this(url, etag, lastModified, contentHash, null, null, 0);
+	}
+
+	public RecipeFingerprint(String url, String etag, String lastModified, String contentHash, int[] minHash,
+			String clusterUrl, double similarity) {
+		this.url = url;
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.contentHash = contentHash;
+		this.minHash = minHash;
+		this.clusterUrl = clusterUrl;
+		this.similarity = similarity;
+	}
+
+	/**
+	 * Returns the SHA-256 of every stored field of the recipe, as hex. Two
+	 * recipes with the same hash produce the same database rows.
+	 */
+	public static String hashContent(Recipe recipe) {
+		List<String> tags = recipe.getTags();
+		List<String> fields = Arrays.asList(recipe.getName(), recipe.getRecipeCategory(), recipe.getFoodCategory(),
+				recipe.getCuisineCategory(), recipe.getIngredientsText(), recipe.getPrepTime(), recipe.getCookTime(),
+				tags == null ? null : String.join(", ", tags), recipe.getServings(), recipe.getDescription(),
+				recipe.getMethod(), recipe.getNutrients());
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (String field : fields) {
+				if (field != null) {
+					digest.update(field.getBytes(StandardCharsets.UTF_8));
+				}
+				// Separates the fields, so moving text from one field to the next changes the hash
+				digest.update((byte) 0);
+			}
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest()) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+
+	public String getLastModified() {
+		return lastModified;
+	}
+
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	/**
+	 * Returns the MinHash signature, or null if none was computed.
+	 */
+	public int[] getMinHash() {
+		return minHash;
+	}
+
+	/**
+	 * Returns the URL of the cluster the recipe is a near-duplicate in, or null
+	 * if it is not a duplicate of any recipe scraped before.
+	 */
+	public String getClusterUrl() {
+		return clusterUrl;
+	}
+
+	public double getSimilarity() {
+		return similarity;
+	}
+}
@@ -0,0 +1,182 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The RecipeQuantities class turns the times, servings and nutrient values of
+ * a recipe page, which are scraped as display text, into numbers that can be
+ * stored in numeric columns and compared in SQL.
+ *
+ * Nutrient names are lower-cased with underscores ("Vitamin A" becomes
+ * vitamin_a) and common spellings are merged (carbs, total carbohydrate and
+ * carbohydrate all become carbohydrates). Units are normalized: energy to kcal
+ * and masses to grams. A value in any other unit keeps its number and gets the
+ * unit appended to its name, as in vitamin_a_iu. The unit may also come with
+ * the name, as in "Energy (kJ): 1,200", and the colon may be left out, as in
+ * "Energy 1,200 kJ"; either way the value is stored as energy in kcal.
+ */
+public final class RecipeQuantities {
+	private static final Pattern DURATION = Pattern.compile(
+			"(\\d+(?:\\.\\d+)?)\\s*(days?|d|hours?|hrs?|h|minutes?|mins?|m)\\b", Pattern.CASE_INSENSITIVE);
+	private static final Pattern NUMBER_ONLY = Pattern.compile("\\s*(\\d+)\\s*");
+	private static final Pattern FIRST_INTEGER = Pattern.compile("(\\d+)");
+	private static final Pattern NUTRIENT = Pattern.compile(
+			"([A-Za-z][^:,]*?)\\s*:\\s*(\\d[\\d,]*(?:\\.\\d+)?)\\s*([A-Za-zµ]*)");
+	private static final Pattern NUTRIENT_WITHOUT_COLON = Pattern.compile(
+			"([A-Za-z][^:,]*?)\\s+(\\d[\\d,]*(?:\\.\\d+)?)\\s*([A-Za-zµ]*)");
+	// Entries are separated by a comma and a space; a comma alone is a thousands separator
+	private static final Pattern ENTRY_SEPARATOR = Pattern.compile(",\\s+");
+	private static final Pattern UNIT_IN_NAME = Pattern
+			.compile("(.*?)\\s*(?:\\(\\s*([A-Za-zµ]+)\\s*\\)|\\s([A-Za-zµ]+))");
+	private static final Set<String> UNITS = new HashSet<>(
+			Arrays.asList("cal", "kcal", "kj", "g", "mg", "mcg", "µg", "ug", "iu"));
+	private static final Map<String, String> NUTRIENT_ALIASES = new HashMap<>();
+
+	static {
+		NUTRIENT_ALIASES.put("calories", "energy");
+		NUTRIENT_ALIASES.put("carbs", "carbohydrates");
+		NUTRIENT_ALIASES.put("carbohydrate", "carbohydrates");
+		NUTRIENT_ALIASES.put("total_carbohydrate", "carbohydrates");
+		NUTRIENT_ALIASES.put("total_carbohydrates", "carbohydrates");
+		NUTRIENT_ALIASES.put("total_fat", "fat");
+		NUTRIENT_ALIASES.put("fibre", "fiber");
+		NUTRIENT_ALIASES.put("dietary_fiber", "fiber");
+		NUTRIENT_ALIASES.put("dietary_fibre", "fiber");
+	}
+
+	private RecipeQuantities() {
+	}
+
+	/**
+	 * Fills in the typed fields of a recipe from its text fields.
+	 */
+	public static void fill(Recipe recipe) {
+		Integer prep = parseMinutes(recipe.getPrepTime());
+		Integer cook = parseMinutes(recipe.getCookTime());
+		recipe.setPrepMinutes(prep);
+		recipe.setCookMinutes(cook);
+		recipe.setTotalMinutes(prep == null && cook == null ? null
+				: (prep == null ? 0 : prep) + (cook == null ? 0 : cook));
+		recipe.setServingCount(parseServings(recipe.getServings()));
+		recipe.setNutrientValues(parseNutrients(recipe.getNutrients()));
+	}
+
+	/**
+	 * Returns a duration such as "1 hour 30 mins" in minutes, or null if the
+	 * text holds none. A bare number is taken as minutes.
+	 */
+	public static Integer parseMinutes(String text) {
+		if (text == null || text.trim().isEmpty()) {
+			return null;
+		}
+		Matcher bare = NUMBER_ONLY.matcher(text);
+		if (bare.matches()) {
+			return Integer.valueOf(bare.group(1));
+		}
+		double minutes = 0;
+		boolean found = false;
+		Matcher m = DURATION.matcher(text);
+		while (m.find()) {
+			double amount = Double.parseDouble(m.group(1));
+			char unit = Character.toLowerCase(m.group(2).charAt(0));
+			minutes += unit == 'd' ? amount * 1440 : unit == 'h' ? amount * 60 : amount;
+			found = true;
+		}
+		return found ? (int) Math.round(minutes) : null;
+	}
+
+	/**
+	 * Returns the number of servings in a yield such as "4 servings", or null
+	 * if the yield is not counted in servings (for example "12 pieces").
+	 */
+	public static Integer parseServings(String text) {
+		if (text == null) {
+			return null;
+		}
+		if (NUMBER_ONLY.matcher(text).matches()) {
+			return Integer.valueOf(text.trim());
+		}
+		String lower = text.toLowerCase(Locale.ROOT);
+		if (!lower.contains("serving") && !lower.contains("person") && !lower.contains("people")) {
+			return null;
+		}
+		Matcher m = FIRST_INTEGER.matcher(lower);
+		return m.find() ? Integer.valueOf(m.group(1)) : null;
+	}
+
+	/**
+	 * Parses nutrient text in the "Name: value unit, Name: value unit" form the
+	 * page parsers produce, or with the colons left out. Returns an empty map if
+	 * nothing could be read.
+	 */
+	public static Map<String, Double> parseNutrients(String text) {
+		if (text == null || text.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Map<String, Double> values = new LinkedHashMap<>();
+		for (String entry : ENTRY_SEPARATOR.split(text)) {
+			Matcher m = (entry.indexOf(':') >= 0 ? NUTRIENT : NUTRIENT_WITHOUT_COLON).matcher(entry);
+			while (m.find()) {
+				String label = m.group(1);
+				String unit = m.group(3).toLowerCase(Locale.ROOT);
+				Matcher named = UNIT_IN_NAME.matcher(label.trim());
+				if (named.matches()) {
+					String nameUnit = named.group(2) != null ? named.group(2) : named.group(3);
+					nameUnit = nameUnit.toLowerCase(Locale.ROOT);
+					if (UNITS.contains(nameUnit) && (unit.isEmpty() || unit.equals(nameUnit))) {
+						label = named.group(1);
+						unit = nameUnit;
+					}
+				}
+				String name = nutrientKey(label);
+				if (name.isEmpty()) {
+					continue;
+				}
+				// Scaled as decimals, so 23.4 mg is stored as 0.0234 g and not 0.023399999999999997
+				BigDecimal amount = new BigDecimal(m.group(2).replace(",", ""));
+				switch (unit) {
+				case "cal":
+				case "kcal":
+					break;
+				case "kj":
+					amount = amount.divide(new BigDecimal("4.184"), 1, RoundingMode.HALF_UP);
+					break;
+				case "g":
+					break;
+				case "mg":
+					amount = amount.movePointLeft(3);
+					break;
+				case "mcg":
+				case "µg":
+				case "ug":
+					amount = amount.movePointLeft(6);
+					break;
+				default:
+					if (!unit.isEmpty()) {
+						name = name + "_" + unit;
+					}
+				}
+				values.put(name, amount.doubleValue());
+			}
+		}
+		return values;
+	}
+
+	private static String nutrientKey(String name) {
+		String key = name.toLowerCase(Locale.ROOT).replaceAll("\\([^)]*\\)", "").replaceAll("[^a-z0-9]+", "_")
+				.replaceAll("^_+|_+$", "");
+		String alias = NUTRIENT_ALIASES.get(key);
+		return alias != null ? alias : key;
+	}
+}
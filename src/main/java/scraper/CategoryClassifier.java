@@ -0,0 +1,164 @@
+package scraper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import filters.AhoCorasickMatcher;
+import model.RecipeCategories;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The CategoryClassifier class assigns food, cuisine and recipe categories to
+ * a list of tags. All category names are compiled into one automaton when the
+ * classifier is built, so classifying a recipe is a single pass over its tags
+ * that allocates nothing but the result.
+ *
+ * When several names of the same kind match, the rules are: the longest name
+ * wins (so "South Indian" beats "Indian" and "Non-veg" beats "Veg"); on a tie
+ * the name found in the earlier tag wins; after that, the one listed first.
+ */
+public class CategoryClassifier {
+	private static final int FOOD = 0;
+	private static final int CUISINE = 1;
+	private static final int RECIPE = 2;
+
+	private final AhoCorasickMatcher automaton;
+	private final String[] names;
+	private final int[] kinds;
+	private final boolean matchWholeWords;
+
+	public CategoryClassifier(List<String> foodCategories, List<String> cuisineCategories,
+			List<String> recipeCategories, boolean matchWholeWords) {
+		List<String> patterns = new ArrayList<>();
+		List<Integer> patternKinds = new ArrayList<>();
+		addCategories(foodCategories, FOOD, patterns, patternKinds);
+		addCategories(cuisineCategories, CUISINE, patterns, patternKinds);
+		addCategories(recipeCategories, RECIPE, patterns, patternKinds);
+
+		this.automaton = new AhoCorasickMatcher(patterns);
+		this.names = patterns.toArray(new String[0]);
+		this.kinds = new int[patternKinds.size()];
+		for (int i = 0; i < kinds.length; i++) {
+			kinds[i] = patternKinds.get(i);
+		}
+		this.matchWholeWords = matchWholeWords;
+	}
+
+	private static void addCategories(List<String> categories, int kind, List<String> patterns,
+			List<Integer> patternKinds) {
+		for (String category : categories) {
+			if (!category.isEmpty()) {
+				patterns.add(category);
+				patternKinds.add(kind);
+			}
+		}
+	}
+
+	/**
+	 * Builds a classifier from the category lists in CategoryMapper.
+	 */
+	public static CategoryClassifier fromDefaults() {
+		return new CategoryClassifier(CategoryMapper.FOOD_CATEGORIES, CategoryMapper.CUISINE_CATEGORIES,
+				CategoryMapper.RECIPE_CATEGORIES, false);
+	}
+
+	/**
+	 * Builds a classifier from a JSON file with "food", "cuisine" and "recipe"
+	 * arrays and an optional "matchWholeWords" flag. A missing array falls back
+	 * to the built-in list.
+	 */
+	public static CategoryClassifier fromConfig(String configFilePath) {
+		try {
+			JsonNode root = new ObjectMapper().readTree(new File(configFilePath));
+			return new CategoryClassifier(readList(root, "food", CategoryMapper.FOOD_CATEGORIES),
+					readList(root, "cuisine", CategoryMapper.CUISINE_CATEGORIES),
+					readList(root, "recipe", CategoryMapper.RECIPE_CATEGORIES),
+					root.path("matchWholeWords").asBoolean(false));
+		} catch (Exception e) {
+			throw new RuntimeException("Failed to load category config: " + e.getMessage(), e);
+		}
+	}
+
+	private static List<String> readList(JsonNode root, String key, List<String> defaults) {
+		JsonNode arrayNode = root.get(key);
+		if (arrayNode == null || !arrayNode.isArray()) {
+			return defaults;
+		}
+		List<String> values = new ArrayList<>();
+		for (JsonNode value : arrayNode) {
+			values.add(value.asText().trim());
+		}
+		return Collections.unmodifiableList(values);
+	}
+
+	public RecipeCategories classify(List<String> tags) {
+		// Best pattern id per kind (-1 while nothing matched) and the tag it came from
+		int bestFood = -1;
+		int bestCuisine = -1;
+		int bestRecipe = -1;
+		int foodTag = -1;
+		int cuisineTag = -1;
+		int recipeTag = -1;
+
+		for (int t = 0; t < tags.size(); t++) {
+			String tag = tags.get(t);
+			int state = automaton.start();
+			for (int i = 0; i < tag.length(); i++) {
+				state = automaton.step(state, tag.charAt(i));
+				for (int id : automaton.outputs(state)) {
+					if (matchWholeWords && !automaton.isWholeWord(tag, id, i + 1)) {
+						continue;
+					}
+					switch (kinds[id]) {
+					case FOOD:
+						if (beats(id, t, bestFood, foodTag)) {
+							bestFood = id;
+							foodTag = t;
+						}
+						break;
+					case CUISINE:
+						if (beats(id, t, bestCuisine, cuisineTag)) {
+							bestCuisine = id;
+							cuisineTag = t;
+						}
+						break;
+					default:
+						if (beats(id, t, bestRecipe, recipeTag)) {
+							bestRecipe = id;
+							recipeTag = t;
+						}
+						break;
+					}
+				}
+			}
+		}
+
+		if (bestFood < 0 && bestCuisine < 0 && bestRecipe < 0) {
+			return RecipeCategories.NONE;
+		}
+		return new RecipeCategories(nameOf(bestFood), nameOf(bestCuisine), nameOf(bestRecipe));
+	}
+
+	/**
+	 * Applies the priority rules. Tags are scanned in order, so a candidate from
+	 * a later tag only wins by being longer.
+	 */
+	private boolean beats(int candidate, int candidateTag, int best, int bestTag) {
+		if (best < 0) {
+			return true;
+		}
+		int candidateLength = automaton.patternLength(candidate);
+		int bestLength = automaton.patternLength(best);
+		if (candidateLength != bestLength) {
+			return candidateLength > bestLength;
+		}
+		return candidateTag == bestTag && candidate < best;
+	}
+
+	private String nameOf(int patternId) {
+		return patternId < 0 ? "" : names[patternId];
+	}
+}
@@ -1,12 +1,16 @@
 package scraper;
 
+import model.RecipeCategories;
+
+import java.io.File;
 import java.util.List;
 
 /**
  * The CategoryMapper class is responsible for mapping tags associated with
  * recipes to their respective categories, such as food categories, cuisine
  * categories, and recipe categories. It helps classify recipes based on the
- * tags found in their metadata.
+ * tags found in their metadata. The matching itself is done by a
+ * CategoryClassifier compiled once from these lists.
  */
 public class CategoryMapper {
 
@@ -18,34 +22,32 @@ public class CategoryMapper {
 			"Sikkimese", "Mizo", "Arunachali", "Chhattisgarhi", "Madhya pradesh", "Haryanvi", "uttarakhand");
 	public static final List<String> RECIPE_CATEGORIES = List.of("Breakfast", "Lunch", "Dinner", "Snack");
 
-	public static String[] mapTagsToCategories(List<String> tags) {
-		String foodCategory = ""; // Default value
-		String cuisineCategory = "";
-		String recipeCategory = "";
+	public static final String CATEGORY_CONFIG_FILE = "src/main/resources/config/category_config.json";
 
-		for (String tag : tags) {
-			String normalized = tag.trim().toLowerCase();
+	private static volatile CategoryClassifier classifier;
 
-			for (String food : FOOD_CATEGORIES) {
-				if (normalized.contains(food.toLowerCase())) {
-					foodCategory = food;
-					break;
-				}
-			}
-			for (String cuisine : CUISINE_CATEGORIES) {
-				if (normalized.contains(cuisine.toLowerCase())) {
-					cuisineCategory = cuisine;
-					break;
-				}
-			}
-			for (String recipe : RECIPE_CATEGORIES) {
-				if (normalized.contains(recipe.toLowerCase())) {
-					recipeCategory = recipe;
-					break;
+	/**
+	 * Maps tags to categories with the shared classifier. The classifier is
+	 * built on first use from config/category_config.json if that file exists,
+	 * and from the lists above otherwise.
+	 */
+	public static RecipeCategories mapTagsToCategories(List<String> tags) {
+		return getClassifier().classify(tags);
+	}
+
+	public static CategoryClassifier getClassifier() {
+		CategoryClassifier current = classifier;
+		if (current == null) {
+			synchronized (CategoryMapper.class) {
+				current = classifier;
+				if (current == null) {
+					current = new File(CATEGORY_CONFIG_FILE).exists()
+							? CategoryClassifier.fromConfig(CATEGORY_CONFIG_FILE)
+							: CategoryClassifier.fromDefaults();
+					classifier = current;
 				}
 			}
 		}
-
-		return new String[] { foodCategory, cuisineCategory, recipeCategory };
+		return current;
 	}
 }
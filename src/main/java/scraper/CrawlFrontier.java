@@ -0,0 +1,539 @@
+package scraper;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntPredicate;
+
+/**
+ * The CrawlFrontier class records the state of every URL the crawler has seen,
+ * so an interrupted crawl resumes at the exact URL where it stopped. States are
+ * kept in an append-only log file that is memory-mapped for cheap appends.
+ * Each URL is written once; later state changes are small records that refer to
+ * it by its 64-bit fingerprint. In memory the frontier keeps only fingerprints,
+ * log offsets, states and attempt counts in flat arrays, so millions of URLs
+ * fit without holding them as Strings. The log is compacted once most of it
+ * consists of superseded state records. A lock file keeps a second process
+ * from opening the same frontier.
+ */
+public class CrawlFrontier implements Frontier {
+
+	public enum State {
+		DISCOVERED, IN_FLIGHT, STORED, REJECTED, FAILED
+	}
+
+	private static final int MAGIC = 0x46524E54; // "FRNT"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+
+	// [type][state][attempts][int length][UTF-8 URL]
+	private static final byte URL_RECORD = 1;
+	private static final int URL_RECORD_HEADER = 7;
+	// [type][state][attempts][long fingerprint]
+	private static final byte STATE_RECORD = 2;
+	private static final int STATE_RECORD_SIZE = 11;
+
+	private static final int INITIAL_MAP_SIZE = 1 << 20;
+	private static final int MIN_COMPACT_SIZE = 4 << 20;
+	private static final int MAX_ATTEMPTS = 255;
+	private static final State[] STATES = State.values();
+	private static final Logger logger = LogManager.getLogger(CrawlFrontier.class);
+
+	private final Path path;
+	private final FileChannel lockChannel;
+	private final FileLock lock;
+	private FileChannel channel;
+	private MappedByteBuffer log;
+	private int writePosition;
+	private long liveBytes;
+
+	// Open-addressing index; a fingerprint of 0 marks an empty slot
+	private long[] fingerprints;
+	private int[] offsets;
+	private byte[] states;
+	private byte[] attempts;
+	private int size;
+	private final int[] stateCounts = new int[STATES.length];
+
+	private CrawlFrontier(Path path) throws IOException {
+		this.path = path;
+		this.lockChannel = FileChannel.open(path.resolveSibling(path.getFileName() + ".lock"),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		this.lock = lockChannel.tryLock();
+		if (lock == null) {
+			lockChannel.close();
+			throw new IOException("Crawl frontier is in use by another process: " + path);
+		}
+
+		try {
+			allocateIndex(1024);
+			mapLog();
+			replay();
+			if (shouldCompact()) {
+				compact();
+			}
+		} catch (IOException | RuntimeException e) {
+			releaseLock();
+			throw e;
+		}
+		logger.info("Opened crawl frontier " + path + " with " + size + " URLs");
+	}
+
+	/**
+	 * Opens the frontier stored in the given file, creating it if it does not
+	 * exist yet.
+	 */
+	public static CrawlFrontier open(String file) throws IOException {
+		return new CrawlFrontier(Paths.get(file));
+	}
+
+	/**
+	 * Adds a URL in the DISCOVERED state. Returns false if the URL is already
+	 * known, whatever its state.
+	 */
+	@Override
+	public synchronized boolean discover(String url) {
+		byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+		long fingerprint = fingerprint(ByteBuffer.wrap(bytes), 0, bytes.length);
+		if (fingerprints[findSlot(fingerprint)] == fingerprint) {
+			return false;
+		}
+		insert(fingerprint, appendUrl(bytes, State.DISCOVERED, 0), State.DISCOVERED, 0);
+		return true;
+	}
+
+	/**
+	 * Moves a URL to the given state, adding it if it is not known yet. Moving a
+	 * URL to FAILED counts one more attempt; moving it back to DISCOVERED starts
+	 * counting from zero again.
+	 */
+	@Override
+	public synchronized void setState(String url, State state) {
+		byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+		long fingerprint = fingerprint(ByteBuffer.wrap(bytes), 0, bytes.length);
+		int slot = findSlot(fingerprint);
+		int attemptCount = fingerprints[slot] == fingerprint ? attempts[slot] & 0xFF : 0;
+		if (state == State.FAILED) {
+			attemptCount = Math.min(attemptCount + 1, MAX_ATTEMPTS);
+		} else if (state == State.DISCOVERED) {
+			attemptCount = 0;
+		}
+		write(bytes, fingerprint, slot, state, attemptCount);
+	}
+
+	/**
+	 * Marks a URL as failed and returns the number of the attempt that failed. A
+	 * URL that is not retryable gets its attempts used up, so it is no longer
+	 * pending.
+	 */
+	@Override
+	public synchronized int recordFailure(String url, boolean retryable) {
+		byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+		long fingerprint = fingerprint(ByteBuffer.wrap(bytes), 0, bytes.length);
+		int slot = findSlot(fingerprint);
+		int attempt = Math.min((fingerprints[slot] == fingerprint ? attempts[slot] & 0xFF : 0) + 1, MAX_ATTEMPTS);
+		write(bytes, fingerprint, slot, State.FAILED, retryable ? attempt : MAX_ATTEMPTS);
+		return attempt;
+	}
+
+	private void write(byte[] url, long fingerprint, int slot, State state, int attemptCount) {
+		if (fingerprints[slot] != fingerprint) {
+			insert(fingerprint, appendUrl(url, state, attemptCount), state, attemptCount);
+		} else {
+			appendState(fingerprint, state, attemptCount);
+			updateSlot(slot, state, attemptCount);
+		}
+	}
+
+	/**
+	 * Returns the state of a URL, or null if the frontier has never seen it.
+	 */
+	@Override
+	public synchronized State getState(String url) {
+		int slot = findSlot(url);
+		return fingerprints[slot] == 0 ? null : STATES[states[slot]];
+	}
+
+	public synchronized int getAttempts(String url) {
+		int slot = findSlot(url);
+		return fingerprints[slot] == 0 ? 0 : attempts[slot] & 0xFF;
+	}
+
+	/**
+	 * Returns the URLs that still need work: discovered, left in flight by a run
+	 * that stopped, or failed fewer than maxAttempts times. The set of URLs is
+	 * fixed when this method is called; the URLs themselves are read from the
+	 * log one at a time.
+	 */
+	public synchronized Iterator<String> pendingUrls(int maxAttempts) {
+		return snapshot(slot -> isPending(slot, maxAttempts));
+	}
+
+	/**
+	 * Returns the URLs currently in one of the given states, read from the log
+	 * one at a time like pendingUrls().
+	 */
+	public synchronized Iterator<String> urlsIn(State... wanted) {
+		boolean[] match = new boolean[STATES.length];
+		for (State state : wanted) {
+			match[state.ordinal()] = true;
+		}
+		return snapshot(slot -> match[states[slot]]);
+	}
+
+	private Iterator<String> snapshot(IntPredicate slotFilter) {
+		long[] matching = new long[size];
+		int count = 0;
+		for (int slot = 0; slot < fingerprints.length; slot++) {
+			if (fingerprints[slot] != 0 && slotFilter.test(slot)) {
+				matching[count++] = fingerprints[slot];
+			}
+		}
+
+		long[] selected = Arrays.copyOf(matching, count);
+		return new Iterator<String>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < selected.length;
+			}
+
+			@Override
+			public String next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return urlOf(selected[next++]);
+			}
+		};
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	@Override
+	public synchronized int count(State state) {
+		return stateCounts[state.ordinal()];
+	}
+
+	/**
+	 * Writes the log to disk, so state changes survive a machine crash and not
+	 * only a crash of the scraper.
+	 */
+	@Override
+	public synchronized void flush() {
+		log.force();
+	}
+
+	/**
+	 * Rewrites the log with one URL record per known URL and swaps it in place
+	 * of the current one.
+	 */
+	public synchronized void compact() throws IOException {
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		int[] newOffsets = new int[offsets.length];
+		int position = HEADER_SIZE;
+
+		try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+			buffer.putInt(MAGIC).putInt(VERSION);
+			for (int slot = 0; slot < fingerprints.length; slot++) {
+				if (fingerprints[slot] == 0) {
+					continue;
+				}
+				int offset = offsets[slot];
+				int length = log.getInt(offset + 3);
+				int recordSize = URL_RECORD_HEADER + length;
+				if (buffer.remaining() < recordSize) {
+					writeFully(out, buffer);
+					if (buffer.capacity() < recordSize) {
+						buffer = ByteBuffer.allocate(recordSize);
+					}
+				}
+
+				ByteBuffer url = log.duplicate();
+				url.limit(offset + recordSize).position(offset + URL_RECORD_HEADER);
+				buffer.put(URL_RECORD).put(states[slot]).put(attempts[slot]).putInt(length).put(url);
+				newOffsets[slot] = position;
+				position += recordSize;
+			}
+			writeFully(out, buffer);
+			out.force(true);
+		}
+
+		long before = writePosition;
+		channel.close();
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		mapLog();
+		offsets = newOffsets;
+		writePosition = position;
+		liveBytes = position - HEADER_SIZE;
+		logger.info("🔄 Compacted crawl frontier from " + before + " to " + position + " bytes");
+	}
+
+	@Override
+	public synchronized void close() {
+		try {
+			if (shouldCompact()) {
+				compact();
+			} else {
+				log.force();
+			}
+			channel.close();
+		} catch (IOException e) {
+			logger.error("⚠ Failed to close crawl frontier " + path + ": " + e.getMessage());
+		} finally {
+			releaseLock();
+		}
+	}
+
+	private void releaseLock() {
+		try {
+			lock.release();
+			lockChannel.close();
+		} catch (IOException e) {
+			logger.warn("Failed to release frontier lock: " + e.getMessage());
+		}
+	}
+
+	private boolean isPending(int slot, int maxAttempts) {
+		State state = STATES[states[slot]];
+		return state == State.DISCOVERED || state == State.IN_FLIGHT
+				|| (state == State.FAILED && (attempts[slot] & 0xFF) < maxAttempts);
+	}
+
+	private synchronized String urlOf(long fingerprint) {
+		int offset = offsets[findSlot(fingerprint)];
+		byte[] bytes = new byte[log.getInt(offset + 3)];
+		ByteBuffer url = log.duplicate();
+		url.position(offset + URL_RECORD_HEADER);
+		url.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void mapLog() throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		long fileSize = channel.size();
+		if (fileSize > Integer.MAX_VALUE) {
+			throw new IOException("Crawl frontier log is too large to map: " + path);
+		}
+		// Mapping past the end grows the file with zeros, which the replay reads as the end of the log
+		log = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(fileSize, INITIAL_MAP_SIZE));
+		if (fileSize == 0) {
+			log.putInt(0, MAGIC);
+			log.putInt(4, VERSION);
+		} else if (log.getInt(0) != MAGIC || log.getInt(4) != VERSION) {
+			throw new IOException("Not a crawl frontier log: " + path);
+		}
+	}
+
+	private void replay() {
+		int limit = log.capacity();
+		int position = HEADER_SIZE;
+		while (position < limit) {
+			byte type = log.get(position);
+			if (type == 0) {
+				break;
+			}
+			int recordSize = type == URL_RECORD ? URL_RECORD_HEADER : STATE_RECORD_SIZE;
+			if ((type != URL_RECORD && type != STATE_RECORD) || position + recordSize > limit
+					|| (log.get(position + 1) & 0xFF) >= STATES.length) {
+				logger.warn("⚠ Ignoring corrupt crawl frontier records from offset " + position);
+				break;
+			}
+			State state = STATES[log.get(position + 1) & 0xFF];
+			int attemptCount = log.get(position + 2) & 0xFF;
+
+			if (type == URL_RECORD) {
+				int length = log.getInt(position + 3);
+				recordSize += length;
+				if (length <= 0 || position + recordSize > limit) {
+					logger.warn("⚠ Ignoring corrupt crawl frontier records from offset " + position);
+					break;
+				}
+				long fingerprint = fingerprint(log, position + URL_RECORD_HEADER, length);
+				int slot = findSlot(fingerprint);
+				if (fingerprints[slot] == fingerprint) {
+					liveBytes -= URL_RECORD_HEADER + log.getInt(offsets[slot] + 3);
+					offsets[slot] = position;
+					updateSlot(slot, state, attemptCount);
+				} else {
+					insert(fingerprint, position, state, attemptCount);
+				}
+				liveBytes += recordSize;
+			} else {
+				int slot = findSlot(log.getLong(position + 3));
+				if (fingerprints[slot] != 0) {
+					updateSlot(slot, state, attemptCount);
+				}
+			}
+			position += recordSize;
+		}
+		writePosition = position;
+
+		// Clear what a crash left of a record that was only partly written
+		for (int i = position; i < limit; i++) {
+			if (log.get(i) != 0) {
+				log.put(i, (byte) 0);
+			}
+		}
+	}
+
+	private int appendUrl(byte[] url, State state, int attemptCount) {
+		int recordSize = URL_RECORD_HEADER + url.length;
+		ensureCapacity(recordSize);
+		int position = writePosition;
+		log.put(position + 1, (byte) state.ordinal());
+		log.put(position + 2, (byte) attemptCount);
+		log.putInt(position + 3, url.length);
+		ByteBuffer target = log.duplicate();
+		target.position(position + URL_RECORD_HEADER);
+		target.put(url);
+		// The type goes in last, so a record cut short by a crash is never replayed
+		log.put(position, URL_RECORD);
+		writePosition += recordSize;
+		liveBytes += recordSize;
+		return position;
+	}
+
+	private void appendState(long fingerprint, State state, int attemptCount) {
+		ensureCapacity(STATE_RECORD_SIZE);
+		int position = writePosition;
+		log.put(position + 1, (byte) state.ordinal());
+		log.put(position + 2, (byte) attemptCount);
+		log.putLong(position + 3, fingerprint);
+		log.put(position, STATE_RECORD);
+		writePosition += STATE_RECORD_SIZE;
+	}
+
+	private void ensureCapacity(int recordSize) {
+		// One spare zero byte always marks the end of the log
+		long required = (long) writePosition + recordSize + 1;
+		if (required <= log.capacity()) {
+			return;
+		}
+		try {
+			if (shouldCompact()) {
+				compact();
+				required = (long) writePosition + recordSize + 1;
+				if (required <= log.capacity()) {
+					return;
+				}
+			}
+			if (required > Integer.MAX_VALUE) {
+				throw new IllegalStateException("Crawl frontier log is full: " + path);
+			}
+			long newSize = Math.min(Integer.MAX_VALUE, Math.max(required, 2L * log.capacity()));
+			log = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to grow crawl frontier log " + path, e);
+		}
+	}
+
+	private boolean shouldCompact() {
+		return writePosition > MIN_COMPACT_SIZE && writePosition - HEADER_SIZE > 2 * liveBytes;
+	}
+
+	private void allocateIndex(int capacity) {
+		fingerprints = new long[capacity];
+		offsets = new int[capacity];
+		states = new byte[capacity];
+		attempts = new byte[capacity];
+	}
+
+	private int findSlot(String url) {
+		byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+		return findSlot(fingerprint(ByteBuffer.wrap(bytes), 0, bytes.length));
+	}
+
+	private int findSlot(long fingerprint) {
+		int mask = fingerprints.length - 1;
+		int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+		while (fingerprints[slot] != 0 && fingerprints[slot] != fingerprint) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void insert(long fingerprint, int offset, State state, int attemptCount) {
+		if ((size + 1) * 2 > fingerprints.length) {
+			resizeIndex();
+		}
+		int slot = findSlot(fingerprint);
+		fingerprints[slot] = fingerprint;
+		offsets[slot] = offset;
+		states[slot] = (byte) state.ordinal();
+		attempts[slot] = (byte) attemptCount;
+		stateCounts[state.ordinal()]++;
+		size++;
+	}
+
+	private void updateSlot(int slot, State state, int attemptCount) {
+		stateCounts[states[slot]]--;
+		stateCounts[state.ordinal()]++;
+		states[slot] = (byte) state.ordinal();
+		attempts[slot] = (byte) attemptCount;
+	}
+
+	private void resizeIndex() {
+		long[] oldFingerprints = fingerprints;
+		int[] oldOffsets = offsets;
+		byte[] oldStates = states;
+		byte[] oldAttempts = attempts;
+		allocateIndex(oldFingerprints.length * 2);
+		for (int i = 0; i < oldFingerprints.length; i++) {
+			if (oldFingerprints[i] != 0) {
+				int slot = findSlot(oldFingerprints[i]);
+				fingerprints[slot] = oldFingerprints[i];
+				offsets[slot] = oldOffsets[i];
+				states[slot] = oldStates[i];
+				attempts[slot] = oldAttempts[i];
+			}
+		}
+	}
+
+	/**
+	 * Hashes the UTF-8 bytes of a URL with 64-bit FNV-1a followed by a final
+	 * mix. With 64 bits, a collision among a few million URLs is very unlikely.
+	 */
+	private static long fingerprint(ByteBuffer buffer, int offset, int length) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = offset; i < offset + length; i++) {
+			hash ^= buffer.get(i) & 0xFF;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash == 0 ? 1 : hash;
+	}
+
+	private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+		buffer.clear();
+	}
+}
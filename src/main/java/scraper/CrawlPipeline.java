@@ -0,0 +1,936 @@
+package scraper;
+
+import fetchers.FetchedPage;
+import fetchers.HostThrottle;
+import fetchers.ResourceBlocker;
+import fetchers.SitemapReader;
+import fetchers.PageFetcher;
+import fetchers.RecipeListing;
+import fetchers.RecipePageParser;
+import filters.DietFilter;
+import filters.DietMatcher;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import model.Recipe;
+import model.MinHash;
+import model.RecipeFingerprint;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import search.RecipeIndex;
+import utils.KnownUrlSet;
+import utils.RecipeBatchWriter;
+import utils.RecipeFingerprintStore;
+import utils.RecipeStorage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * The CrawlPipeline class crawls the recipe listing in four stages that run at
+ * the same time: discovery walks the listing pages ahead of the scrapers,
+ * extraction loads each recipe page, the filter stage matches the recipe
+ * against the diets and persistence hands matches to the database writer.
+ * Every stage has its own thread count and bounded input queue, so a slow
+ * stage holds back the ones in front of it instead of piling up work. The
+ * state of every URL is kept in a CrawlFrontier, so a new run first finishes
+ * the URLs an earlier run left behind and never loads a listing page twice.
+ *
+ * In refresh mode, every recipe scraped before is visited again. Pages are
+ * loaded with conditional requests where the backend supports them, and a
+ * recipe whose content hash has not changed skips the filter and database
+ * stages. Changed recipes replace the stored ones.
+ *
+ * Failures are sorted by FailureClass and written to the FailureLog.
+ * Transient ones are scheduled for another attempt with exponential backoff,
+ * up to maxAttempts, without holding up a worker while they wait.
+ *
+ * Each stage reports its timings, counts and queue depths to the
+ * MetricsRegistry, and a summary of the metrics is logged and written to a
+ * file at the end of every run.
+ *
+ * With a DuplicateIndex set, each extracted recipe is checked for near-duplicates
+ * of the recipes scraped before and the cluster it joins is stored with its
+ * fingerprint. With skipDuplicates, near-duplicates are not stored in any diet
+ * and known ones are not even loaded again.
+ *
+ * In new-only mode, only recipes published since the last crawl are picked
+ * up: the listing is walked from its first page, which holds the newest
+ * recipes, and the walk stops after newOnlyStopAfter URLs in a row that were
+ * scraped before.
+ *
+ * Recipe URLs are normally discovered from the site's sitemaps, which takes
+ * seconds instead of a browser visit to every listing page. The listing pages
+ * are only crawled if the sitemaps cannot be read or list no recipes. In
+ * refresh mode, the lastmod dates of the sitemap narrow the known recipes
+ * visited again down to the ones changed since the last sitemap pass.
+ *
+ * With a CrawlQueue as the frontier, the pipeline crawls together with any
+ * other process using the same database: instead of queuing all its work up
+ * front, it keeps claiming listing pages and recipe URLs from the queue as it
+ * has room for them, puts the recipe URLs it discovers into the queue for
+ * whichever process claims them first, and stops once the queue is drained.
+ */
+public class CrawlPipeline {
+	public static final String LISTING_URL = "https://www.tarladalal.com/recipes";
+	private static final Logger logger = LogManager.getLogger(CrawlPipeline.class);
+	private static final MetricsRegistry metrics = MetricsRegistry.get();
+	private static final LatencyHistogram EXTRACT = metrics.histogram("scraper_extract_seconds");
+	private static final LatencyHistogram FILTER = metrics.histogram("scraper_filter_seconds");
+	private static final Counter LISTING_PAGES = metrics.counter("scraper_listing_pages_total");
+	private static final Counter DISCOVERED_URLS = metrics.counter("scraper_discovered_urls_total");
+	private static final Counter PAGES_FETCHED = metrics.counter("scraper_pages_fetched_total");
+	private static final Counter RECIPES_FILTERED = metrics.counter("scraper_recipes_filtered_total");
+	private static final Counter RETRIES = metrics.counter("scraper_retries_total");
+	private static final Counter NEAR_DUPLICATES = metrics.counter("scraper_near_duplicates_total");
+
+	private final ScraperConfig config;
+	private final PageFetcherFactory fetcherFactory;
+	private final Supplier<RecipeStorage> storageFactory;
+	private final DietMatcher dietMatcher;
+	private final Frontier frontier;
+	private final CrawlQueue queue;
+	private final FailureLog failureLog;
+	private final List<String> failedUrls = Collections.synchronizedList(new ArrayList<>());
+	private final LongAdder finishedRecipes = new LongAdder();
+	private final LongAdder notModifiedRecipes = new LongAdder();
+	private final LongAdder unchangedRecipes = new LongAdder();
+	private final LongAdder changedRecipes = new LongAdder();
+	private final LongAdder retriedRecipes = new LongAdder();
+	private final AtomicLong openTasks = new AtomicLong();
+	private final Map<CrawlFrontier.State, Counter> outcomes = new EnumMap<>(CrawlFrontier.State.class);
+	private final Map<DietFilter, Counter> dietMatches = new HashMap<>();
+	private volatile boolean discoveryStopped;
+	private volatile boolean replaying;
+	private volatile PipelineStage<RecipeTask, RecipeTask> extractionStage;
+	private volatile RetryScheduler<RecipeTask> retryScheduler;
+	private volatile List<PipelineStage<?, ?>> stages = Collections.emptyList();
+	private List<String> sitemapRefreshUrls;
+	private volatile RecipeIndex searchIndex;
+	private volatile DuplicateIndex duplicateIndex;
+	private KnownUrlSet knownUrls;
+	private final LongAdder skippedDuplicates = new LongAdder();
+
+	public CrawlPipeline(ScraperConfig config, PageFetcherFactory fetcherFactory,
+			Supplier<RecipeStorage> storageFactory, List<DietFilter> filters, Frontier frontier,
+			FailureLog failureLog) {
+		this.config = config;
+		this.fetcherFactory = fetcherFactory;
+		this.storageFactory = storageFactory;
+		this.dietMatcher = new DietMatcher(filters);
+		this.frontier = frontier;
+		this.queue = frontier instanceof CrawlQueue ? (CrawlQueue) frontier : null;
+		this.failureLog = failureLog;
+
+		for (CrawlFrontier.State state : CrawlFrontier.State.values()) {
+			outcomes.put(state,
+					metrics.counter("scraper_recipes_total", "outcome", state.name().toLowerCase(Locale.ROOT)));
+		}
+		for (DietFilter filter : filters) {
+			Counter matches = metrics.counter("scraper_diet_matches_total", "diet", filter.getDietName());
+			dietMatches.put(filter, matches);
+			metrics.gauge("scraper_diet_match_ratio", () -> RECIPES_FILTERED.get() == 0 ? 0
+					: (double) matches.get() / RECIPES_FILTERED.get(), "diet", filter.getDietName());
+		}
+	}
+
+	/**
+	 * Keeps the given search index up to date with every recipe written from
+	 * now on.
+	 */
+	public void setSearchIndex(RecipeIndex searchIndex) {
+		this.searchIndex = searchIndex;
+	}
+
+	/**
+	 * Checks every recipe extracted from now on for near-duplicates.
+	 */
+	public void setDuplicateIndex(DuplicateIndex duplicateIndex) {
+		this.duplicateIndex = duplicateIndex;
+	}
+
+	/**
+	 * Scrapes the URLs left pending by earlier runs, then every listing page not
+	 * yet crawled, and returns the recipe URLs that failed in this run.
+	 */
+	public List<String> run() throws Exception {
+		if (config.isNewOnly()) {
+			return runNewOnly();
+		}
+		if (config.isSitemapDiscovery() && discoverFromSitemap()) {
+			if (queue == null) {
+				importLegacyProgress();
+			}
+			return execute(0, null);
+		}
+
+		int totalPages;
+		try (PageFetcher fetcher = fetcherFactory.create()) {
+			totalPages = fetcher.fetchListing(LISTING_URL).getLastPageNumber();
+		}
+		if (queue != null) {
+			if (config.isRefreshMode()) {
+				logger.warn("⚠ Refresh mode needs the local crawl frontier; only unfinished URLs are claimed");
+			}
+			// Whichever process starts first adds the pages; the others find them there
+			int added = queue.addListingPages(totalPages);
+			logger.info("Added " + added + " of " + totalPages + " listing pages to the crawl queue");
+			return execute(0, null);
+		}
+		importLegacyProgress();
+		return execute(totalPages, null);
+	}
+
+	/**
+	 * Scrapes the URLs left pending by earlier runs and the recipes published
+	 * since the last crawl. The URLs scraped before are loaded from the
+	 * database once, so they are known even if the frontier file was reset.
+	 */
+	private List<String> runNewOnly() throws Exception {
+		if (queue != null) {
+			logger.warn("⚠ New-only mode needs the local crawl frontier; running a full crawl instead");
+			config.setNewOnly(false);
+			return run();
+		}
+		long start = System.nanoTime();
+		knownUrls = KnownUrlSet.load(storageFactory.get(), dietMatcher.getFilters());
+		logger.info("Loaded " + knownUrls.size() + " known recipe URLs in "
+				+ Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+		try {
+			return execute(0, null);
+		} finally {
+			knownUrls = null;
+		}
+	}
+
+	/**
+	 * Scrapes only the URLs that are pending in the frontier, such as the ones
+	 * that failed fewer than maxAttempts times, without loading listing pages.
+	 */
+	public List<String> runPending() throws Exception {
+		return execute(0, null);
+	}
+
+	/**
+	 * Extracts, filters and stores the given recipe pages again, ignoring their
+	 * frontier state, and replaces the stored recipes with the results. Used to
+	 * replay the page archive after a change to the extraction or the diets.
+	 */
+	public List<String> replay(Collection<String> urls) throws Exception {
+		return execute(0, urls);
+	}
+
+	private List<String> execute(int totalPages, Collection<String> replayUrls) throws Exception {
+		failedUrls.clear();
+		replaying = replayUrls != null;
+		openTasks.set(0);
+		discoveryStopped = false;
+		PipelineStage<Integer, RecipeTask> discovery = new PipelineStage<>("discovery",
+				config.getDiscoveryThreads(), config.getDiscoveryThreads(), DiscoveryWorker::new);
+		PipelineStage<RecipeTask, RecipeTask> extraction = new PipelineStage<>("extraction",
+				config.getWorkerCount(), config.getQueueCapacity(), ExtractionWorker::new);
+		PipelineStage<RecipeTask, RecipeTask> filtering = new PipelineStage<>("filter", config.getFilterThreads(),
+				config.getQueueCapacity(), FilterWorker::new);
+		PipelineStage<RecipeTask, Void> persistence = new PipelineStage<>("persistence",
+				config.getPersistenceThreads(), config.getMatchQueueCapacity(), PersistenceWorker::new);
+		discovery.then(extraction).then(filtering).then(persistence);
+		// Retries keep coming after discovery ends, so extraction closes once no task is left open
+		discovery.onStopped(() -> {
+			discoveryStopped = true;
+			closeExtractionIfDone();
+		});
+		extractionStage = extraction;
+		stages = Arrays.asList(discovery, extraction, filtering, persistence);
+		metrics.startRun();
+		for (PipelineStage<?, ?> stage : stages) {
+			metrics.gauge("scraper_stage_queue_depth", stage::getQueueDepth, "stage", stage.getName());
+			metrics.gauge("scraper_stage_busy_workers", stage::getBusyWorkers, "stage", stage.getName());
+			metrics.gauge("scraper_stage_processed", stage::getProcessedCount, "stage", stage.getName());
+			metrics.gauge("scraper_stage_per_minute", stage::getThroughputPerMinute, "stage", stage.getName());
+		}
+		retryScheduler = new RetryScheduler<>(config.getRetryBaseDelayMillis(), config.getRetryMaxDelayMillis(),
+				extraction::put);
+
+		List<PipelineStage<?, ?>> started = new ArrayList<>();
+		ScheduledExecutorService statsLogger = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "pipeline-stats");
+			thread.setDaemon(true);
+			return thread;
+		});
+		boolean finished = false;
+		try {
+			// Start from the end, so every stage has somewhere to put its output
+			for (PipelineStage<?, ?> stage : Arrays.asList(persistence, filtering, extraction, discovery)) {
+				stage.start();
+				started.add(stage);
+			}
+			int interval = config.getStatsIntervalSeconds();
+			if (interval > 0) {
+				statsLogger.scheduleAtFixedRate(this::logStats, interval, interval, TimeUnit.SECONDS);
+			}
+
+			if (replayUrls != null) {
+				int replayed = 0;
+				for (String url : replayUrls) {
+					if (!url.equals(LISTING_URL) && !isListingPageUrl(url)) {
+						extraction.put(newTask(url));
+						replayed++;
+					}
+				}
+				logger.info("📦 Replaying " + replayed + " archived recipe pages");
+			} else if (queue != null) {
+				claimFromQueue(discovery, extraction);
+			} else {
+				queuePendingUrls(extraction);
+			}
+			if (knownUrls != null) {
+				walkNewestFirst(extraction);
+			}
+			if (config.isRefreshMode() && (totalPages > 0 || sitemapRefreshUrls != null)) {
+				int revisited = 0;
+				Iterator<String> known = sitemapRefreshUrls != null ? sitemapRefreshUrls.iterator()
+						: localFrontier().urlsIn(CrawlFrontier.State.STORED, CrawlFrontier.State.REJECTED);
+				while (known.hasNext()) {
+					String url = known.next();
+					if (!isListingPageUrl(url)) {
+						extraction.put(newTask(url));
+						revisited++;
+					}
+				}
+				logger.info("🔄 Refreshing " + revisited + " known recipe URLs");
+			}
+
+			// A refresh walks all listing pages again to find recipes added since
+			for (int page = 1; page <= totalPages; page++) {
+				if (config.isRefreshMode()
+						|| frontier.getState(listingPageUrl(page)) != CrawlFrontier.State.STORED) {
+					discovery.put(page);
+				}
+			}
+			discovery.closeInput();
+
+			// Each later stage closes the next one once it is drained, so persistence stops last
+			for (PipelineStage<?, ?> stage : stages) {
+				stage.awaitStopped();
+			}
+			finished = true;
+		} finally {
+			statsLogger.shutdownNow();
+			retryScheduler.close();
+			if (!finished) {
+				for (PipelineStage<?, ?> stage : started) {
+					stage.closeInput();
+					stage.interrupt();
+				}
+			}
+			frontier.flush();
+			logStats();
+		}
+
+		logger.info("Crawl finished: " + finishedRecipes.sum() + " recipes processed, " + retriedRecipes.sum()
+				+ " retries, " + failedUrls.size() + " failed, " + frontier.count(CrawlFrontier.State.STORED)
+				+ " URLs stored in total");
+		if (config.isRefreshMode()) {
+			logger.info("Refresh: " + notModifiedRecipes.sum() + " not modified, " + unchangedRecipes.sum()
+					+ " unchanged, " + changedRecipes.sum() + " changed");
+		}
+		if (duplicateIndex != null) {
+			logger.info("🧬 Near-duplicates: " + NEAR_DUPLICATES.get() + " found, " + skippedDuplicates.sum()
+					+ " known ones skipped");
+		}
+		writeMetricsSummary();
+		return new ArrayList<>(failedUrls);
+	}
+
+	/**
+	 * Pending URLs go straight to extraction, ahead of anything discovery finds.
+	 */
+	private void queuePendingUrls(PipelineStage<RecipeTask, RecipeTask> extraction) throws InterruptedException {
+		int resumed = 0;
+		for (Iterator<String> pending = localFrontier().pendingUrls(config.getMaxAttempts()); pending.hasNext();) {
+			extraction.put(newTask(pending.next()));
+			resumed++;
+		}
+		if (resumed > 0) {
+			logger.info("🔄 Resuming " + resumed + " pending recipe URLs");
+		}
+	}
+
+	/**
+	 * Walks the listing from the first page and queues every recipe URL not
+	 * scraped before, until newOnlyStopAfter known URLs in a row or the last
+	 * listing page. A URL the frontier already holds counts as known too; if it
+	 * is pending, it has been queued already.
+	 */
+	private void walkNewestFirst(PipelineStage<RecipeTask, RecipeTask> extraction) throws InterruptedException {
+		int stopAfter = config.getNewOnlyStopAfter();
+		int consecutiveKnown = 0;
+		int added = 0;
+		int page = 1;
+		int lastPage = 1;
+		try (PageFetcher fetcher = fetcherFactory.create()) {
+			for (; page <= lastPage && consecutiveKnown < stopAfter; page++) {
+				RecipeListing listing;
+				try {
+					listing = fetcher.fetchListing(listingPageUrl(page));
+				} catch (InterruptedException e) {
+					throw e;
+				} catch (Exception e) {
+					logger.error("❌ Failed to load listing page " + page + ", ending the walk: " + e.getMessage());
+					break;
+				}
+				LISTING_PAGES.increment();
+				lastPage = Math.max(lastPage, listing.getLastPageNumber());
+				for (String url : listing.getRecipeUrls()) {
+					if (knownUrls.contains(url) || frontier.getState(url) != null) {
+						if (++consecutiveKnown >= stopAfter) {
+							break;
+						}
+						continue;
+					}
+					consecutiveKnown = 0;
+					frontier.discover(url);
+					DISCOVERED_URLS.increment();
+					extraction.put(newTask(url));
+					added++;
+				}
+			}
+		}
+		frontier.flush();
+		logger.info("🆕 Found " + added + " new recipes on " + (page - 1) + " listing pages"
+				+ (consecutiveKnown >= stopAfter ? ", stopped after " + stopAfter + " known ones in a row" : ""));
+	}
+
+	/**
+	 * Adds the recipe URLs listed in the sitemaps to the frontier, where they
+	 * are picked up as pending URLs. In refresh mode it also collects the known
+	 * recipes to visit again: those changed since the last sitemap pass, and
+	 * those without a lastmod date. Returns false if the sitemaps could not be
+	 * read or listed no recipe, so the listing pages have to be crawled.
+	 */
+	private boolean discoverFromSitemap() {
+		Path stateFile = Paths.get(config.getSitemapStateFile());
+		Instant lastPass = readLastSitemapPass(stateFile);
+		Instant passStart = Instant.now();
+		boolean refresh = config.isRefreshMode() && queue == null;
+		List<String> changed = new ArrayList<>();
+		LongAdder added = new LongAdder();
+		SitemapReader reader = new SitemapReader(fetcherFactory.getHttpClient(),
+				Duration.ofSeconds(config.getHttpTimeoutSeconds()));
+		long start = System.nanoTime();
+		int listed;
+		try {
+			listed = reader.read(config.getSitemapUrl(), Pattern.compile(config.getSitemapRecipePattern()),
+					(url, lastmod) -> {
+						if (frontier.discover(url)) {
+							added.increment();
+							DISCOVERED_URLS.increment();
+						} else if (refresh && (lastPass == null || lastmod == null || lastmod.isAfter(lastPass))) {
+							CrawlFrontier.State state = frontier.getState(url);
+							if (state == CrawlFrontier.State.STORED || state == CrawlFrontier.State.REJECTED) {
+								changed.add(url);
+							}
+						}
+					});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (IOException | RuntimeException e) {
+			logger.warn("⚠ Sitemap discovery failed, crawling the listing pages instead: " + e.getMessage());
+			return false;
+		}
+		frontier.flush();
+		if (listed == 0) {
+			logger.warn("⚠ The sitemaps list no recipe URLs, crawling the listing pages instead");
+			return false;
+		}
+
+		logger.info("🗺 Sitemaps list " + listed + " recipes, " + added.sum() + " of them new, read in "
+				+ Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+		if (refresh) {
+			sitemapRefreshUrls = changed;
+		}
+		try {
+			Files.write(stateFile, passStart.toString().getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			logger.warn("⚠ Failed to save the sitemap pass time: " + e.getMessage());
+		}
+		return true;
+	}
+
+	private static Instant readLastSitemapPass(Path stateFile) {
+		try {
+			return Files.exists(stateFile)
+					? Instant.parse(new String(Files.readAllBytes(stateFile), StandardCharsets.UTF_8).trim())
+					: null;
+		} catch (IOException | DateTimeParseException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Keeps claiming work from the crawl queue while this process has room for
+	 * it: listing pages up to one per discovery thread, recipe URLs up to two
+	 * per extraction worker. Returns once no process has work left, including
+	 * this one.
+	 */
+	private void claimFromQueue(PipelineStage<Integer, RecipeTask> discovery,
+			PipelineStage<RecipeTask, RecipeTask> extraction) throws InterruptedException {
+		int listingSlots = config.getDiscoveryThreads();
+		int recipeSlots = config.getWorkerCount() * 2;
+		long claimedTotal = 0;
+		while (true) {
+			int claimed = 0;
+			int freeListings = listingSlots - discovery.getQueueDepth() - discovery.getBusyWorkers();
+			for (String url : queue.claim(CrawlQueue.KIND_LISTING, freeListings)) {
+				discovery.put(listingPageNumber(url));
+				claimed++;
+			}
+			for (String url : queue.claim(CrawlQueue.KIND_RECIPE, recipeSlots - (int) openTasks.get())) {
+				extraction.put(newTask(url));
+				claimed++;
+			}
+			claimedTotal += claimed;
+			// Claimed work stays in flight until it is done, so a drained queue means every process is idle
+			if (claimed == 0) {
+				if (queue.isDrained()) {
+					logger.info("Crawl queue drained after claiming " + claimedTotal + " URLs in this process");
+					return;
+				}
+				Thread.sleep(config.getQueuePollMillis());
+			}
+		}
+	}
+
+	private void writeMetricsSummary() {
+		String summary = metrics.getSummary();
+		logger.info(summary);
+		try {
+			Files.write(Paths.get(config.getMetricsSummaryFile()), summary.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			logger.error("⚠️ Failed to write metrics summary: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Carries over the page number saved by ProgressTracker when the frontier is
+	 * used for the first time, so the pages crawled before are not loaded again.
+	 */
+	private void importLegacyProgress() {
+		if (localFrontier().size() > 0) {
+			return;
+		}
+		int lastPage = new ProgressTracker().readProgress();
+		for (int page = 1; page <= lastPage; page++) {
+			frontier.setState(listingPageUrl(page), CrawlFrontier.State.STORED);
+		}
+		if (lastPage > 0) {
+			logger.info("Imported progress up to listing page " + lastPage);
+		}
+	}
+
+	static String listingPageUrl(int page) {
+		return LISTING_URL + "/?page=" + page;
+	}
+
+	private static int listingPageNumber(String url) {
+		return Integer.parseInt(url.substring((LISTING_URL + "/?page=").length()));
+	}
+
+	/**
+	 * Returns the local frontier, for the parts of a crawl that only a single
+	 * process runs: resuming, refreshing and importing old progress.
+	 */
+	private CrawlFrontier localFrontier() {
+		if (!(frontier instanceof CrawlFrontier)) {
+			throw new IllegalStateException("Only available with a local crawl frontier");
+		}
+		return (CrawlFrontier) frontier;
+	}
+
+	private static boolean isListingPageUrl(String url) {
+		return url.startsWith(LISTING_URL + "/?page=");
+	}
+
+	public List<PipelineStage<?, ?>> getStages() {
+		return stages;
+	}
+
+	public List<String> getFailedUrls() {
+		return new ArrayList<>(failedUrls);
+	}
+
+	private void logStats() {
+		for (PipelineStage<?, ?> stage : stages) {
+			logger.info("📊 " + stage);
+		}
+		for (HostThrottle throttle : fetcherFactory.getThrottles()) {
+			logger.info("🚦 " + throttle);
+		}
+		String blocking = ResourceBlocker.summary();
+		if (blocking != null) {
+			logger.info("📦 Resource blocking: " + blocking);
+		}
+	}
+
+	private RecipeTask newTask(String url) {
+		openTasks.incrementAndGet();
+		return new RecipeTask(url, this::recipeFinished);
+	}
+
+	private void recipeFinished(RecipeTask task, CrawlFrontier.State outcome) {
+		finishedRecipes.increment();
+		outcomes.get(outcome).increment();
+		try {
+			// Failures are already in the frontier, with their attempt count
+			if (outcome != CrawlFrontier.State.FAILED) {
+				frontier.setState(task.getUrl(), outcome);
+			}
+		} catch (RuntimeException e) {
+			// The URL stays in flight in the frontier, so the next run scrapes it again
+			logger.error("❌ Failed to record " + outcome + " for " + task.getUrl() + ": " + e.getMessage());
+		} finally {
+			if (openTasks.decrementAndGet() == 0) {
+				closeExtractionIfDone();
+			}
+		}
+	}
+
+	private void closeExtractionIfDone() {
+		if (discoveryStopped && openTasks.get() == 0) {
+			extractionStage.closeInput();
+		}
+	}
+
+	/**
+	 * Records a failure and either schedules another attempt or gives the URL
+	 * up. Only transient failures are retried.
+	 */
+	private void recipeFailed(RecipeTask task, Throwable error) {
+		Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+				: error;
+		FailureClass failureClass = FailureClass.classify(cause);
+		boolean retryable = failureClass == FailureClass.TRANSIENT;
+		int attempt;
+		try {
+			attempt = frontier.recordFailure(task.getUrl(), retryable);
+			failureLog.record(task.getUrl(), failureClass, attempt, cause);
+		} catch (RuntimeException e) {
+			logger.error("❌ Failed to record the failure of " + task.getUrl() + ": " + e.getMessage());
+			failedUrls.add(task.getUrl());
+			task.complete(CrawlFrontier.State.FAILED);
+			return;
+		}
+
+		if (retryable && attempt < config.getMaxAttempts()) {
+			long delay = retryScheduler.schedule(task, attempt);
+			retriedRecipes.increment();
+			RETRIES.increment();
+			logger.warn("🔄 Retrying in " + delay + " ms: " + task.getUrl());
+			return;
+		}
+		failedUrls.add(task.getUrl());
+		task.complete(CrawlFrontier.State.FAILED);
+	}
+
+	/**
+	 * Loads listing pages and queues the recipe URLs found on them.
+	 */
+	private class DiscoveryWorker implements StageWorker<Integer, RecipeTask> {
+		private final PageFetcher fetcher = fetcherFactory.create();
+
+		@Override
+		public void process(Integer page, Emitter<RecipeTask> emitter) throws Exception {
+			RecipeListing listing;
+			try {
+				listing = fetcher.fetchListing(listingPageUrl(page));
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Exception e) {
+				// The page stays pending, so the next run (or, in the queue, any process) loads it again
+				logger.error("❌ Failed to load listing page " + page + ": " + e.getMessage());
+				if (queue != null) {
+					queue.release(listingPageUrl(page));
+				}
+				return;
+			}
+
+			LISTING_PAGES.increment();
+			List<String> recipeUrls = listing.getRecipeUrls();
+			logger.info("Processing Page " + page + " (" + recipeUrls.size() + " recipes)");
+			for (String url : recipeUrls) {
+				// URLs known from an earlier run were queued as pending or are done
+				if (frontier.discover(url)) {
+					DISCOVERED_URLS.increment();
+					// Queued URLs go to whichever process claims them first
+					if (queue == null) {
+						emitter.emit(newTask(url));
+					}
+				}
+			}
+			// Every URL of the page is in the frontier now, so the page is never loaded again
+			frontier.setState(listingPageUrl(page), CrawlFrontier.State.STORED);
+			frontier.flush();
+		}
+
+		@Override
+		public void close() {
+			fetcher.close();
+		}
+	}
+
+	/**
+	 * Loads a recipe page and extracts the full recipe from it. When refreshing a
+	 * recipe that was stored or rejected before, the page is skipped if the
+	 * server reports it unchanged or its content hash is the same as last time.
+	 */
+	private class ExtractionWorker implements StageWorker<RecipeTask, RecipeTask> {
+		private final PageFetcher fetcher = fetcherFactory.create();
+		private final RecipeFingerprintStore fingerprintStore = config.isRefreshMode() ? openFingerprintStore()
+				: null;
+
+		@Override
+		public void process(RecipeTask task, Emitter<RecipeTask> emitter) throws Exception {
+			String url = task.getUrl();
+			try {
+				CrawlFrontier.State before = frontier.getState(url);
+				if (config.isSkipDuplicates() && duplicateIndex != null && duplicateIndex.isDuplicate(url)) {
+					skippedDuplicates.increment();
+					logger.info("♻ Known near-duplicate: " + url);
+					task.complete(before == CrawlFrontier.State.STORED ? before : CrawlFrontier.State.REJECTED);
+					return;
+				}
+				frontier.setState(url, CrawlFrontier.State.IN_FLIGHT);
+
+				// Only a finished recipe can be unchanged; anything else is scraped in full
+				RecipeFingerprint previous = null;
+				if (fingerprintStore != null
+						&& (before == CrawlFrontier.State.STORED || before == CrawlFrontier.State.REJECTED)) {
+					previous = fingerprintStore.find(url);
+				}
+
+				FetchedPage fetched = previous != null
+						? fetcher.fetchIfModified(url, previous.getEtag(), previous.getLastModified())
+						: fetcher.fetchIfModified(url, null, null);
+				PAGES_FETCHED.increment();
+				if (fetched.isNotModified()) {
+					notModifiedRecipes.increment();
+					logger.info("♻ Not modified: " + url);
+					task.complete(before);
+					return;
+				}
+
+				long extractStart = System.nanoTime();
+				RecipePageParser page = fetched.getParser();
+				Recipe recipe = RecipeExtractor.extract(url, page, page.getIngredientsText(), page.getTags());
+				String contentHash = RecipeFingerprint.hashContent(recipe);
+				EXTRACT.recordSince(extractStart);
+				if (previous != null) {
+					if (contentHash.equals(previous.getContentHash())) {
+						unchangedRecipes.increment();
+						logger.info("♻ Unchanged: " + url);
+						task.complete(before);
+						return;
+					}
+					changedRecipes.increment();
+				}
+				int[] minHash = duplicateIndex != null ? MinHash.signature(recipe) : null;
+				DuplicateIndex.Match duplicate = minHash != null ? duplicateIndex.add(url, minHash) : null;
+				if (duplicate != null) {
+					NEAR_DUPLICATES.increment();
+					logger.info("🧬 Near-duplicate of " + duplicate.getClusterUrl() + " ("
+							+ String.format(Locale.ROOT, "%.2f", duplicate.getSimilarity()) + "): " + url);
+					task.setDuplicateOf(duplicate.getClusterUrl());
+				}
+				task.setRecipe(recipe);
+				task.setFingerprint(new RecipeFingerprint(url, fetched.getEtag(), fetched.getLastModified(),
+						contentHash, minHash, duplicate != null ? duplicate.getClusterUrl() : null,
+						duplicate != null ? duplicate.getSimilarity() : 0));
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Exception e) {
+				recipeFailed(task, e);
+				return;
+			}
+			emitter.emit(task);
+		}
+
+		@Override
+		public void failed(RecipeTask task, Exception error) {
+			recipeFailed(task, error);
+		}
+
+		@Override
+		public void close() {
+			fetcher.close();
+			if (fingerprintStore != null) {
+				fingerprintStore.close();
+			}
+		}
+	}
+
+	private static RecipeFingerprintStore openFingerprintStore() {
+		try {
+			return new RecipeFingerprintStore();
+		} catch (SQLException e) {
+			throw new RuntimeException("Failed to open fingerprint store: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Matches a recipe against all diets. A recipe no diet allows is still
+	 * passed on with no diets, so its fingerprint is stored and, in refresh
+	 * mode, it is removed from the diets it matched before.
+	 */
+	private class FilterWorker implements StageWorker<RecipeTask, RecipeTask> {
+
+		@Override
+		public void process(RecipeTask task, Emitter<RecipeTask> emitter) throws Exception {
+			if (config.isSkipDuplicates() && task.getDuplicateOf() != null) {
+				logger.info("❌ Skipped (near-duplicate of " + task.getDuplicateOf() + "): " + task.getUrl());
+				task.setMatchingFilters(Collections.emptyList());
+				emitter.emit(task);
+				return;
+			}
+			long start = System.nanoTime();
+			List<DietFilter> matchingFilters;
+			try {
+				matchingFilters = dietMatcher.match(task.getRecipe().getIngredientsText(),
+						task.getRecipe().getTags());
+			} catch (RuntimeException e) {
+				recipeFailed(task, e);
+				return;
+			}
+			FILTER.recordSince(start);
+			RECIPES_FILTERED.increment();
+			for (DietFilter filter : matchingFilters) {
+				dietMatches.get(filter).increment();
+			}
+			if (matchingFilters.isEmpty()) {
+				logger.info("❌ Skipped (no matching filter): " + task.getUrl());
+			}
+			task.setMatchingFilters(matchingFilters);
+			emitter.emit(task);
+		}
+
+		@Override
+		public void failed(RecipeTask task, Exception error) {
+			recipeFailed(task, error);
+		}
+	}
+
+	/**
+	 * Hands recipes to a database writer of its own. The task completes once its
+	 * batch has been committed. In refresh and replay mode the writer replaces
+	 * recipes that are already stored.
+	 */
+	private class PersistenceWorker implements StageWorker<RecipeTask, Void> {
+		private final RecipeBatchWriter writer;
+		private final boolean replacing = config.isRefreshMode() || replaying;
+
+		PersistenceWorker() {
+			try {
+				RecipeStorage storage = storageFactory.get();
+				if (replacing) {
+					storage.replacingExisting(dietMatcher.getFilters());
+				}
+				writer = new RecipeBatchWriter(storage, config.getWriterQueueCapacity(),
+						config.getWriterBatchSize(), config.getWriterFlushMillis());
+			} catch (SQLException e) {
+				throw new RuntimeException("Failed to open recipe writer: " + e.getMessage(), e);
+			}
+		}
+
+		@Override
+		public void process(RecipeTask task, Emitter<Void> emitter) throws Exception {
+			CompletableFuture<List<DietFilter>> stored;
+			try {
+				stored = store(task);
+			} catch (RuntimeException e) {
+				// The writer is closed or broken, so the recipe was never queued
+				recipeFailed(task, e);
+				return;
+			}
+			stored.whenComplete((inserted, error) -> {
+				if (error != null) {
+					recipeFailed(task, error);
+					return;
+				}
+				try {
+					// Follows what storage wrote: all diets when replacing, only the new ones otherwise
+					if (searchIndex != null && replacing) {
+						searchIndex.update(task.getRecipe(), inserted);
+					} else if (searchIndex != null) {
+						searchIndex.merge(task.getRecipe(), inserted);
+					}
+				} catch (RuntimeException e) {
+					// The recipe is stored; only the search results miss it until the next load
+					logger.error("❌ Failed to update the search index for " + task.getUrl() + ": " + e.getMessage());
+				} finally {
+					task.complete(task.getMatchingFilters().isEmpty() ? CrawlFrontier.State.REJECTED
+							: CrawlFrontier.State.STORED);
+				}
+			});
+		}
+
+		/**
+		 * Hands the recipe to the writer and logs, once it is written, which diets
+		 * it was new for. The returned future fails if the write failed.
+		 */
+		private CompletableFuture<List<DietFilter>> store(RecipeTask task) throws InterruptedException {
+			Recipe recipe = task.getRecipe();
+			List<DietFilter> matchingFilters = task.getMatchingFilters();
+			return writer.submit(recipe, matchingFilters, task.getFingerprint()).whenComplete((inserted, error) -> {
+				if (error != null) {
+					logger.error("⚠ Failed to store: " + recipe.getUrl() + " (" + error.getMessage() + ")");
+					return;
+				}
+				for (DietFilter filter : matchingFilters) {
+					if (inserted.contains(filter)) {
+						logger.info("✔️ Stored (" + filter.getDietName() + "): " + recipe.getName());
+					} else {
+						logger.warn("❌ Recipe already exists in table (" + filter.getDietTableName() + "): "
+								+ recipe.getUrl());
+					}
+				}
+			});
+		}
+
+		@Override
+		public void failed(RecipeTask task, Exception error) {
+			recipeFailed(task, error);
+		}
+
+		@Override
+		public void close() {
+			// Drains the writer queue, which completes the remaining tasks
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,350 @@
+package scraper;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import utils.DatabaseHelper;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CrawlQueue class is a frontier kept in the crawl_queue table, so any
+ * number of scraper processes, on one machine or several, can crawl into the
+ * same database. Listing pages and recipe URLs are rows in the table, and a
+ * process claims a batch of them with SELECT ... FOR UPDATE SKIP LOCKED, so two
+ * processes never claim the same row.
+ *
+ * A claim is a lease: it names the process and expires after leaseSeconds. A
+ * heartbeat thread renews the leases of the rows the process still holds, so
+ * a slow page keeps its lease, while the rows of a process that crashed or was
+ * killed become claimable again once their leases run out. A row waiting for a
+ * retry in this process keeps its lease as well. Finished rows give their
+ * lease up.
+ *
+ * Attempts are counted as they start, on claim and when a retry begins, so a
+ * page that kills every process that loads it still uses up its attempts even
+ * though none of them lives to record the failure. Once it has been claimed
+ * maxAttempts times and its lease runs out again, it is given up as FAILED.
+ */
+public class CrawlQueue implements Frontier {
+	public static final String KIND_LISTING = "listing";
+	public static final String KIND_RECIPE = "recipe";
+	static final String TABLE = "crawl_queue";
+
+	private static final Logger logger = LogManager.getLogger(CrawlQueue.class);
+	private static final String DISCOVERED = CrawlFrontier.State.DISCOVERED.name();
+	private static final String IN_FLIGHT = CrawlFrontier.State.IN_FLIGHT.name();
+	private static final String FAILED = CrawlFrontier.State.FAILED.name();
+
+	private static final String CLAIM_SQL = "UPDATE " + TABLE + " q SET state = '" + IN_FLIGHT
+			+ "', attempts = q.attempts + 1, lease_owner = ?, lease_expires = now() + make_interval(secs => ?), "
+			+ "updated_at = now() FROM ("
+			+ "SELECT url FROM " + TABLE + " WHERE kind = ? AND state IN ('" + DISCOVERED + "', '" + IN_FLIGHT
+			+ "', '" + FAILED + "') AND attempts < ? AND (lease_expires IS NULL OR lease_expires < now()) "
+			+ "ORDER BY updated_at LIMIT ? FOR UPDATE SKIP LOCKED) c WHERE q.url = c.url RETURNING q.url";
+	private static final String GIVE_UP_SQL = "UPDATE " + TABLE + " SET state = '" + FAILED
+			+ "', lease_owner = NULL, lease_expires = NULL, updated_at = now() WHERE state = '" + IN_FLIGHT
+			+ "' AND attempts >= ? AND lease_expires < now() RETURNING url, attempts";
+	private static final String INSERT_SQL = "INSERT INTO " + TABLE + " (url, kind, state) VALUES (?, ?, '"
+			+ DISCOVERED + "') ON CONFLICT (url) DO NOTHING";
+
+	private final Connection connection;
+	private final String owner;
+	private final int leaseSeconds;
+	private final int maxAttempts;
+	private final ScheduledExecutorService heartbeat;
+
+	private CrawlQueue(Connection connection, int leaseSeconds, int maxAttempts) {
+		this.connection = connection;
+		// pid@host, plus a random part in case a pid is reused
+		this.owner = ManagementFactory.getRuntimeMXBean().getName() + "/"
+				+ UUID.randomUUID().toString().substring(0, 8);
+		this.leaseSeconds = Math.max(10, leaseSeconds);
+		this.maxAttempts = maxAttempts;
+		this.heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "crawl-queue-heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = this.leaseSeconds / 3;
+		heartbeat.scheduleWithFixedDelay(this::renewLeases, interval, interval, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Connects to the recipe database and creates the queue table if needed.
+	 */
+	public static CrawlQueue open(int leaseSeconds, int maxAttempts) throws SQLException {
+		Connection connection = DatabaseHelper.openConnection();
+		try {
+			createTable(connection);
+		} catch (SQLException e) {
+			connection.close();
+			throw e;
+		}
+		CrawlQueue queue = new CrawlQueue(connection, leaseSeconds, maxAttempts);
+		logger.info("Joined crawl queue as " + queue.owner + " (" + queue.count(CrawlFrontier.State.STORED)
+				+ " URLs done so far)");
+		return queue;
+	}
+
+	static void createTable(Connection connection) throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + TABLE + " (" + "url TEXT PRIMARY KEY,"
+					+ "kind TEXT NOT NULL," + "state TEXT NOT NULL," + "attempts INTEGER NOT NULL DEFAULT 0,"
+					+ "lease_owner TEXT," + "lease_expires TIMESTAMPTZ,"
+					+ "updated_at TIMESTAMPTZ NOT NULL DEFAULT now()" + ");");
+			// Only unfinished rows are ever claimed, so the index stays small as the crawl progresses
+			stmt.executeUpdate("CREATE INDEX IF NOT EXISTS crawl_queue_claim_idx ON " + TABLE
+					+ " (kind, updated_at) WHERE state <> '" + CrawlFrontier.State.STORED.name() + "' AND state <> '"
+					+ CrawlFrontier.State.REJECTED.name() + "'");
+		}
+	}
+
+	/**
+	 * Adds listing pages 1 to lastPage. Pages already in the queue are left as
+	 * they are, so every process can do this on start.
+	 */
+	public synchronized int addListingPages(int lastPage) {
+		try (PreparedStatement stmt = connection.prepareStatement(INSERT_SQL)) {
+			for (int page = 1; page <= lastPage; page++) {
+				stmt.setString(1, CrawlPipeline.listingPageUrl(page));
+				stmt.setString(2, KIND_LISTING);
+				stmt.addBatch();
+			}
+			int added = 0;
+			for (int count : stmt.executeBatch()) {
+				added += Math.max(count, 0);
+			}
+			return added;
+		} catch (SQLException e) {
+			throw failure("add listing pages", e);
+		}
+	}
+
+	/**
+	 * Claims up to limit unfinished URLs of the given kind for this process and
+	 * counts an attempt for each. A URL is unfinished if it was discovered, or
+	 * failed or is in flight under an expired lease with fewer than maxAttempts
+	 * attempts. URLs in flight under an expired lease with no attempts left are
+	 * given up first.
+	 */
+	public synchronized List<String> claim(String kind, int limit) {
+		List<String> urls = new ArrayList<>();
+		if (limit <= 0) {
+			return urls;
+		}
+		giveUpAbandoned();
+		try (PreparedStatement stmt = connection.prepareStatement(CLAIM_SQL)) {
+			stmt.setString(1, owner);
+			stmt.setInt(2, leaseSeconds);
+			stmt.setString(3, kind);
+			stmt.setInt(4, maxAttempts);
+			stmt.setInt(5, limit);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					urls.add(rs.getString(1));
+				}
+			}
+			return urls;
+		} catch (SQLException e) {
+			throw failure("claim URLs", e);
+		}
+	}
+
+	/**
+	 * Marks the URLs whose every attempt ended with the lease running out, as
+	 * when the page crashes the process loading it, as failed for good.
+	 */
+	private void giveUpAbandoned() {
+		try (PreparedStatement stmt = connection.prepareStatement(GIVE_UP_SQL)) {
+			stmt.setInt(1, maxAttempts);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					logger.warn("⚠ Giving up on " + rs.getString(1) + ": the lease ran out on all " + rs.getInt(2)
+							+ " attempts");
+				}
+			}
+		} catch (SQLException e) {
+			throw failure("give up abandoned URLs", e);
+		}
+	}
+
+	/**
+	 * Gives a claimed URL back after a failed attempt, so any process can claim
+	 * it again. The attempt was counted when the URL was claimed.
+	 */
+	public synchronized void release(String url) {
+		try (PreparedStatement stmt = connection.prepareStatement("UPDATE " + TABLE + " SET state = '" + FAILED
+				+ "', lease_owner = NULL, lease_expires = NULL, updated_at = now() WHERE url = ?")) {
+			stmt.setString(1, url);
+			stmt.executeUpdate();
+		} catch (SQLException e) {
+			throw failure("release " + url, e);
+		}
+	}
+
+	/**
+	 * Returns true once no URL is left to do, in this process or any other: none
+	 * is discovered, in flight or failed with attempts left.
+	 */
+	public synchronized boolean isDrained() {
+		String sql = "SELECT EXISTS (SELECT 1 FROM " + TABLE + " WHERE state IN ('" + DISCOVERED + "', '"
+				+ IN_FLIGHT + "') OR (state = '" + FAILED + "' AND attempts < ?))";
+		try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+			stmt.setInt(1, maxAttempts);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return !(rs.next() && rs.getBoolean(1));
+			}
+		} catch (SQLException e) {
+			throw failure("check the queue", e);
+		}
+	}
+
+	@Override
+	public synchronized boolean discover(String url) {
+		try (PreparedStatement stmt = connection.prepareStatement(INSERT_SQL)) {
+			stmt.setString(1, url);
+			stmt.setString(2, KIND_RECIPE);
+			return stmt.executeUpdate() > 0;
+		} catch (SQLException e) {
+			throw failure("add " + url, e);
+		}
+	}
+
+	/**
+	 * Finished states give the lease up. IN_FLIGHT takes it for this process,
+	 * as when a retry starts, and counts an attempt unless the URL is already
+	 * in flight here from its claim.
+	 */
+	@Override
+	public synchronized void setState(String url, CrawlFrontier.State state) {
+		boolean inFlight = state == CrawlFrontier.State.IN_FLIGHT;
+		String leaseExpires = inFlight ? "now() + make_interval(secs => " + leaseSeconds + ")" : "NULL";
+		String attempts = TABLE + ".attempts";
+		if (state == CrawlFrontier.State.DISCOVERED) {
+			attempts = "0";
+		} else if (inFlight) {
+			attempts = "CASE WHEN " + TABLE + ".state = '" + IN_FLIGHT + "' AND " + TABLE
+					+ ".lease_owner = EXCLUDED.lease_owner THEN " + TABLE + ".attempts ELSE " + TABLE
+					+ ".attempts + 1 END";
+		}
+		String sql = "INSERT INTO " + TABLE + " (url, kind, state, attempts, lease_owner, lease_expires) VALUES "
+				+ "(?, ?, ?, " + (inFlight ? 1 : 0) + ", ?, " + leaseExpires
+				+ ") ON CONFLICT (url) DO UPDATE SET state = EXCLUDED.state, attempts = " + attempts
+				+ ", lease_owner = EXCLUDED.lease_owner, lease_expires = EXCLUDED.lease_expires, updated_at = now()";
+		try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+			stmt.setString(1, url);
+			stmt.setString(2, url.startsWith(CrawlPipeline.LISTING_URL + "/?page=") ? KIND_LISTING : KIND_RECIPE);
+			stmt.setString(3, state.name());
+			stmt.setString(4, inFlight ? owner : null);
+			stmt.executeUpdate();
+		} catch (SQLException e) {
+			throw failure("update " + url, e);
+		}
+	}
+
+	/**
+	 * A retryable failure keeps the lease, so the URL stays with this process
+	 * while it waits for a retry. If the process dies, the lease runs out and
+	 * another process picks the URL up. The failed attempt was counted when it
+	 * started.
+	 */
+	@Override
+	public synchronized int recordFailure(String url, boolean retryable) {
+		String sql = "UPDATE " + TABLE + " SET state = '" + FAILED + "', attempts = "
+				+ (retryable ? "attempts" : "GREATEST(attempts, ?), lease_owner = NULL, lease_expires = NULL")
+				+ ", updated_at = now() "
+				+ "WHERE url = ? RETURNING attempts";
+		try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+			int index = 1;
+			if (!retryable) {
+				stmt.setInt(index++, maxAttempts);
+			}
+			stmt.setString(index, url);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? rs.getInt(1) : 1;
+			}
+		} catch (SQLException e) {
+			throw failure("record a failure of " + url, e);
+		}
+	}
+
+	@Override
+	public synchronized CrawlFrontier.State getState(String url) {
+		try (PreparedStatement stmt = connection.prepareStatement("SELECT state FROM " + TABLE + " WHERE url = ?")) {
+			stmt.setString(1, url);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? CrawlFrontier.State.valueOf(rs.getString(1)) : null;
+			}
+		} catch (SQLException e) {
+			throw failure("read the state of " + url, e);
+		}
+	}
+
+	@Override
+	public synchronized int count(CrawlFrontier.State state) {
+		try (PreparedStatement stmt = connection
+				.prepareStatement("SELECT count(*) FROM " + TABLE + " WHERE state = ?")) {
+			stmt.setString(1, state.name());
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? rs.getInt(1) : 0;
+			}
+		} catch (SQLException e) {
+			throw failure("count URLs", e);
+		}
+	}
+
+	/**
+	 * Every change is committed as it is made, so there is nothing to flush.
+	 */
+	@Override
+	public void flush() {
+	}
+
+	private synchronized void renewLeases() {
+		try (PreparedStatement stmt = connection.prepareStatement("UPDATE " + TABLE
+				+ " SET lease_expires = now() + make_interval(secs => ?) WHERE lease_owner = ?")) {
+			stmt.setInt(1, leaseSeconds);
+			stmt.setString(2, owner);
+			stmt.executeUpdate();
+		} catch (SQLException e) {
+			// The next heartbeat tries again; only a lease that runs out costs anything
+			logger.warn("⚠ Failed to renew crawl queue leases: " + e.getMessage());
+		}
+	}
+
+	private static RuntimeException failure(String action, SQLException e) {
+		return new RuntimeException("Failed to " + action + " in the crawl queue: " + e.getMessage(), e);
+	}
+
+	/**
+	 * Stops renewing leases and hands back every URL this process still holds,
+	 * so other processes need not wait for the leases to run out.
+	 */
+	@Override
+	public synchronized void close() {
+		heartbeat.shutdownNow();
+		try (PreparedStatement stmt = connection.prepareStatement("UPDATE " + TABLE
+				+ " SET lease_owner = NULL, lease_expires = NULL WHERE lease_owner = ?")) {
+			stmt.setString(1, owner);
+			stmt.executeUpdate();
+		} catch (SQLException e) {
+			logger.warn("⚠ Failed to release crawl queue leases: " + e.getMessage());
+		}
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			logger.error("⚠ Failed to close crawl queue connection: " + e.getMessage());
+		}
+	}
+}
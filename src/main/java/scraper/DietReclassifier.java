@@ -0,0 +1,286 @@
+package scraper;
+
+import filters.DietFilter;
+import filters.DietMatcher;
+import model.Recipe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import utils.DatabaseHelper;
+import utils.RecipeStorage;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The DietReclassifier class matches every stored recipe against the current
+ * diet configs again, without scraping anything, and moves recipes into and
+ * out of diets where the result changed. Recipes are streamed from Postgres
+ * through a server-side cursor, matched on every core and the changes written
+ * in batches, so memory stays bounded by the queue sizes whatever the size of
+ * the tables. At the end it reports, for each diet, how many recipes moved in
+ * and out, counting a move only once it is committed, and how many changed
+ * recipes could not be written.
+ *
+ * Only stored recipes are seen. A recipe that no diet allowed when it was
+ * scraped was never stored and can only join a diet through a new crawl or a
+ * replay of the page archive; a recipe that now matches no diet is removed.
+ */
+public class DietReclassifier {
+	private static final Logger logger = LogManager.getLogger(DietReclassifier.class);
+
+	private final ScraperConfig config;
+	private final RecipeStorage storage;
+	private final DietMatcher dietMatcher;
+	private final Map<String, Integer> dietIndex = new HashMap<>();
+	private final LongAdder[] added;
+	private final LongAdder[] removed;
+	private final LongAdder checked = new LongAdder();
+	private final LongAdder changed = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final boolean dryRun;
+
+	public DietReclassifier(ScraperConfig config, RecipeStorage storage, List<DietFilter> filters,
+			boolean dryRun) {
+		this.config = config;
+		this.storage = storage;
+		this.dietMatcher = new DietMatcher(filters);
+		this.dryRun = dryRun;
+		this.added = new LongAdder[filters.size()];
+		this.removed = new LongAdder[filters.size()];
+		for (int i = 0; i < filters.size(); i++) {
+			dietIndex.put(filters.get(i).getDietName(), i);
+			added[i] = new LongAdder();
+			removed[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Streams all stored recipes through the matcher and applies the changes.
+	 * With dryRun set, only the report is produced. Returns false if any recipe
+	 * could not be matched or its change could not be written.
+	 */
+	public boolean run() throws SQLException, InterruptedException {
+		int threads = config.getReclassifyThreads() > 0 ? config.getReclassifyThreads()
+				: Runtime.getRuntime().availableProcessors();
+		PipelineStage<StoredRecipe, StoredRecipe> matching = new PipelineStage<>("reclassify", threads,
+				config.getQueueCapacity(), MatchWorker::new);
+		PipelineStage<StoredRecipe, Void> applying = new PipelineStage<>("apply", 1, config.getQueueCapacity(),
+				ApplyWorker::new);
+		matching.then(applying);
+		applying.start();
+		matching.start();
+
+		// The cursor needs its own transaction; the writer commits on another connection
+		try (Connection connection = DatabaseHelper.openConnection()) {
+			connection.setAutoCommit(false);
+			try (PreparedStatement stmt = connection.prepareStatement(
+					storage.storedRecipesSql(dietMatcher.getFilters()), ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY)) {
+				stmt.setFetchSize(config.getReclassifyFetchSize());
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						Recipe recipe = DatabaseHelper.readRecipe(rs);
+						matching.put(new StoredRecipe(recipe, storedMask(rs.getArray("diets"))));
+					}
+				}
+			}
+			connection.rollback();
+		} finally {
+			matching.closeInput();
+			matching.awaitStopped();
+			applying.awaitStopped();
+		}
+		logReport();
+		return failed.sum() == 0;
+	}
+
+	private long storedMask(Array diets) throws SQLException {
+		long mask = 0;
+		if (diets == null) {
+			return mask;
+		}
+		for (Object diet : (Object[]) diets.getArray()) {
+			Integer index = dietIndex.get(String.valueOf(diet));
+			// Diets that are no longer configured are left as they are
+			if (index != null) {
+				mask |= 1L << index;
+			}
+		}
+		return mask;
+	}
+
+	private void logReport() {
+		List<DietFilter> filters = dietMatcher.getFilters();
+		logger.info("📊 Reclassified " + checked.sum() + " stored recipes: " + changed.sum() + " changed"
+				+ (dryRun ? " (dry run, nothing written)" : ""));
+		for (int i = 0; i < filters.size(); i++) {
+			logger.info("📊 " + filters.get(i).getDietName() + ": +" + added[i].sum() + " moved in, -"
+					+ removed[i].sum() + " moved out");
+		}
+		if (failed.sum() > 0) {
+			logger.error("❌ " + failed.sum() + " changed recipes could not be reclassified and were left as "
+					+ "they were");
+		}
+	}
+
+	/**
+	 * Counts a change once it is written, or in a dry run once it is found.
+	 */
+	private void countChange(StoredRecipe stored) {
+		changed.increment();
+		long in = stored.matchedMask & ~stored.storedMask;
+		long out = stored.storedMask & ~stored.matchedMask;
+		for (int i = 0; i < added.length; i++) {
+			if ((in & (1L << i)) != 0) {
+				added[i].increment();
+			}
+			if ((out & (1L << i)) != 0) {
+				removed[i].increment();
+			}
+		}
+	}
+
+	private static class StoredRecipe {
+		final Recipe recipe;
+		final long storedMask;
+		long matchedMask;
+
+		StoredRecipe(Recipe recipe, long storedMask) {
+			this.recipe = recipe;
+			this.storedMask = storedMask;
+		}
+	}
+
+	/**
+	 * Matches a recipe against all diets and passes it on only if the result
+	 * differs from the diets it is stored for.
+	 */
+	private class MatchWorker implements StageWorker<StoredRecipe, StoredRecipe> {
+
+		@Override
+		public void process(StoredRecipe stored, Emitter<StoredRecipe> emitter) throws Exception {
+			checked.increment();
+			stored.matchedMask = dietMatcher.matchMask(stored.recipe.getIngredientsText(),
+					stored.recipe.getTags());
+			if (stored.matchedMask == stored.storedMask) {
+				return;
+			}
+			long in = stored.matchedMask & ~stored.storedMask;
+			long out = stored.storedMask & ~stored.matchedMask;
+			logger.debug("🔄 " + stored.recipe.getUrl() + ": " + describe(in, "+") + describe(out, "-"));
+			emitter.emit(stored);
+		}
+
+		@Override
+		public void failed(StoredRecipe stored, Exception error) {
+			failed.increment();
+		}
+
+		private String describe(long mask, String sign) {
+			StringBuilder text = new StringBuilder();
+			for (DietFilter filter : dietMatcher.filtersOf(mask)) {
+				text.append(' ').append(sign).append(filter.getDietName());
+			}
+			return text.toString();
+		}
+	}
+
+	/**
+	 * Writes changed recipes in batches through the storage in replace mode,
+	 * which adds the recipe to its new diets and takes it out of the others.
+	 */
+	private class ApplyWorker implements StageWorker<StoredRecipe, Void> {
+		private final Connection connection;
+		private final List<StoredRecipe> batch = new ArrayList<>();
+
+		ApplyWorker() {
+			if (dryRun) {
+				connection = null;
+				return;
+			}
+			try {
+				connection = DatabaseHelper.openConnection();
+				connection.setAutoCommit(false);
+			} catch (SQLException e) {
+				throw new RuntimeException("Failed to open database connection: " + e.getMessage(), e);
+			}
+			storage.replacingExisting(dietMatcher.getFilters());
+		}
+
+		@Override
+		public void process(StoredRecipe stored, Emitter<Void> emitter) throws Exception {
+			if (dryRun) {
+				countChange(stored);
+				return;
+			}
+			batch.add(stored);
+			if (batch.size() >= config.getWriterBatchSize()) {
+				flush();
+			}
+		}
+
+		@Override
+		public void failed(StoredRecipe stored, Exception error) {
+			failed.increment();
+		}
+
+		/**
+		 * Writes the batch in one transaction. A batch that fails is rolled back
+		 * as a whole, so none of its changes are counted as moves.
+		 */
+		private void flush() {
+			if (batch.isEmpty()) {
+				return;
+			}
+			List<Recipe> recipes = new ArrayList<>(batch.size());
+			List<List<DietFilter>> matchingFilters = new ArrayList<>(batch.size());
+			for (StoredRecipe stored : batch) {
+				recipes.add(stored.recipe);
+				matchingFilters.add(dietMatcher.filtersOf(stored.matchedMask));
+			}
+			try {
+				storage.write(connection, recipes, matchingFilters);
+				connection.commit();
+				for (StoredRecipe stored : batch) {
+					countChange(stored);
+				}
+			} catch (SQLException | RuntimeException e) {
+				logger.error("❌ Failed to apply a batch of " + batch.size() + " diet changes: " + e.getMessage());
+				failed.add(batch.size());
+				try {
+					connection.rollback();
+				} catch (SQLException rollbackError) {
+					logger.error("⚠ Rollback failed: " + rollbackError.getMessage());
+				}
+				storage.closeStatements();
+			} finally {
+				batch.clear();
+			}
+		}
+
+		@Override
+		public void close() {
+			if (connection == null) {
+				return;
+			}
+			try {
+				flush();
+			} finally {
+				storage.closeStatements();
+				try {
+					connection.close();
+				} catch (SQLException e) {
+					logger.error("⚠ Failed to close connection: " + e.getMessage());
+				}
+			}
+		}
+	}
+}
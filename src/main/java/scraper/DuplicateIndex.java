@@ -0,0 +1,161 @@
+package scraper;
+
+import model.MinHash;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import utils.RecipeFingerprintStore;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The DuplicateIndex class finds near-duplicate recipes by locality-sensitive
+ * hashing of their MinHash signatures. A signature is cut into BANDS bands of
+ * ROWS values; two recipes become candidates if any band is equal in both,
+ * and only candidates are compared in full. A lookup therefore touches a
+ * handful of recipes instead of all of them. With 32 bands of 4 rows, a pair
+ * with a similarity of 0.7 is a candidate practically always and a pair at
+ * 0.2 only 5% of the time.
+ *
+ * A recipe whose similarity to an earlier one reaches the threshold joins the
+ * cluster of that recipe; the cluster is named after the first recipe in it.
+ * The index is loaded from the stored signatures at startup and only sees
+ * the recipes scraped by this process after that, so parallel processes of a
+ * distributed crawl may each miss the other's latest recipes.
+ */
+public class DuplicateIndex {
+	private static final Logger logger = LogManager.getLogger(DuplicateIndex.class);
+	private static final int BANDS = 32;
+	private static final int ROWS = MinHash.SIZE / BANDS;
+
+	private final double threshold;
+	private final List<Map<Long, List<String>>> bands = new ArrayList<>(BANDS);
+	private final Map<String, int[]> signatures = new HashMap<>();
+	private final Map<String, String> clusters = new HashMap<>();
+
+	public DuplicateIndex(double threshold) {
+		this.threshold = threshold;
+		for (int i = 0; i < BANDS; i++) {
+			bands.add(new HashMap<>());
+		}
+	}
+
+	/**
+	 * Builds the index from the signatures and clusters in the database.
+	 */
+	public static DuplicateIndex load(double threshold) throws SQLException {
+		DuplicateIndex index = new DuplicateIndex(threshold);
+		try (RecipeFingerprintStore store = new RecipeFingerprintStore()) {
+			store.forEachSignature(index::put);
+		}
+		logger.info("🧬 Loaded " + index.signatures.size() + " recipe signatures, " + index.clusters.size()
+				+ " known near-duplicates");
+		return index;
+	}
+
+	/**
+	 * Adds or replaces the signature of a recipe and returns the closest
+	 * earlier recipe it is a near-duplicate of, or null if there is none.
+	 */
+	public synchronized Match add(String url, int[] signature) {
+		remove(url);
+		Match best = null;
+		Set<String> compared = new HashSet<>();
+		for (int band = 0; band < BANDS; band++) {
+			List<String> bucket = bands.get(band).get(bandKey(signature, band));
+			if (bucket == null) {
+				continue;
+			}
+			for (String candidate : bucket) {
+				if (!compared.add(candidate)) {
+					continue;
+				}
+				double similarity = MinHash.similarity(signature, signatures.get(candidate));
+				if (similarity >= threshold && (best == null || similarity > best.similarity)) {
+					best = new Match(clusterOf(candidate), similarity);
+				}
+			}
+		}
+		put(url, signature, best == null ? null : best.clusterUrl);
+		return best;
+	}
+
+	/**
+	 * Returns true if the recipe is known to be a near-duplicate of another.
+	 */
+	public synchronized boolean isDuplicate(String url) {
+		return clusters.containsKey(url);
+	}
+
+	public synchronized int size() {
+		return signatures.size();
+	}
+
+	private void put(String url, int[] signature, String clusterUrl) {
+		signatures.put(url, signature);
+		if (clusterUrl != null && !clusterUrl.equals(url)) {
+			clusters.put(url, clusterUrl);
+		}
+		for (int band = 0; band < BANDS; band++) {
+			bands.get(band).computeIfAbsent(bandKey(signature, band), k -> new ArrayList<>(1)).add(url);
+		}
+	}
+
+	private void remove(String url) {
+		int[] previous = signatures.remove(url);
+		clusters.remove(url);
+		if (previous == null) {
+			return;
+		}
+		for (int band = 0; band < BANDS; band++) {
+			long key = bandKey(previous, band);
+			List<String> bucket = bands.get(band).get(key);
+			if (bucket != null) {
+				bucket.remove(url);
+				if (bucket.isEmpty()) {
+					bands.get(band).remove(key);
+				}
+			}
+		}
+	}
+
+	private String clusterOf(String url) {
+		String cluster = clusters.get(url);
+		return cluster != null ? cluster : url;
+	}
+
+	private static long bandKey(int[] signature, int band) {
+		long key = band;
+		for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+			key = key * 0x100000001b3L + signature[i];
+		}
+		return key;
+	}
+
+	/**
+	 * The cluster a recipe was found to duplicate, and how similar it is to the
+	 * closest recipe in it.
+	 */
+	public static final class Match {
+		private final String clusterUrl;
+		private final double similarity;
+
+		Match(String clusterUrl, double similarity) {
+			this.clusterUrl = clusterUrl;
+			this.similarity = similarity;
+		}
+
+		public String getClusterUrl() {
+			return clusterUrl;
+		}
+
+		public double getSimilarity() {
+			return similarity;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package scraper;
+
+import fetchers.HttpStatusException;
+import fetchers.PageStructureException;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriverException;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The FailureClass enum sorts scraping failures by whether trying again can
+ * help. Transient failures (timeouts, dropped connections, overloaded server
+ * or database) are retried with backoff. Structural failures mean the page
+ * did not look like a recipe page; retrying only helps once the extraction is
+ * fixed. Permanent failures (a page that is gone, a bug) are not retried.
+ */
+public enum FailureClass {
+	TRANSIENT, STRUCTURAL, PERMANENT;
+
+	public static FailureClass classify(Throwable error) {
+		Throwable e = error;
+		while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+			e = e.getCause();
+		}
+
+		if (e instanceof HttpStatusException) {
+			int status = ((HttpStatusException) e).getStatusCode();
+			return status == 408 || status == 429 || status >= 500 ? TRANSIENT : PERMANENT;
+		}
+		if (e instanceof PageStructureException || e instanceof NoSuchElementException) {
+			return STRUCTURAL;
+		}
+		if (e instanceof IOException || e instanceof TimeoutException
+				|| e instanceof org.openqa.selenium.TimeoutException) {
+			return TRANSIENT;
+		}
+		if (e instanceof SQLException) {
+			return isTransient((SQLException) e) ? TRANSIENT : PERMANENT;
+		}
+		// Lost sessions and browser network errors
+		if (e instanceof WebDriverException) {
+			return TRANSIENT;
+		}
+		return PERMANENT;
+	}
+
+	/**
+	 * Connection problems (SQLSTATE class 08), serialization failures and
+	 * deadlocks (40), and an overloaded server (53, 57) clear up by themselves.
+	 */
+	private static boolean isTransient(SQLException e) {
+		if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+			return true;
+		}
+		String state = e.getSQLState();
+		return state != null && (state.startsWith("08") || state.startsWith("40") || state.startsWith("53")
+				|| state.startsWith("57"));
+	}
+}
@@ -0,0 +1,127 @@
+package scraper;
+
+import metrics.MetricsRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The FailureLog class appends one tab-separated line per scraping failure to
+ * a file that stays open for the whole run:
+ *
+ * <pre>
+ * timestamp  class  attempt  url  exception  message
+ * </pre>
+ *
+ * The message is cut to a single short line. A retry-only run reads the file
+ * back and picks the URLs whose latest failure was not permanent.
+ */
+public class FailureLog implements AutoCloseable {
+	public static final String LEGACY_FILE = "failed_urls.txt";
+	private static final int MAX_MESSAGE_LENGTH = 200;
+	private static final Logger logger = LogManager.getLogger(FailureLog.class);
+
+	private final BufferedWriter writer;
+
+	public FailureLog(String file) throws IOException {
+		this.writer = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND);
+	}
+
+	public synchronized void record(String url, FailureClass failureClass, int attempt, Throwable error) {
+		logger.error("⚠ Error (" + failureClass + ", attempt " + attempt + "): " + url + " -> "
+				+ error.getClass().getSimpleName());
+		MetricsRegistry.get().counter("scraper_failures_total", "class",
+				failureClass.name().toLowerCase(Locale.ROOT), "exception", error.getClass().getSimpleName())
+				.increment();
+		try {
+			writer.write(Instant.now() + "\t" + failureClass + "\t" + attempt + "\t" + url + "\t"
+					+ error.getClass().getSimpleName() + "\t" + summarize(error.getMessage()));
+			writer.newLine();
+			writer.flush();
+		} catch (IOException e) {
+			logger.error("⚠️ Failed to write to failure log: " + e.getMessage());
+		}
+	}
+
+	private static String summarize(String message) {
+		if (message == null) {
+			return "";
+		}
+		// Selenium messages carry several lines of build and session details
+		int lineEnd = message.indexOf('\n');
+		String line = (lineEnd >= 0 ? message.substring(0, lineEnd) : message).replace('\t', ' ').trim();
+		return line.length() > MAX_MESSAGE_LENGTH ? line.substring(0, MAX_MESSAGE_LENGTH) : line;
+	}
+
+	/**
+	 * Returns the URLs whose latest failure in the log was transient or
+	 * structural, in the order they first failed.
+	 */
+	public static Set<String> readRetryableUrls(String file) throws IOException {
+		Map<String, String> latestClass = new LinkedHashMap<>();
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t", 6);
+				if (fields.length >= 4) {
+					latestClass.put(fields[3], fields[1]);
+				}
+			}
+		} catch (NoSuchFileException e) {
+			return new LinkedHashSet<>();
+		}
+
+		Set<String> urls = new LinkedHashSet<>();
+		for (Map.Entry<String, String> entry : latestClass.entrySet()) {
+			if (!FailureClass.PERMANENT.name().equals(entry.getValue())) {
+				urls.add(entry.getKey());
+			}
+		}
+		return urls;
+	}
+
+	/**
+	 * Returns the URLs listed in a failed_urls.txt written by older versions,
+	 * one "url --> error" entry per line.
+	 */
+	public static Set<String> readLegacyUrls(String file) throws IOException {
+		Set<String> urls = new LinkedHashSet<>();
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int separator = line.indexOf(" --> ");
+				String url = (separator >= 0 ? line.substring(0, separator) : line).trim();
+				if (url.startsWith("http")) {
+					urls.add(url);
+				}
+			}
+		} catch (NoSuchFileException e) {
+			// Nothing to carry over
+		}
+		return urls;
+	}
+
+	@Override
+	public synchronized void close() {
+		try {
+			writer.close();
+		} catch (IOException e) {
+			logger.error("⚠️ Failed to close failure log: " + e.getMessage());
+		}
+	}
+}
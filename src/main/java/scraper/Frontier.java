@@ -0,0 +1,44 @@
+package scraper;
+
+/**
+ * The Frontier interface is the per-URL bookkeeping the crawl pipeline needs:
+ * which URLs are known, what state each is in and how often it failed. The
+ * CrawlFrontier keeps it in a local file for a single process; the CrawlQueue
+ * keeps it in the database, shared by every process crawling into it.
+ */
+public interface Frontier extends AutoCloseable {
+
+	/**
+	 * Adds a URL in the DISCOVERED state. Returns false if the URL is already
+	 * known, whatever its state.
+	 */
+	boolean discover(String url);
+
+	/**
+	 * Moves a URL to the given state, adding it if it is not known yet. Moving a
+	 * URL back to DISCOVERED starts counting its attempts from zero again.
+	 */
+	void setState(String url, CrawlFrontier.State state);
+
+	/**
+	 * Marks a URL as failed and returns the number of the attempt that failed. A
+	 * URL that is not retryable gets its attempts used up, so it is no longer
+	 * pending.
+	 */
+	int recordFailure(String url, boolean retryable);
+
+	/**
+	 * Returns the state of a URL, or null if it has never been seen.
+	 */
+	CrawlFrontier.State getState(String url);
+
+	int count(CrawlFrontier.State state);
+
+	/**
+	 * Makes the state changes so far durable.
+	 */
+	void flush();
+
+	@Override
+	void close();
+}
@@ -0,0 +1,143 @@
+package scraper;
+
+import fetchers.ArchivePageFetcher;
+import fetchers.FallbackPageFetcher;
+import fetchers.HostThrottle;
+import fetchers.HostThrottles;
+import fetchers.HttpPageFetcher;
+import fetchers.ManagedDriver;
+import fetchers.PageArchive;
+import fetchers.PageFetcher;
+import fetchers.RecordingPageFetcher;
+import fetchers.ResourceBlocker;
+import fetchers.SeleniumPageFetcher;
+import fetchers.ThrottledPageFetcher;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The PageFetcherFactory class creates one PageFetcher per scraper worker for
+ * the backend selected in the scraper configuration. HTTP fetchers share a
+ * single HttpClient and its connection pool. When throttling is enabled, every
+ * fetcher goes through the same per-host rate and concurrency limits; with a
+ * Selenium fallback, each backend is throttled on its own, so the throttle
+ * sees the overload errors of the HTTP backend before any fallback.
+ *
+ * In record mode every recipe page loaded is also written to the page archive.
+ * In replay mode pages come from the archive only, without network, browser or
+ * throttling.
+ */
+public class PageFetcherFactory implements AutoCloseable {
+	public static final String BACKEND_SELENIUM = "selenium";
+	public static final String BACKEND_HTTP = "http";
+	public static final String ARCHIVE_RECORD = "record";
+	public static final String ARCHIVE_REPLAY = "replay";
+
+	private final ScraperConfig config;
+	private final HostThrottles throttles;
+	private HttpClient httpClient;
+	private PageArchive archive;
+
+	public PageFetcherFactory(ScraperConfig config) {
+		this.config = config;
+		this.throttles = config.isThrottleEnabled()
+				? new HostThrottles(config.getRequestsPerSecond(), config.getRequestBurst(),
+						config.getInitialConcurrency(), config.getMaxConcurrency(),
+						config.getLatencyThresholdMillis(), config.getThrottleCooldownMillis())
+				: null;
+	}
+
+	public synchronized PageFetcher create() {
+		if (isReplaying()) {
+			return new ArchivePageFetcher(getArchive());
+		}
+		PageFetcher fetcher = createBackend();
+		if (ARCHIVE_RECORD.equalsIgnoreCase(config.getArchiveMode())) {
+			fetcher = new RecordingPageFetcher(fetcher, getArchive());
+		}
+		return fetcher;
+	}
+
+	public boolean isReplaying() {
+		return ARCHIVE_REPLAY.equalsIgnoreCase(config.getArchiveMode());
+	}
+
+	/**
+	 * Returns the page archive, opening it on first use.
+	 */
+	public synchronized PageArchive getArchive() {
+		if (archive == null) {
+			try {
+				archive = PageArchive.open(config.getArchiveFile());
+			} catch (IOException e) {
+				throw new RuntimeException("Failed to open page archive " + config.getArchiveFile() + ": "
+						+ e.getMessage(), e);
+			}
+		}
+		return archive;
+	}
+
+	/**
+	 * Returns the throttle of every host contacted so far, or an empty list if
+	 * throttling is disabled.
+	 */
+	public List<HostThrottle> getThrottles() {
+		return throttles == null ? Collections.<HostThrottle>emptyList() : throttles.getAll();
+	}
+
+	private PageFetcher createBackend() {
+		if (!BACKEND_HTTP.equalsIgnoreCase(config.getFetchBackend())) {
+			return throttled(createSeleniumFetcher());
+		}
+
+		PageFetcher httpFetcher = throttled(new HttpPageFetcher(getHttpClient(),
+				Duration.ofSeconds(config.getHttpTimeoutSeconds())));
+		if (!config.isSeleniumFallback()) {
+			return httpFetcher;
+		}
+		return new FallbackPageFetcher(httpFetcher, () -> throttled(createSeleniumFetcher()));
+	}
+
+	private PageFetcher throttled(PageFetcher fetcher) {
+		return throttles != null ? new ThrottledPageFetcher(fetcher, throttles) : fetcher;
+	}
+
+	private PageFetcher createSeleniumFetcher() {
+		PageLoadStrategy configured = PageLoadStrategy.fromString(config.getPageLoadStrategy());
+		PageLoadStrategy strategy = configured != null ? configured : PageLoadStrategy.NORMAL;
+		ResourceBlocker blocker = config.isResourceBlocking()
+				? new ResourceBlocker(config.getBlockedResourceTypes(), config.getBlockedUrlPatterns(),
+						config.getBlockingProbeInterval())
+				: null;
+		Function<Path, WebDriver> browserFactory = profileDir -> {
+			WebDriver browser = WebDriverSetup.createDriver(profileDir, strategy);
+			return blocker != null ? blocker.attach(browser) : browser;
+		};
+		ManagedDriver driver = new ManagedDriver(browserFactory, config.getDriverMaxPages(),
+				config.getDriverMaxMemoryMb(), config.getDriverHangTimeoutSeconds());
+		return new SeleniumPageFetcher(driver, blocker, config.isScriptedExtraction());
+	}
+
+	public synchronized HttpClient getHttpClient() {
+		if (httpClient == null) {
+			httpClient = HttpPageFetcher.createClient(Duration.ofSeconds(config.getHttpTimeoutSeconds()));
+		}
+		return httpClient;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (archive != null) {
+			archive.close();
+			archive = null;
+		}
+	}
+}
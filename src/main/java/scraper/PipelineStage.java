@@ -0,0 +1,210 @@
+package scraper;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The PipelineStage class runs a fixed number of threads that take items from
+ * the stage's own bounded input queue and pass results on to the next stage.
+ * A full queue blocks the stage in front of it, which gives backpressure all
+ * the way back to discovery. Once its input has been closed and drained, a
+ * stage stops and closes the input of the next stage. An item whose processing
+ * throws is handed back to the worker to settle.
+ *
+ * @param <I> the type of item the stage consumes
+ * @param <O> the type of item the stage passes on
+ */
+public class PipelineStage<I, O> {
+	private static final long POLL_MILLIS = 100;
+	private static final Logger logger = LogManager.getLogger(PipelineStage.class);
+
+	private final String name;
+	private final int threadCount;
+	private final BlockingQueue<I> input;
+	private final Supplier<StageWorker<I, O>> workerFactory;
+	private final List<Thread> threads = new ArrayList<>();
+	private final LongAdder processed = new LongAdder();
+	private final LongAdder emitted = new LongAdder();
+	private final AtomicInteger busyWorkers = new AtomicInteger();
+	private final CountDownLatch stopped;
+	private final AtomicInteger runningThreads = new AtomicInteger();
+	private PipelineStage<O, ?> next;
+	private Runnable onStopped;
+	private volatile boolean inputClosed;
+	private volatile long startNanos;
+
+	public PipelineStage(String name, int threadCount, int queueCapacity,
+			Supplier<StageWorker<I, O>> workerFactory) {
+		this.name = name;
+		this.threadCount = Math.max(1, threadCount);
+		this.input = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+		this.workerFactory = workerFactory;
+		this.stopped = new CountDownLatch(this.threadCount);
+	}
+
+	/**
+	 * Sends everything this stage emits to the given stage.
+	 */
+	public <N> PipelineStage<O, N> then(PipelineStage<O, N> nextStage) {
+		this.next = nextStage;
+		return nextStage;
+	}
+
+	/**
+	 * Runs the given action once all threads have stopped, instead of closing
+	 * the next stage's input. Used when the next stage also takes items from
+	 * somewhere else and must stay open.
+	 */
+	public void onStopped(Runnable action) {
+		this.onStopped = action;
+	}
+
+	/**
+	 * Creates the workers and starts the stage threads. Workers are created on
+	 * the calling thread, so a worker that cannot start fails the whole call.
+	 */
+	public void start() {
+		List<StageWorker<I, O>> workers = new ArrayList<>();
+		try {
+			for (int i = 0; i < threadCount; i++) {
+				workers.add(workerFactory.get());
+			}
+		} catch (RuntimeException e) {
+			workers.forEach(StageWorker::close);
+			throw e;
+		}
+
+		startNanos = System.nanoTime();
+		runningThreads.set(threadCount);
+		for (int i = 0; i < threadCount; i++) {
+			StageWorker<I, O> worker = workers.get(i);
+			Thread thread = new Thread(() -> run(worker), name + "-" + (i + 1));
+			threads.add(thread);
+			thread.start();
+		}
+	}
+
+	public void put(I item) throws InterruptedException {
+		input.put(item);
+	}
+
+	/**
+	 * Tells the stage that no more items will arrive. The threads stop once the
+	 * queue is empty.
+	 */
+	public void closeInput() {
+		inputClosed = true;
+	}
+
+	public void awaitStopped() throws InterruptedException {
+		stopped.await();
+	}
+
+	public void interrupt() {
+		threads.forEach(Thread::interrupt);
+	}
+
+	private void run(StageWorker<I, O> worker) {
+		StageWorker.Emitter<O> emitter = item -> {
+			emitted.increment();
+			if (next != null) {
+				next.put(item);
+			}
+		};
+
+		try {
+			while (true) {
+				I item = input.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (item == null) {
+					if (inputClosed && input.isEmpty()) {
+						break;
+					}
+					continue;
+				}
+
+				busyWorkers.incrementAndGet();
+				try {
+					worker.process(item, emitter);
+				} catch (InterruptedException e) {
+					throw e;
+				} catch (Exception e) {
+					logger.error("❌ Stage " + name + " failed on " + item, e);
+					fail(worker, item, e);
+				} finally {
+					busyWorkers.decrementAndGet();
+					processed.increment();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			worker.close();
+			boolean last = runningThreads.decrementAndGet() == 0;
+			stopped.countDown();
+			if (last) {
+				if (onStopped != null) {
+					onStopped.run();
+				} else if (next != null) {
+					next.closeInput();
+				}
+			}
+		}
+	}
+
+	private void fail(StageWorker<I, O> worker, I item, Exception error) {
+		try {
+			worker.failed(item, error);
+		} catch (RuntimeException e) {
+			logger.error("❌ Stage " + name + " could not settle " + item, e);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	public int getBusyWorkers() {
+		return busyWorkers.get();
+	}
+
+	public int getQueueDepth() {
+		return input.size();
+	}
+
+	public long getProcessedCount() {
+		return processed.sum();
+	}
+
+	public long getEmittedCount() {
+		return emitted.sum();
+	}
+
+	/**
+	 * Returns the mean number of items processed per minute since the stage
+	 * started.
+	 */
+	public double getThroughputPerMinute() {
+		long elapsed = System.nanoTime() - startNanos;
+		return startNanos == 0 || elapsed <= 0 ? 0 : processed.sum() * 60_000_000_000.0 / elapsed;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: queue=%d, busy=%d/%d, processed=%d, %.1f/min", name, getQueueDepth(),
+				getBusyWorkers(), threadCount, getProcessedCount(), getThroughputPerMinute());
+	}
+}
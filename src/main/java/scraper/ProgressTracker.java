@@ -7,7 +7,9 @@ import java.io.*;
  * scraping across multiple pages. It stores and retrieves the last scraped page
  * number to ensure the scraping process can be resumed from the point it was
  * previously stopped. This is particularly useful for long-running scraping
- * tasks that span multiple pages.
+ * tasks that span multiple pages. The crawl now keeps its state per URL in a
+ * CrawlFrontier; the saved page number is only read once, to carry it over
+ * into a new frontier.
  */
 public class ProgressTracker {
 	private static final String PROGRESS_FILE = "progress.txt";
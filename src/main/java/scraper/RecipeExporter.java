@@ -0,0 +1,306 @@
+package scraper;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import filters.DietFilter;
+import metrics.MetricsRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import utils.DatabaseHelper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The RecipeExporter class dumps the recipe table of every diet into a gzip
+ * file of its own, as CSV or as newline-delimited JSON. CSV is streamed by
+ * COPY ... TO STDOUT straight into the gzip stream; NDJSON is read through a
+ * server-side cursor and written row by row with a streaming JSON generator.
+ * Either way memory use does not grow with the table. The tables are exported
+ * in parallel, each on its own connection.
+ *
+ * An incremental export only covers the rows added since the last export of
+ * the same table. Ids are not a safe watermark: several writers commit their
+ * batches out of id order, and a recipe that joins a diet later keeps its old
+ * id. Instead the export keeps, per table, the transaction snapshot it read
+ * the table in, and the next export takes the rows whose writing transaction
+ * that snapshot did not see. The watermark file is updated once the table's
+ * file is complete, and the file name carries the range of transaction ids it
+ * covers. Rows updated in place are not exported again.
+ */
+public class RecipeExporter {
+	public static final String FORMAT_CSV = "csv";
+	public static final String FORMAT_NDJSON = "ndjson";
+	private static final Logger logger = LogManager.getLogger(RecipeExporter.class);
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final Pattern SNAPSHOT = Pattern.compile("(\\d+):(\\d+):[\\d,]*");
+	private static final Pattern LEGACY_WATERMARK = Pattern.compile("\\d+");
+
+	private final ScraperConfig config;
+	private final List<DietFilter> filters;
+	private final boolean incremental;
+	private final String format;
+	private final Path watermarkFile;
+	private final Properties watermarks = new Properties();
+
+	public RecipeExporter(ScraperConfig config, List<DietFilter> filters, boolean incremental) {
+		this.config = config;
+		this.filters = filters;
+		this.incremental = incremental;
+		this.format = FORMAT_CSV.equalsIgnoreCase(config.getExportFormat()) ? FORMAT_CSV : FORMAT_NDJSON;
+		this.watermarkFile = Paths.get(config.getExportWatermarkFile());
+	}
+
+	/**
+	 * Exports every diet table and returns the number of rows written. A table
+	 * that fails does not stop the others; the first failure is rethrown once
+	 * they are done.
+	 */
+	public long run() throws IOException, InterruptedException {
+		Files.createDirectories(Paths.get(config.getExportDir()));
+		if (incremental && Files.exists(watermarkFile)) {
+			try (InputStream in = Files.newInputStream(watermarkFile)) {
+				watermarks.load(in);
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, config.getExportThreads()), r -> {
+			Thread thread = new Thread(r, "export");
+			thread.setDaemon(true);
+			return thread;
+		});
+		List<Future<Long>> results = new ArrayList<>();
+		for (DietFilter filter : filters) {
+			results.add(executor.submit(() -> exportTable(filter.getDietTableName())));
+		}
+		executor.shutdown();
+
+		long total = 0;
+		Exception firstFailure = null;
+		for (int i = 0; i < results.size(); i++) {
+			try {
+				total += results.get(i).get();
+			} catch (ExecutionException e) {
+				logger.error("❌ Export of " + filters.get(i).getDietTableName() + " failed: "
+						+ e.getCause().getMessage());
+				if (firstFailure == null) {
+					firstFailure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+			}
+		}
+		logger.info("📦 Exported " + total + " rows from " + filters.size() + " tables to " + config.getExportDir());
+		if (firstFailure != null) {
+			throw new IOException("Export failed: " + firstFailure.getMessage(), firstFailure);
+		}
+		return total;
+	}
+
+	private long exportTable(String table) throws SQLException, IOException {
+		try (Connection connection = DatabaseHelper.openConnection()) {
+			// The cursor needs a transaction, and a single snapshot keeps the watermark exact
+			connection.setAutoCommit(false);
+			connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+			String snapshot = currentSnapshot(connection);
+			String previous = incremental ? getWatermark(table) : null;
+			String query = "SELECT " + DatabaseHelper.EXPORTED_COLUMNS + " FROM " + table
+					+ (previous != null ? " WHERE " + addedSince(previous) : "") + " ORDER BY recipe_id";
+			if (previous != null && !hasRows(connection, query)) {
+				logger.info("♻ " + table + ": nothing added since the last export");
+				connection.commit();
+				saveWatermark(table, snapshot);
+				return 0;
+			}
+
+			String name = incremental
+					? String.format("%s.%d-%d", table, previous != null ? snapshotXmax(previous) : 0,
+							snapshotXmax(snapshot))
+					: table;
+			Path target = Paths.get(config.getExportDir(), name + "." + format + ".gz");
+			Path partial = target.resolveSibling(target.getFileName() + ".part");
+			long rows;
+			try (OutputStream out = new GZIPOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(partial), BUFFER_SIZE), BUFFER_SIZE)) {
+				rows = FORMAT_CSV.equals(format) ? copyCsv(connection, query, out)
+						: writeNdjson(connection, query, out);
+			} catch (SQLException | IOException | RuntimeException e) {
+				Files.deleteIfExists(partial);
+				throw e;
+			}
+			connection.commit();
+			Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			MetricsRegistry.get().counter("scraper_exported_rows_total", "table", table).add(rows);
+			logger.info("✔️ Exported " + rows + " rows of " + table + " to " + target);
+			if (incremental) {
+				saveWatermark(table, snapshot);
+			}
+			return rows;
+		}
+	}
+
+	/**
+	 * Returns the snapshot of the export transaction, which holds every row the
+	 * export sees, as text.
+	 */
+	private static String currentSnapshot(Connection connection) throws SQLException {
+		try (Statement stmt = connection.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT pg_current_snapshot()::text")) {
+			rs.next();
+			return rs.getString(1);
+		}
+	}
+
+	/**
+	 * Returns the condition for rows written by a transaction the previous
+	 * snapshot did not see. Transactions below its xmin had all finished, so
+	 * the index on written_xact skips the rows they wrote. A plain number is a
+	 * recipe_id watermark written by an older version and is used once more.
+	 */
+	static String addedSince(String watermark) {
+		Matcher snapshot = SNAPSHOT.matcher(watermark);
+		if (snapshot.matches()) {
+			return "written_xact >= '" + snapshot.group(1) + "'::xid8"
+					+ " AND NOT pg_visible_in_snapshot(written_xact, '" + watermark + "'::pg_snapshot)";
+		}
+		if (LEGACY_WATERMARK.matcher(watermark).matches()) {
+			return "recipe_id > " + watermark;
+		}
+		throw new IllegalArgumentException("Unreadable export watermark: " + watermark);
+	}
+
+	static long snapshotXmax(String watermark) {
+		Matcher snapshot = SNAPSHOT.matcher(watermark);
+		return snapshot.matches() ? Long.parseLong(snapshot.group(2)) : 0;
+	}
+
+	private static boolean hasRows(Connection connection, String query) throws SQLException {
+		try (Statement stmt = connection.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT EXISTS (" + query + ")")) {
+			rs.next();
+			return rs.getBoolean(1);
+		}
+	}
+
+	private static long copyCsv(Connection connection, String query, OutputStream out)
+			throws SQLException, IOException {
+		CopyManager copy = connection.unwrap(PGConnection.class).getCopyAPI();
+		return copy.copyOut("COPY (" + query + ") TO STDOUT WITH (FORMAT csv, HEADER)", out);
+	}
+
+	/**
+	 * Writes one JSON object per row. JSONB columns are embedded as JSON, not as
+	 * strings, and numeric columns as numbers.
+	 */
+	private long writeNdjson(Connection connection, String query, OutputStream out)
+			throws SQLException, IOException {
+		JsonGenerator json = new JsonFactory().createGenerator(out, JsonEncoding.UTF8);
+		json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+		json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		long rows = 0;
+		try (Statement stmt = connection.createStatement()) {
+			stmt.setFetchSize(config.getExportFetchSize());
+			try (ResultSet rs = stmt.executeQuery(query)) {
+				ResultSetMetaData meta = rs.getMetaData();
+				int columns = meta.getColumnCount();
+				while (rs.next()) {
+					json.writeStartObject();
+					for (int i = 1; i <= columns; i++) {
+						json.writeFieldName(meta.getColumnLabel(i));
+						writeValue(json, rs, i, meta);
+					}
+					json.writeEndObject();
+					rows++;
+				}
+			}
+		}
+		if (rows > 0) {
+			json.writeRaw('\n');
+		}
+		json.close();
+		return rows;
+	}
+
+	private static void writeValue(JsonGenerator json, ResultSet rs, int column, ResultSetMetaData meta)
+			throws SQLException, IOException {
+		switch (meta.getColumnType(column)) {
+		case Types.INTEGER:
+		case Types.BIGINT:
+		case Types.SMALLINT:
+			long whole = rs.getLong(column);
+			if (rs.wasNull()) {
+				json.writeNull();
+			} else {
+				json.writeNumber(whole);
+			}
+			return;
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+		case Types.DOUBLE:
+		case Types.REAL:
+			BigDecimal decimal = rs.getBigDecimal(column);
+			if (decimal == null) {
+				json.writeNull();
+			} else {
+				json.writeNumber(decimal);
+			}
+			return;
+		default:
+			String text = rs.getString(column);
+			if (text == null) {
+				json.writeNull();
+			} else if (meta.getColumnTypeName(column).toLowerCase(Locale.ROOT).startsWith("json")) {
+				json.writeRawValue(text);
+			} else {
+				json.writeString(text);
+			}
+		}
+	}
+
+	/**
+	 * Returns the snapshot the table was last exported in, or null if it never
+	 * was.
+	 */
+	private synchronized String getWatermark(String table) {
+		return watermarks.getProperty(table);
+	}
+
+	/**
+	 * Records the snapshot the table was exported in, replacing the file in one
+	 * step so a crash never leaves it half written.
+	 */
+	private synchronized void saveWatermark(String table, String snapshot) throws IOException {
+		watermarks.setProperty(table, snapshot);
+		Path temp = watermarkFile.resolveSibling(watermarkFile.getFileName() + ".tmp");
+		try (OutputStream out = Files.newOutputStream(temp)) {
+			watermarks.store(out, "Transaction snapshot of the last export per table");
+		}
+		Files.move(temp, watermarkFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
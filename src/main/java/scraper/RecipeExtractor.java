@@ -0,0 +1,52 @@
+package scraper;
+
+import fetchers.RecipePageParser;
+import model.Recipe;
+import model.RecipeCategories;
+import model.RecipeQuantities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The RecipeExtractor class turns a parsed recipe page into a Recipe: it reads
+ * the remaining fields, maps the tags and breadcrumbs to categories and parses
+ * the quantities. The ingredients and tags are passed in, since the caller
+ * usually has them already.
+ */
+public final class RecipeExtractor {
+
+	private RecipeExtractor() {
+	}
+
+	public static Recipe extract(String url, RecipePageParser page, String ingredientsText, List<String> tags) {
+		String name = page.getName();
+		List<String> breadcrumbs = page.getBreadcrumbs();
+
+		// Combine both tags and bread crumbs for category mapping
+		List<String> combined = new ArrayList<>();
+		combined.addAll(tags);
+		combined.addAll(breadcrumbs);
+
+		RecipeCategories categories = CategoryMapper.mapTagsToCategories(combined);
+
+		// Create Recipe object and populate fields
+		Recipe recipe = new Recipe();
+		recipe.setName(name);
+		recipe.setIngredientsText(ingredientsText);
+		recipe.setTags(tags);
+		recipe.setPrepTime(page.getPrepTime());
+		recipe.setCookTime(page.getCookTime());
+		recipe.setMethod(page.getMethod());
+		recipe.setDescription(page.getDescription());
+		recipe.setServings(page.getServings());
+		recipe.setNutrients(page.getNutrients());
+		recipe.setUrl(url);
+		recipe.setFoodCategory(categories.getFoodCategory());
+		recipe.setCuisineCategory(categories.getCuisineCategory());
+		recipe.setRecipeCategory(categories.getRecipeCategory());
+		RecipeQuantities.fill(recipe);
+
+		return recipe;
+	}
+}
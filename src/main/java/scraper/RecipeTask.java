@@ -0,0 +1,81 @@
+package scraper;
+
+import filters.DietFilter;
+import model.Recipe;
+import model.RecipeFingerprint;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * The RecipeTask class carries one recipe URL through the crawl pipeline. Each
+ * stage fills in what it produced (the extracted recipe, then the matching
+ * diets). A task is completed exactly once, with the frontier state the URL
+ * ends up in: stored, rejected by every diet, or failed.
+ */
+public class RecipeTask {
+	private final String url;
+	private final BiConsumer<RecipeTask, CrawlFrontier.State> onComplete;
+	private final AtomicBoolean completed = new AtomicBoolean();
+	private Recipe recipe;
+	private List<DietFilter> matchingFilters;
+	private RecipeFingerprint fingerprint;
+	private String duplicateOf;
+
+	public RecipeTask(String url, BiConsumer<RecipeTask, CrawlFrontier.State> onComplete) {
+		this.url = url;
+		this.onComplete = onComplete;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public Recipe getRecipe() {
+		return recipe;
+	}
+
+	public void setRecipe(Recipe recipe) {
+		this.recipe = recipe;
+	}
+
+	public List<DietFilter> getMatchingFilters() {
+		return matchingFilters;
+	}
+
+	public void setMatchingFilters(List<DietFilter> matchingFilters) {
+		this.matchingFilters = matchingFilters;
+	}
+
+	public RecipeFingerprint getFingerprint() {
+		return fingerprint;
+	}
+
+	public void setFingerprint(RecipeFingerprint fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Returns the duplicate cluster the recipe joined, or null if it is not a
+	 * near-duplicate.
+	 */
+	public String getDuplicateOf() {
+		return duplicateOf;
+	}
+
+	public void setDuplicateOf(String duplicateOf) {
+		this.duplicateOf = duplicateOf;
+	}
+
+	public void complete(CrawlFrontier.State outcome) {
+		if (completed.compareAndSet(false, true)) {
+			onComplete.accept(this, outcome);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return url;
+	}
+}
@@ -0,0 +1,107 @@
+package scraper;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RetryScheduler class holds failed items on a delay queue and hands each
+ * one back to a pipeline stage once its backoff has passed. Scheduling never
+ * blocks; only the scheduler's own dispatcher thread waits when the target
+ * stage's queue is full, so workers move on to other items right away.
+ *
+ * The delay grows exponentially with the attempt number up to a maximum, and
+ * is spread randomly over its upper half so that failures from the same
+ * outage do not all come back at the same moment.
+ *
+ * @param <T> the type of item being retried
+ */
+public class RetryScheduler<T> implements AutoCloseable {
+	private static final Logger logger = LogManager.getLogger(RetryScheduler.class);
+
+	private final DelayQueue<ScheduledRetry<T>> queue = new DelayQueue<>();
+	private final long baseDelayMillis;
+	private final long maxDelayMillis;
+	private final StageWorker.Emitter<T> target;
+	private final Thread dispatcher;
+
+	public RetryScheduler(long baseDelayMillis, long maxDelayMillis, StageWorker.Emitter<T> target) {
+		this.baseDelayMillis = Math.max(1, baseDelayMillis);
+		this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+		this.target = target;
+		this.dispatcher = new Thread(this::dispatch, "retry-scheduler");
+		this.dispatcher.setDaemon(true);
+		this.dispatcher.start();
+	}
+
+	/**
+	 * Schedules another attempt after the given number of failed ones and
+	 * returns the delay in milliseconds.
+	 */
+	public long schedule(T item, int failedAttempts) {
+		long delay = backoffMillis(failedAttempts);
+		queue.put(new ScheduledRetry<>(item, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay)));
+		return delay;
+	}
+
+	long backoffMillis(int failedAttempts) {
+		int doublings = Math.min(Math.max(failedAttempts - 1, 0), 30);
+		long ceiling = Math.min(maxDelayMillis, baseDelayMillis << doublings);
+		return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling - ceiling / 2 + 1);
+	}
+
+	public int getScheduledCount() {
+		return queue.size();
+	}
+
+	private void dispatch() {
+		try {
+			while (true) {
+				target.emit(queue.take().item);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stops the dispatcher. Retries still waiting are dropped.
+	 */
+	@Override
+	public void close() {
+		dispatcher.interrupt();
+		try {
+			dispatcher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (!queue.isEmpty()) {
+			logger.warn("Dropped " + queue.size() + " scheduled retries");
+			queue.clear();
+		}
+	}
+
+	private static class ScheduledRetry<T> implements Delayed {
+		final T item;
+		final long dueNanos;
+
+		ScheduledRetry(T item, long dueNanos) {
+			this.item = item;
+			this.dueNanos = dueNanos;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+		}
+	}
+}
@@ -0,0 +1,668 @@
+package scraper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import utils.RecipeStorage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ScraperConfig class holds the runtime settings of the scraper, such as
+ * the number of parallel WebDriver sessions. The values are read from a JSON
+ * file in the same way the diet filters read their configuration. Any setting
+ * missing from the file falls back to its default.
+ */
+public class ScraperConfig {
+	public static final String DEFAULT_CONFIG_FILE = "src/main/resources/config/scraper_config.json";
+
+	private int workerCount = 4;
+	private int queueCapacity = 64;
+	private String fetchBackend = PageFetcherFactory.BACKEND_SELENIUM;
+	private boolean seleniumFallback = true;
+	private int httpTimeoutSeconds = 15;
+	private boolean scriptedExtraction = true;
+	private int writerQueueCapacity = 500;
+	private int writerBatchSize = 50;
+	private long writerFlushMillis = 200;
+	private String storageMode = RecipeStorage.MODE_PER_DIET;
+	private boolean migrateLegacyTables;
+	private int discoveryThreads = 1;
+	private int filterThreads = 1;
+	private int persistenceThreads = 1;
+	private int matchQueueCapacity = 64;
+	private int statsIntervalSeconds = 30;
+	private String frontierFile = "frontier.log";
+	private int maxAttempts = 3;
+	private boolean refreshMode = false;
+	private String failureLogFile = "failures.tsv";
+	private long retryBaseDelayMillis = 2000;
+	private long retryMaxDelayMillis = 60000;
+	private boolean throttleEnabled = true;
+	private double requestsPerSecond = 4.0;
+	private int requestBurst = 4;
+	private int initialConcurrency = 2;
+	private int maxConcurrency = 16;
+	private long latencyThresholdMillis = 3000;
+	private long throttleCooldownMillis = 5000;
+	private int metricsPort = 9404;
+	private String metricsSummaryFile = "metrics_summary.txt";
+	private String archiveMode = "off";
+	private String archiveFile = "pages.archive";
+	private int reclassifyThreads = 0;
+	private int reclassifyFetchSize = 500;
+	private int driverMaxPages = 500;
+	private long driverMaxMemoryMb = 1024;
+	private long driverHangTimeoutSeconds = 60;
+	private String pageLoadStrategy = "eager";
+	private boolean resourceBlocking = true;
+	private List<String> blockedResourceTypes = Arrays.asList("image", "stylesheet", "font", "media");
+	private List<String> blockedUrlPatterns = Arrays.asList("*googletagmanager.com*", "*google-analytics.com*",
+			"*doubleclick.net*", "*googlesyndication.com*", "*adservice.google.*", "*facebook.net*", "*youtube.com/embed*");
+	private int blockingProbeInterval = 100;
+	private boolean distributed = false;
+	private int leaseSeconds = 120;
+	private long queuePollMillis = 1000;
+	private String exportDir = "exports";
+	private String exportFormat = RecipeExporter.FORMAT_NDJSON;
+	private int exportThreads = 4;
+	private int exportFetchSize = 1000;
+	private String exportWatermarkFile = "export_watermarks.properties";
+	private boolean sitemapDiscovery = true;
+	private String sitemapUrl = "https://www.tarladalal.com/sitemap.xml";
+	private String sitemapRecipePattern = "https?://(www\\.)?tarladalal\\.com/(recipes/)?[^/?#]+-recipe[^/?#]*";
+	private String sitemapStateFile = "sitemap.state";
+	private int searchPort = 9405;
+	private boolean duplicateDetection = true;
+	private double duplicateThreshold = 0.7;
+	private boolean skipDuplicates = false;
+	private boolean newOnly = false;
+	private int newOnlyStopAfter = 60;
+
+	public ScraperConfig() {
+	}
+
+	public ScraperConfig(String configFilePath) {
+		loadFromJson(configFilePath);
+	}
+
+	public static ScraperConfig load() {
+		File file = new File(DEFAULT_CONFIG_FILE);
+		return file.exists() ? new ScraperConfig(DEFAULT_CONFIG_FILE) : new ScraperConfig();
+	}
+
+	private void loadFromJson(String filePath) {
+		try {
+			ObjectMapper mapper = new ObjectMapper();
+			JsonNode root = mapper.readTree(new File(filePath));
+
+			workerCount = root.path("workerCount").asInt(workerCount);
+			queueCapacity = root.path("queueCapacity").asInt(queueCapacity);
+			fetchBackend = root.path("fetchBackend").asText(fetchBackend);
+			seleniumFallback = root.path("seleniumFallback").asBoolean(seleniumFallback);
+			httpTimeoutSeconds = root.path("httpTimeoutSeconds").asInt(httpTimeoutSeconds);
+			scriptedExtraction = root.path("scriptedExtraction").asBoolean(scriptedExtraction);
+			writerQueueCapacity = root.path("writerQueueCapacity").asInt(writerQueueCapacity);
+			writerBatchSize = root.path("writerBatchSize").asInt(writerBatchSize);
+			writerFlushMillis = root.path("writerFlushMillis").asLong(writerFlushMillis);
+			storageMode = root.path("storageMode").asText(storageMode);
+			migrateLegacyTables = root.path("migrateLegacyTables").asBoolean(migrateLegacyTables);
+			discoveryThreads = root.path("discoveryThreads").asInt(discoveryThreads);
+			filterThreads = root.path("filterThreads").asInt(filterThreads);
+			persistenceThreads = root.path("persistenceThreads").asInt(persistenceThreads);
+			matchQueueCapacity = root.path("matchQueueCapacity").asInt(matchQueueCapacity);
+			statsIntervalSeconds = root.path("statsIntervalSeconds").asInt(statsIntervalSeconds);
+			frontierFile = root.path("frontierFile").asText(frontierFile);
+			maxAttempts = root.path("maxAttempts").asInt(maxAttempts);
+			refreshMode = root.path("refreshMode").asBoolean(refreshMode);
+			failureLogFile = root.path("failureLogFile").asText(failureLogFile);
+			retryBaseDelayMillis = root.path("retryBaseDelayMillis").asLong(retryBaseDelayMillis);
+			retryMaxDelayMillis = root.path("retryMaxDelayMillis").asLong(retryMaxDelayMillis);
+			throttleEnabled = root.path("throttleEnabled").asBoolean(throttleEnabled);
+			requestsPerSecond = root.path("requestsPerSecond").asDouble(requestsPerSecond);
+			requestBurst = root.path("requestBurst").asInt(requestBurst);
+			initialConcurrency = root.path("initialConcurrency").asInt(initialConcurrency);
+			maxConcurrency = root.path("maxConcurrency").asInt(maxConcurrency);
+			latencyThresholdMillis = root.path("latencyThresholdMillis").asLong(latencyThresholdMillis);
+			throttleCooldownMillis = root.path("throttleCooldownMillis").asLong(throttleCooldownMillis);
+			metricsPort = root.path("metricsPort").asInt(metricsPort);
+			metricsSummaryFile = root.path("metricsSummaryFile").asText(metricsSummaryFile);
+			archiveMode = root.path("archiveMode").asText(archiveMode);
+			archiveFile = root.path("archiveFile").asText(archiveFile);
+			reclassifyThreads = root.path("reclassifyThreads").asInt(reclassifyThreads);
+			reclassifyFetchSize = root.path("reclassifyFetchSize").asInt(reclassifyFetchSize);
+			driverMaxPages = root.path("driverMaxPages").asInt(driverMaxPages);
+			driverMaxMemoryMb = root.path("driverMaxMemoryMb").asLong(driverMaxMemoryMb);
+			driverHangTimeoutSeconds = root.path("driverHangTimeoutSeconds").asLong(driverHangTimeoutSeconds);
+			pageLoadStrategy = root.path("pageLoadStrategy").asText(pageLoadStrategy);
+			resourceBlocking = root.path("resourceBlocking").asBoolean(resourceBlocking);
+			blockedResourceTypes = readList(root, "blockedResourceTypes", blockedResourceTypes);
+			blockedUrlPatterns = readList(root, "blockedUrlPatterns", blockedUrlPatterns);
+			blockingProbeInterval = root.path("blockingProbeInterval").asInt(blockingProbeInterval);
+			distributed = root.path("distributed").asBoolean(distributed);
+			leaseSeconds = root.path("leaseSeconds").asInt(leaseSeconds);
+			queuePollMillis = root.path("queuePollMillis").asLong(queuePollMillis);
+			exportDir = root.path("exportDir").asText(exportDir);
+			exportFormat = root.path("exportFormat").asText(exportFormat);
+			exportThreads = root.path("exportThreads").asInt(exportThreads);
+			exportFetchSize = root.path("exportFetchSize").asInt(exportFetchSize);
+			exportWatermarkFile = root.path("exportWatermarkFile").asText(exportWatermarkFile);
+			sitemapDiscovery = root.path("sitemapDiscovery").asBoolean(sitemapDiscovery);
+			sitemapUrl = root.path("sitemapUrl").asText(sitemapUrl);
+			sitemapRecipePattern = root.path("sitemapRecipePattern").asText(sitemapRecipePattern);
+			sitemapStateFile = root.path("sitemapStateFile").asText(sitemapStateFile);
+			searchPort = root.path("searchPort").asInt(searchPort);
+			duplicateDetection = root.path("duplicateDetection").asBoolean(duplicateDetection);
+			duplicateThreshold = root.path("duplicateThreshold").asDouble(duplicateThreshold);
+			skipDuplicates = root.path("skipDuplicates").asBoolean(skipDuplicates);
+			newOnly = root.path("newOnly").asBoolean(newOnly);
+			newOnlyStopAfter = root.path("newOnlyStopAfter").asInt(newOnlyStopAfter);
+
+		} catch (Exception e) {
+			throw new RuntimeException("Failed to load scraper config: " + e.getMessage(), e);
+		}
+	}
+
+	private static List<String> readList(JsonNode root, String key, List<String> defaults) {
+		JsonNode arrayNode = root.get(key);
+		if (arrayNode == null || !arrayNode.isArray()) {
+			return defaults;
+		}
+		List<String> values = new ArrayList<>();
+		for (JsonNode value : arrayNode) {
+			values.add(value.asText().trim());
+		}
+		return Collections.unmodifiableList(values);
+	}
+
+	public int getWorkerCount() {
+		return Math.max(1, workerCount);
+	}
+
+	public void setWorkerCount(int workerCount) {
+		this.workerCount = workerCount;
+	}
+
+	public int getQueueCapacity() {
+		return Math.max(1, queueCapacity);
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public String getFetchBackend() {
+		return fetchBackend;
+	}
+
+	public void setFetchBackend(String fetchBackend) {
+		this.fetchBackend = fetchBackend;
+	}
+
+	public boolean isSeleniumFallback() {
+		return seleniumFallback;
+	}
+
+	public void setSeleniumFallback(boolean seleniumFallback) {
+		this.seleniumFallback = seleniumFallback;
+	}
+
+	public int getHttpTimeoutSeconds() {
+		return Math.max(1, httpTimeoutSeconds);
+	}
+
+	public void setHttpTimeoutSeconds(int httpTimeoutSeconds) {
+		this.httpTimeoutSeconds = httpTimeoutSeconds;
+	}
+
+	public boolean isScriptedExtraction() {
+		return scriptedExtraction;
+	}
+
+	public void setScriptedExtraction(boolean scriptedExtraction) {
+		this.scriptedExtraction = scriptedExtraction;
+	}
+
+	public int getWriterQueueCapacity() {
+		return writerQueueCapacity;
+	}
+
+	public void setWriterQueueCapacity(int writerQueueCapacity) {
+		this.writerQueueCapacity = writerQueueCapacity;
+	}
+
+	public int getWriterBatchSize() {
+		return writerBatchSize;
+	}
+
+	public void setWriterBatchSize(int writerBatchSize) {
+		this.writerBatchSize = writerBatchSize;
+	}
+
+	public long getWriterFlushMillis() {
+		return writerFlushMillis;
+	}
+
+	public void setWriterFlushMillis(long writerFlushMillis) {
+		this.writerFlushMillis = writerFlushMillis;
+	}
+
+	public String getStorageMode() {
+		return storageMode;
+	}
+
+	public void setStorageMode(String storageMode) {
+		this.storageMode = storageMode;
+	}
+
+	public boolean isMigrateLegacyTables() {
+		return migrateLegacyTables;
+	}
+
+	public void setMigrateLegacyTables(boolean migrateLegacyTables) {
+		this.migrateLegacyTables = migrateLegacyTables;
+	}
+
+	public int getDiscoveryThreads() {
+		return Math.max(1, discoveryThreads);
+	}
+
+	public void setDiscoveryThreads(int discoveryThreads) {
+		this.discoveryThreads = discoveryThreads;
+	}
+
+	public int getFilterThreads() {
+		return Math.max(1, filterThreads);
+	}
+
+	public void setFilterThreads(int filterThreads) {
+		this.filterThreads = filterThreads;
+	}
+
+	public int getPersistenceThreads() {
+		return Math.max(1, persistenceThreads);
+	}
+
+	public void setPersistenceThreads(int persistenceThreads) {
+		this.persistenceThreads = persistenceThreads;
+	}
+
+	public int getMatchQueueCapacity() {
+		return Math.max(1, matchQueueCapacity);
+	}
+
+	public void setMatchQueueCapacity(int matchQueueCapacity) {
+		this.matchQueueCapacity = matchQueueCapacity;
+	}
+
+	public int getStatsIntervalSeconds() {
+		return statsIntervalSeconds;
+	}
+
+	public void setStatsIntervalSeconds(int statsIntervalSeconds) {
+		this.statsIntervalSeconds = statsIntervalSeconds;
+	}
+
+	public String getFrontierFile() {
+		return frontierFile;
+	}
+
+	public void setFrontierFile(String frontierFile) {
+		this.frontierFile = frontierFile;
+	}
+
+	public int getMaxAttempts() {
+		return Math.max(1, maxAttempts);
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public boolean isRefreshMode() {
+		return refreshMode;
+	}
+
+	public void setRefreshMode(boolean refreshMode) {
+		this.refreshMode = refreshMode;
+	}
+
+	public String getFailureLogFile() {
+		return failureLogFile;
+	}
+
+	public void setFailureLogFile(String failureLogFile) {
+		this.failureLogFile = failureLogFile;
+	}
+
+	public long getRetryBaseDelayMillis() {
+		return retryBaseDelayMillis;
+	}
+
+	public void setRetryBaseDelayMillis(long retryBaseDelayMillis) {
+		this.retryBaseDelayMillis = retryBaseDelayMillis;
+	}
+
+	public long getRetryMaxDelayMillis() {
+		return retryMaxDelayMillis;
+	}
+
+	public void setRetryMaxDelayMillis(long retryMaxDelayMillis) {
+		this.retryMaxDelayMillis = retryMaxDelayMillis;
+	}
+
+	public boolean isThrottleEnabled() {
+		return throttleEnabled;
+	}
+
+	public void setThrottleEnabled(boolean throttleEnabled) {
+		this.throttleEnabled = throttleEnabled;
+	}
+
+	public double getRequestsPerSecond() {
+		return requestsPerSecond;
+	}
+
+	public void setRequestsPerSecond(double requestsPerSecond) {
+		this.requestsPerSecond = requestsPerSecond;
+	}
+
+	public int getRequestBurst() {
+		return Math.max(1, requestBurst);
+	}
+
+	public void setRequestBurst(int requestBurst) {
+		this.requestBurst = requestBurst;
+	}
+
+	public int getInitialConcurrency() {
+		return Math.max(1, initialConcurrency);
+	}
+
+	public void setInitialConcurrency(int initialConcurrency) {
+		this.initialConcurrency = initialConcurrency;
+	}
+
+	public int getMaxConcurrency() {
+		return Math.max(1, maxConcurrency);
+	}
+
+	public void setMaxConcurrency(int maxConcurrency) {
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	public long getLatencyThresholdMillis() {
+		return latencyThresholdMillis;
+	}
+
+	public void setLatencyThresholdMillis(long latencyThresholdMillis) {
+		this.latencyThresholdMillis = latencyThresholdMillis;
+	}
+
+	public long getThrottleCooldownMillis() {
+		return throttleCooldownMillis;
+	}
+
+	public void setThrottleCooldownMillis(long throttleCooldownMillis) {
+		this.throttleCooldownMillis = throttleCooldownMillis;
+	}
+
+	public int getMetricsPort() {
+		return metricsPort;
+	}
+
+	public void setMetricsPort(int metricsPort) {
+		this.metricsPort = metricsPort;
+	}
+
+	public String getMetricsSummaryFile() {
+		return metricsSummaryFile;
+	}
+
+	public void setMetricsSummaryFile(String metricsSummaryFile) {
+		this.metricsSummaryFile = metricsSummaryFile;
+	}
+
+	public String getArchiveMode() {
+		return archiveMode;
+	}
+
+	public void setArchiveMode(String archiveMode) {
+		this.archiveMode = archiveMode;
+	}
+
+	public String getArchiveFile() {
+		return archiveFile;
+	}
+
+	public void setArchiveFile(String archiveFile) {
+		this.archiveFile = archiveFile;
+	}
+
+	public int getReclassifyThreads() {
+		return reclassifyThreads;
+	}
+
+	public void setReclassifyThreads(int reclassifyThreads) {
+		this.reclassifyThreads = reclassifyThreads;
+	}
+
+	public int getReclassifyFetchSize() {
+		return Math.max(1, reclassifyFetchSize);
+	}
+
+	public void setReclassifyFetchSize(int reclassifyFetchSize) {
+		this.reclassifyFetchSize = reclassifyFetchSize;
+	}
+
+	public int getDriverMaxPages() {
+		return driverMaxPages;
+	}
+
+	public void setDriverMaxPages(int driverMaxPages) {
+		this.driverMaxPages = driverMaxPages;
+	}
+
+	public long getDriverMaxMemoryMb() {
+		return driverMaxMemoryMb;
+	}
+
+	public void setDriverMaxMemoryMb(long driverMaxMemoryMb) {
+		this.driverMaxMemoryMb = driverMaxMemoryMb;
+	}
+
+	public long getDriverHangTimeoutSeconds() {
+		return driverHangTimeoutSeconds;
+	}
+
+	public void setDriverHangTimeoutSeconds(long driverHangTimeoutSeconds) {
+		this.driverHangTimeoutSeconds = driverHangTimeoutSeconds;
+	}
+
+	public String getPageLoadStrategy() {
+		return pageLoadStrategy;
+	}
+
+	public void setPageLoadStrategy(String pageLoadStrategy) {
+		this.pageLoadStrategy = pageLoadStrategy;
+	}
+
+	public boolean isResourceBlocking() {
+		return resourceBlocking;
+	}
+
+	public void setResourceBlocking(boolean resourceBlocking) {
+		this.resourceBlocking = resourceBlocking;
+	}
+
+	public List<String> getBlockedResourceTypes() {
+		return blockedResourceTypes;
+	}
+
+	public void setBlockedResourceTypes(List<String> blockedResourceTypes) {
+		this.blockedResourceTypes = blockedResourceTypes;
+	}
+
+	public List<String> getBlockedUrlPatterns() {
+		return blockedUrlPatterns;
+	}
+
+	public void setBlockedUrlPatterns(List<String> blockedUrlPatterns) {
+		this.blockedUrlPatterns = blockedUrlPatterns;
+	}
+
+	public int getBlockingProbeInterval() {
+		return blockingProbeInterval;
+	}
+
+	public void setBlockingProbeInterval(int blockingProbeInterval) {
+		this.blockingProbeInterval = blockingProbeInterval;
+	}
+
+	public boolean isDistributed() {
+		return distributed;
+	}
+
+	public void setDistributed(boolean distributed) {
+		this.distributed = distributed;
+	}
+
+	public int getLeaseSeconds() {
+		return leaseSeconds;
+	}
+
+	public void setLeaseSeconds(int leaseSeconds) {
+		this.leaseSeconds = leaseSeconds;
+	}
+
+	public long getQueuePollMillis() {
+		return queuePollMillis;
+	}
+
+	public void setQueuePollMillis(long queuePollMillis) {
+		this.queuePollMillis = queuePollMillis;
+	}
+
+	public String getExportDir() {
+		return exportDir;
+	}
+
+	public void setExportDir(String exportDir) {
+		this.exportDir = exportDir;
+	}
+
+	public String getExportFormat() {
+		return exportFormat;
+	}
+
+	public void setExportFormat(String exportFormat) {
+		this.exportFormat = exportFormat;
+	}
+
+	public int getExportThreads() {
+		return exportThreads;
+	}
+
+	public void setExportThreads(int exportThreads) {
+		this.exportThreads = exportThreads;
+	}
+
+	public int getExportFetchSize() {
+		return Math.max(1, exportFetchSize);
+	}
+
+	public void setExportFetchSize(int exportFetchSize) {
+		this.exportFetchSize = exportFetchSize;
+	}
+
+	public String getExportWatermarkFile() {
+		return exportWatermarkFile;
+	}
+
+	public void setExportWatermarkFile(String exportWatermarkFile) {
+		this.exportWatermarkFile = exportWatermarkFile;
+	}
+
+	public boolean isSitemapDiscovery() {
+		return sitemapDiscovery;
+	}
+
+	public void setSitemapDiscovery(boolean sitemapDiscovery) {
+		this.sitemapDiscovery = sitemapDiscovery;
+	}
+
+	public String getSitemapUrl() {
+		return sitemapUrl;
+	}
+
+	public void setSitemapUrl(String sitemapUrl) {
+		this.sitemapUrl = sitemapUrl;
+	}
+
+	public String getSitemapRecipePattern() {
+		return sitemapRecipePattern;
+	}
+
+	public void setSitemapRecipePattern(String sitemapRecipePattern) {
+		this.sitemapRecipePattern = sitemapRecipePattern;
+	}
+
+	public String getSitemapStateFile() {
+		return sitemapStateFile;
+	}
+
+	public void setSitemapStateFile(String sitemapStateFile) {
+		this.sitemapStateFile = sitemapStateFile;
+	}
+
+	public int getSearchPort() {
+		return searchPort;
+	}
+
+	public void setSearchPort(int searchPort) {
+		this.searchPort = searchPort;
+	}
+
+	public boolean isDuplicateDetection() {
+		return duplicateDetection;
+	}
+
+	public void setDuplicateDetection(boolean duplicateDetection) {
+		this.duplicateDetection = duplicateDetection;
+	}
+
+	public double getDuplicateThreshold() {
+		return duplicateThreshold;
+	}
+
+	public void setDuplicateThreshold(double duplicateThreshold) {
+		this.duplicateThreshold = duplicateThreshold;
+	}
+
+	public boolean isSkipDuplicates() {
+		return skipDuplicates;
+	}
+
+	public void setSkipDuplicates(boolean skipDuplicates) {
+		this.skipDuplicates = skipDuplicates;
+	}
+
+	public boolean isNewOnly() {
+		return newOnly;
+	}
+
+	public void setNewOnly(boolean newOnly) {
+		this.newOnly = newOnly;
+	}
+
+	public int getNewOnlyStopAfter() {
+		return Math.max(1, newOnlyStopAfter);
+	}
+
+	public void setNewOnlyStopAfter(int newOnlyStopAfter) {
+		this.newOnlyStopAfter = newOnlyStopAfter;
+	}
+}
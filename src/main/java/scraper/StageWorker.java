@@ -0,0 +1,37 @@
+package scraper;
+
+/**
+ * The StageWorker interface is the per-thread logic of one pipeline stage. Each
+ * thread of a stage gets its own worker, so a worker may hold resources that
+ * cannot be shared, such as a browser session or a database connection.
+ *
+ * @param <I> the type of item the stage consumes
+ * @param <O> the type of item the stage passes on
+ */
+public interface StageWorker<I, O> {
+
+	/**
+	 * Processes one item and passes zero or more items to the next stage.
+	 */
+	void process(I item, Emitter<O> emitter) throws Exception;
+
+	/**
+	 * Called when process throws, so the worker can settle the item instead of
+	 * leaving whoever waits for it waiting forever.
+	 */
+	default void failed(I item, Exception error) {
+	}
+
+	/**
+	 * Releases the worker's resources once its thread stops.
+	 */
+	default void close() {
+	}
+
+	/**
+	 * Hands items to the next stage, blocking while its queue is full.
+	 */
+	interface Emitter<O> {
+		void emit(O item) throws InterruptedException;
+	}
+}
@@ -2,15 +2,20 @@ package scraper;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.openqa.selenium.*;
 
 import filters.DietFilter;
 import filters.LCHFDietFilter;
 import filters.LFDietFilter;
 import filters.LFVAFDietFilter;
 import filters.LFVDietFilter;
+import metrics.MetricsRegistry;
+import metrics.PrometheusEndpoint;
+import search.RecipeIndex;
+import search.SearchEndpoint;
 import utils.DatabaseHelper;
+import utils.RecipeStorage;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.*;
 
@@ -22,66 +27,140 @@ import java.util.*;
  * tables, tracks progress, and retries failed URL scraping.
  */
 public class TarlaDalalScraper {
-	private ProgressTracker progressTracker;
-	private WebDriver driver;
 	private DatabaseHelper dbHelper;
+	private final ScraperConfig config;
 	private final List<DietFilter> filters;
-	private final List<String> failedUrls = Collections.synchronizedList(new ArrayList<>());
-	private static final Logger logger = LogManager.getLogger(DietRecipeScraper.class);
+	private static final Logger logger = LogManager.getLogger(TarlaDalalScraper.class);
 
 	public TarlaDalalScraper(List<DietFilter> filters) throws SQLException {
-		this.driver = WebDriverSetup.createDriver();
+		this(ScraperConfig.load(), filters);
+	}
+
+	public TarlaDalalScraper(ScraperConfig config, List<DietFilter> filters) throws SQLException {
 		this.dbHelper = new DatabaseHelper();
-		this.progressTracker = new ProgressTracker();
+		this.config = config;
 		this.filters = filters;
 	}
 
+	/**
+	 * Crawls the site, or, with the archive in replay mode, processes every
+	 * archived recipe page again instead.
+	 */
 	public void scrapeAllPages() {
-		try {
+		crawl(false);
+	}
 
-			dbHelper.createDietTablesIfNotExist(filters);
+	/**
+	 * Scrapes again only the URLs whose latest failure in the failure log (or in
+	 * a failed_urls.txt from older versions) was not permanent, with a fresh set
+	 * of attempts.
+	 */
+	public void retryFailedUrls() {
+		crawl(true);
+	}
 
-			driver.get("https://www.tarladalal.com/recipes");
+	/**
+	 * Matches the stored recipes against the current diet configs and moves
+	 * them between diets where the result changed, without scraping. Returns
+	 * false if any change could not be made.
+	 */
+	public boolean reclassifyStoredRecipes(boolean dryRun) {
+		try {
+			RecipeStorage storage = newStorage();
+			dbHelper.createSchema(storage, filters);
+			return new DietReclassifier(config, storage, filters, dryRun).run();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.error("Reclassification interrupted", e);
+			return false;
+		} catch (Exception e) {
+			logger.error("❌ Reclassification failed", e);
+			return false;
+		} finally {
+			dbHelper.close();
+		}
+	}
 
-			WebElement lastPageElement = driver.findElement(
-					By.xpath("//li[@class='page-item']//a[text()='Next']/parent::li/preceding-sibling::li[1]/a"));
-			int totalPages = Integer.parseInt(lastPageElement.getText().trim());
-			int startPage = progressTracker.readProgress();
+	/**
+	 * Dumps every diet table to a gzip file in the export directory, or with
+	 * incremental set, only the rows added since the last export.
+	 */
+	public void exportRecipes(boolean incremental) {
+		try {
+			// Adds the written_xact column the incremental export reads to older tables
+			dbHelper.createSchema(newStorage(), filters);
+			new RecipeExporter(config, filters, incremental).run();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.error("Export interrupted", e);
+		} catch (Exception e) {
+			logger.error("❌ Export failed", e);
+		} finally {
+			dbHelper.close();
+		}
+	}
+
+	/**
+	 * Indexes the stored recipes and answers search queries on the configured
+	 * port until the process is stopped.
+	 */
+	public void serveSearch() {
+		try {
+			dbHelper.createSchema(newStorage(), filters);
+			SearchEndpoint searchEndpoint = startSearchEndpoint();
+			if (searchEndpoint == null) {
+				logger.error("❌ Search endpoint not started; check searchPort");
+				return;
+			}
+			Thread.currentThread().join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			logger.error("❌ Search endpoint failed", e);
+		} finally {
+			dbHelper.close();
+		}
+	}
 
-			DietRecipeScraper scraper = new DietRecipeScraper(driver, dbHelper, filters);
+	private void crawl(boolean retryOnly) {
+		MetricsRegistry.get().registerMBean();
+		// Serves the metrics for the whole crawl; nothing else needs a reference to it
+		PrometheusEndpoint metricsEndpoint = startMetricsEndpoint();
+		try (PageFetcherFactory fetcherFactory = new PageFetcherFactory(config);
+				Frontier frontier = openFrontier();
+				FailureLog failureLog = new FailureLog(config.getFailureLogFile())) {
 
-			// Scrape page by page
-			for (int page = startPage + 1; page <= totalPages; page++) {
-				logger.info("Processing Page " + page);
-				driver.get("https://www.tarladalal.com/recipes/?page=" + page);
+			dbHelper.createSchema(newStorage(), filters);
 
-				List<WebElement> recipeLinks = driver
-						.findElements(By.xpath("//div[contains(@class, 'recipe-list')]//h5//a"));
-				List<String> recipeUrls = new ArrayList<>();
-				for (WebElement el : recipeLinks) {
-					recipeUrls.add(el.getAttribute("href"));
+			// Discovery, extraction, filtering and storage run side by side
+			CrawlPipeline pipeline = new CrawlPipeline(config, fetcherFactory, this::newStorage, filters, frontier,
+					failureLog);
+			if (config.isDuplicateDetection()) {
+				pipeline.setDuplicateIndex(DuplicateIndex.load(config.getDuplicateThreshold()));
+			}
+			try (SearchEndpoint searchEndpoint = startSearchEndpoint()) {
+				if (searchEndpoint != null) {
+					pipeline.setSearchIndex(searchEndpoint.getIndex());
 				}
-
-				// Scrape each recipe in a page one by one
-				for (String url : recipeUrls) {
-					try {
-						scraper.scrapeRecipe(url);
-					} catch (Exception e) {
-						logger.error("❌ Failed to scrape: " + url, e);
-					}
+				if (fetcherFactory.isReplaying()) {
+					pipeline.replay(fetcherFactory.getArchive().urls());
+				} else if (retryOnly) {
+					int queued = requeueFailedUrls(frontier);
+					logger.info("🔄 Retrying " + queued + " failed URLs");
+					pipeline.runPending();
+				} else {
+					pipeline.run();
 				}
-
-				// Once a page is done, save progress.
-				progressTracker.saveProgress(page);
 			}
 
-			retryFailedUrls();
-
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.error("Scraping interrupted", e);
 		} catch (Exception e) {
-			e.printStackTrace();
+			logger.error("❌ Scraping failed", e);
 		} finally {
-			if (driver != null) {
-				driver.quit();
+			if (metricsEndpoint != null) {
+				metricsEndpoint.close();
 			}
 			if (dbHelper != null) {
 				dbHelper.close();
@@ -89,23 +168,118 @@ public class TarlaDalalScraper {
 		}
 	}
 
-	private void retryFailedUrls() {
-		DietRecipeScraper scraper = new DietRecipeScraper(driver, dbHelper, filters);
-		for (String url : failedUrls) {
-			try {
-				logger.info("🔄 Retrying: " + url);
-				scraper.scrapeRecipe(url);
-			} catch (Exception e) {
-				logger.error("❌ Retry failed for: " + url);
-				e.printStackTrace();
+	/**
+	 * Opens the shared crawl queue in distributed mode, or the local frontier
+	 * file otherwise.
+	 */
+	private Frontier openFrontier() throws IOException, SQLException {
+		if (config.isDistributed()) {
+			return CrawlQueue.open(config.getLeaseSeconds(), config.getMaxAttempts());
+		}
+		return CrawlFrontier.open(config.getFrontierFile());
+	}
+
+	/**
+	 * Serves the metrics on the configured port, or returns null if the port is
+	 * 0. A port that is already taken only costs the endpoint, not the crawl.
+	 */
+	private PrometheusEndpoint startMetricsEndpoint() {
+		if (config.getMetricsPort() <= 0) {
+			return null;
+		}
+		try {
+			return new PrometheusEndpoint(MetricsRegistry.get(), config.getMetricsPort());
+		} catch (IOException e) {
+			logger.warn("⚠ Metrics endpoint not started on port " + config.getMetricsPort() + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Indexes the stored recipes and serves them on the search port, or returns
+	 * null if the port is 0. Like the metrics endpoint, a failure only costs the
+	 * search, not the crawl.
+	 */
+	private SearchEndpoint startSearchEndpoint() {
+		if (config.getSearchPort() <= 0) {
+			return null;
+		}
+		try {
+			RecipeIndex index = RecipeIndex.load(newStorage(), filters, config.getReclassifyFetchSize());
+			return new SearchEndpoint(index, config.getSearchPort());
+		} catch (IOException | SQLException e) {
+			logger.warn("⚠ Search endpoint not started on port " + config.getSearchPort() + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private int requeueFailedUrls(Frontier frontier) throws IOException {
+		Set<String> urls = FailureLog.readRetryableUrls(config.getFailureLogFile());
+		urls.addAll(FailureLog.readLegacyUrls(FailureLog.LEGACY_FILE));
+
+		int queued = 0;
+		for (String url : urls) {
+			CrawlFrontier.State state = frontier.getState(url);
+			// A URL that has been stored or rejected since then no longer needs a retry
+			if (state != CrawlFrontier.State.STORED && state != CrawlFrontier.State.REJECTED) {
+				frontier.setState(url, CrawlFrontier.State.DISCOVERED);
+				queued++;
 			}
 		}
+		return queued;
+	}
+
+	private RecipeStorage newStorage() {
+		return RecipeStorage.forMode(config.getStorageMode(), config.isMigrateLegacyTables());
 	}
 
 	public static void main(String[] args) throws SQLException {
 		List<DietFilter> filters = Arrays.asList(new LFVDietFilter(), new LCHFDietFilter(), new LFDietFilter(),
 				new LFVAFDietFilter());
-		TarlaDalalScraper scraper = new TarlaDalalScraper(filters);
-		scraper.scrapeAllPages();
+		ScraperConfig config = ScraperConfig.load();
+		// "--refresh" revisits every known recipe and updates the ones that changed
+		if (Arrays.asList(args).contains("--refresh")) {
+			config.setRefreshMode(true);
+		}
+		// "--record" archives every page loaded, "--replay" re-processes the archive offline
+		if (Arrays.asList(args).contains("--record")) {
+			config.setArchiveMode(PageFetcherFactory.ARCHIVE_RECORD);
+		}
+		// "--distributed" shares the crawl with every other process started the same way
+		if (Arrays.asList(args).contains("--distributed")) {
+			config.setDistributed(true);
+		}
+		// "--new-only" picks up the recipes published since the last crawl and stops there
+		if (Arrays.asList(args).contains("--new-only")) {
+			config.setNewOnly(true);
+		}
+		if (Arrays.asList(args).contains("--replay")) {
+			config.setArchiveMode(PageFetcherFactory.ARCHIVE_REPLAY);
+			// Replay is bound by the CPU, so extract and filter on every core
+			int cores = Runtime.getRuntime().availableProcessors();
+			config.setWorkerCount(Math.max(config.getWorkerCount(), cores));
+			config.setFilterThreads(Math.max(config.getFilterThreads(), cores));
+		}
+		if (Arrays.asList(args).contains("--csv")) {
+			config.setExportFormat(RecipeExporter.FORMAT_CSV);
+		}
+		TarlaDalalScraper scraper = new TarlaDalalScraper(config, filters);
+		// "--reclassify" re-applies changed diet configs to stored recipes, "--dry-run" only reports
+		if (Arrays.asList(args).contains("--reclassify")) {
+			if (!scraper.reclassifyStoredRecipes(Arrays.asList(args).contains("--dry-run"))) {
+				System.exit(1);
+			}
+		} else if (Arrays.asList(args).contains("--serve")) {
+			// "--serve" only answers search queries over the stored recipes
+			scraper.serveSearch();
+		} else if (Arrays.asList(args).contains("--export")) {
+			// "--export" dumps every diet table, "--incremental" only the rows added since the last export
+			scraper.exportRecipes(Arrays.asList(args).contains("--incremental"));
+		} else if (Arrays.asList(args).contains("--retry-failed")) {
+			// "--retry-failed" only retries the URLs that failed in earlier runs
+			scraper.retryFailedUrls();
+		} else {
+			scraper.scrapeAllPages();
+		}
 	}
 }
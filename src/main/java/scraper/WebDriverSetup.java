@@ -4,6 +4,8 @@ import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.PageLoadStrategy;
 import org.openqa.selenium.WebDriver;
+
+import java.nio.file.Path;
 import java.time.Duration;
 
 /**
@@ -13,13 +15,26 @@ import java.time.Duration;
  */
 public class WebDriverSetup {
 	public static WebDriver createDriver() {
+		return createDriver(null, PageLoadStrategy.NORMAL);
+	}
+
+	/**
+	 * Creates a driver whose browser keeps its profile in the given directory,
+	 * or in a profile of its own choosing if the directory is null. With the
+	 * eager strategy a page load returns once the document is parsed, without
+	 * waiting for images, stylesheets and frames.
+	 */
+	public static WebDriver createDriver(Path profileDir, PageLoadStrategy pageLoadStrategy) {
 		ChromeOptions options = new ChromeOptions();
+		if (profileDir != null) {
+			options.addArguments("--user-data-dir=" + profileDir);
+		}
 
 		options.addArguments("--headless", "--disable-gpu", "--no-sandbox", "--disable-dev-shm-usage",
 				"--blink-settings=imagesEnabled=false", "--disable-javascript", "--disable-popup-blocking",
 				"--disable-notifications", "--disable-extensions", "--disable-infobars", "--remote-allow-origins=*");
 
-		options.setPageLoadStrategy(PageLoadStrategy.NORMAL);
+		options.setPageLoadStrategy(pageLoadStrategy);
 
 		WebDriver driver = new ChromeDriver(options);
 		driver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(15));
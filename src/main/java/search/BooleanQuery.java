@@ -0,0 +1,196 @@
+package search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The BooleanQuery class parses search queries such as "LFV AND paneer NOT
+ * onion" into a tree of terms, AND and OR nodes. Words are joined by AND
+ * unless separated by OR, so "LFV paneer" and "LFV AND paneer" are the same
+ * query; AND binds tighter than OR, NOT excludes the word or group that
+ * follows it, and parentheses group. The operators must be written in upper
+ * case. A word can be limited to one field with a prefix, as in "tag:diwali".
+ */
+final class BooleanQuery {
+
+	/**
+	 * A node of the parsed query.
+	 */
+	interface Node {
+	}
+
+	/**
+	 * A word, searched in one field or in all of them if field is null.
+	 */
+	static final class Term implements Node {
+		final String field;
+		final String word;
+
+		Term(String field, String word) {
+			this.field = field;
+			this.word = word;
+		}
+	}
+
+	/**
+	 * Matches what all included nodes match and none of the excluded ones. With
+	 * no included nodes, it starts from every recipe.
+	 */
+	static final class And implements Node {
+		final List<Node> included;
+		final List<Node> excluded;
+
+		And(List<Node> included, List<Node> excluded) {
+			this.included = included;
+			this.excluded = excluded;
+		}
+	}
+
+	static final class Or implements Node {
+		final List<Node> alternatives;
+
+		Or(List<Node> alternatives) {
+			this.alternatives = alternatives;
+		}
+	}
+
+	private final List<String> tokens;
+	private int position;
+
+	private BooleanQuery(List<String> tokens) {
+		this.tokens = tokens;
+	}
+
+	/**
+	 * Parses a query, throwing an IllegalArgumentException that says what is
+	 * wrong with it if it cannot be parsed.
+	 */
+	static Node parse(String query) {
+		BooleanQuery parser = new BooleanQuery(tokenize(query == null ? "" : query));
+		if (parser.tokens.isEmpty()) {
+			throw new IllegalArgumentException("Empty query");
+		}
+		Node root = parser.parseOr();
+		if (parser.position < parser.tokens.size()) {
+			throw new IllegalArgumentException("Unexpected '" + parser.tokens.get(parser.position) + "'");
+		}
+		return root;
+	}
+
+	private Node parseOr() {
+		List<Node> alternatives = new ArrayList<>();
+		alternatives.add(parseAnd());
+		while ("OR".equals(peek())) {
+			position++;
+			alternatives.add(parseAnd());
+		}
+		return alternatives.size() == 1 ? alternatives.get(0) : new Or(alternatives);
+	}
+
+	private Node parseAnd() {
+		List<Node> included = new ArrayList<>();
+		List<Node> excluded = new ArrayList<>();
+		while (true) {
+			String token = peek();
+			if (token == null || "OR".equals(token) || ")".equals(token)) {
+				break;
+			}
+			if ("AND".equals(token)) {
+				position++;
+				if (peek() == null) {
+					throw new IllegalArgumentException("Query ends with an operator");
+				}
+				continue;
+			}
+			if ("NOT".equals(token)) {
+				position++;
+				excluded.add(parsePrimary());
+			} else {
+				included.add(parsePrimary());
+			}
+		}
+		if (included.isEmpty() && excluded.isEmpty()) {
+			throw new IllegalArgumentException(peek() == null ? "Query ends with an operator"
+					: "Nothing to match before '" + peek() + "'");
+		}
+		if (included.size() == 1 && excluded.isEmpty()) {
+			return included.get(0);
+		}
+		return new And(included, excluded);
+	}
+
+	private Node parsePrimary() {
+		String token = peek();
+		if (token == null) {
+			throw new IllegalArgumentException("Query ends with an operator");
+		}
+		position++;
+		if ("(".equals(token)) {
+			Node group = parseOr();
+			if (!")".equals(peek())) {
+				throw new IllegalArgumentException("Missing ')'");
+			}
+			position++;
+			return group;
+		}
+		if (")".equals(token) || "AND".equals(token) || "OR".equals(token) || "NOT".equals(token)) {
+			throw new IllegalArgumentException("Unexpected '" + token + "'");
+		}
+		return term(token);
+	}
+
+	/**
+	 * Turns a word, with or without a field prefix, into a term. A word the
+	 * index splits into several words, such as "low-fat", has to match all of
+	 * them.
+	 */
+	private static Node term(String token) {
+		String field = null;
+		String text = token;
+		int colon = token.indexOf(':');
+		if (colon > 0) {
+			field = RecipeIndex.field(token.substring(0, colon));
+			text = token.substring(colon + 1);
+		}
+		List<String> words = RecipeIndex.words(text);
+		if (words.isEmpty()) {
+			throw new IllegalArgumentException("Nothing to search for in '" + token + "'");
+		}
+		if (words.size() == 1) {
+			return new Term(field, words.get(0));
+		}
+		List<Node> terms = new ArrayList<>();
+		for (String word : words) {
+			terms.add(new Term(field, word));
+		}
+		return new And(terms, Collections.<Node>emptyList());
+	}
+
+	private String peek() {
+		return position < tokens.size() ? tokens.get(position) : null;
+	}
+
+	private static List<String> tokenize(String query) {
+		List<String> tokens = new ArrayList<>();
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i < query.length(); i++) {
+			char c = query.charAt(i);
+			if (Character.isWhitespace(c) || c == '(' || c == ')') {
+				if (word.length() > 0) {
+					tokens.add(word.toString());
+					word.setLength(0);
+				}
+				if (c == '(' || c == ')') {
+					tokens.add(String.valueOf(c));
+				}
+			} else {
+				word.append(c);
+			}
+		}
+		if (word.length() > 0) {
+			tokens.add(word.toString());
+		}
+		return tokens;
+	}
+}
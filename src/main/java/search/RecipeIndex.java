@@ -0,0 +1,480 @@
+package search;
+
+import filters.DietFilter;
+import model.Recipe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import utils.DatabaseHelper;
+import utils.RecipeStorage;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The RecipeIndex class is an in-memory inverted index over the stored
+ * recipes. Every word of the ingredients, tags and categories of a recipe, and
+ * the names of the diets it is stored for, point to a posting list: a sorted
+ * int array of the ids of the recipes containing it. Boolean queries are
+ * answered by merging those arrays, without touching the database.
+ *
+ * Words are lower-cased and a trailing plural "s" or "es" after an "o" is
+ * dropped, so "Onions" finds "onion" and "tomato" finds "tomatoes". A recipe
+ * that is written again gets a new id and its old one is marked deleted; the
+ * postings of deleted ids are filtered out of results. Writers and searches
+ * may run on different threads.
+ */
+public class RecipeIndex {
+	public static final String FIELD_INGREDIENT = "ingredient";
+	public static final String FIELD_TAG = "tag";
+	public static final String FIELD_CATEGORY = "category";
+	public static final String FIELD_DIET = "diet";
+	private static final String[] FIELDS = { FIELD_INGREDIENT, FIELD_TAG, FIELD_CATEGORY, FIELD_DIET };
+	private static final Logger logger = LogManager.getLogger(RecipeIndex.class);
+
+	private final Map<String, Map<String, Postings>> fields = new HashMap<>();
+	private final List<IndexedRecipe> recipes = new ArrayList<>();
+	private final Map<String, Integer> idsByUrl = new HashMap<>();
+	private final BitSet deleted = new BitSet();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	public RecipeIndex() {
+		for (String field : FIELDS) {
+			fields.put(field, new HashMap<>());
+		}
+	}
+
+	/**
+	 * Builds the index from every recipe in the database, streamed through a
+	 * server-side cursor.
+	 */
+	public static RecipeIndex load(RecipeStorage storage, List<DietFilter> filters, int fetchSize)
+			throws SQLException {
+		long start = System.nanoTime();
+		RecipeIndex index = new RecipeIndex();
+		try (Connection connection = DatabaseHelper.openConnection()) {
+			connection.setAutoCommit(false);
+			try (PreparedStatement stmt = connection.prepareStatement(storage.storedRecipesSql(filters),
+					ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+				stmt.setFetchSize(fetchSize);
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						Array diets = rs.getArray("diets");
+						List<String> dietNames = new ArrayList<>();
+						if (diets != null) {
+							for (Object diet : (Object[]) diets.getArray()) {
+								dietNames.add(String.valueOf(diet));
+							}
+						}
+						index.add(DatabaseHelper.readRecipe(rs), dietNames);
+					}
+				}
+			}
+			connection.rollback();
+		}
+		logger.info("🔎 Indexed " + index.size() + " stored recipes in "
+				+ (System.nanoTime() - start) / 1_000_000 + " ms");
+		return index;
+	}
+
+	/**
+	 * Indexes a recipe that storage has just replaced, with all of the diets it
+	 * is now stored for, in place of what was indexed for its URL. A recipe
+	 * stored for no diet was deleted and is taken out of the index.
+	 */
+	public void update(Recipe recipe, List<DietFilter> filters) {
+		if (filters.isEmpty()) {
+			remove(recipe.getUrl());
+			return;
+		}
+		List<String> dietNames = new ArrayList<>(filters.size());
+		for (DietFilter filter : filters) {
+			dietNames.add(filter.getDietName());
+		}
+		add(recipe, dietNames);
+	}
+
+	/**
+	 * Indexes a recipe that storage has just added to the given diets, keeping
+	 * the diets it was indexed for before. Storage that does not replace
+	 * recipes leaves them in the diets they are in, so a recipe added to no
+	 * diet is left as it is.
+	 */
+	public void merge(Recipe recipe, List<DietFilter> addedDiets) {
+		if (addedDiets.isEmpty()) {
+			return;
+		}
+		Set<String> dietNames = new LinkedHashSet<>(dietsOf(recipe.getUrl()));
+		for (DietFilter filter : addedDiets) {
+			dietNames.add(filter.getDietName());
+		}
+		add(recipe, new ArrayList<>(dietNames));
+	}
+
+	/**
+	 * Returns the diets a recipe is indexed for, or an empty list if it is not
+	 * in the index.
+	 */
+	public List<String> dietsOf(String url) {
+		lock.readLock().lock();
+		try {
+			Integer id = idsByUrl.get(url);
+			return id != null ? recipes.get(id).getDiets() : Collections.emptyList();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public void add(Recipe recipe, List<String> dietNames) {
+		// The words are collected before taking the lock, which searches share
+		Map<String, Set<String>> words = new HashMap<>();
+		words.put(FIELD_INGREDIENT, new LinkedHashSet<>(words(recipe.getIngredientsText())));
+		Set<String> tagWords = new LinkedHashSet<>();
+		if (recipe.getTags() != null) {
+			for (String tag : recipe.getTags()) {
+				tagWords.addAll(words(tag));
+			}
+		}
+		words.put(FIELD_TAG, tagWords);
+		Set<String> categoryWords = new LinkedHashSet<>(words(recipe.getRecipeCategory()));
+		categoryWords.addAll(words(recipe.getFoodCategory()));
+		categoryWords.addAll(words(recipe.getCuisineCategory()));
+		words.put(FIELD_CATEGORY, categoryWords);
+		Set<String> dietWords = new LinkedHashSet<>();
+		for (String diet : dietNames) {
+			dietWords.addAll(words(diet));
+		}
+		words.put(FIELD_DIET, dietWords);
+
+		lock.writeLock().lock();
+		try {
+			removeLocked(recipe.getUrl());
+			int id = recipes.size();
+			recipes.add(new IndexedRecipe(recipe.getName(), recipe.getUrl(), dietNames));
+			idsByUrl.put(recipe.getUrl(), id);
+			for (Map.Entry<String, Set<String>> field : words.entrySet()) {
+				Map<String, Postings> postings = fields.get(field.getKey());
+				for (String word : field.getValue()) {
+					Postings list = postings.get(word);
+					if (list == null) {
+						list = new Postings();
+						postings.put(word, list);
+					}
+					list.add(id);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(String url) {
+		lock.writeLock().lock();
+		try {
+			removeLocked(url);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void removeLocked(String url) {
+		Integer id = idsByUrl.remove(url);
+		if (id != null) {
+			deleted.set(id);
+		}
+	}
+
+	/**
+	 * Returns the number of recipes in the index.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return idsByUrl.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Runs a query (see BooleanQuery for the syntax) and returns the number of
+	 * matching recipes and the first of them, at most limit, in the order they
+	 * were indexed. Throws an IllegalArgumentException for a malformed query.
+	 */
+	public SearchResult search(String query, int limit) {
+		BooleanQuery.Node root = BooleanQuery.parse(query);
+		lock.readLock().lock();
+		try {
+			Postings matches = evaluate(root);
+			List<IndexedRecipe> hits = new ArrayList<>(Math.min(Math.max(limit, 0), matches.size));
+			int total = 0;
+			for (int i = 0; i < matches.size; i++) {
+				int id = matches.ids[i];
+				if (!deleted.get(id)) {
+					if (total < limit) {
+						hits.add(recipes.get(id));
+					}
+					total++;
+				}
+			}
+			return new SearchResult(total, hits);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Postings evaluate(BooleanQuery.Node node) {
+		if (node instanceof BooleanQuery.Term) {
+			return lookup((BooleanQuery.Term) node);
+		}
+		if (node instanceof BooleanQuery.Or) {
+			Postings union = Postings.EMPTY;
+			for (BooleanQuery.Node alternative : ((BooleanQuery.Or) node).alternatives) {
+				union = union.or(evaluate(alternative));
+			}
+			return union;
+		}
+		BooleanQuery.And and = (BooleanQuery.And) node;
+		List<Postings> included = new ArrayList<>(and.included.size());
+		for (BooleanQuery.Node child : and.included) {
+			included.add(evaluate(child));
+		}
+		// Intersecting the shortest lists first keeps every step small
+		included.sort((a, b) -> Integer.compare(a.size, b.size));
+		Postings result = included.isEmpty() ? allIds() : included.get(0);
+		for (int i = 1; i < included.size() && result.size > 0; i++) {
+			result = result.and(included.get(i));
+		}
+		for (BooleanQuery.Node child : and.excluded) {
+			if (result.size == 0) {
+				break;
+			}
+			result = result.andNot(evaluate(child));
+		}
+		return result;
+	}
+
+	private Postings lookup(BooleanQuery.Term term) {
+		if (term.field != null) {
+			Postings postings = fields.get(term.field).get(term.word);
+			return postings != null ? postings : Postings.EMPTY;
+		}
+		Postings union = Postings.EMPTY;
+		for (String field : FIELDS) {
+			Postings postings = fields.get(field).get(term.word);
+			if (postings != null) {
+				union = union.or(postings);
+			}
+		}
+		return union;
+	}
+
+	private Postings allIds() {
+		Postings all = new Postings();
+		for (int id = deleted.nextClearBit(0); id < recipes.size(); id = deleted.nextClearBit(id + 1)) {
+			all.add(id);
+		}
+		return all;
+	}
+
+	/**
+	 * Returns the field a query prefix such as "tag" or "tags" stands for.
+	 */
+	static String field(String prefix) {
+		String name = prefix.toLowerCase(Locale.ROOT);
+		for (String field : FIELDS) {
+			if (name.equals(field) || name.equals(field + "s")
+					|| (field.equals(FIELD_CATEGORY) && name.equals("categories"))) {
+				return field;
+			}
+		}
+		throw new IllegalArgumentException("Unknown field '" + prefix + "', expected one of "
+				+ Arrays.toString(FIELDS));
+	}
+
+	/**
+	 * Splits text into the words the index is keyed by.
+	 */
+	static List<String> words(String text) {
+		if (text == null || text.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<String> words = new ArrayList<>();
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (letter && start < 0) {
+				start = i;
+			} else if (!letter && start >= 0) {
+				words.add(normalize(text.substring(start, i)));
+				start = -1;
+			}
+		}
+		return words;
+	}
+
+	private static String normalize(String word) {
+		String lower = word.toLowerCase(Locale.ROOT);
+		if (lower.length() > 4 && lower.endsWith("oes")) {
+			return lower.substring(0, lower.length() - 2);
+		}
+		if (lower.length() > 3 && lower.endsWith("s") && !lower.endsWith("ss")) {
+			return lower.substring(0, lower.length() - 1);
+		}
+		return lower;
+	}
+
+	/**
+	 * A sorted list of recipe ids, kept in a plain int array. Ids are handed
+	 * out in increasing order, so adding to the end keeps the list sorted.
+	 */
+	private static final class Postings {
+		static final Postings EMPTY = new Postings(new int[0], 0);
+
+		int[] ids;
+		int size;
+
+		Postings() {
+			this(new int[4], 0);
+		}
+
+		Postings(int[] ids, int size) {
+			this.ids = ids;
+			this.size = size;
+		}
+
+		void add(int id) {
+			if (size > 0 && ids[size - 1] == id) {
+				return;
+			}
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+			}
+			ids[size++] = id;
+		}
+
+		Postings and(Postings other) {
+			int[] result = new int[Math.min(size, other.size)];
+			int n = 0;
+			for (int i = 0, j = 0; i < size && j < other.size;) {
+				if (ids[i] < other.ids[j]) {
+					i++;
+				} else if (ids[i] > other.ids[j]) {
+					j++;
+				} else {
+					result[n++] = ids[i];
+					i++;
+					j++;
+				}
+			}
+			return new Postings(result, n);
+		}
+
+		Postings or(Postings other) {
+			if (size == 0) {
+				return other;
+			}
+			if (other.size == 0) {
+				return this;
+			}
+			int[] result = new int[size + other.size];
+			int n = 0;
+			int i = 0;
+			int j = 0;
+			while (i < size && j < other.size) {
+				if (ids[i] < other.ids[j]) {
+					result[n++] = ids[i++];
+				} else if (ids[i] > other.ids[j]) {
+					result[n++] = other.ids[j++];
+				} else {
+					result[n++] = ids[i++];
+					j++;
+				}
+			}
+			while (i < size) {
+				result[n++] = ids[i++];
+			}
+			while (j < other.size) {
+				result[n++] = other.ids[j++];
+			}
+			return new Postings(result, n);
+		}
+
+		Postings andNot(Postings other) {
+			if (other.size == 0) {
+				return this;
+			}
+			int[] result = new int[size];
+			int n = 0;
+			int j = 0;
+			for (int i = 0; i < size; i++) {
+				while (j < other.size && other.ids[j] < ids[i]) {
+					j++;
+				}
+				if (j == other.size || other.ids[j] != ids[i]) {
+					result[n++] = ids[i];
+				}
+			}
+			return new Postings(result, n);
+		}
+	}
+
+	/**
+	 * What the index keeps of a recipe to show in search results.
+	 */
+	public static final class IndexedRecipe {
+		private final String name;
+		private final String url;
+		private final List<String> diets;
+
+		IndexedRecipe(String name, String url, List<String> diets) {
+			this.name = name;
+			this.url = url;
+			this.diets = diets;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+
+		public List<String> getDiets() {
+			return diets;
+		}
+	}
+
+	public static final class SearchResult {
+		private final int total;
+		private final List<IndexedRecipe> recipes;
+
+		SearchResult(int total, List<IndexedRecipe> recipes) {
+			this.total = total;
+			this.recipes = recipes;
+		}
+
+		public int getTotal() {
+			return total;
+		}
+
+		public List<IndexedRecipe> getRecipes() {
+			return recipes;
+		}
+	}
+}
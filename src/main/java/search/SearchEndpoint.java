@@ -0,0 +1,116 @@
+package search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * The SearchEndpoint class answers queries against a RecipeIndex at
+ * http://localhost:&lt;port&gt;/search?q=&lt;query&gt;&amp;limit=&lt;n&gt;, as
+ * JSON holding the number of matching recipes, the first of them (20 unless
+ * limit says otherwise) and the time the search took. A malformed query gets
+ * a 400 response with the reason. Like the metrics endpoint, it only listens
+ * on the loopback interface.
+ */
+public class SearchEndpoint implements AutoCloseable {
+	private static final Logger logger = LogManager.getLogger(SearchEndpoint.class);
+	private static final int DEFAULT_LIMIT = 20;
+	private static final int MAX_LIMIT = 1000;
+
+	private final HttpServer server;
+	private final RecipeIndex index;
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	public SearchEndpoint(RecipeIndex index, int port) throws IOException {
+		this.index = index;
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/search", this::handle);
+		server.setExecutor(Executors.newFixedThreadPool(2, r -> {
+			Thread thread = new Thread(r, "search-endpoint");
+			thread.setDaemon(true);
+			return thread;
+		}));
+		server.start();
+		logger.info("🔎 Recipe search available at http://localhost:" + server.getAddress().getPort()
+				+ "/search?q=...");
+	}
+
+	public RecipeIndex getIndex() {
+		return index;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		ObjectNode body = mapper.createObjectNode();
+		int status = 200;
+		try {
+			Map<String, String> params = parseQueryString(exchange.getRequestURI().getRawQuery());
+			String query = params.get("q");
+			int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_LIMIT;
+			long start = System.nanoTime();
+			RecipeIndex.SearchResult result = index.search(query, Math.max(0, Math.min(limit, MAX_LIMIT)));
+			long micros = (System.nanoTime() - start) / 1000;
+
+			body.put("query", query);
+			body.put("total", result.getTotal());
+			body.put("micros", micros);
+			ArrayNode recipes = body.putArray("recipes");
+			for (RecipeIndex.IndexedRecipe recipe : result.getRecipes()) {
+				ObjectNode entry = recipes.addObject();
+				entry.put("name", recipe.getName());
+				entry.put("url", recipe.getUrl());
+				ArrayNode diets = entry.putArray("diets");
+				for (String diet : recipe.getDiets()) {
+					diets.add(diet);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			// Covers a limit that is not a number and broken escapes in the query string too
+			status = 400;
+			body.removeAll();
+			body.put("error", e.getMessage());
+		}
+		respond(exchange, status, mapper.writeValueAsBytes(body));
+	}
+
+	private static Map<String, String> parseQueryString(String rawQuery) {
+		Map<String, String> params = new HashMap<>();
+		if (rawQuery == null) {
+			return params;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int equals = pair.indexOf('=');
+			String name = equals < 0 ? pair : pair.substring(0, equals);
+			String value = equals < 0 ? "" : pair.substring(equals + 1);
+			params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+					URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return params;
+	}
+
+	private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+}
@@ -1,92 +1,275 @@
 package utils;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import filters.DietFilter;
 import model.Recipe;
+import model.RecipeQuantities;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
  * The DatabaseHelper class provides utility methods for interacting with the
  * database. It handles establishing a database connection, executing SQL
  * queries, and managing tables. It also includes methods for checking and
- * creating necessary tables for diet recipes.
+ * creating necessary tables for diet recipes. The connection is shared by all
+ * scraper workers, so the public methods are synchronized.
+ *
+ * Next to the text scraped from the page, every recipe table has typed columns
+ * parsed from it (minutes, servings, the main nutrients in grams and kcal, and
+ * all nutrients as JSONB), indexed so that filters on them need no string
+ * parsing in SQL. Tables from older versions get these columns added and
+ * filled in when the schema is created.
+ *
+ * Every row also records the transaction that wrote it (written_xact, which
+ * needs PostgreSQL 13 or later), so an incremental export can tell which rows
+ * were committed since its last snapshot however their ids were assigned.
  */
 public class DatabaseHelper {
+	private static final Logger logger = LogManager.getLogger(DatabaseHelper.class);
 	private static final String DB_URL = "jdbc:postgresql://localhost:5432/tarla_recipes";
 	private static final String DB_USER = "postgres";
 	private static final String DB_PASSWORD = "password123";
+	static final String TEXT_COLUMNS = "recipe_name, recipe_category, food_category, ingredients, "
+			+ "preparation_time, cooking_time, tag, no_of_servings, cuisine_category, recipe_description, "
+			+ "preparation_method, nutrient_values, recipe_url";
+	static final String TYPED_COLUMNS = "preparation_minutes, cooking_minutes, total_minutes, servings, "
+			+ "energy_kcal, carbohydrates_g, protein_g, fat_g, nutrients";
+	static final String RECIPE_COLUMNS = TEXT_COLUMNS + ", " + TYPED_COLUMNS;
+	public static final String EXPORTED_COLUMNS = "recipe_id, " + RECIPE_COLUMNS;
+	static final String WRITTEN_XACT_DEFINITION = "written_xact xid8 DEFAULT pg_current_xact_id()";
+	private static final String PLACEHOLDERS = "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, "
+			+ "?, ?, ?, ?, ?, ?, ?, ?, ?::jsonb";
+	private static final String[] TYPED_COLUMN_DEFINITIONS = { "preparation_minutes INTEGER",
+			"cooking_minutes INTEGER", "total_minutes INTEGER", "servings INTEGER", "energy_kcal NUMERIC",
+			"carbohydrates_g NUMERIC", "protein_g NUMERIC", "fat_g NUMERIC", "nutrients JSONB" };
+	private static final int BACKFILL_BATCH_SIZE = 1000;
+	private static final ObjectMapper JSON = new ObjectMapper();
 	private Connection connection;
 
 	public DatabaseHelper() throws SQLException {
-		this.connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+		this.connection = openConnection();
+	}
+
+	/**
+	 * Opens a new connection to the recipe database. Callers own the connection
+	 * and must close it.
+	 */
+	public static Connection openConnection() throws SQLException {
+		return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
 	}
 
 	public Connection getConnection() {
 		return this.connection;
 	}
 
-	public void createDietTablesIfNotExist(List<DietFilter> filters) throws SQLException {
+	public synchronized void createDietTablesIfNotExist(List<DietFilter> filters) throws SQLException {
+		createDietTables(connection, filters);
+	}
+
+	/**
+	 * Creates the schema of the given storage layout on the shared connection.
+	 */
+	public synchronized void createSchema(RecipeStorage storage, List<DietFilter> filters) throws SQLException {
+		storage.createSchema(connection, filters);
+		RecipeFingerprintStore.createTable(connection);
+	}
+
+	static void createDietTables(Connection connection, List<DietFilter> filters) throws SQLException {
 		for (DietFilter filter : filters) {
 			String tableName = filter.getDietTableName();
 
-			String sql = "CREATE TABLE IF NOT EXISTS " + tableName + " (" + "recipe_id SERIAL PRIMARY KEY,"
-					+ "recipe_name TEXT," + "recipe_category TEXT," + "food_category TEXT," + "ingredients TEXT,"
-					+ "preparation_time TEXT," + "cooking_time TEXT," + "tag TEXT," + "no_of_servings TEXT,"
-					+ "cuisine_category TEXT," + "recipe_description TEXT," + "preparation_method TEXT,"
-					+ "nutrient_values TEXT," + "recipe_url TEXT UNIQUE" + ");";
-
 			try (Statement stmt = connection.createStatement()) {
-				stmt.executeUpdate(sql);
-				System.out.println("✅ Ensured table exists: " + tableName);
+				stmt.executeUpdate(recipeTableSql(tableName));
+				logger.info("✅ Ensured table exists: " + tableName);
+			}
+			ensureTypedColumns(connection, tableName);
+		}
+	}
+
+	static String recipeTableSql(String tableName) {
+		return "CREATE TABLE IF NOT EXISTS " + tableName + " (" + "recipe_id SERIAL PRIMARY KEY,"
+				+ "recipe_name TEXT," + "recipe_category TEXT," + "food_category TEXT," + "ingredients TEXT,"
+				+ "preparation_time TEXT," + "cooking_time TEXT," + "tag TEXT," + "no_of_servings TEXT,"
+				+ "cuisine_category TEXT," + "recipe_description TEXT," + "preparation_method TEXT,"
+				+ "nutrient_values TEXT," + "recipe_url TEXT UNIQUE," + String.join(",", TYPED_COLUMN_DEFINITIONS)
+				+ "," + WRITTEN_XACT_DEFINITION + ");";
+	}
+
+	/**
+	 * Adds the typed columns and their indexes to a recipe table created by an
+	 * older version, and fills them in for the rows it already holds.
+	 */
+	static void ensureTypedColumns(Connection connection, String tableName) throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			for (String definition : TYPED_COLUMN_DEFINITIONS) {
+				stmt.executeUpdate("ALTER TABLE " + tableName + " ADD COLUMN IF NOT EXISTS " + definition);
+			}
+			// Rows that predate the column are stamped with the transaction that adds it
+			stmt.executeUpdate(
+					"ALTER TABLE " + tableName + " ADD COLUMN IF NOT EXISTS " + WRITTEN_XACT_DEFINITION);
+			stmt.executeUpdate("CREATE INDEX IF NOT EXISTS " + tableName + "_written_xact_idx ON " + tableName
+					+ " (written_xact)");
+			stmt.executeUpdate("CREATE INDEX IF NOT EXISTS " + tableName + "_total_minutes_idx ON " + tableName
+					+ " (total_minutes)");
+			stmt.executeUpdate("CREATE INDEX IF NOT EXISTS " + tableName + "_carbs_minutes_idx ON " + tableName
+					+ " (carbohydrates_g, total_minutes)");
+			stmt.executeUpdate("CREATE INDEX IF NOT EXISTS " + tableName + "_energy_idx ON " + tableName
+					+ " (energy_kcal)");
+			stmt.executeUpdate("CREATE INDEX IF NOT EXISTS " + tableName + "_nutrients_idx ON " + tableName
+					+ " USING GIN (nutrients jsonb_path_ops)");
+		}
+		int filled = backfillTypedColumns(connection, tableName);
+		if (filled > 0) {
+			logger.info("✅ Filled in typed columns of " + filled + " rows in " + tableName);
+		}
+	}
+
+	/**
+	 * Parses the text columns of every row whose typed columns were never
+	 * written. Every row gets at least an empty nutrients object, so a row is
+	 * only visited once.
+	 */
+	private static int backfillTypedColumns(Connection connection, String tableName) throws SQLException {
+		String select = "SELECT recipe_id, preparation_time, cooking_time, no_of_servings, nutrient_values FROM "
+				+ tableName + " WHERE nutrients IS NULL LIMIT " + BACKFILL_BATCH_SIZE;
+		String update = "UPDATE " + tableName + " SET preparation_minutes = ?, cooking_minutes = ?, "
+				+ "total_minutes = ?, servings = ?, energy_kcal = ?, carbohydrates_g = ?, protein_g = ?, "
+				+ "fat_g = ?, nutrients = ?::jsonb WHERE recipe_id = ?";
+		int filled = 0;
+		try (Statement query = connection.createStatement();
+				PreparedStatement stmt = connection.prepareStatement(update)) {
+			while (true) {
+				int rows = 0;
+				try (ResultSet rs = query.executeQuery(select)) {
+					while (rs.next()) {
+						Recipe recipe = new Recipe();
+						recipe.setPrepTime(rs.getString("preparation_time"));
+						recipe.setCookTime(rs.getString("cooking_time"));
+						recipe.setServings(rs.getString("no_of_servings"));
+						recipe.setNutrients(rs.getString("nutrient_values"));
+						RecipeQuantities.fill(recipe);
+						bindTypedColumns(stmt, 1, recipe);
+						stmt.setInt(10, rs.getInt("recipe_id"));
+						stmt.addBatch();
+						rows++;
+					}
+				}
+				if (rows == 0) {
+					return filled;
+				}
+				stmt.executeBatch();
+				filled += rows;
 			}
 		}
 	}
 
-	public boolean insertRecipe(String tableName, Recipe recipe) throws SQLException {
-
-		if (recipeExists(tableName, recipe.getUrl()))
-			return false;
-
-		String query = String.format("INSERT INTO %s(recipe_name, recipe_category, food_category, ingredients, "
-				+ "preparation_time, cooking_time, tag, no_of_servings, cuisine_category, recipe_description, "
-				+ "preparation_method, nutrient_values, recipe_url) "
-				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", tableName);
-
-		try (PreparedStatement stmt = connection.prepareStatement(query)) {
-			stmt.setString(1, recipe.getName());
-			stmt.setString(2, recipe.getRecipeCategory());
-			stmt.setString(3, recipe.getFoodCategory());
-			stmt.setString(4, recipe.getIngredientsText());
-			stmt.setString(5, recipe.getPrepTime());
-			stmt.setString(6, recipe.getCookTime());
-			stmt.setString(7, String.join(", ", recipe.getTags()));
-			stmt.setString(8, recipe.getServings());
-			stmt.setString(9, recipe.getCuisineCategory());
-			stmt.setString(10, recipe.getDescription());
-			stmt.setString(11, recipe.getMethod());
-			stmt.setString(12, recipe.getNutrients());
-			stmt.setString(13, recipe.getUrl());
-			stmt.executeUpdate();
+	/**
+	 * Inserts a recipe unless the table already has its URL. Returns true if a
+	 * new row was written.
+	 */
+	public synchronized boolean insertRecipe(String tableName, Recipe recipe) throws SQLException {
+		try (PreparedStatement stmt = connection.prepareStatement(insertSql(tableName))) {
+			bindRecipe(stmt, recipe);
+			return stmt.executeUpdate() > 0;
 		}
-		return true;
 	}
 
-	public void close() {
+	static String insertSql(String tableName) {
+		return String.format("INSERT INTO %s(" + RECIPE_COLUMNS + ") VALUES (" + PLACEHOLDERS + ") "
+				+ "ON CONFLICT (recipe_url) DO NOTHING", tableName);
+	}
+
+	/**
+	 * Returns an insert that overwrites every column of a row that already has
+	 * the recipe's URL.
+	 */
+	static String upsertSql(String tableName) {
+		StringBuilder updates = new StringBuilder();
+		for (String column : RECIPE_COLUMNS.split(",")) {
+			column = column.trim();
+			if (!column.equals("recipe_url")) {
+				updates.append(updates.length() > 0 ? ", " : "").append(column).append(" = EXCLUDED.").append(column);
+			}
+		}
+		return String.format("INSERT INTO %s(" + RECIPE_COLUMNS + ") VALUES (" + PLACEHOLDERS + ") "
+				+ "ON CONFLICT (recipe_url) DO UPDATE SET %s", tableName, updates);
+	}
+
+	static void bindRecipe(PreparedStatement stmt, Recipe recipe) throws SQLException {
+		stmt.setString(1, recipe.getName());
+		stmt.setString(2, recipe.getRecipeCategory());
+		stmt.setString(3, recipe.getFoodCategory());
+		stmt.setString(4, recipe.getIngredientsText());
+		stmt.setString(5, recipe.getPrepTime());
+		stmt.setString(6, recipe.getCookTime());
+		stmt.setString(7, String.join(", ", recipe.getTags()));
+		stmt.setString(8, recipe.getServings());
+		stmt.setString(9, recipe.getCuisineCategory());
+		stmt.setString(10, recipe.getDescription());
+		stmt.setString(11, recipe.getMethod());
+		stmt.setString(12, recipe.getNutrients());
+		stmt.setString(13, recipe.getUrl());
+		bindTypedColumns(stmt, 14, recipe);
+	}
+
+	/**
+	 * Binds the typed columns, in TYPED_COLUMNS order, starting at the given
+	 * parameter index.
+	 */
+	private static void bindTypedColumns(PreparedStatement stmt, int first, Recipe recipe) throws SQLException {
+		Map<String, Double> nutrients = recipe.getNutrientValues();
+		stmt.setObject(first, recipe.getPrepMinutes(), Types.INTEGER);
+		stmt.setObject(first + 1, recipe.getCookMinutes(), Types.INTEGER);
+		stmt.setObject(first + 2, recipe.getTotalMinutes(), Types.INTEGER);
+		stmt.setObject(first + 3, recipe.getServingCount(), Types.INTEGER);
+		stmt.setObject(first + 4, nutrients == null ? null : nutrients.get("energy"), Types.NUMERIC);
+		stmt.setObject(first + 5, nutrients == null ? null : nutrients.get("carbohydrates"), Types.NUMERIC);
+		stmt.setObject(first + 6, nutrients == null ? null : nutrients.get("protein"), Types.NUMERIC);
+		stmt.setObject(first + 7, nutrients == null ? null : nutrients.get("fat"), Types.NUMERIC);
 		try {
-			if (connection != null && !connection.isClosed())
-				connection.close();
-		} catch (SQLException e) {
-			e.printStackTrace();
+			stmt.setString(first + 8, nutrients == null ? null : JSON.writeValueAsString(nutrients));
+		} catch (JsonProcessingException e) {
+			throw new SQLException("Failed to serialize nutrients: " + e.getMessage(), e);
 		}
 	}
 
-	private boolean recipeExists(String tableName, String url) throws SQLException {
-		String query = String.format("SELECT 1 FROM %s WHERE recipe_url = ?", tableName);
-		try (PreparedStatement stmt = connection.prepareStatement(query)) {
-			stmt.setString(1, url);
-			ResultSet rs = stmt.executeQuery();
-			return rs.next();
+	/**
+	 * Reads a recipe from a row with the columns in RECIPE_COLUMNS, the reverse
+	 * of bindRecipe. Tags are split where bindRecipe joined them.
+	 */
+	public static Recipe readRecipe(ResultSet rs) throws SQLException {
+		Recipe recipe = new Recipe();
+		recipe.setName(rs.getString("recipe_name"));
+		recipe.setRecipeCategory(rs.getString("recipe_category"));
+		recipe.setFoodCategory(rs.getString("food_category"));
+		recipe.setIngredientsText(rs.getString("ingredients"));
+		recipe.setPrepTime(rs.getString("preparation_time"));
+		recipe.setCookTime(rs.getString("cooking_time"));
+		String tags = rs.getString("tag");
+		recipe.setTags(tags == null || tags.isEmpty() ? new ArrayList<>() : Arrays.asList(tags.split(", ")));
+		recipe.setServings(rs.getString("no_of_servings"));
+		recipe.setCuisineCategory(rs.getString("cuisine_category"));
+		recipe.setDescription(rs.getString("recipe_description"));
+		recipe.setMethod(rs.getString("preparation_method"));
+		recipe.setNutrients(rs.getString("nutrient_values"));
+		recipe.setUrl(rs.getString("recipe_url"));
+		RecipeQuantities.fill(recipe);
+		return recipe;
+	}
+
+	public synchronized void close() {
+		try {
+			if (connection != null && !connection.isClosed())
+				connection.close();
+		} catch (SQLException e) {
+			logger.error("⚠ Failed to close connection: " + e.getMessage());
 		}
 	}
 }
@@ -0,0 +1,126 @@
+package utils;
+
+import filters.DietFilter;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * The KnownUrlSet class holds the URLs of every recipe scraped before, stored
+ * or rejected, as 64-bit hashes in an open-addressing long array. That takes
+ * about 16 bytes per URL instead of the few hundred a HashSet of strings
+ * needs, and unlike a Bloom filter of similar size it practically never
+ * mistakes a new URL for a known one, so no new recipe is silently skipped.
+ */
+public final class KnownUrlSet {
+	private long[] table;
+	private int size;
+
+	public KnownUrlSet(int expected) {
+		table = new long[tableSize(expected)];
+	}
+
+	/**
+	 * Loads the URLs of the recipes stored for any diet and of those scraped but
+	 * rejected by every diet, which only have a fingerprint.
+	 */
+	public static KnownUrlSet load(RecipeStorage storage, List<DietFilter> filters) throws SQLException {
+		KnownUrlSet urls = new KnownUrlSet(1024);
+		try (Connection connection = DatabaseHelper.openConnection()) {
+			connection.setAutoCommit(false);
+			try (Statement stmt = connection.createStatement()) {
+				stmt.setFetchSize(5000);
+				String sql = storage.storedUrlsSql(filters) + " UNION SELECT recipe_url FROM "
+						+ RecipeFingerprintStore.TABLE;
+				try (ResultSet rs = stmt.executeQuery(sql)) {
+					while (rs.next()) {
+						String url = rs.getString(1);
+						if (url != null) {
+							urls.add(url);
+						}
+					}
+				}
+			}
+			connection.rollback();
+		}
+		return urls;
+	}
+
+	public void add(String url) {
+		if (size + 1 > table.length / 2) {
+			resize();
+		}
+		if (insert(table, hash(url))) {
+			size++;
+		}
+	}
+
+	public boolean contains(String url) {
+		long hash = hash(url);
+		int mask = table.length - 1;
+		for (int i = (int) hash & mask;; i = (i + 1) & mask) {
+			if (table[i] == hash) {
+				return true;
+			}
+			if (table[i] == 0) {
+				return false;
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private static boolean insert(long[] table, long hash) {
+		int mask = table.length - 1;
+		for (int i = (int) hash & mask;; i = (i + 1) & mask) {
+			if (table[i] == hash) {
+				return false;
+			}
+			if (table[i] == 0) {
+				table[i] = hash;
+				return true;
+			}
+		}
+	}
+
+	private void resize() {
+		long[] larger = new long[table.length * 2];
+		for (long hash : table) {
+			if (hash != 0) {
+				insert(larger, hash);
+			}
+		}
+		table = larger;
+	}
+
+	private static int tableSize(int expected) {
+		int capacity = 16;
+		while (capacity < expected * 2) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	/**
+	 * FNV-1a over the UTF-8 bytes, finished with the SplitMix64 mixer so the low
+	 * bits used for the slot are well spread. 0 marks an empty slot, so it is
+	 * never returned.
+	 */
+	private static long hash(String url) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : url.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+		hash ^= hash >>> 31;
+		return hash != 0 ? hash : 1;
+	}
+}
@@ -0,0 +1,223 @@
+package utils;
+
+import filters.DietFilter;
+import model.Recipe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The NormalizedRecipeStorage class stores every recipe once in a single
+ * "recipes" table keyed by URL, and its diets as narrow rows in
+ * "recipe_diets". A view with the old per-diet table name (lchf_recipes, ...)
+ * is created for each diet, so existing queries keep working.
+ *
+ * If a per-diet table from the old layout is still in the way of its view, it
+ * is left alone and a warning is logged, unless legacy migration is enabled. In
+ * that case its rows are copied into the new tables and the old table is
+ * renamed to <name>_legacy.
+ */
+public class NormalizedRecipeStorage extends RecipeStorage {
+	private static final Logger logger = LogManager.getLogger(NormalizedRecipeStorage.class);
+
+	static final String RECIPES_TABLE = "recipes";
+	static final String MEMBERSHIP_TABLE = "recipe_diets";
+
+	private static final String INSERT_MEMBERSHIP_SQL = "INSERT INTO " + MEMBERSHIP_TABLE + " (recipe_id, diet) "
+			+ "SELECT recipe_id, ? FROM " + RECIPES_TABLE + " WHERE recipe_url = ? ON CONFLICT DO NOTHING";
+	private static final String DELETE_STALE_MEMBERSHIPS_SQL = "DELETE FROM " + MEMBERSHIP_TABLE + " d USING "
+			+ RECIPES_TABLE + " r WHERE d.recipe_id = r.recipe_id AND r.recipe_url = ? AND d.diet <> ALL (?)";
+	private static final String DELETE_RECIPE_SQL = "DELETE FROM " + RECIPES_TABLE + " WHERE recipe_url = ?";
+
+	private final boolean migrateLegacyTables;
+
+	public NormalizedRecipeStorage(boolean migrateLegacyTables) {
+		this.migrateLegacyTables = migrateLegacyTables;
+	}
+
+	@Override
+	public void createSchema(Connection connection, List<DietFilter> filters) throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			stmt.executeUpdate(DatabaseHelper.recipeTableSql(RECIPES_TABLE));
+			DatabaseHelper.ensureTypedColumns(connection, RECIPES_TABLE);
+			stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + MEMBERSHIP_TABLE + " ("
+					+ "recipe_id INTEGER NOT NULL REFERENCES " + RECIPES_TABLE + "(recipe_id) ON DELETE CASCADE,"
+					+ "diet TEXT NOT NULL," + DatabaseHelper.WRITTEN_XACT_DEFINITION + ","
+					+ "PRIMARY KEY (recipe_id, diet)" + ");");
+			stmt.executeUpdate("ALTER TABLE " + MEMBERSHIP_TABLE + " ADD COLUMN IF NOT EXISTS "
+					+ DatabaseHelper.WRITTEN_XACT_DEFINITION);
+			stmt.executeUpdate("CREATE INDEX IF NOT EXISTS recipe_diets_diet_idx ON " + MEMBERSHIP_TABLE
+					+ " (diet, recipe_id);");
+			stmt.executeUpdate("CREATE INDEX IF NOT EXISTS recipe_diets_written_xact_idx ON " + MEMBERSHIP_TABLE
+					+ " (diet, written_xact);");
+			logger.info("✅ Ensured tables exist: " + RECIPES_TABLE + ", " + MEMBERSHIP_TABLE);
+		}
+
+		for (DietFilter filter : filters) {
+			String viewName = filter.getDietTableName();
+			if (isBaseTable(connection, viewName)) {
+				if (!migrateLegacyTables) {
+					logger.warn("Table " + viewName + " exists, so no compatibility view was created for it. "
+							+ "Enable migrateLegacyTables to move its rows into " + RECIPES_TABLE + ".");
+					continue;
+				}
+				migrateLegacyTable(connection, filter);
+			}
+			try (Statement stmt = connection.createStatement()) {
+				stmt.executeUpdate(dietViewSql(filter));
+				logger.info("✅ Ensured view exists: " + viewName);
+			}
+		}
+	}
+
+	/**
+	 * Returns the view that exposes one diet's recipes with the columns of the
+	 * old per-diet table. Its written_xact is that of the membership, so a
+	 * recipe that joins the diet later counts as added to it then.
+	 */
+	static String dietViewSql(DietFilter filter) {
+		return "CREATE OR REPLACE VIEW " + filter.getDietTableName() + " AS SELECT r.recipe_id, "
+				+ qualified("r", DatabaseHelper.RECIPE_COLUMNS) + ", d.written_xact FROM " + RECIPES_TABLE
+				+ " r JOIN " + MEMBERSHIP_TABLE + " d ON d.recipe_id = r.recipe_id WHERE d.diet = '"
+				+ filter.getDietName().replace("'", "''") + "'";
+	}
+
+	private static String qualified(String alias, String columns) {
+		StringBuilder sql = new StringBuilder();
+		for (String column : columns.split(",")) {
+			if (sql.length() > 0) {
+				sql.append(", ");
+			}
+			sql.append(alias).append('.').append(column.trim());
+		}
+		return sql.toString();
+	}
+
+	private static boolean isBaseTable(Connection connection, String name) throws SQLException {
+		String sql = "SELECT c.relkind FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace "
+				+ "WHERE c.relname = ? AND n.nspname = current_schema()";
+		try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+			stmt.setString(1, name);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() && "r".equals(rs.getString(1));
+			}
+		}
+	}
+
+	private void migrateLegacyTable(Connection connection, DietFilter filter) throws SQLException {
+		String table = filter.getDietTableName();
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try (Statement stmt = connection.createStatement();
+				PreparedStatement membership = connection.prepareStatement("INSERT INTO " + MEMBERSHIP_TABLE
+						+ " (recipe_id, diet) SELECT r.recipe_id, ? FROM " + table + " t JOIN " + RECIPES_TABLE
+						+ " r ON r.recipe_url = t.recipe_url ON CONFLICT DO NOTHING")) {
+			// Older tables may lack the typed columns, so only the text is copied
+			int copied = stmt.executeUpdate("INSERT INTO " + RECIPES_TABLE + " (" + DatabaseHelper.TEXT_COLUMNS
+					+ ") SELECT " + DatabaseHelper.TEXT_COLUMNS + " FROM " + table
+					+ " ON CONFLICT (recipe_url) DO NOTHING");
+			membership.setString(1, filter.getDietName());
+			int members = membership.executeUpdate();
+			stmt.executeUpdate("ALTER TABLE " + table + " RENAME TO " + table + "_legacy");
+			connection.commit();
+			DatabaseHelper.ensureTypedColumns(connection, RECIPES_TABLE);
+			logger.info("Migrated " + table + ": " + copied + " new recipes, " + members + " memberships");
+		} catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	@Override
+	public String storedRecipesSql(List<DietFilter> filters) {
+		return "SELECT " + qualified("r", DatabaseHelper.RECIPE_COLUMNS) + ", ARRAY(SELECT d.diet FROM "
+				+ MEMBERSHIP_TABLE + " d WHERE d.recipe_id = r.recipe_id) AS diets FROM " + RECIPES_TABLE + " r";
+	}
+
+	@Override
+	public String storedUrlsSql(List<DietFilter> filters) {
+		return "SELECT recipe_url FROM " + RECIPES_TABLE;
+	}
+
+	@Override
+	public List<List<DietFilter>> write(Connection connection, List<Recipe> recipes,
+			List<List<DietFilter>> matchingFilters) throws SQLException {
+		boolean replace = getReplacedDiets() != null;
+
+		// Each recipe row is written once, however many diets it matches
+		PreparedStatement recipeStmt = statement(connection,
+				replace ? DatabaseHelper.upsertSql(RECIPES_TABLE) : DatabaseHelper.insertSql(RECIPES_TABLE));
+		for (int i = 0; i < recipes.size(); i++) {
+			if (!matchingFilters.get(i).isEmpty()) {
+				DatabaseHelper.bindRecipe(recipeStmt, recipes.get(i));
+				recipeStmt.addBatch();
+			}
+		}
+		recipeStmt.executeBatch();
+
+		if (replace) {
+			removeStaleMemberships(connection, recipes, matchingFilters);
+		}
+
+		PreparedStatement membershipStmt = statement(connection, INSERT_MEMBERSHIP_SQL);
+		for (int i = 0; i < recipes.size(); i++) {
+			for (DietFilter filter : matchingFilters.get(i)) {
+				membershipStmt.setString(1, filter.getDietName());
+				membershipStmt.setString(2, recipes.get(i).getUrl());
+				membershipStmt.addBatch();
+			}
+		}
+		int[] counts = membershipStmt.executeBatch();
+
+		List<List<DietFilter>> inserted = new ArrayList<>();
+		int row = 0;
+		for (int i = 0; i < recipes.size(); i++) {
+			List<DietFilter> newDiets = new ArrayList<>();
+			for (DietFilter filter : matchingFilters.get(i)) {
+				if (counts[row++] > 0 || replace) {
+					newDiets.add(filter);
+				}
+			}
+			inserted.add(newDiets);
+		}
+		return inserted;
+	}
+
+	/**
+	 * Drops the diets a recipe no longer matches, and the recipe itself if it
+	 * matches none.
+	 */
+	private void removeStaleMemberships(Connection connection, List<Recipe> recipes,
+			List<List<DietFilter>> matchingFilters) throws SQLException {
+		PreparedStatement staleStmt = statement(connection, DELETE_STALE_MEMBERSHIPS_SQL);
+		PreparedStatement deleteStmt = statement(connection, DELETE_RECIPE_SQL);
+		for (int i = 0; i < recipes.size(); i++) {
+			String url = recipes.get(i).getUrl();
+			List<DietFilter> filters = matchingFilters.get(i);
+			if (filters.isEmpty()) {
+				// Memberships go with the recipe row
+				deleteStmt.setString(1, url);
+				deleteStmt.addBatch();
+				continue;
+			}
+			String[] diets = new String[filters.size()];
+			for (int j = 0; j < diets.length; j++) {
+				diets[j] = filters.get(j).getDietName();
+			}
+			staleStmt.setString(1, url);
+			staleStmt.setArray(2, connection.createArrayOf("text", diets));
+			staleStmt.addBatch();
+		}
+		staleStmt.executeBatch();
+		deleteStmt.executeBatch();
+	}
+}
@@ -0,0 +1,121 @@
+package utils;
+
+import filters.DietFilter;
+import model.Recipe;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The PerDietTableStorage class keeps one full table per diet (lchf_recipes,
+ * lf_recipes, ...). A recipe that matches several diets is stored once in each
+ * of their tables. This is the original layout.
+ */
+public class PerDietTableStorage extends RecipeStorage {
+
+	@Override
+	public void createSchema(Connection connection, List<DietFilter> filters) throws SQLException {
+		DatabaseHelper.createDietTables(connection, filters);
+	}
+
+	/**
+	 * Collects each recipe's rows from all diet tables. The columns are taken
+	 * from whichever table comes first.
+	 */
+	@Override
+	public String storedRecipesSql(List<DietFilter> filters) {
+		StringBuilder rows = new StringBuilder();
+		for (DietFilter filter : filters) {
+			if (rows.length() > 0) {
+				rows.append(" UNION ALL ");
+			}
+			rows.append("SELECT ").append(DatabaseHelper.RECIPE_COLUMNS).append(", '")
+					.append(filter.getDietName().replace("'", "''")).append("' AS diet FROM ")
+					.append(filter.getDietTableName());
+		}
+		return "SELECT DISTINCT ON (recipe_url) " + DatabaseHelper.RECIPE_COLUMNS
+				+ ", array_agg(diet) OVER (PARTITION BY recipe_url) AS diets FROM (" + rows
+				+ ") stored ORDER BY recipe_url";
+	}
+
+	@Override
+	public String storedUrlsSql(List<DietFilter> filters) {
+		StringBuilder sql = new StringBuilder();
+		for (DietFilter filter : filters) {
+			if (sql.length() > 0) {
+				sql.append(" UNION ");
+			}
+			sql.append("SELECT recipe_url FROM ").append(filter.getDietTableName());
+		}
+		return sql.toString();
+	}
+
+	@Override
+	public List<List<DietFilter>> write(Connection connection, List<Recipe> recipes,
+			List<List<DietFilter>> matchingFilters) throws SQLException {
+		if (getReplacedDiets() != null) {
+			return replace(connection, recipes, matchingFilters);
+		}
+		List<List<DietFilter>> inserted = new ArrayList<>();
+		// Group the rows by diet table so each table gets one JDBC batch
+		Map<String, List<Integer>> recipesByTable = new LinkedHashMap<>();
+		Map<String, DietFilter> filterByTable = new LinkedHashMap<>();
+		for (int i = 0; i < recipes.size(); i++) {
+			inserted.add(new ArrayList<>());
+			for (DietFilter filter : matchingFilters.get(i)) {
+				recipesByTable.computeIfAbsent(filter.getDietTableName(), t -> new ArrayList<>()).add(i);
+				filterByTable.put(filter.getDietTableName(), filter);
+			}
+		}
+
+		for (Map.Entry<String, List<Integer>> table : recipesByTable.entrySet()) {
+			PreparedStatement stmt = statement(connection, DatabaseHelper.insertSql(table.getKey()));
+			for (int index : table.getValue()) {
+				DatabaseHelper.bindRecipe(stmt, recipes.get(index));
+				stmt.addBatch();
+			}
+			int[] counts = stmt.executeBatch();
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] > 0) {
+					inserted.get(table.getValue().get(i)).add(filterByTable.get(table.getKey()));
+				}
+			}
+		}
+		return inserted;
+	}
+
+	/**
+	 * Overwrites each recipe in the tables of the diets it matches and deletes it
+	 * from the tables of the diets it does not.
+	 */
+	private List<List<DietFilter>> replace(Connection connection, List<Recipe> recipes,
+			List<List<DietFilter>> matchingFilters) throws SQLException {
+		for (DietFilter filter : getReplacedDiets()) {
+			String table = filter.getDietTableName();
+			PreparedStatement upsert = statement(connection, DatabaseHelper.upsertSql(table));
+			PreparedStatement delete = statement(connection, "DELETE FROM " + table + " WHERE recipe_url = ?");
+			for (int i = 0; i < recipes.size(); i++) {
+				if (matchingFilters.get(i).contains(filter)) {
+					DatabaseHelper.bindRecipe(upsert, recipes.get(i));
+					upsert.addBatch();
+				} else {
+					delete.setString(1, recipes.get(i).getUrl());
+					delete.addBatch();
+				}
+			}
+			upsert.executeBatch();
+			delete.executeBatch();
+		}
+
+		List<List<DietFilter>> written = new ArrayList<>();
+		for (List<DietFilter> filters : matchingFilters) {
+			written.add(new ArrayList<>(filters));
+		}
+		return written;
+	}
+}
@@ -0,0 +1,203 @@
+package utils;
+
+import filters.DietFilter;
+import model.Recipe;
+import model.RecipeFingerprint;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RecipeBatchWriter class stores matched recipes from a background thread
+ * so scraper workers never wait on the database. Submitted recipes go into a
+ * bounded queue; the writer thread drains up to one batch at a time, writes it
+ * through the configured RecipeStorage as JDBC batches of "INSERT ... ON
+ * CONFLICT DO NOTHING" on cached prepared statements, and commits the whole
+ * batch at once. Recipe fingerprints submitted along with a recipe are written
+ * in the same transaction.
+ *
+ * Each submission returns a future that completes with the diet filters for
+ * which a new row was actually written. A recipe that slips in as the writer
+ * stops, or is still queued when it is interrupted, fails its future instead
+ * of leaving it pending.
+ */
+public class RecipeBatchWriter implements AutoCloseable {
+	private static final Logger logger = LogManager.getLogger(RecipeBatchWriter.class);
+	private static final LatencyHistogram BATCH_WRITE = MetricsRegistry.get().histogram("scraper_db_batch_seconds");
+	private static final Counter RECIPES_WRITTEN = MetricsRegistry.get().counter("scraper_db_recipes_total");
+	private static final Counter FAILED_BATCHES = MetricsRegistry.get().counter("scraper_db_failed_batches_total");
+
+	private final Connection connection;
+	private final BlockingQueue<PendingWrite> queue;
+	private final int batchSize;
+	private final long flushMillis;
+	private final RecipeStorage storage;
+	private final Thread writerThread;
+	private volatile boolean closed;
+	private volatile boolean stopped;
+
+	public RecipeBatchWriter(RecipeStorage storage, int queueCapacity, int batchSize, long flushMillis)
+			throws SQLException {
+		this.storage = storage;
+		this.connection = DatabaseHelper.openConnection();
+		this.connection.setAutoCommit(false);
+		this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+		this.batchSize = Math.max(1, batchSize);
+		this.flushMillis = Math.max(1, flushMillis);
+		this.writerThread = new Thread(this::run, "recipe-writer");
+		this.writerThread.start();
+	}
+
+	/**
+	 * Queues a recipe for every matching diet table. Blocks only when the queue
+	 * is full, which happens when the database cannot keep up with the scrapers.
+	 */
+	public CompletableFuture<List<DietFilter>> submit(Recipe recipe, List<DietFilter> filters)
+			throws InterruptedException {
+		return submit(recipe, filters, null);
+	}
+
+	/**
+	 * Queues a recipe together with its fingerprint, which may be null. The
+	 * fingerprint is written even if the recipe matches no diet, so a refresh
+	 * can skip the page while it stays unchanged.
+	 */
+	public CompletableFuture<List<DietFilter>> submit(Recipe recipe, List<DietFilter> filters,
+			RecipeFingerprint fingerprint) throws InterruptedException {
+		if (closed) {
+			throw new IllegalStateException("Recipe writer has been closed");
+		}
+		PendingWrite write = new PendingWrite(recipe, filters, fingerprint);
+		queue.put(write);
+		// Closing can stop the writer between the check above and the put
+		if (stopped) {
+			failQueued();
+		}
+		return write.result;
+	}
+
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	private void run() {
+		List<PendingWrite> batch = new ArrayList<>(batchSize);
+		try {
+			while (!closed || !queue.isEmpty()) {
+				PendingWrite first = queue.poll(flushMillis, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				writeBatch(batch);
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.warn("Recipe writer interrupted with " + queue.size() + " recipes still queued");
+		} finally {
+			stopped = true;
+			failQueued();
+		}
+	}
+
+	/**
+	 * Fails every recipe left in the queue once the writer has stopped. The
+	 * writer thread and a late submit may both get here; each recipe is taken
+	 * from the queue by one of them only.
+	 */
+	private void failQueued() {
+		PendingWrite write;
+		while ((write = queue.poll()) != null) {
+			write.result.completeExceptionally(new IllegalStateException("Recipe writer has been closed"));
+		}
+	}
+
+	private void writeBatch(List<PendingWrite> batch) {
+		List<Recipe> recipes = new ArrayList<>(batch.size());
+		List<List<DietFilter>> matchingFilters = new ArrayList<>(batch.size());
+		List<RecipeFingerprint> fingerprints = new ArrayList<>();
+		for (PendingWrite write : batch) {
+			recipes.add(write.recipe);
+			matchingFilters.add(write.filters);
+			if (write.fingerprint != null) {
+				fingerprints.add(write.fingerprint);
+			}
+		}
+
+		long start = System.nanoTime();
+		try {
+			List<List<DietFilter>> inserted = storage.write(connection, recipes, matchingFilters);
+			RecipeFingerprintStore.write(connection, fingerprints);
+			connection.commit();
+			BATCH_WRITE.recordSince(start);
+			RECIPES_WRITTEN.add(batch.size());
+
+			for (int i = 0; i < batch.size(); i++) {
+				batch.get(i).result.complete(inserted.get(i));
+			}
+		} catch (SQLException | RuntimeException e) {
+			logger.error("⚠ Failed to store batch of " + batch.size() + " recipes: " + e.getMessage());
+			FAILED_BATCHES.increment();
+			rollback();
+			for (PendingWrite write : batch) {
+				write.result.completeExceptionally(e);
+			}
+		}
+	}
+
+	private void rollback() {
+		try {
+			connection.rollback();
+		} catch (SQLException e) {
+			logger.error("⚠ Rollback failed: " + e.getMessage());
+		}
+		// A failed batch can leave statements unusable, so prepare them again
+		storage.closeStatements();
+	}
+
+	/**
+	 * Writes everything still queued, then closes the connection.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		storage.closeStatements();
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			logger.error("⚠ Failed to close recipe writer: " + e.getMessage());
+		}
+	}
+
+	private static class PendingWrite {
+		final Recipe recipe;
+		final List<DietFilter> filters;
+		final RecipeFingerprint fingerprint;
+		final CompletableFuture<List<DietFilter>> result = new CompletableFuture<>();
+
+		PendingWrite(Recipe recipe, List<DietFilter> filters, RecipeFingerprint fingerprint) {
+			this.recipe = recipe;
+			this.filters = filters;
+			this.fingerprint = fingerprint;
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package utils;
+
+import model.MinHash;
+import model.RecipeFingerprint;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * The RecipeFingerprintStore class reads and writes the "recipe_fingerprints"
+ * table, which keeps the ETag, Last-Modified value and content hash of every
+ * scraped recipe page. A refresh looks fingerprints up on a connection of its
+ * own, while new fingerprints are written by the RecipeBatchWriter in the same
+ * transaction as the recipe they belong to.
+ *
+ * Each fingerprint also keeps the MinHash signature of the recipe. Recipes
+ * found to be near-duplicates are listed in "recipe_duplicates" with the URL
+ * of their cluster, which is the first recipe of the cluster that was
+ * scraped; that recipe has no row of its own. Consumers collapse a cluster by
+ * leaving out the recipes listed there.
+ */
+public class RecipeFingerprintStore implements AutoCloseable {
+	private static final Logger logger = LogManager.getLogger(RecipeFingerprintStore.class);
+	static final String TABLE = "recipe_fingerprints";
+	static final String DUPLICATES_TABLE = "recipe_duplicates";
+
+	private static final String FIND_SQL = "SELECT etag, last_modified, content_hash FROM " + TABLE
+			+ " WHERE recipe_url = ?";
+	private static final String UPSERT_SQL = "INSERT INTO " + TABLE
+			+ " (recipe_url, etag, last_modified, content_hash, minhash, checked_at) VALUES (?, ?, ?, ?, ?, now()) "
+			+ "ON CONFLICT (recipe_url) DO UPDATE SET etag = EXCLUDED.etag, "
+			+ "last_modified = EXCLUDED.last_modified, content_hash = EXCLUDED.content_hash, "
+			+ "minhash = EXCLUDED.minhash, checked_at = EXCLUDED.checked_at";
+	private static final String UPSERT_DUPLICATE_SQL = "INSERT INTO " + DUPLICATES_TABLE
+			+ " (recipe_url, cluster_url, similarity, detected_at) VALUES (?, ?, ?, now()) "
+			+ "ON CONFLICT (recipe_url) DO UPDATE SET cluster_url = EXCLUDED.cluster_url, "
+			+ "similarity = EXCLUDED.similarity, detected_at = EXCLUDED.detected_at";
+	private static final String DELETE_DUPLICATE_SQL = "DELETE FROM " + DUPLICATES_TABLE + " WHERE recipe_url = ?";
+	private static final String SIGNATURES_SQL = "SELECT f.recipe_url, f.minhash, d.cluster_url FROM " + TABLE
+			+ " f LEFT JOIN " + DUPLICATES_TABLE + " d USING (recipe_url) WHERE f.minhash IS NOT NULL";
+
+	/**
+	 * Receives the stored signatures, see forEachSignature.
+	 */
+	public interface SignatureVisitor {
+		void visit(String url, int[] minHash, String clusterUrl);
+	}
+
+	private final Connection connection;
+	private PreparedStatement findStmt;
+
+	public RecipeFingerprintStore() throws SQLException {
+		this.connection = DatabaseHelper.openConnection();
+	}
+
+	static void createTable(Connection connection) throws SQLException {
+		try (Statement stmt = connection.createStatement()) {
+			stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + TABLE + " (" + "recipe_url TEXT PRIMARY KEY,"
+					+ "etag TEXT," + "last_modified TEXT," + "content_hash TEXT NOT NULL,"
+					+ "checked_at TIMESTAMP NOT NULL DEFAULT now()" + ");");
+			stmt.executeUpdate("ALTER TABLE " + TABLE + " ADD COLUMN IF NOT EXISTS minhash BYTEA");
+			logger.info("✅ Ensured table exists: " + TABLE);
+			stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + DUPLICATES_TABLE + " (" + "recipe_url TEXT PRIMARY KEY,"
+					+ "cluster_url TEXT NOT NULL," + "similarity REAL NOT NULL,"
+					+ "detected_at TIMESTAMP NOT NULL DEFAULT now()" + ");");
+			stmt.executeUpdate("CREATE INDEX IF NOT EXISTS " + DUPLICATES_TABLE + "_cluster_idx ON "
+					+ DUPLICATES_TABLE + " (cluster_url)");
+			logger.info("✅ Ensured table exists: " + DUPLICATES_TABLE);
+		}
+	}
+
+	/**
+	 * Passes every stored signature to the visitor, with the cluster the recipe
+	 * is a duplicate in, or null if it is not a duplicate.
+	 */
+	public synchronized void forEachSignature(SignatureVisitor visitor) throws SQLException {
+		boolean autoCommit = connection.getAutoCommit();
+		// The cursor needs a transaction
+		connection.setAutoCommit(false);
+		try (Statement stmt = connection.createStatement()) {
+			stmt.setFetchSize(1000);
+			try (ResultSet rs = stmt.executeQuery(SIGNATURES_SQL)) {
+				while (rs.next()) {
+					int[] minHash = MinHash.fromBytes(rs.getBytes(2));
+					if (minHash != null) {
+						visitor.visit(rs.getString(1), minHash, rs.getString(3));
+					}
+				}
+			}
+		} finally {
+			connection.rollback();
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	/**
+	 * Returns the fingerprint stored for a URL, or null if it was never scraped.
+	 */
+	public synchronized RecipeFingerprint find(String url) throws SQLException {
+		if (findStmt == null) {
+			findStmt = connection.prepareStatement(FIND_SQL);
+		}
+		findStmt.setString(1, url);
+		try (ResultSet rs = findStmt.executeQuery()) {
+			if (!rs.next()) {
+				return null;
+			}
+			return new RecipeFingerprint(url, rs.getString(1), rs.getString(2), rs.getString(3));
+		}
+	}
+
+	/**
+	 * Adds or replaces the given fingerprints as one JDBC batch. Committing is
+	 * left to the caller.
+	 */
+	static void write(Connection connection, List<RecipeFingerprint> fingerprints) throws SQLException {
+		if (fingerprints.isEmpty()) {
+			return;
+		}
+		try (PreparedStatement stmt = connection.prepareStatement(UPSERT_SQL)) {
+			for (RecipeFingerprint fingerprint : fingerprints) {
+				stmt.setString(1, fingerprint.getUrl());
+				stmt.setString(2, fingerprint.getEtag());
+				stmt.setString(3, fingerprint.getLastModified());
+				stmt.setString(4, fingerprint.getContentHash());
+				stmt.setBytes(5, fingerprint.getMinHash() == null ? null : MinHash.toBytes(fingerprint.getMinHash()));
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+		}
+		writeDuplicates(connection, fingerprints);
+	}
+
+	/**
+	 * Records the recipes that joined a duplicate cluster, and drops the record
+	 * of those that were checked again and no longer duplicate anything.
+	 */
+	private static void writeDuplicates(Connection connection, List<RecipeFingerprint> fingerprints)
+			throws SQLException {
+		try (PreparedStatement upsert = connection.prepareStatement(UPSERT_DUPLICATE_SQL);
+				PreparedStatement delete = connection.prepareStatement(DELETE_DUPLICATE_SQL)) {
+			boolean upserts = false;
+			boolean deletes = false;
+			for (RecipeFingerprint fingerprint : fingerprints) {
+				if (fingerprint.getClusterUrl() != null) {
+					upsert.setString(1, fingerprint.getUrl());
+					upsert.setString(2, fingerprint.getClusterUrl());
+					upsert.setFloat(3, (float) fingerprint.getSimilarity());
+					upsert.addBatch();
+					upserts = true;
+				} else if (fingerprint.getMinHash() != null) {
+					delete.setString(1, fingerprint.getUrl());
+					delete.addBatch();
+					deletes = true;
+				}
+			}
+			if (upserts) {
+				upsert.executeBatch();
+			}
+			if (deletes) {
+				delete.executeBatch();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		try {
+			if (findStmt != null) {
+				findStmt.close();
+			}
+			connection.close();
+		} catch (SQLException e) {
+			logger.error("⚠ Failed to close fingerprint store connection: " + e.getMessage());
+		}
+	}
+}
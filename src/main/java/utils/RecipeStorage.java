@@ -0,0 +1,99 @@
+package utils;
+
+import filters.DietFilter;
+import model.Recipe;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The RecipeStorage class describes how recipes and their diet memberships are
+ * laid out in the database. It creates the schema and writes batches of
+ * recipes; committing is left to the caller. Prepared statements are cached per
+ * instance, so each connection should get its own RecipeStorage.
+ */
+public abstract class RecipeStorage {
+	public static final String MODE_PER_DIET = "per_diet";
+	public static final String MODE_NORMALIZED = "normalized";
+
+	private final Map<String, PreparedStatement> statements = new HashMap<>();
+	private List<DietFilter> replacedDiets;
+
+	public static RecipeStorage forMode(String mode, boolean migrateLegacyTables) {
+		if (MODE_NORMALIZED.equalsIgnoreCase(mode)) {
+			return new NormalizedRecipeStorage(migrateLegacyTables);
+		}
+		return new PerDietTableStorage();
+	}
+
+	public abstract void createSchema(Connection connection, List<DietFilter> filters) throws SQLException;
+
+	/**
+	 * Makes write() overwrite recipes that are already stored and take them out
+	 * of any of the given diets they no longer match. Refresh runs use this to
+	 * apply recipes whose content changed.
+	 */
+	public RecipeStorage replacingExisting(List<DietFilter> allFilters) {
+		this.replacedDiets = allFilters;
+		return this;
+	}
+
+	/**
+	 * Returns the diets recipes are replaced in, or null if existing recipes are
+	 * left unchanged.
+	 */
+	protected List<DietFilter> getReplacedDiets() {
+		return replacedDiets;
+	}
+
+	/**
+	 * Writes the recipes and returns, for each recipe in order, the diets it was
+	 * newly stored for. A recipe already stored for a diet is left unchanged and
+	 * a recipe without matching diets is not stored. When replacing existing
+	 * recipes, every recipe is written for all of its diets, removed from the
+	 * others, and the result lists all of its diets.
+	 */
+	public abstract List<List<DietFilter>> write(Connection connection, List<Recipe> recipes,
+			List<List<DietFilter>> matchingFilters) throws SQLException;
+
+	/**
+	 * Returns a query for every stored recipe, once, with the columns in
+	 * DatabaseHelper.RECIPE_COLUMNS and a text array "diets" holding the names
+	 * of the diets it is stored for.
+	 */
+	public abstract String storedRecipesSql(List<DietFilter> filters);
+
+	/**
+	 * Returns a query for the URL of every stored recipe, in a column named
+	 * recipe_url, without duplicates.
+	 */
+	public abstract String storedUrlsSql(List<DietFilter> filters);
+
+	protected PreparedStatement statement(Connection connection, String sql) throws SQLException {
+		PreparedStatement stmt = statements.get(sql);
+		if (stmt == null) {
+			stmt = connection.prepareStatement(sql);
+			statements.put(sql, stmt);
+		}
+		return stmt;
+	}
+
+	/**
+	 * Closes the cached statements. They are prepared again on next use, which is
+	 * needed after a failed batch or before switching connections.
+	 */
+	public void closeStatements() {
+		for (PreparedStatement stmt : statements.values()) {
+			try {
+				stmt.close();
+			} catch (SQLException e) {
+				// The statement is discarded either way
+			}
+		}
+		statements.clear();
+	}
+}
@@ -0,0 +1,75 @@
+package fetchers;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpTimeoutException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FallbackPageFetcherTest {
+	private static final String URL = "https://www.tarladalal.com/gobi-matar-sabzi-recipe";
+
+	@Test
+	void overloadIsPassedOnWithoutAskingTheHostAgain() {
+		AtomicInteger fallbacks = new AtomicInteger();
+		for (Exception overload : new Exception[] { new HttpStatusException(429, URL),
+				new HttpStatusException(503, URL), new HttpTimeoutException("timed out") }) {
+			FallbackPageFetcher fetcher = new FallbackPageFetcher(failing(overload), () -> {
+				fallbacks.incrementAndGet();
+				return failing(new IllegalStateException("fallback"));
+			});
+
+			assertSame(overload, assertThrows(Exception.class, () -> fetcher.fetch(URL)));
+			assertSame(overload, assertThrows(Exception.class, () -> fetcher.fetchIfModified(URL, null, null)));
+			assertSame(overload, assertThrows(Exception.class, () -> fetcher.fetchListing(URL)));
+		}
+		assertEquals(0, fallbacks.get());
+	}
+
+	@Test
+	void otherFailuresFallBack() throws Exception {
+		RecipeListing listing = new RecipeListing(Collections.singletonList(URL), 1);
+		FallbackPageFetcher fetcher = new FallbackPageFetcher(
+				failing(new PageStructureException("Recipe heading not found: " + URL)), () -> new PageFetcher() {
+					@Override
+					public RecipePageParser fetch(String url) {
+						throw new UnsupportedOperationException();
+					}
+
+					@Override
+					public RecipeListing fetchListing(String url) {
+						return listing;
+					}
+
+					@Override
+					public void close() {
+					}
+				});
+
+		assertSame(listing, fetcher.fetchListing(URL));
+		assertEquals(UnsupportedOperationException.class,
+				assertThrows(Exception.class, () -> fetcher.fetch(URL)).getClass());
+	}
+
+	private static PageFetcher failing(Exception error) {
+		return new PageFetcher() {
+			@Override
+			public RecipePageParser fetch(String url) throws Exception {
+				throw error;
+			}
+
+			@Override
+			public RecipeListing fetchListing(String url) throws Exception {
+				throw error;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+}
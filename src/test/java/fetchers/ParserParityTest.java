@@ -0,0 +1,237 @@
+package fetchers;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+import scraper.WebDriverSetup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that every RecipePageParser reads the same fields from the saved
+ * recipe page. The XPath locators of SeleniumRecipePageParser, which the
+ * extraction script of ScriptedRecipePageParser evaluates too, are run through
+ * jsoup so they are compared with the CSS selectors of JsoupRecipePageParser
+ * without a browser; when Chrome is installed both WebDriver parsers are also
+ * run against the page itself.
+ */
+class ParserParityTest {
+	private static final String FIXTURE = "/fixtures/recipe.html";
+	private static final String FIXTURE_URL = "https://www.tarladalal.com/gobi-matar-sabzi-recipe";
+
+	private static Document document;
+
+	@BeforeAll
+	static void loadFixture() throws IOException {
+		try (InputStream in = ParserParityTest.class.getResourceAsStream(FIXTURE)) {
+			document = Jsoup.parse(in, "UTF-8", FIXTURE_URL);
+		}
+	}
+
+	@Test
+	void jsoupParserReadsTheSavedRecipe() {
+		JsoupRecipePageParser parser = new JsoupRecipePageParser(document);
+
+		assertEquals("Gobi Matar Sabzi", parser.getName());
+		assertEquals(Arrays.asList("Punjabi Sabzi", "Dry Sabzi", "Indian Lunch", "Dinner", "Veg", "Low Fat",
+				"Healthy Heart", "Kadai"), parser.getTags());
+		assertEquals(Arrays.asList("Home", "Recipes", "Punjabi Sabzi", "Punjabi Sabzi", "Gobi Matar Sabzi"),
+				parser.getBreadcrumbs());
+		assertEquals("10 mins", parser.getPrepTime());
+		assertEquals("15 mins", parser.getCookTime());
+		assertEquals("4 servings", parser.getServings());
+		assertTrue(parser.getIngredientsText().startsWith("Ingredients\n1 cup chopped cauliflower\n"));
+		assertTrue(parser.getMethod().endsWith("\nServe hot garnished with coriander."));
+		assertTrue(parser.getDescription().startsWith("A quick, low fat Punjabi sabzi"));
+		assertTrue(parser.getNutrients().startsWith("Energy: 142 cal, Protein: 5.2 g, "));
+	}
+
+	@Test
+	void xpathLocatorsMatchJsoupSelectors() {
+		assertSameFields(new JsoupRecipePageParser(document), new XPathPageParser(document));
+	}
+
+	@Test
+	void webDriverParsersMatchJsoupParser() throws IOException {
+		assumeTrue(chromeInstalled(), "Chrome is not installed");
+
+		Path page = Files.createTempFile("recipe", ".html");
+		WebDriver driver = WebDriverSetup.createDriver();
+		try {
+			Files.write(page, document.outerHtml().getBytes("UTF-8"));
+			driver.get(page.toUri().toString());
+
+			Map<String, Object> expected = normalized(new JsoupRecipePageParser(document));
+			assertEquals(expected, normalized(new SeleniumRecipePageParser(driver)));
+			assertEquals(expected, normalized(new ScriptedRecipePageParser(driver)));
+		} finally {
+			driver.quit();
+			Files.deleteIfExists(page);
+		}
+	}
+
+	private static void assertSameFields(RecipePageParser expected, RecipePageParser actual) {
+		Map<String, Object> expectedFields = fieldsOf(expected);
+		Map<String, Object> actualFields = fieldsOf(actual);
+		for (String field : expectedFields.keySet()) {
+			assertEquals(expectedFields.get(field), actualFields.get(field), field);
+		}
+	}
+
+	private static Map<String, Object> fieldsOf(RecipePageParser parser) {
+		Map<String, Object> fields = new LinkedHashMap<>();
+		fields.put("name", parser.getName());
+		fields.put("ingredients", parser.getIngredientsText());
+		fields.put("tags", parser.getTags());
+		fields.put("breadcrumbs", parser.getBreadcrumbs());
+		fields.put("prepTime", parser.getPrepTime());
+		fields.put("cookTime", parser.getCookTime());
+		fields.put("servings", parser.getServings());
+		fields.put("method", parser.getMethod());
+		fields.put("description", parser.getDescription());
+		fields.put("nutrients", parser.getNutrients());
+		return fields;
+	}
+
+	/**
+	 * The browser breaks lines a little differently from the jsoup rendering,
+	 * so text is compared with runs of whitespace collapsed.
+	 */
+	private static Map<String, Object> normalized(RecipePageParser parser) {
+		Map<String, Object> fields = fieldsOf(parser);
+		fields.replaceAll((field, value) -> value instanceof String ? collapse((String) value) : value);
+		return fields;
+	}
+
+	private static String collapse(String text) {
+		return text.replaceAll("\\s+", " ").trim();
+	}
+
+	private static boolean chromeInstalled() {
+		String path = System.getenv("PATH");
+		if (path == null) {
+			return false;
+		}
+		for (String dir : path.split(File.pathSeparator)) {
+			for (String name : new String[] { "google-chrome", "chromium", "chromium-browser", "chrome" }) {
+				if (Files.isExecutable(Path.of(dir, name))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the page the way SeleniumRecipePageParser does, locator by locator,
+	 * with jsoup evaluating the XPath and rendering the text.
+	 */
+	private static final class XPathPageParser implements RecipePageParser {
+		private final Document document;
+
+		XPathPageParser(Document document) {
+			this.document = document;
+		}
+
+		@Override
+		public String getName() {
+			return text(SeleniumRecipePageParser.NAME_XPATH);
+		}
+
+		@Override
+		public String getIngredientsText() {
+			return text(SeleniumRecipePageParser.INGREDIENTS_XPATH);
+		}
+
+		@Override
+		public List<String> getTags() {
+			List<String> tags = new ArrayList<>();
+			for (Element el : document.selectXpath(SeleniumRecipePageParser.TAGS_XPATH)) {
+				tags.add(JsoupRecipePageParser.textOf(el));
+			}
+			return tags;
+		}
+
+		@Override
+		public List<String> getBreadcrumbs() {
+			List<String> breadcrumbs = new ArrayList<>();
+			Elements trail = document.selectXpath(SeleniumRecipePageParser.BREADCRUMBS_XPATH);
+			if (trail.isEmpty()) {
+				return breadcrumbs;
+			}
+			for (Element link : trail.first().getElementsByTag("a")) {
+				breadcrumbs.add(JsoupRecipePageParser.textOf(link));
+			}
+			for (Element span : trail.first().getElementsByTag("span")) {
+				Elements innerLinks = span.getElementsByTag("a");
+				breadcrumbs.add(JsoupRecipePageParser.textOf(innerLinks.isEmpty() ? span : innerLinks.first()));
+			}
+			return breadcrumbs;
+		}
+
+		@Override
+		public String getPrepTime() {
+			return text(SeleniumRecipePageParser.PREP_TIME_XPATH);
+		}
+
+		@Override
+		public String getCookTime() {
+			return text(SeleniumRecipePageParser.COOK_TIME_XPATH);
+		}
+
+		@Override
+		public String getServings() {
+			return text(SeleniumRecipePageParser.SERVINGS_XPATH);
+		}
+
+		@Override
+		public String getMethod() {
+			return text(SeleniumRecipePageParser.METHOD_XPATH);
+		}
+
+		@Override
+		public String getDescription() {
+			return text(SeleniumRecipePageParser.DESCRIPTION_XPATH);
+		}
+
+		@Override
+		public String getNutrients() {
+			List<String> nutrients = new ArrayList<>();
+			for (Element row : document.selectXpath(SeleniumRecipePageParser.NUTRIENT_ROWS_XPATH)) {
+				Elements cols = row.getElementsByTag("td");
+				if (cols.size() == 2) {
+					nutrients.add(JsoupRecipePageParser.textOf(cols.get(0)) + ": "
+							+ JsoupRecipePageParser.textOf(cols.get(1)));
+				}
+			}
+			return String.join(", ", nutrients);
+		}
+
+		@Override
+		public String getPageSource() {
+			return document.outerHtml();
+		}
+
+		private String text(String xpath) {
+			Elements elements = document.selectXpath(xpath);
+			return elements.isEmpty() ? "" : JsoupRecipePageParser.textOf(elements.first());
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package filters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AhoCorasickMatcherTest {
+
+	@Test
+	void findsEveryOverlappingOccurrence() {
+		List<String> patterns = Arrays.asList("he", "she", "his", "hers");
+
+		assertEquals(Arrays.asList("she@4", "he@4", "hers@6"), matches(patterns, "ushers"));
+		assertEquals(Arrays.asList("his@3", "she@5", "he@5"), matches(patterns, "hishe"));
+	}
+
+	@Test
+	void matchesCaseInsensitively() {
+		List<String> patterns = Arrays.asList("Ghee", "crème");
+
+		assertEquals(Arrays.asList("Ghee@11"), matches(patterns, "2 tbsp GHEE"));
+		assertEquals(Arrays.asList("crème@11"), matches(patterns, "1 cup CRÈME fraîche"));
+	}
+
+	@Test
+	void findsNothingWithoutPatterns() {
+		assertEquals(Collections.emptyList(), matches(Collections.emptyList(), "anything"));
+	}
+
+	@Test
+	void wholeWordNeedsNoLetterOrDigitOnEitherSide() {
+		AhoCorasickMatcher matcher = new AhoCorasickMatcher(Arrays.asList("oat"));
+
+		assertFalse(matcher.isWholeWord("coated", 0, 4));
+		assertFalse(matcher.isWholeWord("oats", 0, 3));
+		assertTrue(matcher.isWholeWord("oat", 0, 3));
+		assertTrue(matcher.isWholeWord("rolled oat, 1 cup", 0, 10));
+	}
+
+	/**
+	 * Returns every match as the pattern and the position it ends at, in the
+	 * order the automaton reports them.
+	 */
+	private static List<String> matches(List<String> patterns, String text) {
+		AhoCorasickMatcher matcher = new AhoCorasickMatcher(patterns);
+		List<String> found = new ArrayList<>();
+		int state = matcher.start();
+		for (int i = 0; i < text.length(); i++) {
+			state = matcher.step(state, text.charAt(i));
+			for (int patternId : matcher.outputs(state)) {
+				found.add(patterns.get(patternId) + "@" + (i + 1));
+			}
+		}
+		return found;
+	}
+}
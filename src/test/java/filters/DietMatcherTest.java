@@ -0,0 +1,118 @@
+package filters;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DietMatcherTest {
+
+	@TempDir
+	Path configDir;
+
+	/**
+	 * Random recipes built from the shipped configs must get the diets the
+	 * contains() checks the matcher replaced gave them.
+	 */
+	@Test
+	void agreesWithContainsOnShippedConfigs() {
+		List<DietFilter> filters = Arrays.asList(new LFVDietFilter(), new LCHFDietFilter(), new LFDietFilter(),
+				new LFVAFDietFilter());
+		DietMatcher matcher = new DietMatcher(filters);
+
+		List<String> words = new ArrayList<>(Arrays.asList("salt", "water", "chopped", "1 cup", "2 tbsp", "Oil"));
+		List<String> tags = new ArrayList<>(Arrays.asList("Dinner", "Veg", "Punjabi Sabzi"));
+		for (DietFilter filter : filters) {
+			words.addAll(filter.getAddedIngredients());
+			words.addAll(filter.getEliminatedIngredients());
+			tags.addAll(filter.getRecipesToAvoid());
+		}
+
+		Random random = new Random(42);
+		for (int recipe = 0; recipe < 5000; recipe++) {
+			StringBuilder ingredients = new StringBuilder();
+			for (int i = random.nextInt(12); i >= 0; i--) {
+				String word = words.get(random.nextInt(words.size()));
+				ingredients.append(random.nextBoolean() ? word.toUpperCase() : word).append(", ");
+			}
+			List<String> recipeTags = new ArrayList<>();
+			for (int i = random.nextInt(4); i > 0; i--) {
+				recipeTags.add(tags.get(random.nextInt(tags.size())));
+			}
+
+			List<DietFilter> expected = filters.stream()
+					.filter(filter -> matchesWithContains(filter, ingredients.toString(), recipeTags))
+					.collect(Collectors.toList());
+			assertEquals(expected, matcher.match(ingredients.toString(), recipeTags),
+					ingredients + " " + recipeTags);
+		}
+	}
+
+	@Test
+	void singleDietChecksOfDietFilterUseTheMatcher() throws IOException {
+		DietFilter diet = diet("Test", false, "[\"spinach\"]", "[\"butter\"]", "[\"Fried\"]");
+
+		assertTrue(diet.includesAddedIngredients("1 cup chopped SPINACH"));
+		assertFalse(diet.includesAddedIngredients("1 cup chopped kale"));
+		assertTrue(diet.excludesEliminatedIngredients("1 cup chopped spinach"));
+		assertFalse(diet.excludesEliminatedIngredients("2 tbsp peanut butter"));
+		assertFalse(diet.avoidsRecipeTags(Arrays.asList("Dinner", "fried")));
+		assertTrue(diet.avoidsRecipeTags(Arrays.asList("Dinner", "Stir fried")));
+	}
+
+	@Test
+	void wholeWordDietIgnoresIngredientsInsideLongerWords() throws IOException {
+		DietFilter wholeWords = diet("Whole", true, "[\"oat\"]", "[\"egg\"]", "[]");
+		DietFilter anywhere = diet("Anywhere", false, "[\"oat\"]", "[\"egg\"]", "[]");
+		DietMatcher matcher = new DietMatcher(Arrays.asList(wholeWords, anywhere));
+
+		assertEquals(Arrays.asList(anywhere), matcher.match("coated peanuts", Collections.emptyList()));
+		assertEquals(Arrays.asList(wholeWords), matcher.match("rolled oat, 1 eggplant", Collections.emptyList()));
+		assertEquals(Collections.emptyList(), matcher.match("rolled oat, 1 egg", Collections.emptyList()));
+	}
+
+	@Test
+	void emptyAddEntryMatchesEveryRecipe() throws IOException {
+		DietFilter diet = diet("Any", false, "[\"\"]", "[]", "[]");
+
+		assertEquals(Arrays.asList(diet), new DietMatcher(Arrays.asList(diet)).match("", Collections.emptyList()));
+	}
+
+	private static boolean matchesWithContains(DietFilter filter, String ingredientsText, List<String> tags) {
+		String ingredients = ingredientsText.toLowerCase();
+		List<String> tagsLower = tags.stream().map(String::toLowerCase).collect(Collectors.toList());
+		return filter.getAddedIngredients().stream().anyMatch(i -> ingredients.contains(i.toLowerCase()))
+				&& filter.getEliminatedIngredients().stream().noneMatch(i -> ingredients.contains(i.toLowerCase()))
+				&& filter.getRecipesToAvoid().stream().noneMatch(t -> tagsLower.contains(t.toLowerCase()));
+	}
+
+	private DietFilter diet(String name, boolean wholeWords, String add, String eliminate, String avoid)
+			throws IOException {
+		Path config = configDir.resolve(name + ".json");
+		Files.writeString(config, "{\"dietName\": \"" + name + "\", \"matchWholeWords\": " + wholeWords
+				+ ", \"add\": " + add + ", \"eliminate\": " + eliminate + ", \"recipesToAvoid\": " + avoid + "}");
+		return new DietFilter(config.toString()) {
+			@Override
+			public String getDietName() {
+				return name;
+			}
+
+			@Override
+			public String getDietTableName() {
+				return name.toLowerCase() + "_recipes";
+			}
+		};
+	}
+}
@@ -0,0 +1,70 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MinHashTest {
+	static final String INGREDIENTS = "1 cup chopped cauliflower, 1/2 cup green peas, 1 tsp cumin seeds, "
+			+ "1/2 cup chopped onions, 1 tsp ginger paste, 1/2 tsp turmeric powder, 1 tsp chilli powder, "
+			+ "salt to taste, 2 tsp oil";
+	static final String METHOD = "Heat the oil in a kadai and add the cumin seeds. When the seeds crackle, add "
+			+ "the onions and saute on a medium flame for 2 minutes. Add the ginger paste, turmeric powder and "
+			+ "chilli powder and saute for a few seconds. Add the cauliflower, peas and salt, cover and cook on "
+			+ "a slow flame for 10 minutes, stirring occasionally. Serve hot garnished with coriander.";
+
+	@Test
+	void sameTextGivesTheSameSignature() {
+		int[] signature = MinHash.signature(recipe(INGREDIENTS, METHOD));
+
+		assertEquals(MinHash.SIZE, signature.length);
+		assertEquals(1.0, MinHash.similarity(signature, MinHash.signature(recipe(INGREDIENTS, METHOD))));
+		assertEquals(1.0, MinHash.similarity(signature,
+				MinHash.signature(recipe(INGREDIENTS.toUpperCase(), METHOD.replace(",", " ;")))));
+	}
+
+	@Test
+	void recipesDifferingInAFewWordsAreSimilar() {
+		int[] original = MinHash.signature(recipe(INGREDIENTS, METHOD));
+		int[] edited = MinHash.signature(recipe(INGREDIENTS.replace("2 tsp oil", "1 tbsp ghee"),
+				METHOD.replace("10 minutes", "12 minutes")));
+
+		assertTrue(MinHash.similarity(original, edited) >= 0.7, () -> "" + MinHash.similarity(original, edited));
+	}
+
+	@Test
+	void unrelatedRecipesAreNotSimilar() {
+		int[] gobi = MinHash.signature(recipe(INGREDIENTS, METHOD));
+		int[] lassi = MinHash.signature(recipe("2 cups curds, 4 tbsp sugar, 1/4 tsp cardamom powder, ice cubes",
+				"Combine the curds, sugar and cardamom in a blender and blend till smooth and frothy. "
+						+ "Pour into glasses over ice cubes and serve chilled."));
+
+		assertTrue(MinHash.similarity(gobi, lassi) < 0.2, () -> "" + MinHash.similarity(gobi, lassi));
+	}
+
+	@Test
+	void recipeWithoutTextHasNoSignature() {
+		assertNull(MinHash.signature(recipe(null, null)));
+		assertNull(MinHash.signature(recipe("", " - , ")));
+		assertEquals(MinHash.SIZE, MinHash.signature(recipe("salt", null)).length);
+	}
+
+	@Test
+	void bytesRoundTrip() {
+		int[] signature = MinHash.signature(recipe(INGREDIENTS, METHOD));
+
+		assertArrayEquals(signature, MinHash.fromBytes(MinHash.toBytes(signature)));
+		assertNull(MinHash.fromBytes(null));
+		assertNull(MinHash.fromBytes(new byte[MinHash.SIZE]));
+	}
+
+	static Recipe recipe(String ingredients, String method) {
+		Recipe recipe = new Recipe();
+		recipe.setIngredientsText(ingredients);
+		recipe.setMethod(method);
+		return recipe;
+	}
+}
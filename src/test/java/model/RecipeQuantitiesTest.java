@@ -0,0 +1,96 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RecipeQuantitiesTest {
+
+	@Test
+	void parsesDurationsInMinutes() {
+		assertEquals(10, RecipeQuantities.parseMinutes("10 mins"));
+		assertEquals(90, RecipeQuantities.parseMinutes("1 hour 30 mins"));
+		assertEquals(150, RecipeQuantities.parseMinutes("2.5 hrs"));
+		assertEquals(1445, RecipeQuantities.parseMinutes("1 day 5 minutes"));
+		assertEquals(45, RecipeQuantities.parseMinutes(" 45 "));
+		assertNull(RecipeQuantities.parseMinutes("overnight"));
+		assertNull(RecipeQuantities.parseMinutes(""));
+		assertNull(RecipeQuantities.parseMinutes(null));
+	}
+
+	@Test
+	void countsOnlyServingsAsServings() {
+		assertEquals(4, RecipeQuantities.parseServings("4 servings"));
+		assertEquals(6, RecipeQuantities.parseServings("Serves 6 people"));
+		assertEquals(2, RecipeQuantities.parseServings("2"));
+		assertNull(RecipeQuantities.parseServings("12 pieces"));
+		assertNull(RecipeQuantities.parseServings(null));
+	}
+
+	@Test
+	void normalizesNutrientNamesAndUnits() {
+		Map<String, Double> expected = new LinkedHashMap<>();
+		expected.put("energy", 142.0);
+		expected.put("protein", 5.2);
+		expected.put("carbohydrates", 14.1);
+		expected.put("fiber", 5.4);
+		expected.put("vitamin_a", 0.0010205);
+		expected.put("sodium", 0.0244);
+
+		assertEquals(expected, RecipeQuantities.parseNutrients("Energy: 142 cal, Protein: 5.2 g, "
+				+ "Total Carbohydrate: 14.1 g, Dietary Fibre: 5.4 g, Vitamin A: 1020.5 mcg, Sodium: 24.4 mg"));
+	}
+
+	@Test
+	void convertsKilojoulesToEnergyInKcal() {
+		Map<String, Double> energy = Collections.singletonMap("energy", 286.8);
+
+		assertEquals(energy, RecipeQuantities.parseNutrients("Energy: 1,200 kJ"));
+		assertEquals(energy, RecipeQuantities.parseNutrients("Energy 1,200 kJ"));
+		assertEquals(energy, RecipeQuantities.parseNutrients("Energy (kJ): 1,200"));
+		assertEquals(energy, RecipeQuantities.parseNutrients("Energy kJ: 1,200 kJ"));
+	}
+
+	@Test
+	void keepsOtherUnitsInTheName() {
+		Map<String, Double> expected = new LinkedHashMap<>();
+		expected.put("vitamin_a_iu", 500.0);
+		expected.put("vitamin_d_iu", 40.0);
+		expected.put("vitamin_b12", 0.0000024);
+
+		assertEquals(expected,
+				RecipeQuantities.parseNutrients("Vitamin A: 500 IU, Vitamin D (IU): 40, Vitamin B12: 2.4 mcg"));
+	}
+
+	@Test
+	void readsEntriesOnSeparateLines() {
+		Map<String, Double> expected = new LinkedHashMap<>();
+		expected.put("energy", 142.0);
+		expected.put("fat", 7.6);
+
+		assertEquals(expected, RecipeQuantities.parseNutrients("Energy: 142 kcal\nTotal Fat: 7.6 g"));
+		assertEquals(Collections.emptyMap(), RecipeQuantities.parseNutrients("not available"));
+	}
+
+	@Test
+	void fillSetsTheTypedFields() {
+		Recipe recipe = new Recipe();
+		recipe.setPrepTime("10 mins");
+		recipe.setCookTime("");
+		recipe.setServings("4 servings");
+		recipe.setNutrients("Energy: 142 cal, Fat: 7.6 g");
+
+		RecipeQuantities.fill(recipe);
+
+		assertEquals(10, recipe.getPrepMinutes());
+		assertNull(recipe.getCookMinutes());
+		assertEquals(10, recipe.getTotalMinutes());
+		assertEquals(4, recipe.getServingCount());
+		assertEquals(142.0, recipe.getNutrientValues().get("energy"));
+	}
+}
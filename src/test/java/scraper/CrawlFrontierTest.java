@@ -0,0 +1,189 @@
+package scraper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CrawlFrontierTest {
+	private static final int HEADER_SIZE = 8;
+	private static final int URL_RECORD_HEADER = 7;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void reopenedFrontierReplaysStatesAndAttempts() throws IOException {
+		String file = dir.resolve("frontier.log").toString();
+		try (CrawlFrontier frontier = CrawlFrontier.open(file)) {
+			assertTrue(frontier.discover("https://example.com/a"));
+			assertTrue(frontier.discover("https://example.com/b"));
+			assertTrue(frontier.discover("https://example.com/c"));
+			assertFalse(frontier.discover("https://example.com/a"));
+			frontier.setState("https://example.com/a", CrawlFrontier.State.STORED);
+			frontier.recordFailure("https://example.com/b", true);
+			frontier.recordFailure("https://example.com/b", true);
+			frontier.setState("https://example.com/d", CrawlFrontier.State.REJECTED);
+		}
+
+		try (CrawlFrontier frontier = CrawlFrontier.open(file)) {
+			assertEquals(4, frontier.size());
+			assertEquals(CrawlFrontier.State.STORED, frontier.getState("https://example.com/a"));
+			assertEquals(CrawlFrontier.State.FAILED, frontier.getState("https://example.com/b"));
+			assertEquals(2, frontier.getAttempts("https://example.com/b"));
+			assertEquals(CrawlFrontier.State.DISCOVERED, frontier.getState("https://example.com/c"));
+			assertEquals(CrawlFrontier.State.REJECTED, frontier.getState("https://example.com/d"));
+			assertNull(frontier.getState("https://example.com/e"));
+			assertEquals(1, frontier.count(CrawlFrontier.State.FAILED));
+
+			assertEquals(Arrays.asList("https://example.com/b", "https://example.com/c"),
+					sorted(frontier.pendingUrls(3)));
+			assertEquals(Arrays.asList("https://example.com/c"), sorted(frontier.pendingUrls(2)));
+		}
+	}
+
+	@Test
+	void permanentFailureUsesUpTheAttempts() throws IOException {
+		try (CrawlFrontier frontier = CrawlFrontier.open(dir.resolve("frontier.log").toString())) {
+			frontier.discover("https://example.com/gone");
+			assertEquals(1, frontier.recordFailure("https://example.com/gone", false));
+			assertFalse(frontier.pendingUrls(100).hasNext());
+
+			frontier.setState("https://example.com/gone", CrawlFrontier.State.DISCOVERED);
+			assertEquals(0, frontier.getAttempts("https://example.com/gone"));
+		}
+	}
+
+	@Test
+	void compactionKeepsOneRecordPerUrl() throws IOException {
+		String file = dir.resolve("frontier.log").toString();
+		try (CrawlFrontier frontier = CrawlFrontier.open(file)) {
+			for (int i = 0; i < 100; i++) {
+				frontier.discover("https://example.com/" + i);
+			}
+			for (int round = 0; round < 20; round++) {
+				for (int i = 0; i < 100; i++) {
+					frontier.setState("https://example.com/" + i, CrawlFrontier.State.IN_FLIGHT);
+					frontier.setState("https://example.com/" + i,
+							i % 2 == 0 ? CrawlFrontier.State.STORED : CrawlFrontier.State.REJECTED);
+				}
+			}
+			frontier.recordFailure("https://example.com/7", true);
+			frontier.compact();
+
+			// The frontier keeps working on the compacted log
+			frontier.discover("https://example.com/new");
+		}
+
+		assertEquals(101, countRecords(dir.resolve("frontier.log")));
+		try (CrawlFrontier frontier = CrawlFrontier.open(file)) {
+			assertEquals(101, frontier.size());
+			assertEquals(50, frontier.count(CrawlFrontier.State.STORED));
+			assertEquals(49, frontier.count(CrawlFrontier.State.REJECTED));
+			assertEquals(CrawlFrontier.State.FAILED, frontier.getState("https://example.com/7"));
+			assertEquals(1, frontier.getAttempts("https://example.com/7"));
+			assertEquals(CrawlFrontier.State.DISCOVERED, frontier.getState("https://example.com/new"));
+		}
+	}
+
+	@Test
+	void recordCutShortByACrashIsDropped() throws IOException {
+		Path file = dir.resolve("frontier.log");
+		try (CrawlFrontier frontier = CrawlFrontier.open(file.toString())) {
+			frontier.discover("https://example.com/a");
+		}
+
+		// A crash mid-append leaves the record body without its type byte
+		byte[] torn = "https://exam".getBytes(StandardCharsets.UTF_8);
+		int end = HEADER_SIZE + URL_RECORD_HEADER + "https://example.com/a".length();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			ByteBuffer record = ByteBuffer.allocate(URL_RECORD_HEADER + torn.length);
+			record.put((byte) 0).put((byte) 0).put((byte) 0).putInt(40).put(torn).flip();
+			channel.write(record, end);
+		}
+
+		try (CrawlFrontier frontier = CrawlFrontier.open(file.toString())) {
+			assertEquals(1, frontier.size());
+			assertTrue(frontier.discover("https://example.com/b"));
+		}
+		try (CrawlFrontier frontier = CrawlFrontier.open(file.toString())) {
+			assertEquals(2, frontier.size());
+			assertEquals(Arrays.asList("https://example.com/a", "https://example.com/b"),
+					sorted(frontier.pendingUrls(1)));
+		}
+	}
+
+	@Test
+	void corruptRecordEndsTheReplay() throws IOException {
+		Path file = dir.resolve("frontier.log");
+		try (CrawlFrontier frontier = CrawlFrontier.open(file.toString())) {
+			frontier.discover("https://example.com/a");
+		}
+		int end = HEADER_SIZE + URL_RECORD_HEADER + "https://example.com/a".length();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] { 9, 0, 0, 1, 2, 3 }), end);
+		}
+
+		try (CrawlFrontier frontier = CrawlFrontier.open(file.toString())) {
+			assertEquals(1, frontier.size());
+			assertEquals(CrawlFrontier.State.DISCOVERED, frontier.getState("https://example.com/a"));
+		}
+	}
+
+	@Test
+	void recordWithAnUnknownStateEndsTheReplay() throws IOException {
+		Path file = dir.resolve("frontier.log");
+		try (CrawlFrontier frontier = CrawlFrontier.open(file.toString())) {
+			frontier.discover("https://example.com/a");
+			frontier.discover("https://example.com/b");
+		}
+		// The state byte of the second record, above 0x7F so it reads as negative
+		int second = HEADER_SIZE + URL_RECORD_HEADER + "https://example.com/a".length();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] { (byte) 0x90 }), second + 1);
+		}
+
+		try (CrawlFrontier frontier = CrawlFrontier.open(file.toString())) {
+			assertEquals(1, frontier.size());
+			assertNull(frontier.getState("https://example.com/b"));
+		}
+	}
+
+	private static List<String> sorted(Iterator<String> urls) {
+		List<String> list = new ArrayList<>();
+		urls.forEachRemaining(list::add);
+		list.sort(null);
+		return list;
+	}
+
+	/**
+	 * Counts the records in a log by walking them from the header to the first
+	 * zero type byte.
+	 */
+	private static int countRecords(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int records = 0;
+			int position = HEADER_SIZE;
+			while (position < log.limit() && log.get(position) != 0) {
+				position += log.get(position) == 1 ? URL_RECORD_HEADER + log.getInt(position + 3) : 11;
+				records++;
+			}
+			return records;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package scraper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuplicateIndexTest {
+	private static final int SIZE = 128;
+	private static final int ROWS = 4;
+
+	@Test
+	void matchAboveTheThresholdJoinsTheFirstRecipesCluster() {
+		DuplicateIndex index = new DuplicateIndex(0.7);
+		int[] original = signature(new Random(1));
+		int[] copy = changed(original, 8, new Random(2));
+		int[] copyOfCopy = changed(copy, 8, new Random(3));
+
+		assertNull(index.add("a", original));
+		DuplicateIndex.Match match = index.add("b", copy);
+		assertNotNull(match);
+		assertEquals("a", match.getClusterUrl());
+		assertEquals((SIZE - 8) / (double) SIZE, match.getSimilarity());
+		assertEquals("a", index.add("c", copyOfCopy).getClusterUrl());
+
+		assertFalse(index.isDuplicate("a"));
+		assertTrue(index.isDuplicate("b"));
+		assertTrue(index.isDuplicate("c"));
+		assertEquals(3, index.size());
+	}
+
+	@Test
+	void candidateBelowTheThresholdIsNoMatch() {
+		int[] original = signature(new Random(1));
+		// Only the last band is left equal, so the two are candidates
+		int[] other = original.clone();
+		for (int i = 0; i < SIZE - ROWS; i++) {
+			other[i]++;
+		}
+
+		DuplicateIndex strict = new DuplicateIndex(0.7);
+		strict.add("a", original);
+		assertNull(strict.add("b", other));
+		assertFalse(strict.isDuplicate("b"));
+
+		DuplicateIndex lenient = new DuplicateIndex(0.0);
+		lenient.add("a", original);
+		assertEquals(ROWS / (double) SIZE, lenient.add("b", other).getSimilarity());
+	}
+
+	@Test
+	void readdingARecipeReplacesItsSignature() {
+		DuplicateIndex index = new DuplicateIndex(0.7);
+		int[] original = signature(new Random(1));
+		index.add("a", original);
+		index.add("b", changed(original, 4, new Random(2)));
+		assertTrue(index.isDuplicate("b"));
+
+		assertNull(index.add("b", signature(new Random(3))));
+		assertFalse(index.isDuplicate("b"));
+		assertEquals(2, index.size());
+		assertEquals("a", index.add("c", original).getClusterUrl());
+	}
+
+	/**
+	 * With 32 bands of 4 rows, a pair at a similarity of s is a candidate with
+	 * probability 1 - (1 - s^4)^32: 99.98% at 0.7 and 5% at 0.2. A threshold of
+	 * zero turns every candidate into a match.
+	 */
+	@Test
+	void bandsMakeSimilarPairsCandidatesAndDissimilarOnesRarely() {
+		assertTrue(candidateRate(0.7, new Random(7)) > 0.99);
+		double dissimilar = candidateRate(0.2, new Random(8));
+		assertTrue(dissimilar > 0.02 && dissimilar < 0.09, () -> "" + dissimilar);
+	}
+
+	private static double candidateRate(double similarity, Random random) {
+		int trials = 2000;
+		int candidates = 0;
+		for (int trial = 0; trial < trials; trial++) {
+			DuplicateIndex index = new DuplicateIndex(0.0);
+			int[] a = signature(random);
+			int[] b = a.clone();
+			for (int i = 0; i < SIZE; i++) {
+				if (random.nextDouble() >= similarity) {
+					b[i]++;
+				}
+			}
+			index.add("a", a);
+			if (index.add("b", b) != null) {
+				candidates++;
+			}
+		}
+		return (double) candidates / trials;
+	}
+
+	private static int[] signature(Random random) {
+		int[] signature = new int[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			signature[i] = random.nextInt(Integer.MAX_VALUE);
+		}
+		return signature;
+	}
+
+	/**
+	 * Returns a copy of the signature with the given number of distinct
+	 * positions changed.
+	 */
+	private static int[] changed(int[] signature, int positions, Random random) {
+		int[] copy = signature.clone();
+		int done = 0;
+		while (done < positions) {
+			int i = random.nextInt(SIZE);
+			if (copy[i] == signature[i]) {
+				copy[i] = signature[i] + 1;
+				done++;
+			}
+		}
+		return copy;
+	}
+}
@@ -0,0 +1,49 @@
+package scraper;
+
+import fetchers.HttpStatusException;
+import fetchers.PageStructureException;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.TimeoutException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.sql.SQLException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FailureClassTest {
+	private static final String URL = "https://www.tarladalal.com/gobi-matar-sabzi-recipe";
+
+	@Test
+	void pageWithoutTheRecipeIsStructural() {
+		// What SeleniumPageFetcher throws when the heading or ingredients never show up
+		assertEquals(FailureClass.STRUCTURAL, FailureClass.classify(new PageStructureException(
+				"Recipe heading or ingredients not found: " + URL, new TimeoutException("Expected condition failed"))));
+		assertEquals(FailureClass.STRUCTURAL, FailureClass.classify(new NoSuchElementException("rec-heading")));
+		assertEquals(FailureClass.STRUCTURAL,
+				FailureClass.classify(new CompletionException(new PageStructureException("No recipe: " + URL))));
+	}
+
+	@Test
+	void overloadAndLostConnectionsAreTransient() {
+		assertEquals(FailureClass.TRANSIENT, FailureClass.classify(new HttpStatusException(429, URL)));
+		assertEquals(FailureClass.TRANSIENT, FailureClass.classify(new HttpStatusException(503, URL)));
+		assertEquals(FailureClass.TRANSIENT, FailureClass.classify(new TimeoutException("page load")));
+		assertEquals(FailureClass.TRANSIENT, FailureClass.classify(new SocketTimeoutException()));
+		assertEquals(FailureClass.TRANSIENT, FailureClass.classify(new IOException("Connection reset")));
+		assertEquals(FailureClass.TRANSIENT, FailureClass.classify(new NoSuchSessionException("gone")));
+		assertEquals(FailureClass.TRANSIENT,
+				FailureClass.classify(new ExecutionException(new SQLException("deadlock", "40P01"))));
+	}
+
+	@Test
+	void missingPagesAndBugsArePermanent() {
+		assertEquals(FailureClass.PERMANENT, FailureClass.classify(new HttpStatusException(404, URL)));
+		assertEquals(FailureClass.PERMANENT, FailureClass.classify(new SQLException("bad column", "42703")));
+		assertEquals(FailureClass.PERMANENT, FailureClass.classify(new IllegalStateException("bug")));
+	}
+}
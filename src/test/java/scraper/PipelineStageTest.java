@@ -0,0 +1,74 @@
+package scraper;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class PipelineStageTest {
+
+	@Test
+	void itemWhoseProcessingThrowsIsHandedBackToTheWorker() throws Exception {
+		List<Integer> passed = new CopyOnWriteArrayList<>();
+		List<Integer> failed = new CopyOnWriteArrayList<>();
+		PipelineStage<Integer, Integer> stage = new PipelineStage<>("test", 2, 10,
+				() -> new StageWorker<Integer, Integer>() {
+			@Override
+			public void process(Integer item, Emitter<Integer> emitter) {
+				if (item % 2 == 0) {
+					throw new IllegalStateException("even");
+				}
+				passed.add(item);
+			}
+
+			@Override
+			public void failed(Integer item, Exception error) {
+				failed.add(item);
+			}
+		});
+
+		stage.start();
+		for (int i = 1; i <= 6; i++) {
+			stage.put(i);
+		}
+		stage.closeInput();
+		assertTimeoutPreemptively(Duration.ofSeconds(5), stage::awaitStopped);
+
+		assertEquals(3, passed.size());
+		assertEquals(List.of(2, 4, 6), failed.stream().sorted().collect(Collectors.toList()));
+		assertEquals(6, stage.getProcessedCount());
+	}
+
+	@Test
+	void failureWhileSettlingDoesNotStopTheStage() throws Exception {
+		List<Integer> passed = new CopyOnWriteArrayList<>();
+		PipelineStage<Integer, Integer> stage = new PipelineStage<>("test", 1, 10,
+				() -> new StageWorker<Integer, Integer>() {
+			@Override
+			public void process(Integer item, Emitter<Integer> emitter) {
+				if (item == 1) {
+					throw new IllegalStateException("first");
+				}
+				passed.add(item);
+			}
+
+			@Override
+			public void failed(Integer item, Exception error) {
+				throw new IllegalStateException("cannot settle");
+			}
+		});
+
+		stage.start();
+		stage.put(1);
+		stage.put(2);
+		stage.closeInput();
+		assertTimeoutPreemptively(Duration.ofSeconds(5), stage::awaitStopped);
+
+		assertEquals(List.of(2), passed);
+	}
+}
@@ -0,0 +1,29 @@
+package scraper;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RecipeExporterTest {
+
+	@Test
+	void snapshotWatermarkSelectsRowsItDidNotSee() {
+		assertEquals("written_xact >= '740'::xid8"
+				+ " AND NOT pg_visible_in_snapshot(written_xact, '740:752:741,748'::pg_snapshot)",
+				RecipeExporter.addedSince("740:752:741,748"));
+		assertEquals(752, RecipeExporter.snapshotXmax("740:752:741,748"));
+		assertEquals(752, RecipeExporter.snapshotXmax("752:752:"));
+	}
+
+	@Test
+	void recipeIdWatermarkOfOlderVersionsIsUsedOnce() {
+		assertEquals("recipe_id > 1200", RecipeExporter.addedSince("1200"));
+		assertEquals(0, RecipeExporter.snapshotXmax("1200"));
+	}
+
+	@Test
+	void rejectsWatermarkThatIsNeitherSnapshotNorId() {
+		assertThrows(IllegalArgumentException.class, () -> RecipeExporter.addedSince("1' OR '1'='1"));
+	}
+}
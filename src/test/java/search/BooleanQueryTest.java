@@ -0,0 +1,91 @@
+package search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BooleanQueryTest {
+
+	@Test
+	void wordsAreJoinedByAnd() {
+		assertEquals("(lfv AND paneer)", parse("LFV paneer"));
+		assertEquals("(lfv AND paneer)", parse("LFV AND paneer"));
+		assertEquals("onion", parse("Onions"));
+	}
+
+	@Test
+	void andBindsTighterThanOr() {
+		assertEquals("(a OR (b AND c))", parse("a OR b c"));
+		assertEquals("((a AND b) OR c)", parse("a AND b OR c"));
+		assertEquals("((a OR b) AND c)", parse("(a OR b) c"));
+	}
+
+	@Test
+	void notExcludesTheWordOrGroupAfterIt() {
+		assertEquals("(paneer NOT onion)", parse("paneer NOT onion"));
+		assertEquals("(paneer NOT (onion OR garlic))", parse("paneer NOT (onion OR garlic)"));
+		assertEquals("( NOT onion)", parse("NOT onion"));
+	}
+
+	@Test
+	void onlyUpperCaseOperatorsAreOperators() {
+		assertEquals("(bread AND or AND butter)", parse("bread or butter"));
+	}
+
+	@Test
+	void fieldPrefixLimitsTheWord() {
+		assertEquals("tag:diwali", parse("tags:Diwali"));
+		assertEquals("(category:punjabi OR diet:lfv)", parse("categories:Punjabi OR diet:LFV"));
+		assertEquals("(ingredient:low AND ingredient:fat)", parse("ingredient:low-fat"));
+	}
+
+	@Test
+	void malformedQueriesSayWhatIsWrong() {
+		assertEquals("Empty query", error(null));
+		assertEquals("Empty query", error("   "));
+		assertEquals("Query ends with an operator", error("paneer AND"));
+		assertEquals("Query ends with an operator", error("paneer NOT"));
+		assertEquals("Missing ')'", error("(paneer OR tofu"));
+		assertEquals("Unexpected ')'", error("paneer )"));
+		assertEquals("Unexpected 'NOT'", error("NOT NOT paneer"));
+		assertEquals("Nothing to match before 'OR'", error("OR paneer"));
+		assertEquals("Nothing to search for in 'tag:'", error("tag:"));
+		assertEquals("Unknown field 'colour', expected one of [ingredient, tag, category, diet]",
+				error("colour:red"));
+	}
+
+	private static String parse(String query) {
+		return show(BooleanQuery.parse(query));
+	}
+
+	private static String error(String query) {
+		return assertThrows(IllegalArgumentException.class, () -> BooleanQuery.parse(query)).getMessage();
+	}
+
+	/**
+	 * Writes a parsed query back as text, with every AND and OR node in
+	 * parentheses.
+	 */
+	private static String show(BooleanQuery.Node node) {
+		if (node instanceof BooleanQuery.Term) {
+			BooleanQuery.Term term = (BooleanQuery.Term) node;
+			return term.field != null ? term.field + ":" + term.word : term.word;
+		}
+		StringBuilder text = new StringBuilder("(");
+		if (node instanceof BooleanQuery.Or) {
+			for (BooleanQuery.Node alternative : ((BooleanQuery.Or) node).alternatives) {
+				text.append(text.length() > 1 ? " OR " : "").append(show(alternative));
+			}
+		} else {
+			BooleanQuery.And and = (BooleanQuery.And) node;
+			for (BooleanQuery.Node included : and.included) {
+				text.append(text.length() > 1 ? " AND " : "").append(show(included));
+			}
+			for (BooleanQuery.Node excluded : and.excluded) {
+				text.append(" NOT ").append(show(excluded));
+			}
+		}
+		return text.append(")").toString();
+	}
+}
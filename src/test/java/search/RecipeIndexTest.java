@@ -0,0 +1,133 @@
+package search;
+
+import filters.LCHFDietFilter;
+import filters.LFDietFilter;
+import filters.LFVDietFilter;
+import model.Recipe;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RecipeIndexTest {
+
+	@Test
+	void searchesEveryFieldOrJustThePrefixedOne() {
+		RecipeIndex index = new RecipeIndex();
+		index.add(recipe("palak", "1 cup spinach, 2 tomatoes", "Dinner", "Punjabi"), Arrays.asList("LFV"));
+		index.add(recipe("paneer", "200 g paneer, 1 onion", "Diwali, Dinner", "Mughlai"), Arrays.asList("LCHF"));
+		index.add(recipe("poha", "1 cup poha, 1 potato", "Breakfast", "Maharashtrian"), Arrays.asList("LFV", "LF"));
+
+		assertEquals(Arrays.asList("palak", "paneer"), urls(index.search("dinner", 10)));
+		assertEquals(Arrays.asList("palak", "poha"), urls(index.search("diet:lfv", 10)));
+		assertEquals(Arrays.asList("paneer"), urls(index.search("tag:diwali", 10)));
+		assertEquals(Arrays.asList("palak"), urls(index.search("category:punjabi", 10)));
+		assertEquals(Collections.emptyList(), urls(index.search("ingredient:punjabi", 10)));
+	}
+
+	@Test
+	void combinesWordsWithAndOrAndNot() {
+		RecipeIndex index = new RecipeIndex();
+		index.add(recipe("palak", "1 cup spinach, 2 tomatoes", "Dinner", "Punjabi"), Arrays.asList("LFV"));
+		index.add(recipe("paneer", "200 g paneer, 1 onion", "Diwali, Dinner", "Mughlai"), Arrays.asList("LCHF"));
+		index.add(recipe("poha", "1 cup poha, 1 onion", "Breakfast", "Maharashtrian"), Arrays.asList("LFV"));
+
+		assertEquals(Arrays.asList("poha"), urls(index.search("LFV onion", 10)));
+		assertEquals(Arrays.asList("palak", "poha"), urls(index.search("spinach OR breakfast", 10)));
+		assertEquals(Arrays.asList("palak", "paneer"), urls(index.search("spinach OR onion diwali", 10)));
+		assertEquals(Arrays.asList("paneer"), urls(index.search("onion NOT diet:lfv", 10)));
+		assertEquals(Arrays.asList("palak", "paneer"), urls(index.search("NOT breakfast", 10)));
+	}
+
+	@Test
+	void pluralsMatchTheSingular() {
+		RecipeIndex index = new RecipeIndex();
+		index.add(recipe("aloo", "2 potatoes, 1 tomato, 3 chillies", "Snacks", "Indian"), Arrays.asList("LFV"));
+
+		assertEquals(1, index.search("potato tomatoes snack", 10).getTotal());
+	}
+
+	@Test
+	void totalCountsEveryMatchButOnlyLimitAreReturned() {
+		RecipeIndex index = new RecipeIndex();
+		for (int i = 0; i < 5; i++) {
+			index.add(recipe("dal" + i, "1 cup toor dal", "Dinner", "Gujarati"), Arrays.asList("LFV"));
+		}
+
+		RecipeIndex.SearchResult result = index.search("dal", 2);
+		assertEquals(5, result.getTotal());
+		assertEquals(Arrays.asList("dal0", "dal1"), urls(result));
+	}
+
+	@Test
+	void updateReplacesTheDietsAndEmptyUpdateRemoves() {
+		RecipeIndex index = new RecipeIndex();
+		Recipe recipe = recipe("palak", "1 cup spinach", "Dinner", "Punjabi");
+		index.add(recipe, Arrays.asList("LFV", "LF"));
+
+		index.update(recipe, Arrays.asList(new LCHFDietFilter()));
+		assertEquals(Arrays.asList("LCHF"), index.dietsOf("palak"));
+		assertEquals(0, index.search("diet:lfv", 10).getTotal());
+		assertEquals(1, index.search("diet:lchf", 10).getTotal());
+		assertEquals(1, index.size());
+
+		index.update(recipe, Collections.emptyList());
+		assertEquals(Collections.emptyList(), index.dietsOf("palak"));
+		assertEquals(0, index.search("spinach", 10).getTotal());
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	void mergeKeepsTheDietsAlreadyIndexed() {
+		RecipeIndex index = new RecipeIndex();
+		Recipe recipe = recipe("palak", "1 cup spinach", "Dinner", "Punjabi");
+		index.add(recipe, Arrays.asList("LFV"));
+
+		index.merge(recipe, Arrays.asList(new LFDietFilter(), new LFVDietFilter()));
+		assertEquals(Arrays.asList("LFV", "LF"), index.dietsOf("palak"));
+		assertEquals(1, index.search("diet:lf diet:lfv", 10).getTotal());
+
+		index.merge(recipe, Collections.emptyList());
+		assertEquals(Arrays.asList("LFV", "LF"), index.dietsOf("palak"));
+	}
+
+	@Test
+	void removedRecipesAreNotFound() {
+		RecipeIndex index = new RecipeIndex();
+		index.add(recipe("palak", "1 cup spinach", "Dinner", "Punjabi"), Arrays.asList("LFV"));
+		index.add(recipe("saag", "2 cups spinach", "Dinner", "Punjabi"), Arrays.asList("LFV"));
+
+		index.remove("palak");
+		index.remove("unknown");
+		assertEquals(1, index.size());
+		assertEquals(Arrays.asList("saag"), urls(index.search("spinach", 10)));
+		assertEquals(Arrays.asList("saag"), urls(index.search("NOT diwali", 10)));
+	}
+
+	@Test
+	void malformedQueryIsRejected() {
+		RecipeIndex index = new RecipeIndex();
+
+		assertThrows(IllegalArgumentException.class, () -> index.search("spinach AND", 10));
+		assertThrows(IllegalArgumentException.class, () -> index.search("cuisine:punjabi", 10));
+	}
+
+	private static Recipe recipe(String url, String ingredients, String tags, String category) {
+		Recipe recipe = new Recipe();
+		recipe.setUrl(url);
+		recipe.setName(url);
+		recipe.setIngredientsText(ingredients);
+		recipe.setTags(Arrays.asList(tags.split(", ")));
+		recipe.setRecipeCategory(category);
+		return recipe;
+	}
+
+	private static List<String> urls(RecipeIndex.SearchResult result) {
+		return result.getRecipes().stream().map(RecipeIndex.IndexedRecipe::getUrl).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,53 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KnownUrlSetTest {
+
+	@Test
+	void containsOnlyTheAddedUrls() {
+		KnownUrlSet urls = new KnownUrlSet(4);
+		urls.add("https://www.tarladalal.com/gobi-matar-sabzi-recipe");
+		urls.add("https://www.tarladalal.com/palak-paneer-recipe");
+
+		assertTrue(urls.contains("https://www.tarladalal.com/gobi-matar-sabzi-recipe"));
+		assertTrue(urls.contains("https://www.tarladalal.com/palak-paneer-recipe"));
+		assertFalse(urls.contains("https://www.tarladalal.com/palak-paneer-recipe/"));
+		assertFalse(urls.contains(""));
+		assertEquals(2, urls.size());
+	}
+
+	@Test
+	void duplicatesAreCountedOnce() {
+		KnownUrlSet urls = new KnownUrlSet(4);
+		for (int i = 0; i < 3; i++) {
+			urls.add("https://www.tarladalal.com/dal-recipe");
+			urls.add("https://www.tarladalal.com/kadhi-recipe");
+		}
+
+		assertEquals(2, urls.size());
+	}
+
+	@Test
+	void growsWellPastTheExpectedSize() {
+		KnownUrlSet urls = new KnownUrlSet(1);
+		for (int i = 0; i < 10_000; i++) {
+			urls.add("https://www.tarladalal.com/recipe-" + i);
+		}
+		for (int i = 0; i < 10_000; i += 2) {
+			urls.add("https://www.tarladalal.com/recipe-" + i);
+		}
+
+		assertEquals(10_000, urls.size());
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(urls.contains("https://www.tarladalal.com/recipe-" + i), "recipe-" + i);
+		}
+		for (int i = 10_000; i < 20_000; i++) {
+			assertFalse(urls.contains("https://www.tarladalal.com/recipe-" + i), "recipe-" + i);
+		}
+	}
+}